@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Executa os benchmarks gravando o resultado em JSON e compara com o baseline
+ * gravado anteriormente. Retorna código de saída 1 quando algum benchmark
+ * ficou mais lento que o percentual tolerado ou não existe no baseline e 2
+ * quando o baseline não foi gravado (profile baseline).
+ *
+ * Uso: BaselineComparator &lt;baseline.json&gt; &lt;resultado.json&gt;
+ * [percentual]
+ *
+ * @author Edson Martins - Anteros
+ *
+ */
+public class BaselineComparator {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("Uso: BaselineComparator <baseline.json> <resultado.json> [percentual]");
+			System.exit(2);
+		}
+		File baselineFile = new File(args[0]);
+		File resultFile = new File(args[1]);
+		double threshold = (args.length > 2 ? Double.parseDouble(args[2]) : 10);
+
+		if (!baselineFile.exists()) {
+			System.err.println("Baseline " + baselineFile + " não encontrado. Use o profile baseline para gravá-lo.");
+			System.exit(2);
+		}
+
+		new Runner(new OptionsBuilder().include("br.com.anteros.persistence.benchmark.*")
+				.addProfiler(GCProfiler.class).resultFormat(ResultFormatType.JSON)
+				.result(resultFile.getAbsolutePath()).build()).run();
+
+		Map<String, Double> baseline = readScores(baselineFile);
+		Map<String, Double> current = readScores(resultFile);
+		int regressions = 0;
+		for (Entry<String, Double> entry : current.entrySet()) {
+			Double previous = baseline.get(entry.getKey());
+			if (previous == null) {
+				System.out.println(String.format("%-90s %14s %14.3f  <-- SEM BASELINE", entry.getKey(), "-",
+						Math.abs(entry.getValue())));
+				regressions++;
+				continue;
+			}
+			if (previous.doubleValue() == 0)
+				continue;
+			double difference = ((entry.getValue() - previous) / Math.abs(previous)) * 100;
+			String status = "";
+			if (difference > threshold) {
+				status = "  <-- REGRESSÃO";
+				regressions++;
+			}
+			System.out.println(String.format("%-90s %14.3f %14.3f %+8.1f%%%s", entry.getKey(), Math.abs(previous),
+					Math.abs(entry.getValue()), difference, status));
+		}
+		if (regressions > 0) {
+			System.out.println(regressions + " benchmark(s) acima de " + threshold
+					+ "% do baseline ou sem baseline. Grave o baseline novamente se o benchmark for novo.");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Lê o score de cada benchmark e das métricas secundárias de alocação do
+	 * arquivo JSON gerado pelo JMH. Os scores de vazão (thrpt) são negativos para
+	 * que em todos os casos valores maiores sejam piores.
+	 */
+	private static Map<String, Double> readScores(File file) throws Exception {
+		Map<String, Double> result = new LinkedHashMap<String, Double>();
+		Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+		try {
+			JsonArray benchmarks = new JsonParser().parse(reader).getAsJsonArray();
+			for (JsonElement element : benchmarks) {
+				JsonObject benchmark = element.getAsJsonObject();
+				String name = benchmark.get("benchmark").getAsString() + getParams(benchmark);
+				double score = benchmark.getAsJsonObject("primaryMetric").get("score").getAsDouble();
+				result.put(name, ("thrpt".equals(benchmark.get("mode").getAsString()) ? -score : score));
+				JsonObject secondary = benchmark.getAsJsonObject("secondaryMetrics");
+				if (secondary != null) {
+					for (Entry<String, JsonElement> metric : secondary.entrySet()) {
+						if (metric.getKey().endsWith("gc.alloc.rate.norm"))
+							result.put(name + ":gc.alloc.rate.norm",
+									metric.getValue().getAsJsonObject().get("score").getAsDouble());
+					}
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return result;
+	}
+
+	private static String getParams(JsonObject benchmark) {
+		JsonObject params = benchmark.getAsJsonObject("params");
+		if (params == null)
+			return "";
+		StringBuilder sb = new StringBuilder();
+		for (Entry<String, JsonElement> param : params.entrySet()) {
+			sb.append(sb.length() == 0 ? "(" : ", ").append(param.getKey()).append("=")
+					.append(param.getValue().getAsString());
+		}
+		return sb.append(")").toString();
+	}
+}
@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.benchmark;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import br.com.anteros.cloud.integration.filesharing.CloudFileManager;
+import br.com.anteros.persistence.benchmark.model.BenchCustomer;
+import br.com.anteros.persistence.benchmark.model.BenchOrder;
+import br.com.anteros.persistence.benchmark.model.BenchOrderItem;
+import br.com.anteros.persistence.dsl.osql.Configuration;
+import br.com.anteros.persistence.dsl.osql.SQLTemplates;
+import br.com.anteros.persistence.dsl.osql.templates.H2Templates;
+import br.com.anteros.persistence.dsl.osql.templates.HSQLDBTemplates;
+import br.com.anteros.persistence.session.SQLSession;
+import br.com.anteros.persistence.session.SQLSessionFactory;
+import br.com.anteros.persistence.session.configuration.AbstractPersistenceConfiguration;
+import br.com.anteros.persistence.session.configuration.AnterosPersistenceProperties;
+import br.com.anteros.persistence.sql.datasource.JDBCDataSource;
+import br.com.anteros.persistence.sql.dialect.H2Dialect;
+import br.com.anteros.persistence.sql.dialect.HSQLDialect;
+
+/**
+ * Banco de dados embarcado compartilhado pelos benchmarks. Cria as tabelas do
+ * modelo de teste e carrega os clientes usados nas consultas.
+ *
+ * A implementação da configuração é carregada pelo nome (propriedade
+ * anteros.configuration.class) para que o módulo dependa apenas da API do
+ * core.
+ *
+ * @author Edson Martins - Anteros
+ *
+ */
+@State(Scope.Benchmark)
+public class BenchmarkDatabase {
+
+	public static final String CONFIGURATION_CLASS = System.getProperty("anteros.configuration.class",
+			"br.com.anteros.persistence.session.configuration.AnterosPersistenceConfiguration");
+
+	@Param({ "h2", "hsqldb" })
+	public String database;
+
+	@Param({ "10000" })
+	public int customers;
+
+	private SQLSessionFactory sessionFactory;
+	private SQLSession session;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		sessionFactory = buildSessionFactory(0);
+		session = sessionFactory.openSession();
+		populate(session, customers);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		if (session != null)
+			session.close();
+	}
+
+	/**
+	 * Cria uma fábrica de sessões para o banco configurado. Um batchSize maior
+	 * que zero habilita o envio dos comandos em lote no flush.
+	 */
+	public SQLSessionFactory buildSessionFactory(int batchSize) throws Exception {
+		AbstractPersistenceConfiguration configuration = (AbstractPersistenceConfiguration) Class
+				.forName(CONFIGURATION_CLASS)
+				.getConstructor(DataSource.class, CloudFileManager.class, boolean.class)
+				.newInstance(createDataSource(), null, false);
+		configuration.addAnnotatedClass(BenchCustomer.class).addAnnotatedClass(BenchOrder.class)
+				.addAnnotatedClass(BenchOrderItem.class);
+		configuration.addProperty(AnterosPersistenceProperties.DIALECT, getDialectClassName());
+		configuration.addProperty(AnterosPersistenceProperties.SHOW_SQL, "false");
+		configuration.addProperty(AnterosPersistenceProperties.FORMAT_SQL, "false");
+		configuration.addProperty(AnterosPersistenceProperties.BATCH_SIZE, String.valueOf(batchSize));
+		configuration.addProperty(AnterosPersistenceProperties.DATABASE_DDL_GENERATION,
+				AnterosPersistenceProperties.CREATE_OR_EXTEND);
+		configuration.addProperty(AnterosPersistenceProperties.DDL_OUTPUT_MODE,
+				AnterosPersistenceProperties.DDL_DATABASE_OUTPUT);
+		configuration.addProperty(AnterosPersistenceProperties.USE_BEAN_VALIDATION, "false");
+		return configuration.buildSessionFactory();
+	}
+
+	private DataSource createDataSource() throws Exception {
+		if ("hsqldb".equals(database))
+			return new JDBCDataSource("org.hsqldb.jdbc.JDBCDriver", "sa", "", "jdbc:hsqldb:mem:anteros-benchmark");
+		return new JDBCDataSource("org.h2.Driver", "sa", "", "jdbc:h2:mem:anteros-benchmark;DB_CLOSE_DELAY=-1");
+	}
+
+	private String getDialectClassName() {
+		if ("hsqldb".equals(database))
+			return HSQLDialect.class.getName();
+		return H2Dialect.class.getName();
+	}
+
+	public SQLTemplates createTemplates() {
+		if ("hsqldb".equals(database))
+			return new HSQLDBTemplates();
+		return new H2Templates();
+	}
+
+	public Configuration createOSQLConfiguration() {
+		return new Configuration(session.getEntityCacheManager(), session.getDialect(), createTemplates());
+	}
+
+	private static void populate(SQLSession session, int customers) throws Exception {
+		session.getTransaction().begin();
+		try {
+			for (int i = 0; i < customers; i++)
+				session.save(newCustomer(i));
+			session.getTransaction().commit();
+		} catch (Exception e) {
+			session.getTransaction().rollback();
+			throw e;
+		}
+		session.clear();
+	}
+
+	public static BenchCustomer newCustomer(int index) {
+		BenchCustomer customer = new BenchCustomer();
+		customer.setName("Cliente " + index);
+		customer.setEmail("cliente" + index + "@anteros.com.br");
+		customer.setCreditLimit(new BigDecimal(1000 + (index % 500)));
+		customer.setPoints(index % 1000);
+		customer.setCreatedAt(new Date());
+		return customer;
+	}
+
+	public static BenchOrder newOrder(BenchCustomer customer, int items) {
+		BenchOrder order = new BenchOrder();
+		order.setCustomer(customer);
+		order.setOrderDate(new Date());
+		BigDecimal total = BigDecimal.ZERO;
+		for (int i = 0; i < items; i++) {
+			BigDecimal price = new BigDecimal(10 + i);
+			order.addItem("Produto " + i, i + 1, price);
+			total = total.add(price.multiply(new BigDecimal(i + 1)));
+		}
+		order.setTotal(total);
+		return order;
+	}
+
+	public SQLSessionFactory getSessionFactory() {
+		return sessionFactory;
+	}
+
+	public SQLSession getSession() {
+		return session;
+	}
+}
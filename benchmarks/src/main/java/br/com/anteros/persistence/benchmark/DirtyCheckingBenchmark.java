@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import br.com.anteros.persistence.benchmark.model.BenchCustomer;
+import br.com.anteros.persistence.metadata.EntityCache;
+import br.com.anteros.persistence.session.SQLSession;
+
+/**
+ * Verificação dos campos alterados pelo EntityCache.getFieldsModified em
+ * objetos gerenciados pela sessão.
+ *
+ * @author Edson Martins - Anteros
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DirtyCheckingBenchmark {
+
+	@Param({ "1000" })
+	public int objects;
+
+	private SQLSession session;
+	private EntityCache entityCache;
+	private List<BenchCustomer> customers;
+
+	@Setup(Level.Trial)
+	public void setUp(BenchmarkDatabase database) throws Exception {
+		session = database.getSessionFactory().openSession();
+		entityCache = session.getEntityCacheManager().getEntityCache(BenchCustomer.class);
+		customers = session.createQuery("SELECT C.* FROM BENCH_CUSTOMER C", BenchCustomer.class)
+				.setMaxResults(objects).getResultList();
+		/*
+		 * Metade dos objetos com um campo alterado
+		 */
+		for (int i = 0; i < customers.size(); i += 2)
+			customers.get(i).setPoints(-1);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		session.close();
+	}
+
+	@Benchmark
+	public void getFieldsModified(Blackhole blackhole) throws Exception {
+		for (BenchCustomer customer : customers)
+			blackhole.consume(entityCache.getFieldsModified(session, customer));
+	}
+}
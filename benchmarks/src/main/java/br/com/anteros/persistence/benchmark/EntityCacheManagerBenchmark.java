@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.benchmark;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.anteros.persistence.benchmark.model.SyntheticModel;
+import br.com.anteros.persistence.metadata.EntityCacheManager;
+import br.com.anteros.persistence.sql.dialect.H2Dialect;
+
+/**
+ * Leitura pelo EntityCacheManager de um modelo sintético de entidades, em uma
+ * única thread e em paralelo com uma thread por processador.
+ *
+ * @author Edson Martins - Anteros
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EntityCacheManagerBenchmark {
+
+	@Param({ "2000" })
+	public int entities;
+
+	/**
+	 * Zero usa a quantidade de processadores.
+	 */
+	@Param({ "1", "0" })
+	public int parallelism;
+
+	private List<Class<? extends Serializable>> classes;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		classes = new SyntheticModel(entities).getClasses();
+	}
+
+	@Benchmark
+	public EntityCacheManager load() throws Exception {
+		EntityCacheManager result = new EntityCacheManager();
+		if (parallelism > 0)
+			result.setParallelism(parallelism);
+		result.load(new ArrayList<Class<? extends Serializable>>(classes), true, null, new H2Dialect(),
+				new HashMap<Object, Class<?>>());
+		return result;
+	}
+}
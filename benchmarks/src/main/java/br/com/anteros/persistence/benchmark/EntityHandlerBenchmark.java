@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.anteros.persistence.benchmark.model.BenchCustomer;
+import br.com.anteros.persistence.session.SQLSession;
+
+/**
+ * Montagem dos objetos pelo EntityHandler a partir do ResultSet. A sessão é
+ * limpa a cada execução para que os objetos sejam sempre criados.
+ *
+ * @author Edson Martins - Anteros
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class EntityHandlerBenchmark {
+
+	@Benchmark
+	public List<BenchCustomer> mapRows(BenchmarkDatabase database) throws Exception {
+		SQLSession session = database.getSession();
+		session.clear();
+		return session.createQuery("SELECT C.* FROM BENCH_CUSTOMER C", BenchCustomer.class).getResultList();
+	}
+
+	@Benchmark
+	public List<BenchCustomer> mapRowsReadOnly(BenchmarkDatabase database) throws Exception {
+		SQLSession session = database.getSession();
+		session.clear();
+		return session.createQuery("SELECT C.* FROM BENCH_CUSTOMER C", BenchCustomer.class).setReadOnly(true)
+				.getResultList();
+	}
+}
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.benchmark;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.anteros.persistence.metadata.identifier.SequenceGenerator;
+import br.com.anteros.persistence.session.SQLSession;
+import br.com.anteros.persistence.session.SQLSessionFactory;
+
+/**
+ * Identificadores gerados por segundo por 64 sessões simultâneas usando uma
+ * sequência no H2. Compara o pool de blocos compartilhado pela fábrica
+ * (shared) com o cache de sequências de cada sessão (session). O resultado é
+ * a soma das operações de todas as threads, ou seja, ids/s.
+ *
+ * @author Edson Martins - Anteros
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Threads(64)
+@Fork(1)
+public class IdentifierGeneratorBenchmark {
+
+	private static final String SEQUENCE_NAME = "BENCH_ID_SEQ";
+
+	@Param({ "1", "50" })
+	public int allocationSize;
+
+	@Param({ "shared", "session" })
+	public String mode;
+
+	private SQLSessionFactory sessionFactory;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		BenchmarkDatabase database = new BenchmarkDatabase();
+		database.database = "h2";
+		sessionFactory = database.buildSessionFactory(0);
+		SQLSession session = sessionFactory.openSession();
+		try {
+			session.executeDDL("DROP SEQUENCE IF EXISTS " + SEQUENCE_NAME);
+			session.executeDDL("CREATE SEQUENCE " + SEQUENCE_NAME + " START WITH 1 INCREMENT BY " + allocationSize);
+		} finally {
+			session.close();
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class SessionState {
+		private SQLSession session;
+		private BenchSequenceGenerator generator;
+		private boolean shared;
+
+		@Setup(Level.Trial)
+		public void setUp(IdentifierGeneratorBenchmark benchmark) throws Exception {
+			session = benchmark.sessionFactory.openSession();
+			generator = new BenchSequenceGenerator(session, benchmark.allocationSize);
+			shared = "shared".equals(benchmark.mode);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws Exception {
+			session.close();
+		}
+	}
+
+	@Benchmark
+	public Serializable nextId(SessionState state) throws Exception {
+		if (state.shared)
+			return state.generator.generate();
+		return state.generator.generateInSession();
+	}
+
+	/**
+	 * Expõe a geração pelo cache de sequências da sessão para comparação.
+	 */
+	static class BenchSequenceGenerator extends SequenceGenerator {
+
+		BenchSequenceGenerator(SQLSession session, int allocationSize) throws Exception {
+			super(session, null, null, SEQUENCE_NAME, null, Long.class, 1, allocationSize);
+		}
+
+		@Override
+		protected Long generateInSession() throws Exception {
+			return super.generateInSession();
+		}
+	}
+}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.anteros.persistence.benchmark.model.BenchCustomer;
+import br.com.anteros.persistence.benchmark.model.BenchOrder;
+import br.com.anteros.persistence.session.SQLSession;
+
+/**
+ * Gravação de um grafo cliente, pedido e itens pelo SQLPersisterImpl com e
+ * sem envio em lote. A transação é desfeita a cada execução para manter o
+ * tamanho das tabelas constante.
+ *
+ * @author Edson Martins - Anteros
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class PersisterBenchmark {
+
+	@Param({ "0", "50" })
+	public int batchSize;
+
+	@Param({ "20" })
+	public int orderItems;
+
+	private SQLSession session;
+	private int sequence;
+
+	@Setup(Level.Trial)
+	public void setUp(BenchmarkDatabase database) throws Exception {
+		session = database.buildSessionFactory(batchSize).openSession();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		session.close();
+	}
+
+	@Benchmark
+	public BenchOrder saveGraph() throws Exception {
+		session.getTransaction().begin();
+		try {
+			BenchCustomer customer = BenchmarkDatabase.newCustomer(sequence++);
+			session.save(customer);
+			BenchOrder order = BenchmarkDatabase.newOrder(customer, orderItems);
+			session.save(order);
+			session.flush();
+			return order;
+		} finally {
+			session.getTransaction().rollback();
+			session.clear();
+		}
+	}
+}
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.anteros.persistence.benchmark.model.BenchOrderItem;
+import br.com.anteros.persistence.session.SQLSession;
+import br.com.anteros.persistence.session.query.SQLQueryAnalyzer;
+import br.com.anteros.persistence.session.query.SQLQueryAnalyzerResult;
+
+/**
+ * Análise de um SQL com junções pelo SQLQueryAnalyzer, sem o cache de
+ * metadados.
+ *
+ * @author Edson Martins - Anteros
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SQLQueryAnalyzerBenchmark {
+
+	public static final String SQL = "SELECT I.*, P.*, C.* FROM BENCH_ORDER_ITEM I "
+			+ "INNER JOIN BENCH_ORDER P ON (P.ID_ORDER = I.ID_ORDER) "
+			+ "INNER JOIN BENCH_CUSTOMER C ON (C.ID_CUSTOMER = P.ID_CUSTOMER) "
+			+ "WHERE C.NAME LIKE :NAME AND P.TOTAL > :TOTAL ORDER BY P.ORDER_DATE";
+
+	@Benchmark
+	public SQLQueryAnalyzerResult analyze(BenchmarkDatabase database) throws Exception {
+		SQLSession session = database.getSession();
+		return new SQLQueryAnalyzer(session.getEntityCacheManager(), session.getDialect(), false).analyze(SQL,
+				BenchOrderItem.class);
+	}
+}
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.anteros.persistence.benchmark.model.BenchOrder;
+import br.com.anteros.persistence.dsl.osql.Configuration;
+import br.com.anteros.persistence.dsl.osql.OSQLQuery;
+import br.com.anteros.persistence.dsl.osql.SQLBindings;
+import br.com.anteros.persistence.dsl.osql.types.path.PathBuilder;
+
+/**
+ * Geração do SQL de uma consulta OSQL pelo SQLSerializer.
+ *
+ * @author Edson Martins - Anteros
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SQLSerializerBenchmark {
+
+	private Configuration configuration;
+	private PathBuilder<BenchOrder> order;
+
+	@Setup(Level.Trial)
+	public void setUp(BenchmarkDatabase database) {
+		configuration = database.createOSQLConfiguration();
+		order = new PathBuilder<BenchOrder>(BenchOrder.class, "ORD");
+	}
+
+	@Benchmark
+	public SQLBindings serialize() {
+		return new OSQLQuery(configuration).from(order)
+				.where(order.getNumber("total", BigDecimal.class).gt(new BigDecimal(100)),
+						order.getNumber("id", Long.class).lt(1000L))
+				.getSQL(order);
+	}
+}
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.benchmark.model;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Date;
+
+import br.com.anteros.persistence.metadata.annotation.Column;
+import br.com.anteros.persistence.metadata.annotation.Entity;
+import br.com.anteros.persistence.metadata.annotation.GeneratedValue;
+import br.com.anteros.persistence.metadata.annotation.Id;
+import br.com.anteros.persistence.metadata.annotation.Table;
+import br.com.anteros.persistence.metadata.annotation.Temporal;
+import br.com.anteros.persistence.metadata.annotation.type.GeneratedType;
+import br.com.anteros.persistence.metadata.annotation.type.TemporalType;
+
+@Entity
+@Table(name = "BENCH_CUSTOMER")
+public class BenchCustomer implements Serializable {
+
+	@Id
+	@GeneratedValue(strategy = GeneratedType.IDENTITY)
+	@Column(name = "ID_CUSTOMER", required = true)
+	private Long id;
+
+	@Column(name = "NAME", length = 100, required = true)
+	private String name;
+
+	@Column(name = "EMAIL", length = 100)
+	private String email;
+
+	@Column(name = "CREDIT_LIMIT", precision = 14, scale = 2)
+	private BigDecimal creditLimit;
+
+	@Column(name = "POINTS")
+	private Integer points;
+
+	@Temporal(TemporalType.DATE_TIME)
+	@Column(name = "CREATED_AT")
+	private Date createdAt;
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public String getEmail() {
+		return email;
+	}
+
+	public void setEmail(String email) {
+		this.email = email;
+	}
+
+	public BigDecimal getCreditLimit() {
+		return creditLimit;
+	}
+
+	public void setCreditLimit(BigDecimal creditLimit) {
+		this.creditLimit = creditLimit;
+	}
+
+	public Integer getPoints() {
+		return points;
+	}
+
+	public void setPoints(Integer points) {
+		this.points = points;
+	}
+
+	public Date getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Date createdAt) {
+		this.createdAt = createdAt;
+	}
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.benchmark.model;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import br.com.anteros.persistence.metadata.annotation.Cascade;
+import br.com.anteros.persistence.metadata.annotation.Column;
+import br.com.anteros.persistence.metadata.annotation.Entity;
+import br.com.anteros.persistence.metadata.annotation.Fetch;
+import br.com.anteros.persistence.metadata.annotation.ForeignKey;
+import br.com.anteros.persistence.metadata.annotation.GeneratedValue;
+import br.com.anteros.persistence.metadata.annotation.Id;
+import br.com.anteros.persistence.metadata.annotation.Table;
+import br.com.anteros.persistence.metadata.annotation.Temporal;
+import br.com.anteros.persistence.metadata.annotation.type.CascadeType;
+import br.com.anteros.persistence.metadata.annotation.type.FetchMode;
+import br.com.anteros.persistence.metadata.annotation.type.FetchType;
+import br.com.anteros.persistence.metadata.annotation.type.GeneratedType;
+import br.com.anteros.persistence.metadata.annotation.type.TemporalType;
+
+@Entity
+@Table(name = "BENCH_ORDER")
+public class BenchOrder implements Serializable {
+
+	@Id
+	@GeneratedValue(strategy = GeneratedType.IDENTITY)
+	@Column(name = "ID_ORDER", required = true)
+	private Long id;
+
+	@ForeignKey(type = FetchType.LAZY)
+	@Column(name = "ID_CUSTOMER", required = true, inversedColumn = "ID_CUSTOMER")
+	private BenchCustomer customer;
+
+	@Temporal(TemporalType.DATE_TIME)
+	@Column(name = "ORDER_DATE", required = true)
+	private Date orderDate;
+
+	@Column(name = "TOTAL", precision = 14, scale = 2)
+	private BigDecimal total;
+
+	@Fetch(type = FetchType.LAZY, mode = FetchMode.ONE_TO_MANY, mappedBy = "order")
+	@Cascade(values = { CascadeType.ALL })
+	private List<BenchOrderItem> items = new ArrayList<BenchOrderItem>();
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public BenchCustomer getCustomer() {
+		return customer;
+	}
+
+	public void setCustomer(BenchCustomer customer) {
+		this.customer = customer;
+	}
+
+	public Date getOrderDate() {
+		return orderDate;
+	}
+
+	public void setOrderDate(Date orderDate) {
+		this.orderDate = orderDate;
+	}
+
+	public BigDecimal getTotal() {
+		return total;
+	}
+
+	public void setTotal(BigDecimal total) {
+		this.total = total;
+	}
+
+	public List<BenchOrderItem> getItems() {
+		return items;
+	}
+
+	public void setItems(List<BenchOrderItem> items) {
+		this.items = items;
+	}
+
+	public BenchOrderItem addItem(String product, int quantity, BigDecimal price) {
+		BenchOrderItem item = new BenchOrderItem();
+		item.setOrder(this);
+		item.setProduct(product);
+		item.setQuantity(quantity);
+		item.setPrice(price);
+		items.add(item);
+		return item;
+	}
+}
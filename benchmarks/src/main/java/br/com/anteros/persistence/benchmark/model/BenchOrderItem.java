@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.benchmark.model;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+import br.com.anteros.persistence.metadata.annotation.Column;
+import br.com.anteros.persistence.metadata.annotation.Entity;
+import br.com.anteros.persistence.metadata.annotation.ForeignKey;
+import br.com.anteros.persistence.metadata.annotation.GeneratedValue;
+import br.com.anteros.persistence.metadata.annotation.Id;
+import br.com.anteros.persistence.metadata.annotation.Table;
+import br.com.anteros.persistence.metadata.annotation.type.FetchType;
+import br.com.anteros.persistence.metadata.annotation.type.GeneratedType;
+
+@Entity
+@Table(name = "BENCH_ORDER_ITEM")
+public class BenchOrderItem implements Serializable {
+
+	@Id
+	@GeneratedValue(strategy = GeneratedType.IDENTITY)
+	@Column(name = "ID_ORDER_ITEM", required = true)
+	private Long id;
+
+	@ForeignKey(type = FetchType.LAZY)
+	@Column(name = "ID_ORDER", required = true, inversedColumn = "ID_ORDER")
+	private BenchOrder order;
+
+	@Column(name = "PRODUCT", length = 60, required = true)
+	private String product;
+
+	@Column(name = "QUANTITY", required = true)
+	private Integer quantity;
+
+	@Column(name = "PRICE", precision = 14, scale = 2, required = true)
+	private BigDecimal price;
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public BenchOrder getOrder() {
+		return order;
+	}
+
+	public void setOrder(BenchOrder order) {
+		this.order = order;
+	}
+
+	public String getProduct() {
+		return product;
+	}
+
+	public void setProduct(String product) {
+		this.product = product;
+	}
+
+	public Integer getQuantity() {
+		return quantity;
+	}
+
+	public void setQuantity(Integer quantity) {
+		this.quantity = quantity;
+	}
+
+	public BigDecimal getPrice() {
+		return price;
+	}
+
+	public void setPrice(BigDecimal price) {
+		this.price = price;
+	}
+}
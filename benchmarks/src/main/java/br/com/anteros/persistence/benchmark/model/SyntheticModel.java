@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.benchmark.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Gera em memória um modelo sintético com a quantidade de entidades informada.
+ *
+ * Cada entidade possui id, nome, valor, data e uma chave estrangeira para
+ * outra entidade do modelo, formando uma árvore de dependências.
+ *
+ * @author Edson Martins - Anteros
+ *
+ */
+public class SyntheticModel implements Opcodes {
+
+	private static final String PACKAGE = "br/com/anteros/persistence/benchmark/model/synthetic/";
+	private static final String ANNOTATION_PACKAGE = "Lbr/com/anteros/persistence/metadata/annotation/";
+
+	private final List<Class<? extends Serializable>> classes = new ArrayList<Class<? extends Serializable>>();
+
+	@SuppressWarnings("unchecked")
+	public SyntheticModel(int entities) {
+		SyntheticClassLoader classLoader = new SyntheticClassLoader(SyntheticModel.class.getClassLoader());
+		for (int i = 0; i < entities; i++)
+			classes.add((Class<? extends Serializable>) classLoader.define(getClassName(i).replace('/', '.'),
+					generate(i)));
+	}
+
+	public List<Class<? extends Serializable>> getClasses() {
+		return classes;
+	}
+
+	private static String getClassName(int index) {
+		return PACKAGE + "SynthEntity" + index;
+	}
+
+	private static byte[] generate(int index) {
+		String className = getClassName(index);
+		ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		writer.visit(V1_8, ACC_PUBLIC | ACC_SUPER, className, null, "java/lang/Object",
+				new String[] { "java/io/Serializable" });
+		writer.visitAnnotation(ANNOTATION_PACKAGE + "Entity;", true).visitEnd();
+		AnnotationVisitor table = writer.visitAnnotation(ANNOTATION_PACKAGE + "Table;", true);
+		table.visit("name", "SYNTH_ENTITY_" + index);
+		table.visitEnd();
+
+		MethodVisitor constructor = writer.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+		constructor.visitCode();
+		constructor.visitVarInsn(ALOAD, 0);
+		constructor.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+		constructor.visitInsn(RETURN);
+		constructor.visitMaxs(0, 0);
+		constructor.visitEnd();
+
+		FieldVisitor id = addProperty(writer, className, "id", "Ljava/lang/Long;");
+		id.visitAnnotation(ANNOTATION_PACKAGE + "Id;", true).visitEnd();
+		column(id, "ID_ENTITY").visitEnd();
+		id.visitEnd();
+
+		FieldVisitor name = addProperty(writer, className, "name", "Ljava/lang/String;");
+		AnnotationVisitor nameColumn = column(name, "NAME");
+		nameColumn.visit("length", 60);
+		nameColumn.visitEnd();
+		name.visitEnd();
+
+		FieldVisitor amount = addProperty(writer, className, "amount", "Ljava/math/BigDecimal;");
+		AnnotationVisitor amountColumn = column(amount, "AMOUNT");
+		amountColumn.visit("precision", 14);
+		amountColumn.visit("scale", 2);
+		amountColumn.visitEnd();
+		amount.visitEnd();
+
+		FieldVisitor createdAt = addProperty(writer, className, "createdAt", "Ljava/util/Date;");
+		AnnotationVisitor temporal = createdAt.visitAnnotation(ANNOTATION_PACKAGE + "Temporal;", true);
+		temporal.visitEnum("value", "Lbr/com/anteros/persistence/metadata/annotation/type/TemporalType;",
+				"DATE_TIME");
+		temporal.visitEnd();
+		column(createdAt, "CREATED_AT").visitEnd();
+		createdAt.visitEnd();
+
+		if (index > 0) {
+			FieldVisitor parent = addProperty(writer, className, "parent",
+					"L" + getClassName((index - 1) / 2) + ";");
+			AnnotationVisitor foreignKey = parent.visitAnnotation(ANNOTATION_PACKAGE + "ForeignKey;", true);
+			foreignKey.visitEnum("type", "Lbr/com/anteros/persistence/metadata/annotation/type/FetchType;", "LAZY");
+			foreignKey.visitEnd();
+			AnnotationVisitor parentColumn = column(parent, "ID_PARENT");
+			parentColumn.visit("inversedColumn", "ID_ENTITY");
+			parentColumn.visitEnd();
+			parent.visitEnd();
+		}
+
+		writer.visitEnd();
+		return writer.toByteArray();
+	}
+
+	private static AnnotationVisitor column(FieldVisitor field, String name) {
+		AnnotationVisitor result = field.visitAnnotation(ANNOTATION_PACKAGE + "Column;", true);
+		result.visit("name", name);
+		return result;
+	}
+
+	/**
+	 * Cria o campo privado com os métodos get e set.
+	 */
+	private static FieldVisitor addProperty(ClassWriter writer, String className, String name, String descriptor) {
+		String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+		MethodVisitor getter = writer.visitMethod(ACC_PUBLIC, "get" + suffix, "()" + descriptor, null, null);
+		getter.visitCode();
+		getter.visitVarInsn(ALOAD, 0);
+		getter.visitFieldInsn(GETFIELD, className, name, descriptor);
+		getter.visitInsn(ARETURN);
+		getter.visitMaxs(0, 0);
+		getter.visitEnd();
+
+		MethodVisitor setter = writer.visitMethod(ACC_PUBLIC, "set" + suffix, "(" + descriptor + ")V", null, null);
+		setter.visitCode();
+		setter.visitVarInsn(ALOAD, 0);
+		setter.visitVarInsn(ALOAD, 1);
+		setter.visitFieldInsn(PUTFIELD, className, name, descriptor);
+		setter.visitInsn(RETURN);
+		setter.visitMaxs(0, 0);
+		setter.visitEnd();
+
+		return writer.visitField(ACC_PRIVATE, name, descriptor, null, null);
+	}
+
+	private static class SyntheticClassLoader extends ClassLoader {
+
+		SyntheticClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		Class<?> define(String name, byte[] bytes) {
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+}
@@ -12,15 +12,17 @@
  *******************************************************************************/
 package br.com.anteros.persistence.dsl.osql;
 
-import java.io.Closeable;
 import java.sql.ResultSet;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.Iterator;
-import java.util.LinkedHashSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import br.com.anteros.core.log.Logger;
 import br.com.anteros.core.log.LoggerProvider;
@@ -103,6 +105,8 @@ public abstract class AbstractOSQLQuery<Q extends AbstractOSQLQuery<Q>> extends
 	
 	protected Expression<?>[] select;
 
+	protected int evictionSize = 0;
+
 	public AbstractOSQLQuery(Configuration configuration) {
 		this(null, configuration, new DefaultQueryMetadata().noValidate());
 	}
@@ -114,7 +118,7 @@ public abstract class AbstractOSQLQuery<Q extends AbstractOSQLQuery<Q>> extends
 	public AbstractOSQLQuery(SQLSession session, Configuration configuration, QueryMetadata metadata) {
 		super(new QueryMixin<Q>(metadata, false), configuration.getTemplates());
 		this.session = session;
-		this.useLiterals = true;
+		this.useLiterals = false;
 		this.analyser = new SQLAnalyser(this.getMetadata(), configuration, null);
 		this.configuration = configuration;
 	}
@@ -147,7 +151,8 @@ public abstract class AbstractOSQLQuery<Q extends AbstractOSQLQuery<Q>> extends
 
 	/**
 	 * Configura se o sql deve ser gerado usando literais para conversão de
-	 * tipos em string.
+	 * tipos em string. Por padrão as constantes são enviadas como parâmetros
+	 * para que a mesma consulta gere sempre o mesmo SQL.
 	 * 
 	 * @param useLiterals
 	 */
@@ -159,6 +164,7 @@ public abstract class AbstractOSQLQuery<Q extends AbstractOSQLQuery<Q>> extends
 	protected void clone(Q query) {
 		super.clone(query);
 		this.useLiterals = query.useLiterals;
+		this.evictionSize = query.evictionSize;
 	}
 
 	@Override
@@ -416,13 +422,15 @@ public abstract class AbstractOSQLQuery<Q extends AbstractOSQLQuery<Q>> extends
 			query.nextAliasColumnName(configuration.getNextAliasColumnName());
 			query.ignoreCompanyId(this.ignoreCompanyId);
 			query.ignoreTenantId(this.ignoreTenantId);
+			query.setTableNames(serializer.getTableNames());
 
 			/*
 			 * Converte os parâmetros no formato de expressão para o formato da
 			 * query.
 			 */
-			if (analyser.hasParameters())
-				query.setParameters(getParameters());
+			Object parameters = getParameters(serializer);
+			if (parameters != null)
+				query.setParameters(parameters);
 
 		} catch (Exception e) {
 			throw new OSQLQueryException(e.getMessage(),e);
@@ -446,40 +454,57 @@ public abstract class AbstractOSQLQuery<Q extends AbstractOSQLQuery<Q>> extends
 	}
 
 	/**
-	 * Converte os parâmetros no formato de expressão para o formato da query de
-	 * consulta.
+	 * Converte os parâmetros no formato de expressão e as constantes do SQL para
+	 * o formato da query de consulta, na ordem em que aparecem no SQL.
 	 * 
 	 * @return Lista de parâmetros convertidos.
 	 */
-	private Object getParameters() {
-		Set<Object> result = new LinkedHashSet<Object>();
-		for (QueryMetadata metadata : analyser.getAllMetadatas()) {
-			Map<ParamExpression<?>, Object> params = metadata.getParams();
-			if (analyser.isNamedParameter()) {
-				for (ParamExpression<?> param : params.keySet()) {
-					if (param instanceof DateParam)
-						result.add(new NamedParameter(param.getName(), params.get(param), TemporalType.DATE));
-					else if ((param instanceof DateTimeParam) || (param.getType() == Date.class))
-						result.add(new NamedParameter(param.getName(), params.get(param), TemporalType.DATE_TIME));
-					else if (param.getType() == Enum.class)
-						if (param instanceof EnumParam)
-							result.add(EnumeratedParameter.withFormatParameter(param.getName(),
-									((EnumParam) param).getFormat(), (Enum<?>) params.get(param)));
-						else
-							result.add(EnumeratedParameter.withFormatParameter(param.getName(),
-									EnumeratedFormatSQL.STRING, (Enum<?>) params.get(param)));
-					else
-						result.add(new NamedParameter(param.getName(), params.get(param)));
-				}
-			} else {
-				for (ParamExpression<?> param : params.keySet()) {
-					result.add(params.get(param));
+	private Object getParameters(SQLSerializer serializer) {
+		Map<ParamExpression<?>, Object> params = new HashMap<ParamExpression<?>, Object>();
+		for (QueryMetadata metadata : analyser.getAllMetadatas())
+			params.putAll(metadata.getParams());
+
+		List<Object> constants = serializer.getConstants();
+		if (analyser.isNamedParameter()) {
+			Map<String, NamedParameter> result = new LinkedHashMap<String, NamedParameter>();
+			for (int i = 0; i < constants.size(); i++) {
+				Object constant = constants.get(i);
+				if (constant instanceof ParamExpression) {
+					ParamExpression<?> param = (ParamExpression<?>) constant;
+					if (!result.containsKey(param.getName()))
+						result.put(param.getName(), convertParameter(param, params.get(param)));
+				} else {
+					String name = SQLSerializer.getConstantParameterName(i);
+					result.put(name, new NamedParameter(name, constant));
 				}
 			}
+			return (result.size() == 0 ? null : new ArrayList<NamedParameter>(result.values()));
+		}
+
+		List<Object> result = new ArrayList<Object>(constants.size());
+		for (Object constant : constants) {
+			if (constant instanceof ParamExpression)
+				result.add(params.get(constant));
+			else
+				result.add(constant);
 		}
 		return (result.size() == 0 ? null : result);
 	}
 
+	private NamedParameter convertParameter(ParamExpression<?> param, Object value) {
+		if (param instanceof DateParam)
+			return new NamedParameter(param.getName(), value, TemporalType.DATE);
+		else if ((param instanceof DateTimeParam) || (param.getType() == Date.class))
+			return new NamedParameter(param.getName(), value, TemporalType.DATE_TIME);
+		else if (param.getType() == Enum.class) {
+			if (param instanceof EnumParam)
+				return EnumeratedParameter.withFormatParameter(param.getName(), ((EnumParam) param).getFormat(),
+						(Enum<?>) value);
+			return EnumeratedParameter.withFormatParameter(param.getName(), EnumeratedFormatSQL.STRING, (Enum<?>) value);
+		}
+		return new NamedParameter(param.getName(), value);
+	}
+
 	/**
 	 * Sobrescrevendo métodos para controlar quando não foi adicionado condição
 	 * para o Join. Desta forma assume que o join será feito com a primeira
@@ -655,12 +680,11 @@ public abstract class AbstractOSQLQuery<Q extends AbstractOSQLQuery<Q>> extends
 		try {
 			validateExpressions(expr);
 			SQLQuery query = createQuery(expr);
-			Closeable closeable = null;
-			Iterator<RT> iterator = ((List<RT>) getResultList(query)).iterator();
+			CloseableIterator<RT> iterator = query.iterate(evictionSize);
 			if (projection != null) {
-				return new TransformingIterator<RT>(iterator, closeable, projection);
+				return new TransformingIterator<RT>(iterator, iterator, projection);
 			} else {
-				return new IteratorAdapter<RT>(iterator, closeable);
+				return iterator;
 			}
 		} catch (Exception e) {
 			throw new RuntimeException(e);
@@ -668,6 +692,30 @@ public abstract class AbstractOSQLQuery<Q extends AbstractOSQLQuery<Q>> extends
 
 	}
 
+	/**
+	 * Retorna o resultado em streaming como um Stream. O Stream deve ser fechado
+	 * caso não seja percorrido até o fim.
+	 */
+	public <RT> Stream<RT> stream(Expression<RT> expr) {
+		final CloseableIterator<RT> iterator = iterate(expr);
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+				.onClose(new Runnable() {
+					public void run() {
+						iterator.close();
+					}
+				});
+	}
+
+	/**
+	 * Configura a quantidade de objetos lidos pelo iterate após a qual os
+	 * objetos já retornados são retirados do contexto de persistência. Zero
+	 * mantém todos os objetos no contexto.
+	 */
+	public Q evictionSize(int evictionSize) {
+		this.evictionSize = evictionSize;
+		return (Q) this;
+	}
+
 	@Override
 	public SearchResults<Tuple> listResults(Expression<?>... args) {
 		return listResults(queryMixin.createProjection(args));
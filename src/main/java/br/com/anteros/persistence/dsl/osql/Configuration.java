@@ -228,4 +228,20 @@ public final class Configuration {
 		return entityCacheManager.convertEnumToValue(en);
 	}
 
+	/**
+	 * Converte a constante para o valor enviado como parâmetro, com as mesmas
+	 * conversões usadas em {@link #asLiteral(Object)}: Enum pelo valor mapeado e
+	 * Calendar/DateTime como Timestamp.
+	 */
+	public Object asParameterValue(Object value) {
+		if (value instanceof Enum<?>) {
+			return convertEnumToValue((Enum<?>) value);
+		} else if (value instanceof Calendar) {
+			return new Timestamp(((Calendar) value).getTimeInMillis());
+		} else if (value instanceof DateTime) {
+			return new Timestamp(((DateTime) value).getMillis());
+		}
+		return value;
+	}
+
 }
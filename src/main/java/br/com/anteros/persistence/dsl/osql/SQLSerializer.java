@@ -15,6 +15,7 @@ package br.com.anteros.persistence.dsl.osql;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -58,6 +59,14 @@ public class SQLSerializer extends SerializerBase<SQLSerializer> {
 
 	private static final Expression<?> Q = Expressions.template(Object.class, "?");
 
+	private static final String CONSTANT_PARAMETER_PREFIX = "P_OSQL_";
+
+	/**
+	 * Maior quantidade de valores de uma lista do IN completada até a faixa. O
+	 * Oracle aceita no máximo 1000 valores.
+	 */
+	private static final int MAX_IN_LIST_BUCKET_SIZE = 1000;
+
 	private static final String COMMA = ", ";
 
 	private final List<Path<?>> constantPaths = new ArrayList<Path<?>>();
@@ -86,6 +95,10 @@ public class SQLSerializer extends SerializerBase<SQLSerializer> {
 
 	private boolean inSerializeUnion;
 
+	private final Set<String> tableNames = new HashSet<String>();
+
+	private boolean containsTemplates = false;
+
 	public SQLSerializer(Configuration configuration, SQLAnalyser analyser) {
 		super(configuration.getTemplates());
 		this.configuration = configuration;
@@ -96,6 +109,18 @@ public class SQLSerializer extends SerializerBase<SQLSerializer> {
 		return constants;
 	}
 
+	/**
+	 * Retorna os nomes (em maiúsculo) das tabelas geradas pelo serializador ou
+	 * null se a consulta contém templates, cujo SQL pode referenciar outras
+	 * tabelas.
+	 */
+	public Set<String> getTableNames() {
+		if (containsTemplates) {
+			return null;
+		}
+		return tableNames;
+	}
+
 	public List<Path<?>> getConstantPaths() {
 		return constantPaths;
 	}
@@ -114,6 +139,7 @@ public class SQLSerializer extends SerializerBase<SQLSerializer> {
 				EntityCache entityCache = configuration.getEntityCacheManager().getEntityCache(((EntityPath<?>) je.getTarget()).getType());
 				append(entityCache.getTableName());
 				append(configuration.getTemplates().getTableAlias());
+				tableNames.add(entityCache.getTableName().toUpperCase());
 			}
 		}
 		inJoin = true;
@@ -485,33 +511,41 @@ public class SQLSerializer extends SerializerBase<SQLSerializer> {
 				append(configuration.asLiteral(newConstant));
 			}
 		} else if (newConstant instanceof Collection) {
+			/*
+			 * A lista é completada até o tamanho da faixa repetindo o último
+			 * valor, assim listas de tamanhos próximos geram o mesmo SQL.
+			 */
+			List<Object> values = new ArrayList<Object>((Collection<?>) newConstant);
+			int bucketSize = getInListBucketSize(values.size());
 			append("(");
-			boolean first = true;
-			for (Object o : ((Collection) newConstant)) {
-				if (!first) {
+			for (int i = 0; i < bucketSize; i++) {
+				if (i > 0) {
 					append(COMMA);
 				}
-				append("?");
-				constants.add(o);
-				if (first && (constantPaths.size() < constants.size())) {
+				appendParameterPlaceholder();
+				constants.add(configuration.asParameterValue(values.get(Math.min(i, values.size() - 1))));
+				if ((i == 0) && (constantPaths.size() < constants.size())) {
 					constantPaths.add(null);
 				}
-				first = false;
 			}
 			append(")");
 
-			int size = ((Collection) newConstant).size() - 1;
-			Path<?> lastPath = constantPaths.get(constantPaths.size() - 1);
-			for (int i = 0; i < size; i++) {
-				constantPaths.add(lastPath);
+			if (bucketSize > 0) {
+				Path<?> lastPath = constantPaths.get(constantPaths.size() - 1);
+				for (int i = 1; i < bucketSize; i++) {
+					constantPaths.add(lastPath);
+				}
 			}
 		} else {
+			newConstant = configuration.asParameterValue(newConstant);
 			if (stage == Stage.SELECT && !Null.class.isInstance(newConstant) && configuration.getTemplates().isWrapSelectParameters()) {
 				String typeName = configuration.getTemplates().getTypeForCast(newConstant.getClass());
 				Expression type = Expressions.constant(typeName);
-				super.visitOperation(newConstant.getClass(), SQLOps.CAST, ListUtils.<Expression<?>> of(Q, type));
+				Expression<?> placeholder = (analyser.isNamedParameter()
+						? Expressions.template(Object.class, ":" + getConstantParameterName(constants.size())) : Q);
+				super.visitOperation(newConstant.getClass(), SQLOps.CAST, ListUtils.<Expression<?>> of(placeholder, type));
 			} else {
-				append("?");
+				appendParameterPlaceholder();
 			}
 			constants.add(newConstant);
 			if (constantPaths.size() < constants.size()) {
@@ -520,6 +554,39 @@ public class SQLSerializer extends SerializerBase<SQLSerializer> {
 		}
 	}
 
+	/**
+	 * Adiciona o parâmetro da próxima constante. Se a consulta usa parâmetros
+	 * nomeados as constantes também recebem um nome pois não é possível misturar
+	 * parâmetros nomeados e posicionais.
+	 */
+	private void appendParameterPlaceholder() {
+		if (analyser.isNamedParameter()) {
+			append(":").append(getConstantParameterName(constants.size()));
+		} else {
+			append("?");
+		}
+	}
+
+	/**
+	 * Retorna o nome do parâmetro gerado para a constante na posição informada.
+	 */
+	public static String getConstantParameterName(int index) {
+		return CONSTANT_PARAMETER_PREFIX + (index + 1);
+	}
+
+	/**
+	 * Retorna o tamanho da faixa da lista do IN: a próxima potência de 2 limitada
+	 * a {@link #MAX_IN_LIST_BUCKET_SIZE}. Listas maiores não são completadas.
+	 */
+	protected static int getInListBucketSize(int size) {
+		if ((size == 0) || (size > MAX_IN_LIST_BUCKET_SIZE))
+			return size;
+		int result = 1;
+		while (result < size)
+			result <<= 1;
+		return Math.min(result, MAX_IN_LIST_BUCKET_SIZE);
+	}
+
 	@Override
 	public Void visit(ParamExpression<?> param, Void context) {
 		if (analyser.isNamedParameter()) {
@@ -646,6 +713,7 @@ public class SQLSerializer extends SerializerBase<SQLSerializer> {
 
 	@Override
 	public Void visit(TemplateExpression<?> expr, Void context) {
+		containsTemplates = true;
 		if (inJoin && configuration.getTemplates().isFunctionJoinsWrapped()) {
 			append("table(");
 			super.visit(expr, context);
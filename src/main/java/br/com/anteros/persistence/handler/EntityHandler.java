@@ -18,6 +18,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -42,9 +43,11 @@ import br.com.anteros.persistence.proxy.collection.DefaultSQLList;
 import br.com.anteros.persistence.proxy.collection.DefaultSQLSet;
 import br.com.anteros.persistence.session.SQLSession;
 import br.com.anteros.persistence.session.cache.Cache;
+import br.com.anteros.persistence.session.cache.EntityKey;
 import br.com.anteros.persistence.session.lock.LockOptions;
 import br.com.anteros.persistence.session.lock.LockScope;
 import br.com.anteros.persistence.session.query.ExpressionFieldMapper;
+import br.com.anteros.persistence.session.query.RowMappingPlan;
 import br.com.anteros.persistence.session.query.SQLQuery;
 import br.com.anteros.persistence.session.query.SQLQueryAnalyserAlias;
 
@@ -71,8 +74,13 @@ public class EntityHandler implements ScrollableResultSetHandler {
 	private Map<String, Integer> cacheAliasIndex = new HashMap<String, Integer>();
 	private boolean isIncompleteKey;
 	private Set<ExpressionFieldMapper> expressionsFieldMapper;
+	private RowMappingPlan rowMappingPlan;
 	private LockOptions lockOptions;
 	private String fieldsToForceLazy;
+	private int batchFetchSize;
+	private Map<DescriptionField, BatchFetchGroup> batchFetchGroups;
+	private String groupByColumnName;
+	private Map<EntityKey, List<Object>> groupedResult;
 
 	public EntityHandler(LazyLoadFactory proxyFactory, Class<?> targetClass, EntityCacheManager entityCacheManager,
 			Set<ExpressionFieldMapper> expressionsFieldMapper,
@@ -119,11 +127,20 @@ public class EntityHandler implements ScrollableResultSetHandler {
 				else
 					result = new LinkedHashSet<Object>();
 				/*
-				 * Faz o loop para processar os registros do ResultSet
+				 * Faz o loop para processar os registros do ResultSet. Os campos
+				 * configurados para busca em lote são carregados após o loop.
 				 */
-				do {
-					readRow(resultSet, result);
-				} while (resultSet.next());
+				Map<DescriptionField, BatchFetchGroup> groups = new LinkedHashMap<DescriptionField, BatchFetchGroup>();
+				batchFetchGroups = groups;
+				try {
+					do {
+						readRow(resultSet, result);
+					} while (resultSet.next());
+				} finally {
+					batchFetchGroups = null;
+				}
+				for (BatchFetchGroup group : groups.values())
+					loadBatchFetchGroup(group);
 			}
 		} catch (SQLException ex) {
 			throw new EntityHandlerException(
@@ -183,6 +200,9 @@ public class EntityHandler implements ScrollableResultSetHandler {
 		 */
 		Object createdOject = createObject(entityCache.getEntityClass(), resultSet, result);
 
+		if (groupedResult != null)
+			addGroupedResult(resultSet, createdOject);
+
 		/*
 		 * Carrega coleções e relacionamentos. Preenche a árvore do objeto considerando
 		 * as estratégias configuradas em cada field com ForeignKey e Fetch
@@ -240,7 +260,8 @@ public class EntityHandler implements ScrollableResultSetHandler {
 		/*
 		 * Busca chave do objeto no resultSet
 		 */
-		String uniqueId = getUniqueId(resultSet, entityCacheManager.getEntityCache(resultClass), null);
+		EntityKey entityKey = getEntityKey(resultSet, entityCacheManager.getEntityCache(resultClass), entityCache,
+				null);
 		/*
 		 * Se foi atribuido um objeto para ser atualizado usa o objeto e não cria um
 		 * novo
@@ -252,7 +273,7 @@ public class EntityHandler implements ScrollableResultSetHandler {
 			/*
 			 * Verifica se o objeto já foi criado e está no cache
 			 */
-			mainObject = getObjectFromCache(entityCache, uniqueId, transactionCache);
+			mainObject = getObjectFromCache(entityCache, entityKey, transactionCache);
 			if (mainObject == null) {
 				/*
 				 * Se não encontrou no cache cria uma nova instância
@@ -273,8 +294,9 @@ public class EntityHandler implements ScrollableResultSetHandler {
 		/*
 		 * Processa as expressões para gerar os fields do objeto
 		 */
+		RowMappingPlan plan = getRowMappingPlan(resultSet);
 		for (ExpressionFieldMapper expression : expressionsFieldMapper) {
-			expression.execute(session, resultSet, entityManaged, mainObject, transactionCache);
+			expression.execute(session, resultSet, plan, entityManaged, mainObject, transactionCache);
 		}
 
 		result.add(mainObject);
@@ -283,7 +305,7 @@ public class EntityHandler implements ScrollableResultSetHandler {
 		 * objeto novamente no mesmo processamento
 		 */
 
-		addObjectToCache(entityCache, mainObject, uniqueId);
+		addObjectToCache(entityCache, mainObject, entityKey);
 
 		if (entityCache.isVersioned()) {
 			entityManaged.setOriginalVersion(ObjectUtils.cloneObject(ReflectionUtils.getFieldValueByName(mainObject,
@@ -295,6 +317,19 @@ public class EntityHandler implements ScrollableResultSetHandler {
 		return mainObject;
 	}
 
+	/**
+	 * Retorna o plano de leitura das colunas compilando-o na primeira linha de
+	 * cada ResultSet.
+	 */
+	private RowMappingPlan getRowMappingPlan(ResultSet resultSet) throws SQLException {
+		if (expressionsFieldMapper.isEmpty())
+			return null;
+		if ((rowMappingPlan == null) || !rowMappingPlan.isCompiledFor(resultSet))
+			rowMappingPlan = RowMappingPlan.compile(resultSet, expressionsFieldMapper,
+					session.getDialect().supportsTypedColumnReads());
+		return rowMappingPlan;
+	}
+
 	/**
 	 * Retorna o alias da coluna de uma entidade no resultSet.
 	 * 
@@ -362,99 +397,118 @@ public class EntityHandler implements ScrollableResultSetHandler {
 		return columnName;
 	}
 
+	/**
+	 * Retira os objetos informados do cache da transação e do cache da sessão.
+	 * Usado na leitura em streaming para que a memória não cresça com o
+	 * resultado; os demais objetos dos caches são mantidos.
+	 */
+	public void evictCreatedObjects(Collection<Object> objects) throws Exception {
+		for (Object object : objects) {
+			EntityCache entityCache = session.getEntityCacheManager().getEntityCache(object.getClass());
+			if (entityCache == null)
+				continue;
+			EntityKey entityKey = entityCache.getEntityKey(object);
+			if (entityKey == null)
+				continue;
+			if (transactionCache != null)
+				transactionCache.remove(entityKey);
+			session.getPersistenceContext().removeObjectFromCache(entityKey);
+		}
+	}
+
 	/**
 	 * Adiciona um objeto no cache da transação SQL ou da persistência
 	 * 
 	 * @param entityCache  Entidade
 	 * @param targetObject Objeto
-	 * @param uniqueId     Chave do objeto
+	 * @param entityKey    Chave do objeto
 	 */
-	private void addObjectToCache(EntityCache entityCache, Object targetObject, String uniqueId) {
+	private void addObjectToCache(EntityCache entityCache, Object targetObject, EntityKey entityKey) {
+		if (entityKey == null)
+			return;
 		/*
 		 * Adiciona o objeto no cache da sessão ou da transação para evitar buscar o
 		 * objeto novamente no mesmo processamento
 		 */
-		StringBuilder sb = new StringBuilder();
-		sb.append(entityCache.getEntityClass().getName()).append("_").append(uniqueId);
 		if ((entityCache.getCacheScope().equals(ScopeType.TRANSACTION)) && (transactionCache != null)) {
-			transactionCache.put(sb.toString(), targetObject, entityCache.getMaxTimeCache());
+			transactionCache.put(entityKey, targetObject, entityCache.getMaxTimeCache());
 		} else {
-			session.getPersistenceContext().addObjectToCache(sb.toString(), targetObject,
-					entityCache.getMaxTimeCache());
+			session.getPersistenceContext().addObjectToCache(entityKey, targetObject, entityCache.getMaxTimeCache());
 		}
 	}
 
 	/**
-	 * Retorna a chave única do objeto buscando os valores no resultSet.
+	 * Retorna a chave do objeto buscando os valores no resultSet.
 	 * 
 	 * @param resultSet   Resultado do SQL.
-	 * @param entityCache Entidade
+	 * @param entityCache Entidade usada para localizar as colunas da chave
+	 * @param keyEntityCache Entidade do objeto
 	 * @param alias       Alias da tabela
-	 * @return Chave única da entidade
+	 * @return Chave do objeto ou nulo se algum valor da chave for nulo
 	 * @throws SQLException
 	 */
-	private String getUniqueId(ResultSet resultSet, EntityCache entityCache, String alias) throws SQLException {
-		Integer index;
-		String aliasColumnName = null;
+	private EntityKey getEntityKey(ResultSet resultSet, EntityCache entityCache, EntityCache keyEntityCache,
+			String alias) throws SQLException {
+		List<DescriptionColumn> primaryKeyColumns = entityCache.getPrimaryKeyColumns();
+		if (primaryKeyColumns.size() == 1)
+			return EntityKey.of(keyEntityCache, getPrimaryKeyValue(resultSet, entityCache, primaryKeyColumns.get(0), alias));
+
+		Object[] values = new Object[primaryKeyColumns.size()];
+		int i = 0;
+		for (DescriptionColumn column : primaryKeyColumns) {
+			values[i] = getPrimaryKeyValue(resultSet, entityCache, column, alias);
+			if (values[i] == null)
+				return null;
+			i++;
+		}
+		return EntityKey.of(keyEntityCache, values);
+	}
 
-		StringBuilder uniqueIdTemp = new StringBuilder("");
-		boolean appendSeparator = false;
-		for (DescriptionColumn column : entityCache.getPrimaryKeyColumns()) {
-			/*
-			 * Busca o alias do nome da coluna
-			 */
-			if (alias != null) {
-				aliasColumnName = getAliasColumnName(alias, column.getColumnName());
-			} else {
-				aliasColumnName = getAliasColumnName(entityCache, column.getColumnName());
-			}
+	private Object getPrimaryKeyValue(ResultSet resultSet, EntityCache entityCache, DescriptionColumn column,
+			String alias) throws SQLException {
+		/*
+		 * Busca o alias do nome da coluna
+		 */
+		String aliasColumnName;
+		if (alias != null) {
+			aliasColumnName = getAliasColumnName(alias, column.getColumnName());
+		} else {
+			aliasColumnName = getAliasColumnName(entityCache, column.getColumnName());
+		}
 
+		/*
+		 * Busca índice da coluna dentro do resultSet
+		 */
+		Integer index = cacheAliasIndex.get(aliasColumnName);
+		if (index == null) {
+			index = resultSet.findColumn(aliasColumnName);
+			cacheAliasIndex.put(aliasColumnName, index);
+		}
+		if (index < 0) {
 			/*
-			 * Busca índice da coluna dentro do resultSet
-			 */
-			index = cacheAliasIndex.get(aliasColumnName);
-			if (index == null) {
-				index = resultSet.findColumn(aliasColumnName);
-				cacheAliasIndex.put(aliasColumnName, index);
-			}
-			if (index < 0) {
-				/*
-				 * Esta exception não deverá ocorrer nunca pois as colunas estão sendo parseadas
-				 * pela análise do SQL. Se isto ocorrer pode ser um erro na análise.
-				 */
-				throw new SQLException("NÃO ACHOU COLUNA " + column.getColumnName());
-			}
-			/*
-			 * Concatena o valor da coluna na chave do objeto
+			 * Esta exception não deverá ocorrer nunca pois as colunas estão sendo parseadas
+			 * pela análise do SQL. Se isto ocorrer pode ser um erro na análise.
 			 */
-			if (appendSeparator)
-				uniqueIdTemp.append("_");
-
-			if (column.getDescriptionField().isTemporalDateTime()) {
-				uniqueIdTemp.append(resultSet.getTimestamp(index));
-			} else {
-				uniqueIdTemp.append(resultSet.getObject(index));
-			}
-
-			appendSeparator = true;
+			throw new SQLException("NÃO ACHOU COLUNA " + column.getColumnName());
 		}
-		/*
-		 * Retorna o chave única. Se for uma string "null" retorna como nula
-		 */
-		return (uniqueIdTemp.toString().contains("null") ? null : uniqueIdTemp.toString());
+
+		if (column.getDescriptionField().isTemporalDateTime())
+			return resultSet.getTimestamp(index);
+		return resultSet.getObject(index);
 	}
 
 	/**
 	 * Busca um objeto no cache usando a Entidade e a chave para localização.
 	 * 
-	 * @param session           Sessão
 	 * @param targetEntityCache Entidade
-	 * @param uniqueId          Chave primária do objeto
+	 * @param entityKey         Chave do objeto
 	 * @param transactionCache  Cache da transação
 	 * @return Objeto correspondente a entidade e chave informada ou nulo caso não
 	 *         exista no cache.
 	 */
-	private Object getObjectFromCache(EntityCache targetEntityCache, String uniqueId, Cache transactionCache) {
+	private Object getObjectFromCache(EntityCache targetEntityCache, EntityKey entityKey, Cache transactionCache) {
+		if (entityKey == null)
+			return null;
 		Object result = null;
 
 		/*
@@ -464,13 +518,12 @@ public class EntityHandler implements ScrollableResultSetHandler {
 		if (targetEntityCache.isAbstractClass()) {
 			EntityCache[] entitiesCache = session.getEntityCacheManager().getEntitiesBySuperClass(targetEntityCache);
 			for (EntityCache entityCache : entitiesCache) {
-				StringBuilder sb = new StringBuilder();
-				sb.append(entityCache.getEntityClass().getName()).append("_").append(uniqueId);
-				result = transactionCache.get(sb.toString());
+				EntityKey key = entityKey.forEntity(entityCache);
+				result = transactionCache.get(key);
 				if (result != null) {
 					break;
 				}
-				result = session.getPersistenceContext().getObjectFromCache(sb.toString());
+				result = session.getPersistenceContext().getObjectFromCache(key);
 				if (result != null)
 					break;
 			}
@@ -478,11 +531,9 @@ public class EntityHandler implements ScrollableResultSetHandler {
 			/*
 			 * Caso não seja abstrata localiza classe+ID no Cache
 			 */
-			StringBuilder sb = new StringBuilder();
-			sb.append(targetEntityCache.getEntityClass().getName()).append("_").append(uniqueId);
-			result = transactionCache.get(sb.toString());
+			result = transactionCache.get(entityKey);
 			if (result == null)
-				result = session.getPersistenceContext().getObjectFromCache(sb.toString());
+				result = session.getPersistenceContext().getObjectFromCache(entityKey);
 
 		}
 		return result;
@@ -561,25 +612,21 @@ public class EntityHandler implements ScrollableResultSetHandler {
 						 * campos. Somente cria o LOB se for LAZY. Ai cria como um proxy.
 						 */
 						if (checkForceResult.getFetchType() == FetchType.EAGER) {
-							if (!descriptionField.isLob()) {
+							/*
+							 * Se o campo for buscado em lote a carga ocorre após o processamento de
+							 * todas as linhas do ResultSet.
+							 */
+							if (!descriptionField.isLob() && !addBatchFetch(targetObject, descriptionField,
+									targetEntityCache, columnKeyValue, checkForceResult)) {
 								Object result = null;
 								/*
 								 * Se a chave estiver incompleta, carrega o objeto completo novamente.
 								 */
 								if (isIncompleteKey) {
-									StringBuilder sb = new StringBuilder("");
-									sb.append(targetEntityCache.getEntityClass().getName());
-									for (String key : columnKeyValue.keySet()) {
-										if (!"".equals(sb.toString())) {
-											sb.append("_");
-										}
-										sb.append(columnKeyValue.get(key));
-									}
 									/*
 									 * Remove o objeto do cache
 									 */
-									String uniqueId = sb.toString();
-									transactionCache.remove(uniqueId);
+									transactionCache.remove(getEntityKey(targetEntityCache, columnKeyValue));
 									/*
 									 * Cria a query e busca novamente o objeto completo
 									 */
@@ -663,6 +710,177 @@ public class EntityHandler implements ScrollableResultSetHandler {
 		}
 	}
 
+	/**
+	 * Retorna a chave do objeto da entidade usando os valores das colunas da
+	 * chave primária.
+	 */
+	private EntityKey getEntityKey(EntityCache targetEntityCache, Map<String, Object> columnKeyValue) {
+		List<DescriptionColumn> primaryKeyColumns = targetEntityCache.getPrimaryKeyColumns();
+		Object[] values = new Object[primaryKeyColumns.size()];
+		int i = 0;
+		for (DescriptionColumn column : primaryKeyColumns)
+			values[i++] = columnKeyValue.get(column.getColumnName());
+		return EntityKey.of(targetEntityCache, values);
+	}
+
+	/**
+	 * Adia a carga do campo para ser feita em lote após o processamento de todas
+	 * as linhas do ResultSet.
+	 * 
+	 * @return Falso se o campo deve ser carregado individualmente
+	 */
+	private boolean addBatchFetch(Object targetObject, DescriptionField descriptionField,
+			EntityCache targetEntityCache, Map<String, Object> columnKeyValue, CheckForceResult checkForceResult) {
+		if ((batchFetchGroups == null) || isIncompleteKey)
+			return false;
+		if (!descriptionField.hasBatchSize() && (batchFetchSize <= 0))
+			return false;
+		if ((lockOptions.getLockScope() == LockScope.EXTENDED) || (columnKeyValue.size() != 1))
+			return false;
+		Object keyValue = columnKeyValue.values().iterator().next();
+		if ((keyValue == null) || (descriptionField.getBatchFetchColumn() == null))
+			return false;
+
+		BatchFetchGroup group = batchFetchGroups.get(descriptionField);
+		if (group == null) {
+			group = new BatchFetchGroup(descriptionField, targetEntityCache,
+					checkForceResult.getContinueFieldsToForceLazy());
+			batchFetchGroups.put(descriptionField, group);
+		}
+		group.add(targetObject, entityManaged, keyValue);
+		return true;
+	}
+
+	/**
+	 * Carrega o campo de todos os objetos do grupo usando uma consulta com IN
+	 * (...) por bloco de chaves e atribui o resultado a cada objeto.
+	 * 
+	 * @param group Grupo de objetos aguardando a carga do campo
+	 * @throws Exception
+	 */
+	private void loadBatchFetchGroup(BatchFetchGroup group) throws Exception {
+		DescriptionField descriptionField = group.descriptionField;
+		boolean isRelationShip = descriptionField.isRelationShip();
+		EntityCache batchEntityCache = descriptionField.getTargetEntity();
+		boolean isPrimaryKey = descriptionField.getBatchFetchColumn().isPrimaryKey();
+
+		/*
+		 * Relacionamentos que já estão no cache não são buscados novamente
+		 */
+		Map<EntityKey, Object> objectsFromCache = new HashMap<EntityKey, Object>();
+		Map<EntityKey, Object> keysToLoad = new LinkedHashMap<EntityKey, Object>();
+		for (BatchFetchEntry entry : group.entries) {
+			EntityKey key = EntityKey.of(batchEntityCache, entry.keyValue);
+			if (isRelationShip && isPrimaryKey && !objectsFromCache.containsKey(key)) {
+				Object cachedObject = getObjectFromCache(group.targetEntityCache,
+						EntityKey.of(group.targetEntityCache, entry.keyValue), transactionCache);
+				if (cachedObject != null) {
+					objectsFromCache.put(key, cachedObject);
+					continue;
+				}
+			}
+			if (!objectsFromCache.containsKey(key))
+				keysToLoad.put(key, entry.keyValue);
+		}
+
+		Map<EntityKey, List<Object>> loadedObjects = new HashMap<EntityKey, List<Object>>();
+		if (keysToLoad.size() > 0) {
+			SQLQuery query = session.createQuery("");
+			query.allowDuplicateObjects(true);
+			query.setFieldsToForceLazy(group.fieldsToForceLazy);
+			query.setLockOptions(LockOptions.NONE);
+			query.setReadOnly(readOnly);
+			query.setBatchFetchSize(batchFetchSize);
+			loadedObjects = query.loadDataBatch(descriptionField, keysToLoad.values(), transactionCache);
+		}
+
+		for (BatchFetchEntry entry : group.entries) {
+			EntityKey key = EntityKey.of(batchEntityCache, entry.keyValue);
+			Object result = null;
+			if (isRelationShip) {
+				result = objectsFromCache.get(key);
+				if (result == null) {
+					List<Object> objects = loadedObjects.get(key);
+					if ((objects != null) && (objects.size() > 0)) {
+						result = objects.get(0);
+						EntityManaged resultEntityManaged = session.getPersistenceContext().getEntityManaged(result);
+						if ((resultEntityManaged != null) && isPrimaryKey)
+							transactionCache.put(EntityKey.of(resultEntityManaged.getEntityCache(), entry.keyValue),
+									result);
+					}
+				}
+			} else {
+				result = createCollectionValue(descriptionField, loadedObjects.get(key));
+			}
+
+			descriptionField.setObjectValue(entry.owner, result);
+			/*
+			 * Se a consulta não for somente leitura armazena os valores dos campos.
+			 */
+			if (entry.entityManaged.getStatus() != EntityStatus.READ_ONLY) {
+				FieldEntityValue fieldEntityValue = descriptionField.getFieldEntityValue(session, entry.owner);
+				entry.entityManaged.addOriginalValue(fieldEntityValue);
+				entry.entityManaged.addLastValue(fieldEntityValue);
+				entry.entityManaged.getFieldsForUpdate().add(descriptionField.getField().getName());
+			}
+		}
+	}
+
+	/**
+	 * Cria a coleção que será atribuída ao campo conforme o tipo declarado.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public static Object createCollectionValue(DescriptionField descriptionField, List<Object> objects) {
+		Collection result;
+		if (ReflectionUtils.isImplementsInterface(descriptionField.getField().getType(), Set.class))
+			result = new DefaultSQLSet();
+		else if (ReflectionUtils.isImplementsInterface(descriptionField.getField().getType(), List.class))
+			result = new DefaultSQLList();
+		else
+			result = new ArrayList();
+		if (objects != null)
+			result.addAll(objects);
+		return result;
+	}
+
+	/**
+	 * Agrupa os objetos criados pelo valor de uma coluna da entidade. Usado na
+	 * busca em lote para distribuir o resultado entre os objetos de origem.
+	 * 
+	 * @param columnName    Nome da coluna
+	 * @param groupedResult Mapa que receberá os objetos pela chave normalizada do
+	 *                      valor da coluna
+	 */
+	public void groupResultBy(String columnName, Map<EntityKey, List<Object>> groupedResult) {
+		this.groupByColumnName = columnName;
+		this.groupedResult = groupedResult;
+	}
+
+	private void addGroupedResult(ResultSet resultSet, Object targetObject) throws SQLException {
+		EntityCache resultEntityCache = entityCacheManager.getEntityCache(resultClass);
+		String aliasColumnName = getAliasColumnName(resultEntityCache, groupByColumnName);
+		EntityKey key = EntityKey.of(resultEntityCache, resultSet.getObject(aliasColumnName));
+		List<Object> objects = groupedResult.get(key);
+		if (objects == null) {
+			objects = new ArrayList<Object>();
+			groupedResult.put(key, objects);
+		}
+		objects.add(targetObject);
+	}
+
+	public int getBatchFetchSize() {
+		return batchFetchSize;
+	}
+
+	/**
+	 * Atribui a quantidade de chaves por consulta na busca em lote dos campos
+	 * EAGER. Se for zero somente os campos configurados com BatchSize são
+	 * buscados em lote.
+	 */
+	public void setBatchFetchSize(int batchFetchSize) {
+		this.batchFetchSize = batchFetchSize;
+	}
+
 	private CheckForceResult checkForceFetchTypeByField(String fieldName, FetchType current) {
 		if (StringUtils.isEmpty(fieldsToForceLazy)) {
 			return new CheckForceResult(current, null);
@@ -926,4 +1144,38 @@ public class EntityHandler implements ScrollableResultSetHandler {
 		return androidPresent;
 	}
 
+	/**
+	 * Objetos de um mesmo campo aguardando a busca em lote.
+	 */
+	private static class BatchFetchGroup {
+		final DescriptionField descriptionField;
+		final EntityCache targetEntityCache;
+		final String fieldsToForceLazy;
+		final List<BatchFetchEntry> entries = new ArrayList<BatchFetchEntry>();
+		final Map<Object, Object> owners = new IdentityHashMap<Object, Object>();
+
+		BatchFetchGroup(DescriptionField descriptionField, EntityCache targetEntityCache, String fieldsToForceLazy) {
+			this.descriptionField = descriptionField;
+			this.targetEntityCache = targetEntityCache;
+			this.fieldsToForceLazy = fieldsToForceLazy;
+		}
+
+		void add(Object owner, EntityManaged entityManaged, Object keyValue) {
+			if (owners.put(owner, owner) == null)
+				entries.add(new BatchFetchEntry(owner, entityManaged, keyValue));
+		}
+	}
+
+	private static class BatchFetchEntry {
+		final Object owner;
+		final EntityManaged entityManaged;
+		final Object keyValue;
+
+		BatchFetchEntry(Object owner, EntityManaged entityManaged, Object keyValue) {
+			this.owner = owner;
+			this.entityManaged = entityManaged;
+			this.keyValue = keyValue;
+		}
+	}
+
 }
@@ -33,6 +33,7 @@ public class MultiSelectHandler implements ScrollableResultSetHandler {
 	private static final boolean LOAD_ALL_FIELDS = false;
 	private List<ResultClassDefinition> definitions;
 	private Map<ResultClassDefinition, EntityHandler> cacheHandler = new HashMap<ResultClassDefinition, EntityHandler>();
+	private Map<ResultClassDefinition, SQLQueryAnalyzerResult> analyzerResults = new HashMap<ResultClassDefinition, SQLQueryAnalyzerResult>();
 	private SQLSession session;
 	private String sql;
 	private String parsedSql;
@@ -156,18 +157,25 @@ public class MultiSelectHandler implements ScrollableResultSetHandler {
 	}
 
 	protected SQLQueryAnalyzerResult getAnalyzerResult(ResultClassDefinition rcd, String parsedSql, String originalSql) throws SQLQueryAnalyzerException {
-		SQLQueryAnalyzerResult analyzerResult = (SQLQueryAnalyzerResult) PersistenceMetadataCache.getInstance(session.getEntityCacheManager())
-				.get(rcd.getResultClass().getName() + ":" + originalSql);
+		String key = SQLQueryAnalyzer.getCacheKey(rcd.getResultClass(), originalSql,
+				SQLQueryAnalyzer.IGNORE_NOT_USED_ALIAS_TABLE);
+		SQLQueryAnalyzerResult analyzerResult = (SQLQueryAnalyzerResult) PersistenceMetadataCache.getInstance(session)
+				.get(key);
 		if (analyzerResult == null) {
 			analyzerResult = new SQLQueryAnalyzer(session.getEntityCacheManager(), session.getDialect(), SQLQueryAnalyzer.IGNORE_NOT_USED_ALIAS_TABLE)
 					.analyze(parsedSql, rcd.getResultClass());
-			PersistenceMetadataCache.getInstance(session.getEntityCacheManager()).put(rcd.getResultClass().getName() + ":" + originalSql, analyzerResult);
+			PersistenceMetadataCache.getInstance(session).put(key, analyzerResult);
 		}
+		/*
+		 * Mantém a análise no handler pois o cache de metadados é limitado e pode
+		 * descartar a entrada durante o processamento
+		 */
+		analyzerResults.put(rcd, analyzerResult);
 		return analyzerResult;
 	}
 
 	protected SQLQueryAnalyzerResult getAnalyzerResult(ResultClassDefinition rcd) throws SQLQueryAnalyzerException {
-		SQLQueryAnalyzerResult analyzerResult = (SQLQueryAnalyzerResult) PersistenceMetadataCache.getInstance(session.getEntityCacheManager()).get(rcd.getResultClass().getName() + ":" + sql);
+		SQLQueryAnalyzerResult analyzerResult = analyzerResults.get(rcd);
 		if (analyzerResult == null) {
 			throw new MultiSelectHandlerException("Não foi possível encontrar a análise do SQL para a classe de resultado " + rcd.getResultClass().getName());
 		}
@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import br.com.anteros.core.converter.ConversionHelper;
 import br.com.anteros.core.utils.ObjectUtils;
@@ -54,10 +55,13 @@ import br.com.anteros.persistence.metadata.descriptor.type.ColumnType;
 import br.com.anteros.persistence.metadata.descriptor.type.ConnectivityType;
 import br.com.anteros.persistence.metadata.descriptor.type.SQLStatementType;
 import br.com.anteros.persistence.metadata.identifier.IdentifierPath;
+import br.com.anteros.persistence.parameter.NamedParameter;
 import br.com.anteros.persistence.proxy.collection.AnterosPersistentCollection;
 import br.com.anteros.persistence.session.SQLSession;
+import br.com.anteros.persistence.session.cache.EntityKey;
 
 public class EntityCache {
+	private static final int MAX_INSERT_PLANS = 16;
 	private Set<DescriptionColumn> columns = new LinkedHashSet<DescriptionColumn>();
 	private Class<?> entityClass;
 	private String tableName;
@@ -66,6 +70,8 @@ public class EntityCache {
 	private DescriptionColumn discriminatorColumn;
 	private List<DescriptionColumn> primaryKey = new LinkedList<DescriptionColumn>();
 	private List<DescriptionField> fields = new LinkedList<DescriptionField>();
+	private volatile FieldIndexes fieldIndexes;
+	private final List<InsertPlan> insertPlans = new CopyOnWriteArrayList<InsertPlan>();
 	private List<DescriptionUniqueConstraint> uniqueConstraints = new LinkedList<DescriptionUniqueConstraint>();
 	private String discriminatorValue;
 	private ScopeType cacheScope = ScopeType.TRANSACTION;
@@ -170,6 +176,50 @@ public class EntityCache {
 		return fields;
 	}
 
+	/**
+	 * Retorna a posição do campo na lista de campos da entidade ou -1 caso o
+	 * campo não pertença a entidade.
+	 */
+	public int getFieldIndex(String fieldName) {
+		Integer result = getFieldIndexes().indexes.get(fieldName);
+		return (result == null ? -1 : result);
+	}
+
+	public int getFieldCount() {
+		return fields.size();
+	}
+
+	private FieldIndexes getFieldIndexes() {
+		FieldIndexes result = fieldIndexes;
+		if ((result == null) || (result.size != fields.size())) {
+			result = new FieldIndexes(fields);
+			fieldIndexes = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Retorna o plano de INSERT da entidade para as colunas dos parâmetros ou
+	 * nulo se ainda não foi criado.
+	 */
+	public InsertPlan getInsertPlan(List<NamedParameter> parameters) {
+		for (InsertPlan plan : insertPlans) {
+			if (plan.matches(parameters))
+				return plan;
+		}
+		return null;
+	}
+
+	/**
+	 * Guarda o plano de INSERT da entidade. Somente as primeiras
+	 * MAX_INSERT_PLANS combinações de colunas são guardadas, as demais usam o
+	 * cache de metadados da fábrica.
+	 */
+	public void addInsertPlan(InsertPlan plan) {
+		if (insertPlans.size() < MAX_INSERT_PLANS)
+			insertPlans.add(plan);
+	}
+
 	public List<DescriptionField> getDescriptionFieldsExcludingIds() {
 		List<DescriptionField> result = new ArrayList<DescriptionField>();
 		for (DescriptionField f : fields) {
@@ -362,6 +412,20 @@ public class EntityCache {
 		return sb.toString();
 	}
 
+	/**
+	 * Retorna a chave do objeto usada no cache da transação e no contexto de
+	 * persistência. Retorna nulo se a chave estiver incompleta.
+	 */
+	public EntityKey getEntityKey(Object object) throws Exception {
+		if (primaryKey.size() == 1)
+			return EntityKey.of(this, getValue(primaryKey.get(0).getColumnName(), object));
+		Object[] values = new Object[primaryKey.size()];
+		int i = 0;
+		for (DescriptionColumn column : primaryKey)
+			values[i++] = getValue(column.getColumnName(), object);
+		return EntityKey.of(this, values);
+	}
+
 	public void add(DescriptionField descriptionField) {
 		this.fields.add(descriptionField);
 
@@ -560,21 +624,17 @@ public class EntityCache {
 
 	public List<DescriptionField> getFieldsModified(SQLSession session, Object object) throws Exception {
 		List<DescriptionField> result = new ArrayList<DescriptionField>();
-		FieldEntityValue lastFieldValue;
-		FieldEntityValue newFieldValue;
+		EntityManaged entityManaged = session.getPersistenceContext().getEntityManaged(object);
+		if (entityManaged == null)
+			return result;
+		Set<String> fieldsForUpdate = entityManaged.getFieldsForUpdate();
+		int index = 0;
 		for (DescriptionField field : fields) {
-			if (!field.isVersioned()) {
-				if (fieldCanbeChanged(session, object, field.getField().getName())) {
-					lastFieldValue = getLastFieldEntityValue(session, object, field.getField().getName());
-					newFieldValue = field.getFieldEntityValue(session, object);
-					if ((lastFieldValue != null) || (newFieldValue != null)) {
-						if (((lastFieldValue == null) && (newFieldValue != null))
-								|| ((lastFieldValue != null) && (newFieldValue == null))
-								|| (newFieldValue.compareTo(lastFieldValue) != 0))
-							result.add(field);
-					}
-				}
+			if (!field.isVersioned() && fieldsForUpdate.contains(field.getField().getName())) {
+				if (entityManaged.isModified(index, field.getFieldEntityValue(session, object)))
+					result.add(field);
 			}
+			index++;
 		}
 		return result;
 	}
@@ -582,12 +642,8 @@ public class EntityCache {
 	public FieldEntityValue getOriginalFieldEntityValue(SQLSession session, Object object, String fieldName)
 			throws Exception {
 		EntityManaged entityManaged = session.getPersistenceContext().getEntityManaged(object);
-		if (entityManaged != null) {
-			for (FieldEntityValue field : entityManaged.getOriginalValues()) {
-				if (field.getName().equals(fieldName))
-					return field;
-			}
-		}
+		if (entityManaged != null)
+			return entityManaged.getOriginalValue(fieldName);
 		return null;
 	}
 
@@ -600,12 +656,8 @@ public class EntityCache {
 	public FieldEntityValue getLastFieldEntityValue(SQLSession session, Object object, String fieldName)
 			throws Exception {
 		EntityManaged entityManaged = session.getPersistenceContext().getEntityManaged(object);
-		if (entityManaged != null) {
-			for (FieldEntityValue field : entityManaged.getLastValues()) {
-				if (field.getName().equals(fieldName))
-					return field;
-			}
-		}
+		if (entityManaged != null)
+			return entityManaged.getLastValue(fieldName);
 		return null;
 	}
 
@@ -619,12 +671,8 @@ public class EntityCache {
 
 	public boolean fieldCanbeChanged(SQLSession session, Object object, String fieldName) throws Exception {
 		EntityManaged entityManaged = session.getPersistenceContext().getEntityManaged(object);
-		if (entityManaged != null) {
-			for (String field : entityManaged.getFieldsForUpdate()) {
-				if (field.equals(fieldName))
-					return true;
-			}
-		}
+		if (entityManaged != null)
+			return entityManaged.getFieldsForUpdate().contains(fieldName);
 		return false;
 	}
 
@@ -1184,6 +1232,14 @@ public class EntityCache {
 	}
 
 	
+	/**
+	 * Resolve os índices dos métodos get e set de todos os campos da entidade.
+	 */
+	public void resolveAccessors() {
+		for (DescriptionField descriptionField : fields)
+			descriptionField.resolveAccessors();
+	}
+
 	public FieldAccess getFieldAccess() {
 		if (fieldAccess == null) {
 			fieldAccess = FieldAccess.get(this.getEntityClass());
@@ -1225,4 +1281,25 @@ public class EntityCache {
 		return result;
 	}
 
+	/**
+	 * Posição dos campos da entidade. Recriado quando a lista de campos muda
+	 * durante a leitura das configurações.
+	 */
+	private static final class FieldIndexes {
+		final int size;
+		final Map<String, Integer> indexes;
+
+		FieldIndexes(List<DescriptionField> fields) {
+			Map<String, Integer> result = new HashMap<String, Integer>();
+			int index = 0;
+			for (DescriptionField field : fields) {
+				if (!result.containsKey(field.getField().getName()))
+					result.put(field.getField().getName(), index);
+				index++;
+			}
+			this.size = index;
+			this.indexes = result;
+		}
+	}
+
 }
@@ -14,6 +14,7 @@ package br.com.anteros.persistence.metadata;
 
 import java.io.Serializable;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
@@ -31,13 +32,19 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import br.com.anteros.core.resource.messages.AnterosBundle;
 import br.com.anteros.core.resource.messages.AnterosResourceBundle;
 import br.com.anteros.core.utils.CompactHashSet;
 import br.com.anteros.core.utils.ReflectionUtils;
 import br.com.anteros.core.utils.StringUtils;
+import br.com.anteros.persistence.metadata.accessor.PropertyAccessor;
 import br.com.anteros.persistence.metadata.accessor.PropertyAccessorFactory;
+import br.com.anteros.persistence.metadata.annotation.BatchSize;
 import br.com.anteros.persistence.metadata.annotation.BooleanValue;
 import br.com.anteros.persistence.metadata.annotation.Cache;
 import br.com.anteros.persistence.metadata.annotation.Cascade;
@@ -155,6 +162,11 @@ import br.com.anteros.synchronism.annotation.Remote;
 @SuppressWarnings("unchecked")
 public class EntityCacheManager {
 
+	/**
+	 * Abaixo desta quantidade de entidades a leitura não é paralelizada.
+	 */
+	private static final int PARALLEL_THRESHOLD = 16;
+
 	private static AnterosBundle MESSAGES = AnterosResourceBundle
 			.getBundle(AnterosPersistenceProperties.ANTEROS_PERSISTENCE_CORE, AnterosPersistenceCoreMessages.class);
 	private Map<Class<? extends Serializable>, EntityCache> entities = new LinkedHashMap<Class<? extends Serializable>, EntityCache>();
@@ -165,7 +177,9 @@ public class EntityCacheManager {
 	private DatabaseDialect databaseDialect;
 	private Map<Object, Class<?>> entityListeners;
 
-	private Set<EntityCache> processedEntities = new HashSet<EntityCache>();
+	private Set<EntityCache> processedEntities = Collections.newSetFromMap(new ConcurrentHashMap<EntityCache, Boolean>());
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private volatile PersistenceMetadataCache metadataCache = new PersistenceMetadataCache();
 
 	public EntityCacheManager() {
 	}
@@ -223,49 +237,199 @@ public class EntityCacheManager {
 						converter.isAutoApply()));
 			}
 
-			for (Class<? extends Serializable> sourceClazz : modelConfiguration.getEntities().keySet()) {
-				if (!sourceClazz.isEnum()) { // Se não é um Enum é uma Entidade
-					addEntityClass(sourceClazz,
-							loadBasicConfigurations(sourceClazz, modelConfiguration.getEntities().get(sourceClazz)));
-				}
+			ForkJoinPool pool = ((parallelism > 1) && (modelConfiguration.getEntities().size() >= PARALLEL_THRESHOLD)
+					? new ForkJoinPool(parallelism) : null);
+			try {
+				loadEntities(pool, modelConfiguration);
+			} finally {
+				if (pool != null)
+					pool.shutdown();
 			}
 
-			processedEntities.clear();
+			this.loaded = true;
+		}
+	}
 
-			for (EntityCache entityCache : entities.values()) {
-				if (!processedEntities.contains(entityCache)) {
-					loadConfigurationsSuperClass(entityCache, modelConfiguration);
+	/**
+	 * Lê as entidades em fases. Dentro de cada fase as entidades são processadas
+	 * em paralelo no pool informado; a fase seguinte só começa quando todas as
+	 * tarefas da fase anterior terminam. As fases que dependem da superclasse
+	 * processam juntas as entidades da mesma hierarquia. Sem pool as tarefas são
+	 * executadas na thread atual.
+	 */
+	private void loadEntities(ForkJoinPool pool, final PersistenceModelConfiguration modelConfiguration)
+			throws Exception {
+		List<Callable<EntityCache>> basicTasks = new ArrayList<Callable<EntityCache>>();
+		final List<Class<? extends Serializable>> entityClasses = new ArrayList<Class<? extends Serializable>>();
+		for (final Class<? extends Serializable> sourceClazz : modelConfiguration.getEntities().keySet()) {
+			if (!sourceClazz.isEnum()) { // Se não é um Enum é uma Entidade
+				entityClasses.add(sourceClazz);
+				basicTasks.add(new Callable<EntityCache>() {
+					public EntityCache call() throws Exception {
+						return loadBasicConfigurations(sourceClazz, modelConfiguration.getEntities().get(sourceClazz));
+					}
+				});
+			}
+		}
+		List<EntityCache> caches = invokeAll(pool, basicTasks);
+		for (int i = 0; i < entityClasses.size(); i++)
+			addEntityClass(entityClasses.get(i), caches.get(i));
+
+		processedEntities.clear();
+
+		List<Callable<Void>> hierarchyTasks = new ArrayList<Callable<Void>>();
+		for (final List<EntityCache> hierarchy : getHierarchies()) {
+			hierarchyTasks.add(new Callable<Void>() {
+				public Void call() throws Exception {
+					for (EntityCache entityCache : hierarchy) {
+						if (!processedEntities.contains(entityCache)) {
+							loadConfigurationsSuperClass(entityCache, modelConfiguration);
+						}
+					}
+					return null;
+				}
+			});
+		}
+		invokeAll(pool, hierarchyTasks);
+
+		hierarchyTasks.clear();
+		for (final List<EntityCache> hierarchy : getHierarchies()) {
+			hierarchyTasks.add(new Callable<Void>() {
+				public Void call() throws Exception {
+					for (EntityCache entityCache : hierarchy)
+						loadRemainderConfigurations(entityCache);
+					for (EntityCache entityCache : hierarchy)
+						entityCache.resolveAccessors();
+					return null;
 				}
+			});
+		}
+		invokeAll(pool, hierarchyTasks);
+
+		if (validate)
+			validateAfterLoadConfigurations();
+
+		analyzeNamedQueries(pool);
+	}
+
+	/**
+	 * Agrupa as entidades pela classe raiz da hierarquia mantendo a ordem de
+	 * dependência. As entidades de uma hierarquia compartilham os campos da
+	 * superclasse e por isso não são processadas em paralelo entre si.
+	 */
+	private Collection<List<EntityCache>> getHierarchies() {
+		Map<Class<?>, List<EntityCache>> result = new LinkedHashMap<Class<?>, List<EntityCache>>();
+		for (EntityCache entityCache : entities.values()) {
+			Class<?> root = entityCache.getEntityClass();
+			while (entities.containsKey(root.getSuperclass()))
+				root = root.getSuperclass();
+			List<EntityCache> hierarchy = result.get(root);
+			if (hierarchy == null) {
+				hierarchy = new ArrayList<EntityCache>();
+				result.put(root, hierarchy);
 			}
+			hierarchy.add(entityCache);
+		}
+		return result.values();
+	}
+
+	/**
+	 * Executa as tarefas no pool e aguarda todas terminarem. Retorna os
+	 * resultados na ordem das tarefas. O erro de uma tarefa é guardado pela
+	 * própria tarefa e relançado sem alteração, na ordem das tarefas.
+	 */
+	private <T> List<T> invokeAll(ForkJoinPool pool, List<Callable<T>> tasks) throws Exception {
+		List<T> result = new ArrayList<T>(tasks.size());
+		if (pool == null) {
+			for (Callable<T> task : tasks)
+				result.add(task.call());
+			return result;
+		}
+		List<LoadTask<T>> loadTasks = new ArrayList<LoadTask<T>>(tasks.size());
+		List<ForkJoinTask<?>> futures = new ArrayList<ForkJoinTask<?>>(tasks.size());
+		for (Callable<T> task : tasks) {
+			LoadTask<T> loadTask = new LoadTask<T>(task);
+			loadTasks.add(loadTask);
+			futures.add(pool.submit(loadTask));
+		}
+		for (ForkJoinTask<?> future : futures)
+			future.join();
+		for (LoadTask<T> loadTask : loadTasks) {
+			if (loadTask.error instanceof Exception)
+				throw (Exception) loadTask.error;
+			if (loadTask.error instanceof Error)
+				throw (Error) loadTask.error;
+			result.add(loadTask.result);
+		}
+		return result;
+	}
 
-			for (EntityCache entityCache : entities.values())
-				loadRemainderConfigurations(entityCache);
+	/*
+	 * O ForkJoinPool envolve em RuntimeException as exceções verificadas de um
+	 * Callable, por isso a tarefa é submetida como Runnable e guarda o erro
+	 * original.
+	 */
+	private static class LoadTask<T> implements Runnable {
 
-			if (validate)
-				validateAfterLoadConfigurations();
+		private final Callable<T> task;
+		private T result;
+		private Throwable error;
 
-			analyzeNamedQueries();
+		LoadTask(Callable<T> task) {
+			this.task = task;
+		}
 
-			this.loaded = true;
+		@Override
+		public void run() {
+			try {
+				result = task.call();
+			} catch (Throwable e) {
+				error = e;
+			}
+		}
+	}
+
+	/**
+	 * Cria o acessor do campo. As entidades podem ser lidas em paralelo e o
+	 * contrato de {@link PropertyAccessorFactory} não exige implementações
+	 * thread-safe, por isso as chamadas à fábrica são serializadas.
+	 */
+	private PropertyAccessor createAccessor(EntityCache entityCache, Field field) throws Exception {
+		synchronized (propertyAccessorFactory) {
+			return propertyAccessorFactory.createAccessor(entityCache.getEntityClass(), field);
 		}
 	}
 
-	private void analyzeNamedQueries() throws SQLQueryAnalyzerException {
+	/**
+	 * Analisa as consultas nomeadas. O resultado de cada análise fica no cache de
+	 * metadados.
+	 */
+	private void analyzeNamedQueries(ForkJoinPool pool) throws Exception {
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
 		for (EntityCache entityCache : entities.values()) {
 			if (entityCache.hasNamedQueries()) {
-				for (DescriptionNamedQuery namedQuery : entityCache.getDescriptionNamedQueries()) {
-					SQLQueryAnalyzerResult analyzerResult = (SQLQueryAnalyzerResult) PersistenceMetadataCache
-							.getInstance(this).get(namedQuery.getResultClass().getName() + ":" + namedQuery.getQuery());
-					if (analyzerResult == null) {
-						analyzerResult = new SQLQueryAnalyzer(this, databaseDialect,
-								!SQLQueryAnalyzer.IGNORE_NOT_USED_ALIAS_TABLE).analyze(namedQuery.getQuery(),
-										namedQuery.getResultClass());
-						PersistenceMetadataCache.getInstance(this).put(
-								namedQuery.getResultClass().getName() + ":" + namedQuery.getQuery(), analyzerResult);
-					}
+				for (final DescriptionNamedQuery namedQuery : entityCache.getDescriptionNamedQueries()) {
+					tasks.add(new Callable<Void>() {
+						public Void call() throws Exception {
+							analyzeNamedQuery(namedQuery);
+							return null;
+						}
+					});
 				}
 			}
 		}
+		invokeAll(pool, tasks);
+	}
+
+	private void analyzeNamedQuery(DescriptionNamedQuery namedQuery) throws SQLQueryAnalyzerException {
+		String key = SQLQueryAnalyzer.getCacheKey(namedQuery.getResultClass(), namedQuery.getQuery(),
+				!SQLQueryAnalyzer.IGNORE_NOT_USED_ALIAS_TABLE);
+		if (metadataCache.get(key) == null) {
+			SQLQueryAnalyzerResult analyzerResult = new SQLQueryAnalyzer(this, databaseDialect,
+					!SQLQueryAnalyzer.IGNORE_NOT_USED_ALIAS_TABLE).analyze(namedQuery.getQuery(),
+							namedQuery.getResultClass());
+			metadataCache.put(key, analyzerResult);
+		}
 	}
 
 	protected void validateAfterLoadConfigurations() throws Exception {
@@ -278,11 +442,10 @@ public class EntityCacheManager {
 			 * classe.
 			 */
 			for (DescriptionSQL descriptionSQL : entityCache.getDescriptionSql().values()) {
-				NamedParameterParserResult parserResult = (NamedParameterParserResult) PersistenceMetadataCache
-						.getInstance(this).get("NamedParameters:" + descriptionSQL.getSql());
+				NamedParameterParserResult parserResult = (NamedParameterParserResult) metadataCache.get(NamedParameterStatement.getParserResultKey(descriptionSQL.getSql(), null));
 				if (parserResult == null) {
 					parserResult = NamedParameterStatement.parse(descriptionSQL.getSql(), null);
-					PersistenceMetadataCache.getInstance(this).put("NamedParameters:" + descriptionSQL.getSql(),
+					metadataCache.put(NamedParameterStatement.getParserResultKey(descriptionSQL.getSql(), null),
 							parserResult);
 				}
 				if (parserResult != null) {
@@ -320,11 +483,10 @@ public class EntityCacheManager {
 				 * colunas da classe do campo.
 				 */
 				for (DescriptionSQL descriptionSQL : descriptionField.getDescriptionSql().values()) {
-					NamedParameterParserResult parserResult = (NamedParameterParserResult) PersistenceMetadataCache
-							.getInstance(this).get("NamedParameters:" + descriptionSQL.getSql());
+					NamedParameterParserResult parserResult = (NamedParameterParserResult) metadataCache.get(NamedParameterStatement.getParserResultKey(descriptionSQL.getSql(), null));
 					if (parserResult == null) {
 						parserResult = NamedParameterStatement.parse(descriptionSQL.getSql(), null);
-						PersistenceMetadataCache.getInstance(this).put("NamedParameters:" + descriptionSQL.getSql(),
+						metadataCache.put(NamedParameterStatement.getParserResultKey(descriptionSQL.getSql(), null),
 								parserResult);
 					}
 					if (parserResult != null) {
@@ -418,6 +580,34 @@ public class EntityCacheManager {
 		return loaded;
 	}
 
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Quantidade de threads usadas na leitura das entidades. Com 1 a leitura é
+	 * feita apenas na thread atual.
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Retorna o cache de metadados. Durante a leitura das entidades é um cache
+	 * próprio; depois da criação da fábrica de sessões é o cache da fábrica.
+	 */
+	public PersistenceMetadataCache getMetadataCache() {
+		return metadataCache;
+	}
+
+	/**
+	 * Passa a usar o cache de metadados da fábrica de sessões. As entradas do
+	 * cache atual devem ser copiadas antes.
+	 */
+	public void setMetadataCache(PersistenceMetadataCache metadataCache) {
+		this.metadataCache = metadataCache;
+	}
+
 	private void loadConfigurationsSuperClass(EntityCache entityCache, PersistenceModelConfiguration modelConfiguration)
 			throws Exception {
 		Class<?> sourceClazz = entityCache.getEntityClass();
@@ -1560,8 +1750,7 @@ public class EntityCacheManager {
 			throws Exception {
 		DescriptionField descriptionField = new DescriptionField(entityCache, fieldConfiguration.getField());
 		if (propertyAccessorFactory != null)
-			descriptionField.setPropertyAccessor(propertyAccessorFactory.createAccessor(entityCache.getEntityClass(),
-					fieldConfiguration.getField()));
+			descriptionField.setPropertyAccessor(createAccessor(entityCache, fieldConfiguration.getField()));
 		descriptionField.setFetchMode(fieldConfiguration.getFetch().getMode());
 		descriptionField.setTableName(fieldConfiguration.getCollectionTable().getName());
 		descriptionField.setSchema(fieldConfiguration.getCollectionTable().getSchema());
@@ -1724,8 +1913,7 @@ public class EntityCacheManager {
 
 		DescriptionField descriptionField = new DescriptionField(entityCache, fieldConfiguration.getField());
 		if (propertyAccessorFactory != null)
-			descriptionField.setPropertyAccessor(propertyAccessorFactory.createAccessor(entityCache.getEntityClass(),
-					fieldConfiguration.getField()));
+			descriptionField.setPropertyAccessor(createAccessor(entityCache, fieldConfiguration.getField()));
 
 		descriptionField.setFieldType(FieldType.JOIN_TABLE);
 		descriptionField.setTableName(tableName);
@@ -1869,8 +2057,7 @@ public class EntityCacheManager {
 
 			descriptionField = new DescriptionField(entityCache, fieldConfiguration.getField());
 			if (propertyAccessorFactory != null)
-				descriptionField.setPropertyAccessor(propertyAccessorFactory
-						.createAccessor(entityCache.getEntityClass(), fieldConfiguration.getField()));
+				descriptionField.setPropertyAccessor(createAccessor(entityCache, fieldConfiguration.getField()));
 
 			descriptionField.add(descriptionColumn);
 			descriptionField.setComment(fieldConfiguration.getComment());
@@ -1938,8 +2125,7 @@ public class EntityCacheManager {
 			if (fieldConfiguration.isAnnotationPresent(ForeignKey.class)) {
 				descriptionField = new DescriptionField(entityCache, fieldConfiguration.getField());
 				if (propertyAccessorFactory != null)
-					descriptionField.setPropertyAccessor(propertyAccessorFactory
-							.createAccessor(entityCache.getEntityClass(), fieldConfiguration.getField()));
+					descriptionField.setPropertyAccessor(createAccessor(entityCache, fieldConfiguration.getField()));
 
 				descriptionField.setFieldType(FieldType.RELATIONSHIP);
 				descriptionField.setFetchType(fieldConfiguration.getForeignKey().getType());
@@ -2022,8 +2208,7 @@ public class EntityCacheManager {
 
 		DescriptionField descriptionField = new DescriptionField(entityCache, fieldConfiguration.getField());
 		if (propertyAccessorFactory != null)
-			descriptionField.setPropertyAccessor(propertyAccessorFactory.createAccessor(entityCache.getEntityClass(),
-					fieldConfiguration.getField()));
+			descriptionField.setPropertyAccessor(createAccessor(entityCache, fieldConfiguration.getField()));
 
 		descriptionField.add(descriptionColumn);
 		descriptionField.setComment(fieldConfiguration.getComment());
@@ -2216,6 +2401,7 @@ public class EntityCacheManager {
 
 			descriptionGenerator.setCatalog(entityConfiguration.getTableGenerator().getCatalog());
 			descriptionGenerator.setInitialValue(entityConfiguration.getTableGenerator().getInitialValue());
+			descriptionGenerator.setAllocationSize(entityConfiguration.getTableGenerator().getAllocationSize());
 			descriptionGenerator.setPkColumnName(entityConfiguration.getTableGenerator().getPkColumnName());
 			descriptionGenerator.setSchema(entityConfiguration.getTableGenerator().getSchema());
 			descriptionGenerator.setTableName(entityConfiguration.getTableGenerator().getName());
@@ -2289,6 +2475,7 @@ public class EntityCacheManager {
 				DescriptionGenerator descriptionGenerator = new DescriptionGenerator();
 				descriptionGenerator.setCatalog(fieldConfiguration.getTableGenerator().getCatalog());
 				descriptionGenerator.setInitialValue(fieldConfiguration.getTableGenerator().getInitialValue());
+				descriptionGenerator.setAllocationSize(fieldConfiguration.getTableGenerator().getAllocationSize());
 				descriptionGenerator.setPkColumnName(fieldConfiguration.getTableGenerator().getPkColumnName());
 				descriptionGenerator.setSchema(fieldConfiguration.getTableGenerator().getSchema());
 				descriptionGenerator.setTableName(fieldConfiguration.getTableGenerator().getName());
@@ -2433,8 +2620,7 @@ public class EntityCacheManager {
 
 			DescriptionField descriptionField = new DescriptionField(entityCache, fieldConfiguration.getField());
 			if (propertyAccessorFactory != null)
-				descriptionField.setPropertyAccessor(propertyAccessorFactory
-						.createAccessor(entityCache.getEntityClass(), fieldConfiguration.getField()));
+				descriptionField.setPropertyAccessor(createAccessor(entityCache, fieldConfiguration.getField()));
 
 			descriptionField.setFieldType(FieldType.RELATIONSHIP);
 			descriptionField.setTargetClass(fieldConfiguration.getType());
@@ -2452,6 +2638,9 @@ public class EntityCacheManager {
 					descriptionField.setOrderByClause(fieldConfiguration.getOrderByClause());
 			}
 
+			if (fieldConfiguration.isAnnotationPresent(BatchSize.class))
+				descriptionField.setBatchSize(fieldConfiguration.getBatchSize());
+
 			descriptionColumn.setExpression(fieldConfiguration.getName() + "." + foreingKeyField.getName());
 			descriptionColumn.setDescriptionField(descriptionField);
 			descriptionColumn.setIdSynchronism(fieldConfiguration.isAnnotationPresent(IdSynchronism.class));
@@ -2490,8 +2679,7 @@ public class EntityCacheManager {
 			throws Exception {
 		DescriptionField descriptionField = new DescriptionField(entityCache, fieldConfiguration.getField());
 		if (propertyAccessorFactory != null)
-			descriptionField.setPropertyAccessor(propertyAccessorFactory.createAccessor(entityCache.getEntityClass(),
-					fieldConfiguration.getField()));
+			descriptionField.setPropertyAccessor(createAccessor(entityCache, fieldConfiguration.getField()));
 
 		descriptionField.setFieldType(FieldType.RELATIONSHIP);
 		descriptionField.setFetchMode(fieldConfiguration.getFetch().getMode());
@@ -2541,6 +2729,9 @@ public class EntityCacheManager {
 
 		if (fieldConfiguration.isAnnotationPresent(OrderBy.class))
 			descriptionField.setOrderByClause(fieldConfiguration.getOrderByClause());
+
+		if (fieldConfiguration.isAnnotationPresent(BatchSize.class))
+			descriptionField.setBatchSize(fieldConfiguration.getBatchSize());
 		entityCache.add(descriptionField);
 
 	}
@@ -15,8 +15,10 @@
  *******************************************************************************/
 package br.com.anteros.persistence.metadata;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import br.com.anteros.persistence.metadata.descriptor.DescriptionField;
@@ -24,12 +26,22 @@ import br.com.anteros.persistence.metadata.type.EntityStatus;
 import br.com.anteros.persistence.session.SQLSession;
 import br.com.anteros.persistence.session.lock.LockMode;
 
+/**
+ * Estado de uma entidade gerenciada pelo contexto de persistência.
+ * 
+ * Os valores originais e os últimos valores do objeto são guardados em arrays
+ * indexados pela posição do campo na entidade (ver
+ * {@link EntityCache#getFieldIndex(String)}), assim a verificação de campos
+ * alterados compara os valores posição a posição sem pesquisar o campo pelo
+ * nome.
+ */
 public class EntityManaged {
+	private static final FieldEntityValue[] EMPTY_VALUES = new FieldEntityValue[0];
 	private EntityCache entityCache;
 	private EntityStatus status;
 	private Set<String> fieldsForUpdate = new HashSet<String>();
-	private Set<FieldEntityValue> originalValues = new HashSet<FieldEntityValue>();
-	private Set<FieldEntityValue> lastValues = new HashSet<FieldEntityValue>();
+	private FieldEntityValue[] originalValues = EMPTY_VALUES;
+	private FieldEntityValue[] lastValues = EMPTY_VALUES;
 	private Object originalVersion;
 	private Object oldVersion;
 	private Object currentVersion;
@@ -46,6 +58,8 @@ public class EntityManaged {
 
 	public void setEntityCache(EntityCache entityCache) {
 		this.entityCache = entityCache;
+		this.originalValues = EMPTY_VALUES;
+		this.lastValues = EMPTY_VALUES;
 	}
 
 	public Set<String> getFieldsForUpdate() {
@@ -57,11 +71,33 @@ public class EntityManaged {
 	}
 
 	public Set<FieldEntityValue> getOriginalValues() {
-		return Collections.unmodifiableSet(originalValues);
+		return toSet(originalValues);
 	}
 
 	public Set<FieldEntityValue> getLastValues() {
-		return Collections.unmodifiableSet(lastValues);
+		return toSet(lastValues);
+	}
+
+	/**
+	 * Retorna o valor original do campo na posição informada.
+	 */
+	public FieldEntityValue getOriginalValue(int fieldIndex) {
+		return (fieldIndex >= 0 && fieldIndex < originalValues.length ? originalValues[fieldIndex] : null);
+	}
+
+	/**
+	 * Retorna o último valor do campo na posição informada.
+	 */
+	public FieldEntityValue getLastValue(int fieldIndex) {
+		return (fieldIndex >= 0 && fieldIndex < lastValues.length ? lastValues[fieldIndex] : null);
+	}
+
+	public FieldEntityValue getOriginalValue(String fieldName) {
+		return getOriginalValue(getFieldIndex(fieldName));
+	}
+
+	public FieldEntityValue getLastValue(String fieldName) {
+		return getLastValue(getFieldIndex(fieldName));
 	}
 
 	public Object getOriginalVersion() {
@@ -82,26 +118,32 @@ public class EntityManaged {
 
 	public void addOriginalValue(FieldEntityValue value) {
 		if (value != null) {
-			if (originalValues.contains(value))
-				originalValues.remove(value);
-			originalValues.add(value);
+			int index = getFieldIndex(value.getName());
+			if (index >= 0) {
+				if (index >= originalValues.length)
+					originalValues = Arrays.copyOf(originalValues, entityCache.getFieldCount());
+				originalValues[index] = value;
+			}
 		}
 	}
 
 	public void addLastValue(FieldEntityValue value) {
 		if (value != null) {
-			if (lastValues.contains(value))
-				lastValues.remove(value);
-			lastValues.add(value);
+			int index = getFieldIndex(value.getName());
+			if (index >= 0) {
+				if (index >= lastValues.length)
+					lastValues = Arrays.copyOf(lastValues, entityCache.getFieldCount());
+				lastValues[index] = value;
+			}
 		}
 	}
 
 	public void clearLastValues() {
-		lastValues.clear();
+		lastValues = EMPTY_VALUES;
 	}
 
 	public void clearOriginalValues() {
-		originalValues.clear();
+		originalValues = EMPTY_VALUES;
 	}
 
 	public Object getCurrentVersion() {
@@ -122,16 +164,31 @@ public class EntityManaged {
 
 	public void updateLastValues(SQLSession session, Object targetObject)
 			throws Exception {
-		this.clearLastValues();
 		this.setStatus(EntityStatus.MANAGED);
+		FieldEntityValue[] values = newValues();
+		int index = 0;
 		for (DescriptionField descriptionField : entityCache
 				.getDescriptionFields())
-			this.addLastValue(descriptionField.getFieldEntityValue(session,
-					targetObject));
+			values[index++] = descriptionField.getFieldEntityValue(session,
+					targetObject);
+		this.lastValues = values;
 		this.setOldVersion(this.getCurrentVersion());
 		this.setCurrentVersion(null);
 	}
 
+	/**
+	 * Verifica se o valor do campo na posição informada foi alterado em relação
+	 * ao último valor guardado.
+	 */
+	public boolean isModified(int fieldIndex, FieldEntityValue newValue) {
+		FieldEntityValue lastValue = getLastValue(fieldIndex);
+		if ((lastValue == null) && (newValue == null))
+			return false;
+		if ((lastValue == null) || (newValue == null))
+			return true;
+		return newValue.compareTo(lastValue) != 0;
+	}
+
 	public boolean isNewEntity() {
 		return newEntity;
 	}
@@ -141,17 +198,13 @@ public class EntityManaged {
 	}
 
 	public void resetValues() {
-		this.clearLastValues();
-		for (FieldEntityValue field : this.getOriginalValues())
-			this.addLastValue(field);
+		this.lastValues = originalValues.clone();
 		this.setOldVersion(this.getOriginalVersion());
 		this.setCurrentVersion(null);
 	}
 
 	public void commitValues() {
-		this.clearOriginalValues();
-		for (FieldEntityValue field : this.getLastValues())
-			this.addOriginalValue(field);
+		this.originalValues = lastValues.clone();
 		this.setOldVersion(this.getCurrentVersion());
 		this.setOriginalVersion(this.getCurrentVersion());
 		this.setCurrentVersion(null);
@@ -178,4 +231,21 @@ public class EntityManaged {
 		return entityCache.isVersioned();
 	}
 
+	private int getFieldIndex(String fieldName) {
+		return (entityCache == null ? -1 : entityCache.getFieldIndex(fieldName));
+	}
+
+	private FieldEntityValue[] newValues() {
+		return new FieldEntityValue[entityCache.getFieldCount()];
+	}
+
+	private static Set<FieldEntityValue> toSet(FieldEntityValue[] values) {
+		Set<FieldEntityValue> result = new LinkedHashSet<FieldEntityValue>();
+		for (FieldEntityValue value : values) {
+			if (value != null)
+				result.add(value);
+		}
+		return Collections.unmodifiableSet(result);
+	}
+
 }
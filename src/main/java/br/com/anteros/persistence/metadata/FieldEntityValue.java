@@ -41,15 +41,21 @@ public class FieldEntityValue implements Comparable<FieldEntityValue> {
 		if (target == null)
 			return -1;
 		if (value instanceof FieldEntityValue[]) {
-			if (((FieldEntityValue[]) value).length != ((FieldEntityValue[]) target.getValue()).length) {
+			FieldEntityValue[] sourceValues = (FieldEntityValue[]) value;
+			FieldEntityValue[] targetValues = (FieldEntityValue[]) target.getValue();
+			if (sourceValues.length != targetValues.length) {
 				return -1;
 			}
-			for (int i = 0; i < ((FieldEntityValue[]) value).length; i++) {
-				FieldEntityValue sourceField = ((FieldEntityValue[]) value)[i];
+			for (int i = 0; i < sourceValues.length; i++) {
+				/*
+				 * Compara primeiro o elemento na mesma posição, que é o caso comum
+				 * quando a coleção não foi alterada, e só depois procura nos demais
+				 */
+				if (sourceValues[i].compareTo(targetValues[i]) == 0)
+					continue;
 				boolean found = false;
-				for (int k = 0; k < ((FieldEntityValue[]) target.getValue()).length; k++) {
-					FieldEntityValue targetField = ((FieldEntityValue[]) target.getValue())[k];
-					if (sourceField.compareTo(targetField) == 0) {
+				for (int k = 0; k < targetValues.length; k++) {
+					if ((k != i) && (sourceValues[i].compareTo(targetValues[k]) == 0)) {
 						found = true;
 						break;
 					}
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.metadata;
+
+import java.util.List;
+
+import br.com.anteros.persistence.parameter.NamedParameter;
+
+/**
+ * SQL de INSERT de uma entidade para uma sequência de colunas. Os valores são
+ * ligados por posição na ordem das colunas do plano, por isso o plano só é
+ * reaproveitado quando os parâmetros têm exatamente as mesmas colunas na mesma
+ * ordem.
+ * 
+ * @author Edson Martins - Anteros
+ *
+ */
+public class InsertPlan {
+
+	private final String sql;
+	private final String[] columnNames;
+
+	public InsertPlan(String sql, String[] columnNames) {
+		this.sql = sql;
+		this.columnNames = columnNames;
+	}
+
+	/**
+	 * Verifica se os parâmetros usam as colunas do plano na mesma ordem.
+	 */
+	public boolean matches(List<NamedParameter> parameters) {
+		int index = 0;
+		for (NamedParameter parameter : parameters) {
+			if (parameter.isKey())
+				continue;
+			if ((index >= columnNames.length) || !columnNames[index].equals(parameter.getName()))
+				return false;
+			index++;
+		}
+		return index == columnNames.length;
+	}
+
+	public String getSql() {
+		return sql;
+	}
+
+	public String[] getColumnNames() {
+		return columnNames;
+	}
+
+}
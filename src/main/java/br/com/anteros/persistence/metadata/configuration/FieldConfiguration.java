@@ -25,6 +25,7 @@ import java.util.Set;
 
 import br.com.anteros.core.utils.Assert;
 import br.com.anteros.core.utils.ReflectionUtils;
+import br.com.anteros.persistence.metadata.annotation.BatchSize;
 import br.com.anteros.persistence.metadata.annotation.BooleanValue;
 import br.com.anteros.persistence.metadata.annotation.Cascade;
 import br.com.anteros.persistence.metadata.annotation.CollectionTable;
@@ -90,6 +91,7 @@ public class FieldConfiguration {
 	private JoinTableConfiguration joinTable;
 	private String mapKeyColumnName;
 	private String orderByClause;
+	private int batchSize;
 	private TemporalType temporalType;
 	private String trueValue;
 	private String falseValue;
@@ -345,6 +347,12 @@ public class FieldConfiguration {
 		return this;
 	}
 
+	public FieldConfiguration batchSize(int batchSize) {
+		annotations.add(BatchSize.class);
+		this.batchSize = batchSize;
+		return this;
+	}
+
 	public FieldConfiguration temporal(TemporalType type) {
 		annotations.add(Temporal.class);
 		this.temporalType = type;
@@ -468,6 +476,10 @@ public class FieldConfiguration {
 		return orderByClause;
 	}
 
+	public int getBatchSize() {
+		return batchSize;
+	}
+
 	public TemporalType getTemporalType() {
 		return temporalType;
 	}
@@ -609,6 +621,8 @@ public class FieldConfiguration {
 				mapKeyColumn(((MapKeyColumn) annotation).name());
 			} else if (annotation instanceof OrderBy) {
 				orderBy(((OrderBy) annotation).clause());
+			} else if (annotation instanceof BatchSize) {
+				batchSize(((BatchSize) annotation).value());
 			} else if (annotation instanceof TableGenerator) {
 				tableGenerator(new TableGeneratorConfiguration((TableGenerator) annotation));
 			} else if (annotation instanceof Temporal) {
@@ -28,6 +28,7 @@ import br.com.anteros.core.utils.ObjectUtils;
 import br.com.anteros.core.utils.ReflectionUtils;
 import br.com.anteros.core.utils.StringUtils;
 import br.com.anteros.persistence.asm.FieldAccess;
+import br.com.anteros.persistence.asm.MethodAccess;
 import br.com.anteros.persistence.metadata.EntityCache;
 import br.com.anteros.persistence.metadata.EntityCacheException;
 import br.com.anteros.persistence.metadata.EntityManaged;
@@ -57,6 +58,7 @@ public class DescriptionField {
 	private FetchType fetchType;
 	private FetchMode modeType;
 	private String orderByClause;
+	private int batchSize = 0;
 	private EntityCache targetEntity;
 	private DescriptionMappedBy mappedBy;
 	private List<DescriptionColumn> columns = new ArrayList<DescriptionColumn>();
@@ -86,6 +88,7 @@ public class DescriptionField {
 	private String[] exportColumns;
 	private PropertyAccessor propertyAccessor = null;
 	private DescriptionColumn simpleColumn;
+	private volatile Accessors accessors;
 
 	public DescriptionField(EntityCache entityCache, Field field) {
 		setField(field);
@@ -126,6 +129,7 @@ public class DescriptionField {
 	public void setField(Field field) {
 		this.field = field;
 		this.field.setAccessible(true);
+		this.accessors = null;
 	}
 
 	public FieldType getFieldType() {
@@ -221,6 +225,37 @@ public class DescriptionField {
 		this.orderByClause = orderByClause;
 	}
 
+	public boolean hasBatchSize() {
+		return this.batchSize > 0;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Retorna a coluna da entidade destino usada no IN (...) da busca em lote
+	 * do campo. Retorna nulo se o campo não pode ser buscado em lote (sql
+	 * customizado, chave composta ou tipo de busca não suportado).
+	 */
+	public DescriptionColumn getBatchFetchColumn() {
+		if ((targetEntity == null) || StringUtils.isNotEmpty(statement) || isLob())
+			return null;
+		if ((modeType == FetchMode.FOREIGN_KEY) && isRelationShip()) {
+			if (columns.size() == 1)
+				return columns.get(0).getReferencedColumn();
+		} else if ((modeType == FetchMode.ONE_TO_MANY) && isCollectionEntity() && isMappedBy()) {
+			DescriptionColumn[] mappedByColumns = targetEntity.getDescriptionColumns(getMappedBy());
+			if ((mappedByColumns != null) && (mappedByColumns.length == 1))
+				return mappedByColumns[0];
+		}
+		return null;
+	}
+
 	public void setModeType(FetchMode modeType) {
 		this.modeType = modeType;
 	}
@@ -234,11 +269,59 @@ public class DescriptionField {
 
 	}
 
+	/**
+	 * Resolve os índices do get e set do campo no MethodAccess da entidade para
+	 * que os acessos não precisem buscar os métodos pelo nome.
+	 */
+	public void resolveAccessors() {
+		MethodAccess methodAccess = entityCache.getMethodAccess();
+		int getterIndex = -1;
+		int setterIndex = -1;
+		try {
+			getterIndex = getMethodIndex(methodAccess,
+					ReflectionUtils.getGetterAccessor(entityCache.getEntityClass(), field));
+			setterIndex = getMethodIndex(methodAccess,
+					ReflectionUtils.getSetterAccessor(entityCache.getEntityClass(), field));
+		} catch (Exception e) {
+			/*
+			 * O erro será gerado novamente no acesso pelo nome do método
+			 */
+		}
+		accessors = new Accessors(methodAccess, getterIndex, setterIndex);
+	}
+
+	private int getMethodIndex(MethodAccess methodAccess, Method method) {
+		if (method == null)
+			return -1;
+		try {
+			return methodAccess.getIndex(method.getName(), method.getParameterTypes());
+		} catch (IllegalArgumentException e) {
+			return -1;
+		}
+	}
+
+	private Accessors getAccessors() {
+		Accessors result = accessors;
+		if (result == null) {
+			resolveAccessors();
+			result = accessors;
+		}
+		return result;
+	}
+
 	public Object getObjectValue(Object object) throws Exception {
-		Method method = ReflectionUtils.getGetterAccessor(entityCache.getEntityClass(), field);
+		Accessors result = getAccessors();
+		if (result.getterIndex < 0) {
+			Method method = ReflectionUtils.getGetterAccessor(entityCache.getEntityClass(), field);
+			try {
+				return entityCache.getMethodAccess().invoke(object, method.getName());
+			} catch (NullPointerException e) {
+				return null;
+			}
+		}
 
 		try {
-			return entityCache.getMethodAccess().invoke(object, method.getName());
+			return result.methodAccess.invoke(object, result.getterIndex);
 		} catch (NullPointerException e) {
 			return null;
 		}
@@ -294,6 +377,11 @@ public class DescriptionField {
 	}
 
 	public void setValue(Object source, Object value) throws Exception {
+		Accessors result = getAccessors();
+		if (result.setterIndex >= 0) {
+			result.methodAccess.invoke(source, result.setterIndex, value);
+			return;
+		}
 		Method method = ReflectionUtils.getSetterAccessor(entityCache.getEntityClass(), field);
 		entityCache.getMethodAccess().invoke(source, method.getName(), value);
 //		if (propertyAccessor != null) {
@@ -1186,4 +1274,20 @@ public class DescriptionField {
 		return false;
 	}
 
+
+	/**
+	 * Índices do get e set do campo no MethodAccess da entidade. Índice negativo
+	 * indica que o método não pôde ser resolvido e será buscado pelo nome.
+	 */
+	private static final class Accessors {
+		private final MethodAccess methodAccess;
+		private final int getterIndex;
+		private final int setterIndex;
+
+		Accessors(MethodAccess methodAccess, int getterIndex, int setterIndex) {
+			this.methodAccess = methodAccess;
+			this.getterIndex = getterIndex;
+			this.setterIndex = setterIndex;
+		}
+	}
 }
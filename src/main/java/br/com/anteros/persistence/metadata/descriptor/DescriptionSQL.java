@@ -118,23 +118,35 @@ public class DescriptionSQL {
 	}
 
 	public String[] getParametersName() {
+		return getParametersName(entityCacheManager == null ? null : entityCacheManager.get());
+	}
+
+	public String[] getParametersName(EntityCacheManager entityCacheManager) {
 		List<String> result = new ArrayList<String>();
-		for (NamedParameter parameter : getParameters()) {
+		for (NamedParameter parameter : getParameters(entityCacheManager)) {
 			result.add(parameter.getName());
 		}
 		return result.toArray(new String[] {});
 	}
 
 	public NamedParameter[] getParameters() {
+		return getParameters(entityCacheManager == null ? null : entityCacheManager.get());
+	}
+
+	/**
+	 * Retorna os parâmetros do SQL usando o cache de metadados da fábrica de
+	 * sessões do EntityCacheManager informado.
+	 */
+	public NamedParameter[] getParameters(EntityCacheManager entityCacheManager) {
 		List<NamedParameter> result = new ArrayList<NamedParameter>();
 		if (entityCacheManager != null) {
-			PersistenceMetadataCache cache = PersistenceMetadataCache.getInstance(entityCacheManager.get());
+			PersistenceMetadataCache cache = PersistenceMetadataCache.getInstance(entityCacheManager);
 			if (cache != null) {
 				NamedParameterParserResult parserResult = (NamedParameterParserResult) cache
-						.get("NamedParameters:" + sql);
+						.get(NamedParameterStatement.getParserResultKey(sql, null));
 				if (parserResult == null) {
 					parserResult = NamedParameterStatement.parse(sql, null);
-					cache.put("NamedParameters:" + sql, parserResult);
+					cache.put(NamedParameterStatement.getParserResultKey(sql, null), parserResult);
 				}
 
 				for (NamedParameter parameter : parserResult.getNamedParameters()) {
@@ -153,7 +165,7 @@ public class DescriptionSQL {
 	public NamedParameter[] processParameters(EntityCacheManager entityCacheManager,
 			List<NamedParameter> namedParameters) {
 		List<NamedParameter> result = new ArrayList<NamedParameter>();
-		String[] names = this.getParametersName();
+		String[] names = this.getParametersName(entityCacheManager);
 		NamedParameter namedParam;
 		for (String name : names) {
 			namedParam = NamedParameter.getNamedParameterByName(namedParameters, name);
@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.metadata.identifier;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+import br.com.anteros.core.log.Logger;
+import br.com.anteros.core.log.LoggerProvider;
+import br.com.anteros.persistence.session.AbstractSQLSessionFactoryBase;
+import br.com.anteros.persistence.session.SQLSession;
+import br.com.anteros.persistence.session.SQLSessionFactory;
+
+/**
+ * Bloco de identificadores reservados no banco de dados compartilhado por
+ * todas as sessões da fábrica.
+ *
+ * Os valores são retirados do bloco atual sem lock, incrementando um cursor.
+ * Quando o bloco acaba apenas uma thread busca o próximo bloco no banco de
+ * dados; as demais aguardam e continuam do novo bloco.
+ *
+ * Com a reserva antecipada, quando 3/4 do bloco forem consumidos o próximo
+ * bloco é buscado por uma thread em segundo plano, assim as sessões não
+ * esperam pelo banco de dados na troca de bloco.
+ *
+ * @author Edson Martins - Anteros
+ *
+ */
+public class IdentifierBlockPool {
+
+	private static Logger log = LoggerProvider.getInstance().getLogger(IdentifierBlockPool.class.getName());
+
+	private static final int MINIMUM_PREFETCH_BLOCK_SIZE = 4;
+
+	private static final Map<SQLSessionFactory, Map<String, IdentifierBlockPool>> pools = new WeakHashMap<SQLSessionFactory, Map<String, IdentifierBlockPool>>();
+
+	private static volatile ExecutorService prefetchExecutor;
+
+	private final AtomicReference<Block> current = new AtomicReference<Block>();
+	private final AtomicReference<Block> prefetched = new AtomicReference<Block>();
+	private final ReentrantLock refillLock = new ReentrantLock();
+
+	/**
+	 * Retorna o pool com o nome informado da fábrica de sessões da sessão.
+	 */
+	public static IdentifierBlockPool getInstance(SQLSession session, String name) {
+		SQLSessionFactory sessionFactory = session.getSQLSessionFactory();
+		if (sessionFactory instanceof AbstractSQLSessionFactoryBase)
+			return ((AbstractSQLSessionFactoryBase) sessionFactory).getIdentifierBlockPool(name);
+		Map<String, IdentifierBlockPool> result;
+		synchronized (pools) {
+			result = pools.get(sessionFactory);
+			if (result == null) {
+				result = new ConcurrentHashMap<String, IdentifierBlockPool>();
+				pools.put(sessionFactory, result);
+			}
+		}
+		return getInstance(result, name);
+	}
+
+	public static IdentifierBlockPool getInstance(Map<String, IdentifierBlockPool> pools, String name) {
+		IdentifierBlockPool result = pools.get(name);
+		if (result == null) {
+			synchronized (pools) {
+				result = pools.get(name);
+				if (result == null) {
+					result = new IdentifierBlockPool();
+					pools.put(name, result);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Retorna o próximo identificador reservando um novo bloco pelo loader
+	 * quando o bloco atual estiver esgotado.
+	 */
+	public long next(BlockLoader loader) throws Exception {
+		return next(loader, false);
+	}
+
+	/**
+	 * Retorna o próximo identificador. Se prefetch for verdadeiro o próximo bloco
+	 * é reservado em segundo plano antes do bloco atual acabar; o loader não
+	 * pode depender da sessão que chamou este método.
+	 */
+	public long next(BlockLoader loader, boolean prefetch) throws Exception {
+		while (true) {
+			Block block = current.get();
+			if (block != null) {
+				long value = block.cursor.getAndIncrement();
+				if (value <= block.last) {
+					/*
+					 * Apenas uma thread recebe o valor que dispara a reserva antecipada
+					 */
+					if (prefetch && (value == block.prefetchAt))
+						prefetch(loader);
+					return value;
+				}
+			}
+			refillLock.lock();
+			try {
+				if (current.get() == block) {
+					Block nextBlock = prefetched.getAndSet(null);
+					current.set(nextBlock != null ? nextBlock : loader.loadBlock());
+				}
+			} finally {
+				refillLock.unlock();
+			}
+		}
+	}
+
+	private void prefetch(final BlockLoader loader) {
+		getPrefetchExecutor().execute(new Runnable() {
+			public void run() {
+				try {
+					Block block = loader.loadBlock();
+					if (!prefetched.compareAndSet(null, block))
+						log.debug("Bloco de identificadores reservado antecipadamente descartado: " + block);
+				} catch (Exception e) {
+					log.error("Não foi possível reservar antecipadamente o próximo bloco de identificadores. "
+							+ e.getMessage(), e);
+				}
+			}
+		});
+	}
+
+	private static ExecutorService getPrefetchExecutor() {
+		ExecutorService result = prefetchExecutor;
+		if (result == null) {
+			synchronized (IdentifierBlockPool.class) {
+				result = prefetchExecutor;
+				if (result == null) {
+					result = Executors.newSingleThreadExecutor(new ThreadFactory() {
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable, "anteros-identifier-prefetch");
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+					prefetchExecutor = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Descarta o bloco atual. Os valores restantes não serão usados.
+	 */
+	public void clear() {
+		current.set(null);
+		prefetched.set(null);
+	}
+
+	/**
+	 * Faixa de identificadores reservada no banco de dados.
+	 */
+	public static final class Block {
+		private final long first;
+		private final long last;
+		private final long prefetchAt;
+		private final AtomicLong cursor;
+
+		public Block(long first, long last) {
+			if (last < first)
+				throw new IllegalArgumentException("Faixa de identificadores inválida: " + first + " a " + last);
+			this.cursor = new AtomicLong(first);
+			this.first = first;
+			this.last = last;
+			long size = last - first + 1;
+			this.prefetchAt = (size < MINIMUM_PREFETCH_BLOCK_SIZE ? Long.MIN_VALUE : first + (size * 3 / 4));
+		}
+
+		public long getFirst() {
+			return first;
+		}
+
+		public long getLast() {
+			return last;
+		}
+
+		@Override
+		public String toString() {
+			return first + " a " + last;
+		}
+	}
+
+	public interface BlockLoader {
+
+		/**
+		 * Reserva no banco de dados um novo bloco de identificadores.
+		 */
+		Block loadBlock() throws Exception;
+	}
+}
@@ -57,7 +57,7 @@ public class IdentifierGeneratorFactory {
 		} else if (type.equals(GeneratedType.TABLE)) {
 			return new TableGenerator(session, generator.getTableName(), generator.getPkColumnName(), generator.getValueColumnName(),
 					generator.getValue(), column.getField().getType(), null, generator.getCatalog(), generator.getSchema(),
-					generator.getInitialValue());
+					generator.getInitialValue(), generator.getAllocationSize());
 		}
 		return null;
 	}
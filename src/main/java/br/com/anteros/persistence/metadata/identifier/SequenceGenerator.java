@@ -15,13 +15,29 @@ package br.com.anteros.persistence.metadata.identifier;
 import java.io.Serializable;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 
+import javax.sql.DataSource;
+
 import br.com.anteros.core.log.Logger;
 import br.com.anteros.core.log.LoggerProvider;
+import br.com.anteros.persistence.metadata.identifier.IdentifierBlockPool.Block;
+import br.com.anteros.persistence.metadata.identifier.IdentifierBlockPool.BlockLoader;
 import br.com.anteros.persistence.session.SQLSession;
 import br.com.anteros.persistence.session.query.ShowSQLType;
 
+/**
+ * Gerador de identificadores usando uma sequência do banco de dados.
+ *
+ * Quando allocationSize é maior que 1 e a fábrica de sessões possui um
+ * DataSource os blocos de allocationSize valores são reservados em uma conexão
+ * própria e compartilhados por todas as sessões da fábrica
+ * ({@link IdentifierBlockPool}). Com allocationSize igual a 1 o valor é obtido
+ * na conexão da sessão, assim o gerador não consome uma segunda conexão do pool
+ * por identificador.
+ */
 public class SequenceGenerator implements IdentifierGenerator {
 
 	private static Logger log = LoggerProvider.getInstance().getLogger(SequenceGenerator.class.getName());
@@ -35,6 +51,7 @@ public class SequenceGenerator implements IdentifierGenerator {
 	private Type type;
 	private int initialValue;
 	private int allocationSize;
+	private SequenceBlockLoader blockLoader;
 
 	public SequenceGenerator(SQLSession session, String catalogName, String schemaName, String sequenceName, String parameters, Type type, int initialValue,
 			int allocationSize) throws Exception {
@@ -59,14 +76,28 @@ public class SequenceGenerator implements IdentifierGenerator {
 	}
 
 	public Serializable generate() throws Exception {
+		DataSource dataSource = session.getSQLSessionFactory().getDataSource();
+		if ((allocationSize == 1) || (dataSource == null))
+			return convert(generateInSession());
+		if (blockLoader == null)
+			blockLoader = new SequenceBlockLoader(dataSource, sql, allocationSize);
+		return convert(IdentifierBlockPool.getInstance(session, "SEQUENCE:" + sequenceName).next(blockLoader, true));
+	}
 
-		Long nextVal = Long.valueOf(0);
+	/**
+	 * Gera o valor usando o cache de sequências da sessão. Usado com
+	 * allocationSize igual a 1 ou quando a fábrica não possui DataSource para
+	 * reservar os blocos em conexão própria.
+	 */
+	protected Long generateInSession() throws Exception {
 		if (!session.hasNextValFromCacheSequence(sequenceName)) {
 			Long nextValDatabase = getNextvalFromDatabase();
 			session.storeNextValToCacheSession(sequenceName, nextValDatabase, nextValDatabase+allocationSize-1);
 		}
-		nextVal = session.getNextValFromCacheSequence(sequenceName);
+		return session.getNextValFromCacheSequence(sequenceName);
+	}
 
+	private Serializable convert(Long nextVal) {
 		if (type == Long.class)
 			return nextVal;
 		else if (type == Integer.class)
@@ -113,4 +144,47 @@ public class SequenceGenerator implements IdentifierGenerator {
 		return allocationSize;
 	}
 
+	/**
+	 * Reserva os blocos da sequência em uma conexão própria obtida do
+	 * DataSource, sem depender da sessão. Pode ser executado pela thread de
+	 * reserva antecipada do pool.
+	 */
+	private static class SequenceBlockLoader implements BlockLoader {
+		private final DataSource dataSource;
+		private final String sql;
+		private final int allocationSize;
+
+		SequenceBlockLoader(DataSource dataSource, String sql, int allocationSize) {
+			this.dataSource = dataSource;
+			this.sql = sql;
+			this.allocationSize = (allocationSize < 1 ? 1 : allocationSize);
+		}
+
+		public Block loadBlock() throws Exception {
+			Connection connection = dataSource.getConnection();
+			try {
+				PreparedStatement statement = connection.prepareStatement(sql);
+				try {
+					ResultSet rs = statement.executeQuery();
+					try {
+						long value = 1;
+						if (rs.next())
+							value = rs.getLong(1);
+						return new Block(value, value + allocationSize - 1);
+					} finally {
+						rs.close();
+					}
+				} finally {
+					statement.close();
+				}
+			} catch (Exception ex) {
+				log.error("Não foi possível obter o próximo valor da sequência com o SQL " + sql + ". "
+						+ ex.getMessage(), ex);
+				throw ex;
+			} finally {
+				connection.close();
+			}
+		}
+	}
+
 }
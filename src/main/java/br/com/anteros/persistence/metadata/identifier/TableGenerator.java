@@ -18,10 +18,17 @@ package br.com.anteros.persistence.metadata.identifier;
 import java.io.Serializable;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
 
 import br.com.anteros.core.log.Logger;
 import br.com.anteros.core.log.LoggerProvider;
+import br.com.anteros.persistence.metadata.identifier.IdentifierBlockPool.Block;
+import br.com.anteros.persistence.metadata.identifier.IdentifierBlockPool.BlockLoader;
 import br.com.anteros.persistence.session.SQLSession;
 import br.com.anteros.persistence.session.lock.LockOptions;
 import br.com.anteros.persistence.session.query.ShowSQLType;
@@ -29,7 +36,19 @@ import br.com.anteros.persistence.sql.command.Insert;
 import br.com.anteros.persistence.sql.command.Select;
 import br.com.anteros.persistence.sql.command.Update;
 
-public class TableGenerator implements IdentifierGenerator {
+/**
+ * Gerador de identificadores usando uma tabela de valores.
+ *
+ * Quando allocationSize é maior que 1 e a fábrica de sessões possui um
+ * DataSource os valores são reservados em blocos de allocationSize em uma
+ * transação curta em uma conexão própria, liberando o lock da linha
+ * imediatamente. O bloco é compartilhado por todas as sessões da fábrica
+ * ({@link IdentifierBlockPool}). A coluna de valor guarda o último
+ * identificador reservado. Com allocationSize igual a 1 o valor é gerado na
+ * conexão da sessão, assim o gerador não consome uma segunda conexão do pool
+ * por identificador.
+ */
+public class TableGenerator implements IdentifierGenerator, BlockLoader {
 
 	private static Logger log = LoggerProvider.getInstance().getLogger(TableGenerator.class.getName());
 
@@ -45,14 +64,21 @@ public class TableGenerator implements IdentifierGenerator {
 	private Update update;
 	private Insert insert;
 	private int initialValue;
+	private int allocationSize;
 
 	public TableGenerator(SQLSession session, String tableName, String pkColumnName, String valueColumnName, String value, Type type,
 			String parameters, String catalog, String schema, int initialValue) {
+		this(session, tableName, pkColumnName, valueColumnName, value, type, parameters, catalog, schema, initialValue, 1);
+	}
+
+	public TableGenerator(SQLSession session, String tableName, String pkColumnName, String valueColumnName, String value, Type type,
+			String parameters, String catalog, String schema, int initialValue, int allocationSize) {
 		this.session = session;
 		this.tableName = tableName;
 		this.type = type;
 		this.value = value;
 		this.initialValue = initialValue;
+		this.allocationSize = Math.max(allocationSize, 1);
 
 		if (this.tableName.indexOf('.') < 0) {
 			StringBuilder sb = new StringBuilder();
@@ -83,6 +109,73 @@ public class TableGenerator implements IdentifierGenerator {
 	}
 
 	public Serializable generate() throws Exception {
+		if ((allocationSize == 1) || (session.getSQLSessionFactory().getDataSource() == null))
+			return convert(generateInSession());
+		return convert(IdentifierBlockPool.getInstance(session, getPoolName()).next(this));
+	}
+
+	/**
+	 * Reserva o próximo bloco de valores em uma transação própria.
+	 */
+	public Block loadBlock() throws Exception {
+		DataSource dataSource = session.getSQLSessionFactory().getDataSource();
+		String selectSql = session.getDialect().applyLock(select.toStatementString(), LockOptions.PESSIMISTIC_WRITE);
+		Connection connection = dataSource.getConnection();
+		try {
+			boolean autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+			try {
+				long lastValue = incrementValue(connection, selectSql);
+				connection.commit();
+				return new Block(lastValue - allocationSize + 1, lastValue);
+			} catch (Exception ex) {
+				connection.rollback();
+				log.error(ex.getMessage(), ex);
+				throw ex;
+			} finally {
+				connection.setAutoCommit(autoCommit);
+			}
+		} finally {
+			connection.close();
+		}
+	}
+
+	private long incrementValue(Connection connection, String selectSql) throws SQLException {
+		long currentValue = 0;
+		PreparedStatement statement = connection.prepareStatement(selectSql);
+		try {
+			statement.setString(1, value);
+			ResultSet rsSelect = statement.executeQuery();
+			if (rsSelect.next())
+				currentValue = rsSelect.getLong(1);
+			rsSelect.close();
+		} finally {
+			statement.close();
+		}
+
+		long lastValue = currentValue + allocationSize;
+		if (currentValue == 0) {
+			statement = connection.prepareStatement(insert.toStatementString());
+			statement.setString(1, value);
+			statement.setLong(2, lastValue);
+		} else {
+			statement = connection.prepareStatement(update.toStatementString());
+			statement.setLong(1, lastValue);
+			statement.setString(2, value);
+		}
+		try {
+			statement.executeUpdate();
+		} finally {
+			statement.close();
+		}
+		return lastValue;
+	}
+
+	private String getPoolName() {
+		return "TABLE:" + tableName + ":" + value;
+	}
+
+	protected long generateInSession() throws Exception {
 		long currentValue = 1;
 		try {
 			String sql = select.toStatementString();
@@ -105,7 +198,10 @@ public class TableGenerator implements IdentifierGenerator {
 			log.error(ex.getMessage(), ex);
 			throw ex;
 		}
+		return currentValue;
+	}
 
+	private Serializable convert(long currentValue) {
 		Long value = new Long(currentValue);
 		if (type == Long.class)
 			return value;
@@ -162,4 +258,8 @@ public class TableGenerator implements IdentifierGenerator {
 		return initialValue;
 	}
 
+	public int getAllocationSize() {
+		return allocationSize;
+	}
+
 }
@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.metadata.index;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Índice das classes de entidades, enumerações e conversores gerado em tempo de
+ * compilação pelo {@link MetadataIndexProcessor}.
+ *
+ * Com a propriedade metadata-index-only habilitada, as classes dos pacotes
+ * presentes no índice são obtidas sem a varredura do classpath na criação da
+ * fábrica de sessões. Os demais pacotes continuam sendo varridos. Cada linha do
+ * arquivo contém o nome da classe e o tipo separados por '='.
+ *
+ * @author Edson Martins - Anteros
+ *
+ */
+public class MetadataIndex {
+
+	public static final String INDEX_LOCATION = "META-INF/anteros/persistence-metadata.idx";
+
+	public static final String ENTITY = "Entity";
+	public static final String ENUM_VALUES = "EnumValues";
+	public static final String CONVERTER = "Converter";
+
+	private final Map<String, String> classes;
+
+	MetadataIndex(Map<String, String> classes) {
+		this.classes = classes;
+	}
+
+	/**
+	 * Lê os índices de todos os jars do classpath. Retorna nulo se nenhum índice
+	 * for encontrado.
+	 */
+	public static MetadataIndex load(ClassLoader classLoader) throws IOException {
+		Enumeration<URL> resources = classLoader.getResources(INDEX_LOCATION);
+		if (!resources.hasMoreElements())
+			return null;
+		Map<String, String> result = new TreeMap<String, String>();
+		while (resources.hasMoreElements()) {
+			try (InputStream is = resources.nextElement().openStream()) {
+				read(is, result);
+			}
+		}
+		return new MetadataIndex(result);
+	}
+
+	static void read(InputStream is, Map<String, String> result) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#"))
+				continue;
+			int separator = line.indexOf('=');
+			if (separator < 0)
+				result.put(line, ENTITY);
+			else
+				result.put(line.substring(0, separator).trim(), line.substring(separator + 1).trim());
+		}
+	}
+
+	static void write(Writer writer, Map<String, String> classes) throws IOException {
+		writer.write("# Gerado pelo " + MetadataIndexProcessor.class.getName() + "\n");
+		for (Map.Entry<String, String> entry : classes.entrySet())
+			writer.write(entry.getKey() + "=" + entry.getValue() + "\n");
+	}
+
+	/**
+	 * Verifica se o índice contém classes do pacote ou de seus subpacotes.
+	 */
+	public boolean containsPackage(String packageName) {
+		String prefix = normalizePackage(packageName) + ".";
+		for (String className : classes.keySet()) {
+			if (className.startsWith(prefix))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Retorna os nomes das classes indexadas nos pacotes informados ou em seus
+	 * subpacotes.
+	 */
+	public List<String> getClassNames(Collection<String> packageNames) {
+		List<String> result = new ArrayList<String>();
+		List<String> prefixes = new ArrayList<String>();
+		for (String packageName : packageNames)
+			prefixes.add(normalizePackage(packageName) + ".");
+		for (String className : classes.keySet()) {
+			for (String prefix : prefixes) {
+				if (className.startsWith(prefix)) {
+					result.add(className);
+					break;
+				}
+			}
+		}
+		return result;
+	}
+
+	public String getType(String className) {
+		return classes.get(className);
+	}
+
+	public int size() {
+		return classes.size();
+	}
+
+	public static String normalizePackage(String packageName) {
+		String result = packageName.trim();
+		if (result.endsWith(".*"))
+			result = result.substring(0, result.length() - 2);
+		return result;
+	}
+}
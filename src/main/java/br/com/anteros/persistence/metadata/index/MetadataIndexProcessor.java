@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.metadata.index;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Processador de anotações que gera o {@link MetadataIndex} com as classes
+ * anotadas com Entity, EnumValues e Converter.
+ *
+ * Para usar informe o processador no maven-compiler-plugin do projeto das
+ * entidades:
+ *
+ * <pre>
+ * &lt;annotationProcessors&gt;
+ *   &lt;annotationProcessor&gt;br.com.anteros.persistence.metadata.index.MetadataIndexProcessor&lt;/annotationProcessor&gt;
+ * &lt;/annotationProcessors&gt;
+ * </pre>
+ *
+ * e habilite a propriedade metadata-index-only na configuração da fábrica de
+ * sessões.
+ *
+ * Em compilações incrementais as classes do índice existente são mantidas.
+ *
+ * @author Edson Martins - Anteros
+ *
+ */
+public class MetadataIndexProcessor extends AbstractProcessor {
+
+	private static final String ANNOTATION_PACKAGE = "br.com.anteros.persistence.metadata.annotation.";
+
+	private final Map<String, String> classes = new TreeMap<String, String>();
+
+	@Override
+	public Set<String> getSupportedAnnotationTypes() {
+		Set<String> result = new HashSet<String>();
+		result.add(ANNOTATION_PACKAGE + MetadataIndex.ENTITY);
+		result.add(ANNOTATION_PACKAGE + MetadataIndex.ENUM_VALUES);
+		result.add(ANNOTATION_PACKAGE + MetadataIndex.CONVERTER);
+		return result;
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for (TypeElement annotation : annotations) {
+			String type = annotation.getSimpleName().toString();
+			for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+				if (element instanceof TypeElement)
+					classes.put(processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString(), type);
+			}
+		}
+		if (roundEnv.processingOver() && !classes.isEmpty())
+			writeIndex();
+		return false;
+	}
+
+	private void writeIndex() {
+		Map<String, String> result = new TreeMap<String, String>();
+		readExistingIndex(result);
+		result.putAll(classes);
+		try {
+			FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+					MetadataIndex.INDEX_LOCATION);
+			try (Writer writer = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.UTF_8)) {
+				MetadataIndex.write(writer, result);
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Kind.ERROR,
+					"Não foi possível gravar o índice de metadados " + MetadataIndex.INDEX_LOCATION + ". " + e.getMessage());
+		}
+	}
+
+	private void readExistingIndex(Map<String, String> result) {
+		try {
+			FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "",
+					MetadataIndex.INDEX_LOCATION);
+			try (InputStream is = file.openInputStream()) {
+				MetadataIndex.read(is, result);
+			}
+		} catch (FileNotFoundException | NoSuchFileException e) {
+			/*
+			 * Primeira compilação
+			 */
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Kind.NOTE,
+					"Índice de metadados existente ignorado. " + e.getMessage());
+		}
+	}
+}
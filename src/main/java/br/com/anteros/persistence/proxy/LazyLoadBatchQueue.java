@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.proxy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import br.com.anteros.persistence.metadata.descriptor.DescriptionField;
+import br.com.anteros.persistence.parameter.NamedParameter;
+import br.com.anteros.persistence.session.SQLSession;
+import br.com.anteros.persistence.session.SQLSessionListener;
+
+/**
+ * Fila dos proxies de coleções ainda não inicializados de uma sessão,
+ * agrupados por campo. Quando um proxy é inicializado os demais proxies
+ * pendentes do mesmo campo são carregados na mesma consulta (BatchSize).
+ * 
+ * As referências aos proxies são fracas para não manter os objetos de origem
+ * em memória enquanto não forem acessados. A fila é registrada como listener
+ * da sessão e é esvaziada quando a sessão é fechada.
+ * 
+ * @author Edson Martins - Anteros
+ *
+ */
+public class LazyLoadBatchQueue implements SQLSessionListener {
+
+	private final Map<DescriptionField, Map<SimpleLazyLoadInterceptor, Boolean>> pending = new HashMap<DescriptionField, Map<SimpleLazyLoadInterceptor, Boolean>>();
+
+	/**
+	 * Retorna a fila da sessão criando-a se necessário.
+	 */
+	public static LazyLoadBatchQueue getInstance(SQLSession session) {
+		synchronized (session) {
+			if (session.getListeners() != null) {
+				for (SQLSessionListener listener : session.getListeners()) {
+					if (listener instanceof LazyLoadBatchQueue)
+						return (LazyLoadBatchQueue) listener;
+				}
+			}
+			LazyLoadBatchQueue result = new LazyLoadBatchQueue();
+			session.addListener(result);
+			return result;
+		}
+	}
+
+	public synchronized void add(SimpleLazyLoadInterceptor interceptor) {
+		Map<SimpleLazyLoadInterceptor, Boolean> interceptors = pending.get(interceptor.getDescriptionFieldOwner());
+		if (interceptors == null) {
+			interceptors = new WeakHashMap<SimpleLazyLoadInterceptor, Boolean>();
+			pending.put(interceptor.getDescriptionFieldOwner(), interceptors);
+		}
+		interceptors.put(interceptor, Boolean.TRUE);
+	}
+
+	/**
+	 * Retira da fila o proxy informado e até maxSize - 1 proxies pendentes do
+	 * mesmo campo. O proxy informado é sempre o primeiro da lista retornada.
+	 */
+	public synchronized List<SimpleLazyLoadInterceptor> poll(SimpleLazyLoadInterceptor interceptor, int maxSize) {
+		List<SimpleLazyLoadInterceptor> result = new ArrayList<SimpleLazyLoadInterceptor>();
+		result.add(interceptor);
+		Map<SimpleLazyLoadInterceptor, Boolean> interceptors = pending.get(interceptor.getDescriptionFieldOwner());
+		if (interceptors == null)
+			return result;
+		interceptors.remove(interceptor);
+		Iterator<SimpleLazyLoadInterceptor> it = interceptors.keySet().iterator();
+		while (it.hasNext() && (result.size() < maxSize)) {
+			SimpleLazyLoadInterceptor sibling = it.next();
+			it.remove();
+			if ((sibling != null) && !sibling.isInitialized())
+				result.add(sibling);
+		}
+		if (interceptors.isEmpty())
+			pending.remove(interceptor.getDescriptionFieldOwner());
+		return result;
+	}
+
+	public synchronized int size() {
+		int result = 0;
+		for (Map<SimpleLazyLoadInterceptor, Boolean> interceptors : pending.values())
+			result += interceptors.size();
+		return result;
+	}
+
+	public synchronized void clear() {
+		pending.clear();
+	}
+
+	public void onExecuteSQL(String sql, NamedParameter[] parameters) {
+	}
+
+	public void onExecuteSQL(String sql, Map<String, Object> parameters) {
+	}
+
+	public void onExecuteSQL(String sql, Object[] parameters) {
+	}
+
+	public void onExecuteUpdateSQL(String sql, NamedParameter[] parameters) {
+	}
+
+	public void onExecuteUpdateSQL(String sql, Map<String, Object> parameters) {
+	}
+
+	public void onExecuteUpdateSQL(String sql, Object[] parameters) {
+	}
+
+	public void onClose(SQLSession session) {
+		clear();
+	}
+}
@@ -31,6 +31,7 @@ import br.com.anteros.persistence.proxy.lob.ClobLazyLoadProxy;
 import br.com.anteros.persistence.proxy.lob.NClobLazyLoadProxy;
 import br.com.anteros.persistence.session.SQLSession;
 import br.com.anteros.persistence.session.cache.Cache;
+import br.com.anteros.persistence.session.lock.LockMode;
 import br.com.anteros.persistence.session.lock.LockOptions;
 
 public class SimpleLazyLoadFactory implements LazyLoadFactory {
@@ -54,16 +55,40 @@ public class SimpleLazyLoadFactory implements LazyLoadFactory {
 		} else {
 			SimpleLazyLoadInterceptor lazyLoadInterceptor = new SimpleLazyLoadInterceptor(session, targetEntityCache,
 					columnKeyValues, transactionCache, targetObject, descriptionField, lockOptions);
-			if (ReflectionUtils.isImplementsInterface(descriptionField.getField().getType(), Set.class))
+			if (ReflectionUtils.isImplementsInterface(descriptionField.getField().getType(), Set.class)) {
 				newObject = new SQLLazyLoadSet(lazyLoadInterceptor);
-			else if (ReflectionUtils.isImplementsInterface(descriptionField.getField().getType(), List.class))
+				addToBatchQueue(session, lazyLoadInterceptor, descriptionField, columnKeyValues, lockOptions);
+			} else if (ReflectionUtils.isImplementsInterface(descriptionField.getField().getType(), List.class)) {
 				newObject = new SQLLazyLoadList(lazyLoadInterceptor);
-			else if (ReflectionUtils.isImplementsInterface(descriptionField.getField().getType(), Map.class))
+				addToBatchQueue(session, lazyLoadInterceptor, descriptionField, columnKeyValues, lockOptions);
+			} else if (ReflectionUtils.isImplementsInterface(descriptionField.getField().getType(), Map.class))
 				newObject = new SQLLazyLoadMap(session, targetEntityCache, descriptionField);
 		}
 		return newObject;
 	}
 
+	/**
+	 * Registra o proxy na fila da sessão para ser carregado junto com os demais
+	 * proxies pendentes do mesmo campo. Somente campos com BatchSize.
+	 */
+	protected void addToBatchQueue(SQLSession session, SimpleLazyLoadInterceptor lazyLoadInterceptor,
+			DescriptionField descriptionField, Map<String, Object> columnKeyValues, LockOptions lockOptions) {
+		if (!descriptionField.hasBatchSize() || (descriptionField.getBatchFetchColumn() == null))
+			return;
+		if ((columnKeyValues == null) || (columnKeyValues.size() != 1)
+				|| (columnKeyValues.values().iterator().next() == null))
+			return;
+		if ((lockOptions != null) && (lockOptions.getLockMode() != LockMode.NONE))
+			return;
+		LazyLoadBatchQueue batchQueue = getBatchQueue(session);
+		lazyLoadInterceptor.setBatchQueue(batchQueue);
+		batchQueue.add(lazyLoadInterceptor);
+	}
+
+	public LazyLoadBatchQueue getBatchQueue(SQLSession session) {
+		return LazyLoadBatchQueue.getInstance(session);
+	}
+
 	@Override
 	public boolean proxyIsInitialized(Object object) throws Exception {
 		if (object instanceof AnterosProxyObject) {
@@ -15,8 +15,11 @@
  *******************************************************************************/
 package br.com.anteros.persistence.proxy;
 
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
+import br.com.anteros.persistence.handler.EntityHandler;
 import br.com.anteros.persistence.metadata.EntityCache;
 import br.com.anteros.persistence.metadata.EntityManaged;
 import br.com.anteros.persistence.metadata.FieldEntityValue;
@@ -25,6 +28,7 @@ import br.com.anteros.persistence.metadata.descriptor.DescriptionField;
 import br.com.anteros.persistence.metadata.type.EntityStatus;
 import br.com.anteros.persistence.session.SQLSession;
 import br.com.anteros.persistence.session.cache.Cache;
+import br.com.anteros.persistence.session.cache.EntityKey;
 import br.com.anteros.persistence.session.lock.LockOptions;
 import br.com.anteros.persistence.session.query.SQLQuery;
 
@@ -41,6 +45,7 @@ public class SimpleLazyLoadInterceptor {
 	private boolean initialized = false;
 	private Boolean processing = false;
 	private LockOptions lockOptions;
+	private LazyLoadBatchQueue batchQueue;
 
 	public SimpleLazyLoadInterceptor(SQLSession session, EntityCache entityCache, Map<String, Object> columKeyValues,
 			Cache transactionCache, Object owner, DescriptionField descriptionField, LockOptions lockOptions) {
@@ -60,45 +65,24 @@ public class SimpleLazyLoadInterceptor {
 				processing = true;
 
 				/*
-				 * Se a lista possui um pai adiciona no cache para evitar
-				 * duplicidade de objetos
+				 * Se o campo possui BatchSize carrega junto os proxies pendentes do
+				 * mesmo campo
 				 */
-				EntityCache ownerEntityCache = null;
-				if (owner != null) {
-					ownerEntityCache = session.getEntityCacheManager().getEntityCache(owner.getClass());
-					if (ownerEntityCache != null) {
-						String uniqueId = ownerEntityCache.getCacheUniqueId(owner);
-						if ((ownerEntityCache.getCacheScope().equals(ScopeType.TRANSACTION))
-								&& (transactionCache != null)) {
-							transactionCache.put(ownerEntityCache.getEntityClass().getName() + "_" + uniqueId, owner,
-									ownerEntityCache.getMaxTimeCache());
-						}
-					}
-				}
+				List<SimpleLazyLoadInterceptor> batch = null;
+				if (batchQueue != null)
+					batch = batchQueue.poll(this, descriptionFieldOwner.getBatchSize());
+
+				if ((batch != null) && (batch.size() > 1)) {
+					loadBatch(batch);
+				} else {
+					addOwnerToCache(transactionCache);
 
-				SQLQuery query = session.createQuery("");
-				query.setLockOptions(lockOptions);
-				target = query.loadData(entityCache, owner, descriptionFieldOwner,
-						columnKeyValuesTarget, transactionCache);
-
-
-				EntityManaged entityManaged = session.getPersistenceContext().getEntityManaged(owner);
-				if (entityManaged != null) {
-					if (entityManaged.getStatus() != EntityStatus.READ_ONLY) {
-						/*
-						 * Guarda o valor da chave do objeto result na lista de
-						 * oldValues
-						 */
-						FieldEntityValue value = descriptionFieldOwner.getFieldEntityValue(session, owner, target);
-						entityManaged.addOriginalValue(value);
-						entityManaged.addLastValue(value);
-						/*
-						 * Adiciona o campo na lista de campos que poderão ser
-						 * alterados. Se o campo não for buscado no select não
-						 * poderá ser alterado.
-						 */
-						entityManaged.getFieldsForUpdate().add(descriptionFieldOwner.getField().getName());
-					}
+					SQLQuery query = session.createQuery("");
+					query.setLockOptions(lockOptions);
+					target = query.loadData(entityCache, owner, descriptionFieldOwner,
+							columnKeyValuesTarget, transactionCache);
+
+					addTargetValue();
 				}
 
 			} finally {
@@ -108,6 +92,95 @@ public class SimpleLazyLoadInterceptor {
 		return target;
 	}
 
+	/**
+	 * Carrega em uma única consulta as coleções de todos os proxies do lote e
+	 * distribui o resultado entre os objetos de origem.
+	 */
+	private void loadBatch(List<SimpleLazyLoadInterceptor> batch) throws Exception {
+		EntityCache batchEntityCache = descriptionFieldOwner.getTargetEntity();
+		Map<EntityKey, Object> keyValues = new LinkedHashMap<EntityKey, Object>();
+		for (SimpleLazyLoadInterceptor interceptor : batch) {
+			interceptor.addOwnerToCache(transactionCache);
+			Object keyValue = interceptor.getKeyValue();
+			keyValues.put(EntityKey.of(batchEntityCache, keyValue), keyValue);
+		}
+
+		SQLQuery query = session.createQuery("");
+		query.setLockOptions(lockOptions);
+		Map<EntityKey, List<Object>> result = query.loadDataBatch(descriptionFieldOwner, keyValues.values(),
+				transactionCache);
+
+		for (SimpleLazyLoadInterceptor interceptor : batch) {
+			Object value = EntityHandler.createCollectionValue(descriptionFieldOwner, result.get(EntityKey.of(batchEntityCache, interceptor.getKeyValue())));
+			if (interceptor == this) {
+				target = value;
+				addTargetValue();
+			} else
+				interceptor.initialize(value);
+		}
+	}
+
+	/**
+	 * Inicializa o proxy com o valor carregado no lote de outro proxy.
+	 */
+	synchronized void initialize(Object target) throws Exception {
+		if (!initialized) {
+			initialized = true;
+			this.target = target;
+			addTargetValue();
+		}
+	}
+
+	/**
+	 * Se a lista possui um pai adiciona no cache para evitar duplicidade de
+	 * objetos
+	 */
+	private void addOwnerToCache(Cache transactionCache) throws Exception {
+		if (owner != null) {
+			EntityCache ownerEntityCache = session.getEntityCacheManager().getEntityCache(owner.getClass());
+			if (ownerEntityCache != null) {
+				EntityKey entityKey = ownerEntityCache.getEntityKey(owner);
+				if ((entityKey != null) && (ownerEntityCache.getCacheScope().equals(ScopeType.TRANSACTION))
+						&& (transactionCache != null)) {
+					transactionCache.put(entityKey, owner, ownerEntityCache.getMaxTimeCache());
+				}
+			}
+		}
+	}
+
+	private void addTargetValue() throws Exception {
+		EntityManaged entityManaged = session.getPersistenceContext().getEntityManaged(owner);
+		if (entityManaged != null) {
+			if (entityManaged.getStatus() != EntityStatus.READ_ONLY) {
+				/*
+				 * Guarda o valor da chave do objeto result na lista de
+				 * oldValues
+				 */
+				FieldEntityValue value = descriptionFieldOwner.getFieldEntityValue(session, owner, target);
+				entityManaged.addOriginalValue(value);
+				entityManaged.addLastValue(value);
+				/*
+				 * Adiciona o campo na lista de campos que poderão ser
+				 * alterados. Se o campo não for buscado no select não
+				 * poderá ser alterado.
+				 */
+				entityManaged.getFieldsForUpdate().add(descriptionFieldOwner.getField().getName());
+			}
+		}
+	}
+
+	Object getKeyValue() {
+		return columnKeyValuesTarget.values().iterator().next();
+	}
+
+	public LazyLoadBatchQueue getBatchQueue() {
+		return batchQueue;
+	}
+
+	public void setBatchQueue(LazyLoadBatchQueue batchQueue) {
+		this.batchQueue = batchQueue;
+	}
+
 	public SQLSession getSession() {
 		return session;
 	}
@@ -18,6 +18,8 @@ package br.com.anteros.persistence.session;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.sql.DataSource;
 
@@ -25,11 +27,14 @@ import br.com.anteros.core.log.Logger;
 import br.com.anteros.core.log.LoggerProvider;
 import br.com.anteros.core.utils.ReflectionUtils;
 import br.com.anteros.persistence.metadata.EntityCacheManager;
+import br.com.anteros.persistence.metadata.identifier.IdentifierBlockPool;
 import br.com.anteros.persistence.schema.SchemaManager;
 import br.com.anteros.persistence.schema.type.TableCreationType;
+import br.com.anteros.persistence.session.cache.PersistenceMetadataCache;
 import br.com.anteros.persistence.session.configuration.AnterosPersistenceProperties;
 import br.com.anteros.persistence.session.configuration.SessionFactoryConfiguration;
 import br.com.anteros.persistence.session.context.CurrentSQLSessionContext;
+import br.com.anteros.persistence.session.context.ThreadLocalSQLSessionContext;
 import br.com.anteros.persistence.session.exception.SQLSessionException;
 import br.com.anteros.persistence.session.query.ShowSQLType;
 import br.com.anteros.persistence.sql.dialect.DatabaseDialect;
@@ -44,12 +49,17 @@ public abstract class AbstractSQLSessionFactoryBase implements SQLSessionFactory
 	protected DataSource dataSource;
 	protected SessionFactoryConfiguration configuration;
 	protected CurrentSQLSessionContext currentSessionContext;
+	protected PersistenceMetadataCache metadataCache;
 
 	private ShowSQLType[] showSql = {ShowSQLType.NONE};
 	private boolean formatSql = false;
 	private int queryTimeout = 0;
 	private int lockTimeout = 0;
 	private int batchSize = 0;
+	private int statementCacheSize = 0;
+	private boolean orderBatchStatements = false;
+	private int connectionValidationIdleTime = ThreadLocalSQLSessionContext.DEFAULT_VALIDATION_IDLE_TIME;
+	private final Map<String, IdentifierBlockPool> identifierBlockPools = new ConcurrentHashMap<String, IdentifierBlockPool>();
 
 	public AbstractSQLSessionFactoryBase(EntityCacheManager entityCacheManager, DataSource dataSource,
 			SessionFactoryConfiguration configuration) throws Exception {
@@ -91,6 +101,28 @@ public abstract class AbstractSQLSessionFactoryBase implements SQLSessionFactory
 			this.batchSize = new Integer(configuration.getProperty(AnterosPersistenceProperties.BATCH_SIZE))
 					.intValue();
 
+		if (configuration.getProperty(AnterosPersistenceProperties.STATEMENT_CACHE_SIZE) != null)
+			this.statementCacheSize = new Integer(
+					configuration.getProperty(AnterosPersistenceProperties.STATEMENT_CACHE_SIZE)).intValue();
+
+		if (configuration.getProperty(AnterosPersistenceProperties.ORDER_BATCH_STATEMENTS) != null)
+			this.orderBatchStatements = new Boolean(
+					configuration.getProperty(AnterosPersistenceProperties.ORDER_BATCH_STATEMENTS)).booleanValue();
+
+		if (configuration.getProperty(AnterosPersistenceProperties.CONNECTION_VALIDATION_IDLE_TIME) != null)
+			this.connectionValidationIdleTime = new Integer(
+					configuration.getProperty(AnterosPersistenceProperties.CONNECTION_VALIDATION_IDLE_TIME)).intValue();
+
+		int metadataCacheMaximumSize = PersistenceMetadataCache.DEFAULT_MAXIMUM_SIZE;
+		if (configuration.getProperty(AnterosPersistenceProperties.METADATA_CACHE_MAXIMUM_SIZE) != null)
+			metadataCacheMaximumSize = new Integer(
+					configuration.getProperty(AnterosPersistenceProperties.METADATA_CACHE_MAXIMUM_SIZE)).intValue();
+		this.metadataCache = new PersistenceMetadataCache(metadataCacheMaximumSize);
+		if (entityCacheManager != null) {
+			entityCacheManager.getMetadataCache().copyTo(metadataCache);
+			entityCacheManager.setMetadataCache(metadataCache);
+		}
+
 		this.currentSessionContext = buildCurrentSessionContext();
 	}
 
@@ -335,5 +367,53 @@ public abstract class AbstractSQLSessionFactoryBase implements SQLSessionFactory
 	public ShowSQLType[] getShowSql() {
 		return showSql;
 	}
+
+	public PersistenceMetadataCache getMetadataCache() {
+		return metadataCache;
+	}
+
+	/**
+	 * Quantidade máxima de PreparedStatement's mantidos em cache por conexão. Zero
+	 * desabilita o cache.
+	 */
+	public int getStatementCacheSize() {
+		return statementCacheSize;
+	}
+
+	public void setStatementCacheSize(int statementCacheSize) {
+		this.statementCacheSize = statementCacheSize;
+	}
+
+	/**
+	 * Indica se os comandos executados em lote devem ser reordenados para agrupar
+	 * os comandos com o mesmo SQL.
+	 */
+	public boolean isOrderBatchStatements() {
+		return orderBatchStatements;
+	}
+
+	public void setOrderBatchStatements(boolean orderBatchStatements) {
+		this.orderBatchStatements = orderBatchStatements;
+	}
+
+	/**
+	 * Tempo em segundos que a sessão atual da thread pode ficar sem uso antes de
+	 * ter a conexão validada no banco de dados. Zero valida a cada uso.
+	 */
+	public int getConnectionValidationIdleTime() {
+		return connectionValidationIdleTime;
+	}
+
+	public void setConnectionValidationIdleTime(int connectionValidationIdleTime) {
+		this.connectionValidationIdleTime = connectionValidationIdleTime;
+	}
+
+	/**
+	 * Retorna o bloco de identificadores reservados do gerador informado,
+	 * compartilhado por todas as sessões da fábrica.
+	 */
+	public IdentifierBlockPool getIdentifierBlockPool(String name) {
+		return IdentifierBlockPool.getInstance(identifierBlockPools, name);
+	}
 	
 }
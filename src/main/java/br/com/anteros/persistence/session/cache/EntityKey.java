@@ -0,0 +1,257 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.session.cache;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Date;
+
+import br.com.anteros.persistence.metadata.EntityCache;
+
+/**
+ * Chave de um objeto no cache da transação e no contexto de persistência:
+ * classe da entidade mais os valores da chave primária.
+ * 
+ * Os valores são normalizados para que a mesma chave lida de fontes diferentes
+ * seja igual (ex: Integer, Long e BigDecimal sem casas decimais viram long,
+ * datas viram milissegundos). Chaves simples numéricas ou texto usam
+ * implementações específicas sem alocação de arrays.
+ * 
+ * @author Edson Martins - Anteros
+ *
+ */
+public abstract class EntityKey {
+
+	protected final Class<?> entityClass;
+
+	protected EntityKey(Class<?> entityClass) {
+		this.entityClass = entityClass;
+	}
+
+	/**
+	 * Cria a chave da entidade. O valor pode ser um único valor ou um array com
+	 * os valores das colunas da chave na ordem de
+	 * {@link EntityCache#getPrimaryKeyColumns()}. Retorna nulo se algum valor
+	 * for nulo.
+	 */
+	public static EntityKey of(EntityCache entityCache, Object value) {
+		return of(entityCache.getEntityClass(), value);
+	}
+
+	public static EntityKey of(Class<?> entityClass, Object value) {
+		if (value == null)
+			return null;
+		if (value instanceof Object[]) {
+			Object[] values = (Object[]) value;
+			if (values.length == 1)
+				return of(entityClass, values[0]);
+			Object[] normalizedValues = new Object[values.length];
+			for (int i = 0; i < values.length; i++) {
+				if (values[i] == null)
+					return null;
+				normalizedValues[i] = normalize(values[i]);
+			}
+			return new CompositeEntityKey(entityClass, normalizedValues);
+		}
+		Object normalizedValue = normalize(value);
+		if (normalizedValue instanceof Long)
+			return new LongEntityKey(entityClass, ((Long) normalizedValue).longValue());
+		if (normalizedValue instanceof String)
+			return new StringEntityKey(entityClass, (String) normalizedValue);
+		return new SimpleEntityKey(entityClass, normalizedValue);
+	}
+
+	/**
+	 * Retorna a mesma chave para outra entidade. Usado na busca de objetos de
+	 * classes concretas a partir de uma classe abstrata.
+	 */
+	public abstract EntityKey forEntity(EntityCache entityCache);
+
+	public Class<?> getEntityClass() {
+		return entityClass;
+	}
+
+	/**
+	 * Normaliza o valor de uma coluna da chave.
+	 */
+	public static Object normalize(Object value) {
+		if ((value instanceof Long) || (value instanceof String))
+			return value;
+		if ((value instanceof Integer) || (value instanceof Short) || (value instanceof Byte))
+			return Long.valueOf(((Number) value).longValue());
+		if (value instanceof BigDecimal) {
+			BigDecimal decimal = (BigDecimal) value;
+			try {
+				return Long.valueOf(decimal.longValueExact());
+			} catch (ArithmeticException e) {
+				return (decimal.signum() == 0 ? BigDecimal.ZERO : decimal.stripTrailingZeros());
+			}
+		}
+		if (value instanceof BigInteger) {
+			BigInteger integer = (BigInteger) value;
+			if (integer.bitLength() < 64)
+				return Long.valueOf(integer.longValue());
+			return integer;
+		}
+		if (value instanceof Date)
+			return Long.valueOf(((Date) value).getTime());
+		if (value instanceof Character)
+			return value.toString();
+		return value;
+	}
+
+	private static final class LongEntityKey extends EntityKey {
+		private final long value;
+
+		LongEntityKey(Class<?> entityClass, long value) {
+			super(entityClass);
+			this.value = value;
+		}
+
+		@Override
+		public EntityKey forEntity(EntityCache entityCache) {
+			return new LongEntityKey(entityCache.getEntityClass(), value);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * entityClass.hashCode() + (int) (value ^ (value >>> 32));
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof LongEntityKey))
+				return false;
+			LongEntityKey other = (LongEntityKey) obj;
+			return (value == other.value) && (entityClass == other.entityClass);
+		}
+
+		@Override
+		public String toString() {
+			return entityClass.getName() + "_" + value;
+		}
+	}
+
+	private static final class StringEntityKey extends EntityKey {
+		private final String value;
+
+		StringEntityKey(Class<?> entityClass, String value) {
+			super(entityClass);
+			this.value = value;
+		}
+
+		@Override
+		public EntityKey forEntity(EntityCache entityCache) {
+			return new StringEntityKey(entityCache.getEntityClass(), value);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * entityClass.hashCode() + value.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof StringEntityKey))
+				return false;
+			StringEntityKey other = (StringEntityKey) obj;
+			return (entityClass == other.entityClass) && value.equals(other.value);
+		}
+
+		@Override
+		public String toString() {
+			return entityClass.getName() + "_" + value;
+		}
+	}
+
+	private static final class SimpleEntityKey extends EntityKey {
+		private final Object value;
+
+		SimpleEntityKey(Class<?> entityClass, Object value) {
+			super(entityClass);
+			this.value = value;
+		}
+
+		@Override
+		public EntityKey forEntity(EntityCache entityCache) {
+			return new SimpleEntityKey(entityCache.getEntityClass(), value);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * entityClass.hashCode() + value.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof SimpleEntityKey))
+				return false;
+			SimpleEntityKey other = (SimpleEntityKey) obj;
+			return (entityClass == other.entityClass) && value.equals(other.value);
+		}
+
+		@Override
+		public String toString() {
+			return entityClass.getName() + "_" + value;
+		}
+	}
+
+	private static final class CompositeEntityKey extends EntityKey {
+		private final Object[] values;
+		private final int hashCode;
+
+		CompositeEntityKey(Class<?> entityClass, Object[] values) {
+			super(entityClass);
+			this.values = values;
+			this.hashCode = 31 * entityClass.hashCode() + Arrays.hashCode(values);
+		}
+
+		@Override
+		public EntityKey forEntity(EntityCache entityCache) {
+			return new CompositeEntityKey(entityCache.getEntityClass(), values);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof CompositeEntityKey))
+				return false;
+			CompositeEntityKey other = (CompositeEntityKey) obj;
+			return (entityClass == other.entityClass) && Arrays.equals(values, other.values);
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder(entityClass.getName());
+			for (Object value : values)
+				sb.append("_").append(value);
+			return sb.toString();
+		}
+	}
+}
@@ -1,12 +1,12 @@
 /*******************************************************************************
  * Copyright 2012 Anteros Tecnologia
- *  
+ *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
  *
  * http://www.apache.org/licenses/LICENSE-2.0
- *  
+ *
  * Unless required by applicable law or agreed to in writing, software
  * distributed under the License is distributed on an "AS IS" BASIS,
  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
@@ -15,43 +15,121 @@
  *******************************************************************************/
 package br.com.anteros.persistence.session.cache;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
 
 import br.com.anteros.persistence.metadata.EntityCacheManager;
+import br.com.anteros.persistence.session.AbstractSQLSessionFactoryBase;
+import br.com.anteros.persistence.session.SQLSession;
+import br.com.anteros.persistence.session.SQLSessionFactory;
 
+/**
+ * Cache de metadados de persistência (análises de SQL, parâmetros nomeados,
+ * SQL's gerados).
+ *
+ * O cache é limitado por quantidade de entradas e usa uma política LRU
+ * segmentada (SLRU): entradas novas entram no segmento de experiência
+ * (probation) e são promovidas para o segmento protegido quando acessadas
+ * novamente. SQL's dinâmicos que aparecem uma única vez são descartados
+ * primeiro sem expulsar as entradas frequentes.
+ *
+ * A leitura não usa lock: o acesso é registrado em um buffer circular com
+ * perdas e aplicado na política quando o lock de despejo estiver livre.
+ *
+ * O escopo do cache é a {@link SQLSessionFactory}; o {@link EntityCacheManager}
+ * mantém apenas o cache usado durante a leitura das entidades.
+ */
 public class PersistenceMetadataCache implements Cache {
 
-	private static Map<Integer, PersistenceMetadataCache> metadatasCache = new HashMap<Integer, PersistenceMetadataCache>();
+	public static final int DEFAULT_MAXIMUM_SIZE = 5000;
+
+	private static final int READ_BUFFER_SIZE = 128;
+	private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+	private static final int PROTECTED_PERCENTAGE = 80;
 
+	private static final int RETIRED = 0;
+	private static final int PROBATION = 1;
+	private static final int PROTECTED = 2;
+
+	/**
+	 * Retorna o cache de metadados do gerenciador de entidades. Usado durante a
+	 * leitura das configurações, antes de existir uma fábrica de sessões.
+	 */
 	public static PersistenceMetadataCache getInstance(EntityCacheManager entityCacheManager) {
-		synchronized (PersistenceMetadataCache.class) {
+		return entityCacheManager.getMetadataCache();
+	}
 
-			if (!metadatasCache.containsKey(entityCacheManager.hashCode()))
-				metadatasCache.put(entityCacheManager.hashCode(),
-						new PersistenceMetadataCache());
-			return metadatasCache.get(entityCacheManager.hashCode());
-		}
+	/**
+	 * Retorna o cache de metadados da fábrica de sessões da sessão informada.
+	 */
+	public static PersistenceMetadataCache getInstance(SQLSession session) {
+		SQLSessionFactory sessionFactory = session.getSQLSessionFactory();
+		if (sessionFactory instanceof AbstractSQLSessionFactoryBase)
+			return ((AbstractSQLSessionFactoryBase) sessionFactory).getMetadataCache();
+		return getInstance(session.getEntityCacheManager());
 	}
 
-	private Map<Object, Object> cache;
+	private final ConcurrentHashMap<Object, Node> cache = new ConcurrentHashMap<Object, Node>();
+	private final ReentrantLock evictionLock = new ReentrantLock();
+	private final AtomicReferenceArray<Node> readBuffer = new AtomicReferenceArray<Node>(READ_BUFFER_SIZE);
+	private final AtomicLong readBufferWriteCount = new AtomicLong();
+	private final AccessOrderDeque probation = new AccessOrderDeque();
+	private final AccessOrderDeque protectedSegment = new AccessOrderDeque();
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong putCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	private volatile int maximumSize;
 
 	public PersistenceMetadataCache() {
-		cache = new ConcurrentHashMap<Object, Object>();
+		this(DEFAULT_MAXIMUM_SIZE);
 	}
 
-	public void put(Object key, Object value) {
+	public PersistenceMetadataCache(int maximumSize) {
+		setMaximumSize(maximumSize);
+	}
 
+	public void put(Object key, Object value) {
 		put(key, value, 0);
 	}
 
 	public void put(Object key, Object val, Integer seconds_to_store) {
-		cache.put(key, val);
+		Node node = new Node(key, val);
+		Node prior = cache.put(key, node);
+		putCount.incrementAndGet();
+		evictionLock.lock();
+		try {
+			drainReadBuffer();
+			if (prior != null)
+				unlink(prior);
+			/*
+			 * Se outra thread já substituiu esta entrada ela não entra na
+			 * política
+			 */
+			if (cache.get(key) == node) {
+				node.queue = PROBATION;
+				probation.addLast(node);
+			}
+			evict();
+		} finally {
+			evictionLock.unlock();
+		}
 	}
 
 	public Object get(Object key) {
-		return cache.get(key);
+		Node node = cache.get(key);
+		if (node == null) {
+			missCount.incrementAndGet();
+			return null;
+		}
+		hitCount.incrementAndGet();
+		afterRead(node);
+		return node.value;
 	}
 
 	public boolean remove(Object key) {
@@ -59,7 +137,16 @@ public class PersistenceMetadataCache implements Cache {
 	}
 
 	public Object removeAndGet(Object key) {
-		return cache.remove(key);
+		Node node = cache.remove(key);
+		if (node == null)
+			return null;
+		evictionLock.lock();
+		try {
+			unlink(node);
+		} finally {
+			evictionLock.unlock();
+		}
+		return node.value;
 	}
 
 	public int size() {
@@ -67,18 +154,185 @@ public class PersistenceMetadataCache implements Cache {
 	}
 
 	public void clear() {
-		cache.clear();
+		evictionLock.lock();
+		try {
+			for (int i = 0; i < READ_BUFFER_SIZE; i++)
+				readBuffer.lazySet(i, null);
+			for (Node node : cache.values())
+				unlink(node);
+			cache.clear();
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * Copia as entradas deste cache para o cache informado.
+	 */
+	public void copyTo(PersistenceMetadataCache target) {
+		for (Entry<Object, Node> entry : cache.entrySet())
+			target.put(entry.getKey(), entry.getValue().value);
+	}
+
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	public void setMaximumSize(int maximumSize) {
+		if (maximumSize <= 0)
+			throw new IllegalArgumentException("O tamanho máximo do cache de metadados deve ser maior que zero.");
+		evictionLock.lock();
+		try {
+			this.maximumSize = maximumSize;
+			evict();
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	public long getPutCount() {
+		return putCount.get();
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	public double getHitRate() {
+		long hits = hitCount.get();
+		long requests = hits + missCount.get();
+		return (requests == 0 ? 1.0 : (double) hits / requests);
+	}
+
+	public void resetStatistics() {
+		hitCount.set(0);
+		missCount.set(0);
+		putCount.set(0);
+		evictionCount.set(0);
+	}
+
+	private void afterRead(Node node) {
+		long index = readBufferWriteCount.getAndIncrement();
+		readBuffer.lazySet((int) (index & READ_BUFFER_MASK), node);
+		if (((index & READ_BUFFER_MASK) == READ_BUFFER_MASK) && evictionLock.tryLock()) {
+			try {
+				drainReadBuffer();
+			} finally {
+				evictionLock.unlock();
+			}
+		}
+	}
+
+	private void drainReadBuffer() {
+		for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+			Node node = readBuffer.getAndSet(i, null);
+			if (node != null)
+				onAccess(node);
+		}
+	}
+
+	private void onAccess(Node node) {
+		if (node.queue == PROBATION) {
+			probation.remove(node);
+			node.queue = PROTECTED;
+			protectedSegment.addLast(node);
+			int protectedMaximum = (int) ((long) maximumSize * PROTECTED_PERCENTAGE / 100);
+			while (protectedSegment.size > protectedMaximum) {
+				Node demoted = protectedSegment.removeFirst();
+				demoted.queue = PROBATION;
+				probation.addLast(demoted);
+			}
+		} else if (node.queue == PROTECTED) {
+			protectedSegment.remove(node);
+			protectedSegment.addLast(node);
+		}
+	}
+
+	private void unlink(Node node) {
+		if (node.queue == PROBATION)
+			probation.remove(node);
+		else if (node.queue == PROTECTED)
+			protectedSegment.remove(node);
+		node.queue = RETIRED;
+	}
+
+	private void evict() {
+		while (probation.size + protectedSegment.size > maximumSize) {
+			Node victim = (probation.first != null ? probation.removeFirst() : protectedSegment.removeFirst());
+			victim.queue = RETIRED;
+			if (cache.remove(victim.key, victim))
+				evictionCount.incrementAndGet();
+		}
 	}
 
 	@Override
 	public String toString() {
-		StringBuilder sb = new StringBuilder();
-		sb.append("size=" + size() + ", cache={");
-		for (Object obj : cache.values()) {
-			sb.append(obj);
-			sb.append(", ");
+		return "size=" + size() + ", maximumSize=" + maximumSize + ", hits=" + getHitCount() + ", misses="
+				+ getMissCount() + ", evictions=" + getEvictionCount();
+	}
+
+	private static final class Node {
+		final Object key;
+		final Object value;
+		/*
+		 * Alterados apenas com o lock de despejo
+		 */
+		int queue = RETIRED;
+		Node prev;
+		Node next;
+
+		Node(Object key, Object value) {
+			this.key = key;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * Lista duplamente encadeada intrusiva usada pelos segmentos do SLRU.
+	 * Acessada somente com o lock de despejo.
+	 */
+	private static final class AccessOrderDeque {
+		Node first;
+		Node last;
+		int size;
+
+		void addLast(Node node) {
+			node.prev = last;
+			node.next = null;
+			if (last == null)
+				first = node;
+			else
+				last.next = node;
+			last = node;
+			size++;
+		}
+
+		Node removeFirst() {
+			Node node = first;
+			remove(node);
+			return node;
+		}
+
+		void remove(Node node) {
+			if (node.prev == null)
+				first = node.next;
+			else
+				node.prev.next = node.next;
+			if (node.next == null)
+				last = node.prev;
+			else
+				node.next.prev = node.prev;
+			node.prev = null;
+			node.next = null;
+			size--;
 		}
-		sb.append("}");
-		return sb.toString();
 	}
-}
\ No newline at end of file
+}
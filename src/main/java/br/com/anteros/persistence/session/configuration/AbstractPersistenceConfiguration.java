@@ -18,6 +18,7 @@ import java.io.Serializable;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -41,6 +42,7 @@ import br.com.anteros.persistence.metadata.annotation.Entity;
 import br.com.anteros.persistence.metadata.annotation.EnumValues;
 import br.com.anteros.persistence.metadata.comparator.DependencyComparator;
 import br.com.anteros.persistence.metadata.configuration.PersistenceModelConfiguration;
+import br.com.anteros.persistence.metadata.index.MetadataIndex;
 import br.com.anteros.persistence.session.SQLSessionFactory;
 import br.com.anteros.persistence.session.configuration.exception.AnterosConfigurationException;
 import br.com.anteros.persistence.sql.dialect.DatabaseDialect;
@@ -225,23 +227,41 @@ public abstract class AbstractPersistenceConfiguration extends AnterosBasicConfi
 				getSessionFactoryConfiguration().getPackageToScanEntity().setPackageName(
 						getSessionFactoryConfiguration().getPackageToScanEntity().getPackageName() + ", " + SECURITY_PACKAGE);
 			String[] packages = StringUtils.tokenizeToStringArray(getSessionFactoryConfiguration().getPackageToScanEntity().getPackageName(), ", ;");
+			List<String> indexedPackages = new ArrayList<String>();
+			List<String> packagesToScan = new ArrayList<String>();
+			List<String> allPackages = new ArrayList<String>(Arrays.asList(packages));
+			allPackages.add(CONVERTERS_PACKAGE);
+			MetadataIndex index = (isMetadataIndexOnly() ? loadMetadataIndex() : null);
+			for (String packageName : allPackages) {
+				if ((index != null) && index.containsPackage(packageName))
+					indexedPackages.add(packageName);
+				else
+					packagesToScan.add(packageName);
+			}
+
 			List<Class<?>> scanClasses = new ArrayList<Class<?>>();
-			
-			try (ScanResult scanResult = new ClassGraph().enableAllInfo().acceptPackages(packages).acceptPackages(CONVERTERS_PACKAGE)
-		            .scan()) {
-				
-				ClassInfoList filtered = scanResult.getAllClasses()
-			            .filter(classInfo -> {			            	
-			            	boolean result = (classInfo.hasAnnotation(Entity.class.getName())
-				                    || classInfo.hasAnnotation(EnumValues.class.getName())
-				                    || classInfo.hasAnnotation(Converter.class.getName()));
-			            	
-			                return result;
-			               
-			               });
-			            
-				scanClasses = filtered.loadClasses();					
-			}		
+			if (!indexedPackages.isEmpty()) {
+				LOG.debug("Lendo classes dos pacotes " + indexedPackages + " pelo índice de metadados.");
+				scanClasses.addAll(loadIndexedClasses(index, indexedPackages));
+			}
+
+			if (!packagesToScan.isEmpty()) {
+				try (ScanResult scanResult = new ClassGraph().enableAllInfo()
+						.acceptPackages(packagesToScan.toArray(new String[] {})).scan()) {
+
+					ClassInfoList filtered = scanResult.getAllClasses()
+				            .filter(classInfo -> {			            	
+				            	boolean result = (classInfo.hasAnnotation(Entity.class.getName())
+					                    || classInfo.hasAnnotation(EnumValues.class.getName())
+					                    || classInfo.hasAnnotation(Converter.class.getName()));
+				            	
+				                return result;
+				               
+				               });
+				            
+					scanClasses.addAll(filtered.loadClasses());
+				}
+			}
 			
 			
 			if (LOG.isDebugEnabled()) {
@@ -258,12 +278,60 @@ public abstract class AbstractPersistenceConfiguration extends AnterosBasicConfi
 		LOG.debug("Preparação das classes concluída.");
 	}
 
+	/**
+	 * O índice de metadados só é usado quando habilitado pela propriedade
+	 * {@link AnterosPersistenceProperties#METADATA_INDEX_ONLY}. Um pacote
+	 * presente no índice é lido somente por ele, portanto todos os jars com
+	 * classes nesse pacote devem ter sido compilados com o
+	 * MetadataIndexProcessor.
+	 */
+	protected boolean isMetadataIndexOnly() {
+		String value = getSessionFactoryConfiguration().getProperty(AnterosPersistenceProperties.METADATA_INDEX_ONLY);
+		return (value != null) && new Boolean(value).booleanValue();
+	}
+
+	protected MetadataIndex loadMetadataIndex() {
+		try {
+			return MetadataIndex.load(Thread.currentThread().getContextClassLoader());
+		} catch (IOException e) {
+			LOG.warn("Não foi possível ler o índice de metadados, as classes serão obtidas pela varredura do classpath. "
+					+ e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Carrega as classes do índice de metadados. Classes removidas ou que não
+	 * possuem mais as anotações (índice de uma compilação incremental) são
+	 * ignoradas.
+	 */
+	protected List<Class<?>> loadIndexedClasses(MetadataIndex index, List<String> packages) {
+		List<Class<?>> result = new ArrayList<Class<?>>();
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		for (String className : index.getClassNames(packages)) {
+			try {
+				Class<?> clazz = Class.forName(className, false, classLoader);
+				if (clazz.isAnnotationPresent(Entity.class) || clazz.isAnnotationPresent(EnumValues.class)
+						|| clazz.isAnnotationPresent(Converter.class))
+					result.add(clazz);
+			} catch (ClassNotFoundException e) {
+				LOG.debug("Classe " + className + " do índice de metadados não encontrada.");
+			}
+		}
+		return result;
+	}
+
 	public abstract SQLSessionFactory buildSessionFactory() throws Exception;
 
 	public EntityCacheManager loadEntities(DatabaseDialect databaseDialect) throws Exception {
 		List<Class<? extends Serializable>> classes = getSessionFactoryConfiguration().getClasses();
 		Collections.sort(classes, new DependencyComparator());
 
+		String parallelism = getSessionFactoryConfiguration()
+				.getProperty(AnterosPersistenceProperties.METADATA_LOAD_PARALLELISM);
+		if (parallelism != null)
+			this.entityCacheManager.setParallelism(new Integer(parallelism));
+
 		if (modelConfiguration != null)
 			this.entityCacheManager.load(modelConfiguration, getPropertyAccessorFactory(), databaseDialect, entityListeners);
 		else
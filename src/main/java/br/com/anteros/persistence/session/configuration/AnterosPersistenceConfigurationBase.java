@@ -32,6 +32,7 @@ import br.com.anteros.persistence.resource.messages.AnterosPersistenceCoreMessag
 import br.com.anteros.persistence.session.configuration.exception.AnterosConfigurationException;
 import br.com.anteros.persistence.sql.datasource.JDBCDataSource;
 import br.com.anteros.persistence.sql.datasource.JNDIDataSourceFactory;
+import br.com.anteros.persistence.sql.datasource.PooledJDBCDataSource;
 
 public abstract class AnterosPersistenceConfigurationBase extends AbstractPersistenceConfiguration {
 	
@@ -90,7 +91,10 @@ public abstract class AnterosPersistenceConfigurationBase extends AbstractPersis
 				String username = getSessionFactoryConfiguration().getProperty("username");
 				String password = getSessionFactoryConfiguration().getProperty("password");
 				if ((driverClassName != null) && (username != null)) {
-					dataSource = new JDBCDataSource(driverClassName, username, password, url);
+					if (getSessionFactoryConfiguration().getProperty(AnterosPersistenceProperties.POOL_MAXIMUM_SIZE) != null)
+						dataSource = buildPooledDataSource(driverClassName, username, password, url);
+					else
+						dataSource = new JDBCDataSource(driverClassName, username, password, url);
 				} else
 					throw new AnterosConfigurationException("Nenhum DataSource foi configurado.");
 			}
@@ -99,6 +103,32 @@ public abstract class AnterosPersistenceConfigurationBase extends AbstractPersis
 			throw new AnterosConfigurationException(MESSAGES.getMessage(this.getClass().getSimpleName()+".datasourceNotConfigured"));
 	}
 
+	protected DataSource buildPooledDataSource(String driverClassName, String username, String password, String url)
+			throws Exception {
+		PooledJDBCDataSource result = new PooledJDBCDataSource(driverClassName, username, password, url);
+		String value = getSessionFactoryConfiguration().getProperty(AnterosPersistenceProperties.POOL_MAXIMUM_SIZE);
+		result.setMaximumPoolSize(new Integer(value));
+		value = getSessionFactoryConfiguration().getProperty(AnterosPersistenceProperties.POOL_MINIMUM_IDLE);
+		if (value != null)
+			result.setMinimumIdle(new Integer(value));
+		value = getSessionFactoryConfiguration().getProperty(AnterosPersistenceProperties.POOL_CONNECTION_TIMEOUT);
+		if (value != null)
+			result.setConnectionTimeout(new Long(value));
+		value = getSessionFactoryConfiguration().getProperty(AnterosPersistenceProperties.POOL_IDLE_TIMEOUT);
+		if (value != null)
+			result.setIdleTimeout(new Long(value));
+		value = getSessionFactoryConfiguration().getProperty(AnterosPersistenceProperties.POOL_MAX_LIFETIME);
+		if (value != null)
+			result.setMaxLifetime(new Long(value));
+		value = getSessionFactoryConfiguration().getProperty(AnterosPersistenceProperties.POOL_VALIDATION_TIMEOUT);
+		if (value != null)
+			result.setValidationTimeout(new Long(value));
+		value = getSessionFactoryConfiguration().getProperty(AnterosPersistenceProperties.POOL_LEAK_DETECTION_THRESHOLD);
+		if (value != null)
+			result.setLeakDetectionThreshold(new Long(value));
+		return result;
+	}
+
 	public static InputStream getDefaultXmlInputStream() throws Exception {
 		List<URL> resources = ResourceUtils.getResources("/anteros-config.xml", AnterosPersistenceConfigurationBase.class);
 		if ((resources == null) || (resources.isEmpty())) {
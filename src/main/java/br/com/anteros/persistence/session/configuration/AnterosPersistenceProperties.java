@@ -31,6 +31,20 @@ public class AnterosPersistenceProperties {
 
 	public static final String JDBC_CATALOG = "defaultCatalog";
 
+	public static final String POOL_MINIMUM_IDLE = "minimumIdle";
+
+	public static final String POOL_MAXIMUM_SIZE = "maximumPoolSize";
+
+	public static final String POOL_CONNECTION_TIMEOUT = "connectionTimeout";
+
+	public static final String POOL_IDLE_TIMEOUT = "idleTimeout";
+
+	public static final String POOL_MAX_LIFETIME = "maxLifetime";
+
+	public static final String POOL_VALIDATION_TIMEOUT = "validationTimeout";
+
+	public static final String POOL_LEAK_DETECTION_THRESHOLD = "leakDetectionThreshold";
+
 	public static final String DIALECT = "dialect";
 	
 	public static final String CHARSET_NAME = "charsetName";
@@ -43,6 +57,18 @@ public class AnterosPersistenceProperties {
 
 	public static final String QUERY_TIMEOUT = "queryTimeout";
 
+	public static final String METADATA_CACHE_MAXIMUM_SIZE = "metadata-cache-maximum-size";
+
+	public static final String STATEMENT_CACHE_SIZE = "statement-cache-size";
+
+	public static final String ORDER_BATCH_STATEMENTS = "order-batch-statements";
+
+	public static final String CONNECTION_VALIDATION_IDLE_TIME = "connection-validation-idle-time";
+
+	public static final String METADATA_LOAD_PARALLELISM = "metadata-load-parallelism";
+
+	public static final String METADATA_INDEX_ONLY = "metadata-index-only";
+
 	public static final String DATABASE_DDL_GENERATION = "database-ddl-generation";
 
 	public static final String SCRIPT_DDL_GENERATION = "script-ddl-generation";
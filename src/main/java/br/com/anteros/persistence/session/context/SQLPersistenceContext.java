@@ -43,6 +43,8 @@ public interface SQLPersistenceContext {
 	
 	public void addObjectToCache(Object key, Object value, int secondsToLive);
 	
+	public void removeObjectFromCache(Object key);
+	
 	public EntityManaged createEmptyEntityManaged(Object key);
 	
 	/**
@@ -15,25 +15,19 @@
  *******************************************************************************/
 package br.com.anteros.persistence.session.context;
 
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
+import java.sql.Connection;
 import java.util.HashMap;
 import java.util.Map;
 
 import br.com.anteros.core.log.Logger;
 import br.com.anteros.core.log.LoggerProvider;
 import br.com.anteros.persistence.parameter.NamedParameter;
+import br.com.anteros.persistence.session.AbstractSQLSessionFactoryBase;
 import br.com.anteros.persistence.session.SQLSession;
 import br.com.anteros.persistence.session.SQLSessionFactory;
 import br.com.anteros.persistence.session.SQLSessionListener;
 import br.com.anteros.persistence.transaction.AnterosSynchronization;
-import br.com.anteros.persistence.transaction.impl.TransactionException;
 
 public class ThreadLocalSQLSessionContext implements CurrentSQLSessionContext {
 
@@ -43,6 +37,15 @@ public class ThreadLocalSQLSessionContext implements CurrentSQLSessionContext {
 
 	private static final ThreadLocal<Map<SQLSessionFactory, SQLSession>> context = new ThreadLocal<Map<SQLSessionFactory, SQLSession>>();
 
+	private static final ThreadLocal<Map<SQLSessionFactory, ConnectionState>> connectionStates = new ThreadLocal<Map<SQLSessionFactory, ConnectionState>>();
+
+	/**
+	 * Tempo padrão em segundos sem uso da sessão para validar a conexão.
+	 */
+	public static final int DEFAULT_VALIDATION_IDLE_TIME = 30;
+
+	private static final int VALIDATION_TIMEOUT = 2;
+
 	protected final SQLSessionFactory factory;
 	
 	public ThreadLocalSQLSessionContext(SQLSessionFactory factory) {
@@ -51,7 +54,7 @@ public class ThreadLocalSQLSessionContext implements CurrentSQLSessionContext {
 
 	public final SQLSession currentSession() throws Exception {
 		SQLSession current = existingSession(factory);
-		if (current == null || current.getConnection().isClosed() || !current.getConnection().isValid(2000)) {
+		if (current == null || !isConnectionValid(current)) {
 			current = factory.openSession();
 			current.getTransaction().registerSynchronization(new CleaningSession(factory));
 			if ( needsWrapping( current ) ) {
@@ -62,25 +65,62 @@ public class ThreadLocalSQLSessionContext implements CurrentSQLSessionContext {
 		}
 		return current;
 	}
+
+	/**
+	 * Valida a conexão da sessão atual. A conexão só é validada no banco de dados
+	 * se a sessão ficou sem uso pelo tempo configurado na fábrica ou se ocorreu
+	 * um erro de conexão desde o último uso, evitando uma ida ao banco de dados
+	 * em cada chamada.
+	 */
+	protected boolean isConnectionValid(SQLSession session) throws Exception {
+		if (session instanceof TransactionProtectedSQLSession)
+			session = ((TransactionProtectedSQLSession) session).getRealSession();
+		Connection connection = session.getConnection();
+		if (connection.isClosed())
+			return false;
+		ConnectionState state = connectionState(factory);
+		long now = System.currentTimeMillis();
+		if ((state == null) || state.failed || (now - state.lastUse >= getValidationIdleTime() * 1000L)) {
+			if (!connection.isValid(VALIDATION_TIMEOUT))
+				return false;
+		}
+		if (state != null) {
+			state.failed = false;
+			state.lastUse = now;
+		}
+		return true;
+	}
+
+	protected int getValidationIdleTime() {
+		if (factory instanceof AbstractSQLSessionFactoryBase)
+			return ((AbstractSQLSessionFactoryBase) factory).getConnectionValidationIdleTime();
+		return DEFAULT_VALIDATION_IDLE_TIME;
+	}
+
+	/**
+	 * Registra um erro de conexão na sessão atual da thread. A conexão será
+	 * validada no próximo uso da sessão.
+	 */
+	public static void connectionFailed(SQLSessionFactory factory) {
+		ConnectionState state = connectionState(factory);
+		if (state != null)
+			state.failed = true;
+	}
+
+	private static ConnectionState connectionState(SQLSessionFactory factory) {
+		Map<SQLSessionFactory, ConnectionState> states = connectionStates.get();
+		return (states == null ? null : states.get(factory));
+	}
 	
 	protected SQLSession wrap(SQLSession session) {
-		TransactionProtectionWrapper wrapper = new TransactionProtectionWrapper( session );
-		SQLSession wrapped = ( SQLSession ) Proxy.newProxyInstance(
-				SQLSession.class.getClassLoader(),
-				new Class[] {SQLSession.class},
-		        wrapper
-			);
-		wrapper.setWrapped( wrapped );
-		return wrapped;
+		return new TransactionProtectedSQLSession(session, factory);
 	}
 	
 	private boolean needsWrapping(SQLSession session) {
 		if (session ==null)
 			return false;
 		
-		return ! Proxy.isProxyClass( session.getClass() )
-		       || ( Proxy.getInvocationHandler( session ) != null
-		       && ! ( Proxy.getInvocationHandler( session ) instanceof TransactionProtectionWrapper ) );
+		return !(session instanceof TransactionProtectedSQLSession);
 	}
 
 	private void registerSQLTSessionListener(SQLSession session) {
@@ -149,7 +189,7 @@ public class ThreadLocalSQLSessionContext implements CurrentSQLSessionContext {
 		return doUnbind(factory, true);
 	}
 
-	private static SQLSession existingSession(SQLSessionFactory factory) {
+	static SQLSession existingSession(SQLSessionFactory factory) {
 		Map<SQLSessionFactory, SQLSession> sessionMap = sessionMap();
 		if (sessionMap == null) {
 			return null;
@@ -162,13 +202,20 @@ public class ThreadLocalSQLSessionContext implements CurrentSQLSessionContext {
 		return context.get();
 	}
 
-	private static void doBind(SQLSession session, SQLSessionFactory factory) {
+	static void doBind(SQLSession session, SQLSessionFactory factory) {
 		Map<SQLSessionFactory, SQLSession> sessionMap = sessionMap();
 		if (sessionMap == null) {
 			sessionMap = new HashMap<SQLSessionFactory, SQLSession>();
 			context.set(sessionMap);
 		}
 		sessionMap.put(factory, session);
+
+		Map<SQLSessionFactory, ConnectionState> states = connectionStates.get();
+		if (states == null) {
+			states = new HashMap<SQLSessionFactory, ConnectionState>();
+			connectionStates.set(states);
+		}
+		states.put(factory, new ConnectionState(System.currentTimeMillis()));
 	}
 
 	private static SQLSession doUnbind(SQLSessionFactory factory, boolean releaseMapIfEmpty) {
@@ -180,6 +227,13 @@ public class ThreadLocalSQLSessionContext implements CurrentSQLSessionContext {
 				context.set(null);
 			}
 		}
+		Map<SQLSessionFactory, ConnectionState> states = connectionStates.get();
+		if (states != null) {
+			states.remove(factory);
+			if (releaseMapIfEmpty && states.isEmpty()) {
+				connectionStates.set(null);
+			}
+		}
 		return session;
 	}
 
@@ -199,72 +253,15 @@ public class ThreadLocalSQLSessionContext implements CurrentSQLSessionContext {
 		}
 	}
 	
-	private class TransactionProtectionWrapper implements InvocationHandler, Serializable {
-		private static final long serialVersionUID = 1L;
-		private final SQLSession realSession;
-		private SQLSession wrappedSession;
-
-		public TransactionProtectionWrapper(SQLSession realSession) {
-			this.realSession = realSession;
-		}
-
-		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-			try {
-				if ( "close".equals( method.getName()) ) {
-					unbind( realSession.getSQLSessionFactory() );
-				}
-				else if ( "toString".equals( method.getName() )
-					     || "equals".equals( method.getName() )
-					     || "hashCode".equals( method.getName() )
-					     || "addListener".equals( method.getName() )
-					     || "setClientId".equals( method.getName() )
-				         || "getStatistics".equals( method.getName() )
-					     || "isOpen".equals( method.getName() )
-						 || "getListeners".equals( method.getName() ) //useful for HSearch in particular
-						) {
-				}
-				else if ( realSession.isClosed() ) {
-				}
-				else if ( !realSession.getTransaction().isActive() ) {
-					if ( "beginTransaction".equals( method.getName() )
-					     || "getTransaction".equals( method.getName() )
-					     || "setFlushMode".equals( method.getName() )
-					     || "getSQLSessionFactory".equals( method.getName() ) ) {
-						log.debug( "allowing method [" + method.getName() + "] in non-transacted context" );
-					}
-					else {
-						throw new TransactionException( method.getName() + " is not valid without active transaction" );
-					}
-				}
-				log.debug( "allowing proxied method [" + method.getName() + "] to proceed to real session" );
-				return method.invoke( realSession, args );
-			}
-			catch ( InvocationTargetException e ) {
-				if ( e.getTargetException() instanceof RuntimeException ) {
-					throw ( RuntimeException ) e.getTargetException();
-				}
-				else {
-					throw e;
-				}
-			}
-		}
-
-		public void setWrapped(SQLSession wrapped) {
-			this.wrappedSession = wrapped;
-		}
-
-
-		private void writeObject(ObjectOutputStream oos) throws IOException {
-			oos.defaultWriteObject();
-			if ( existingSession( factory ) == wrappedSession ) {
-				unbind( factory );
-			}
-		}
-
-		private void readObject(ObjectInputStream ois) throws Exception {
-			ois.defaultReadObject();
-			realSession.getTransaction().registerSynchronization( new CleaningSession(factory) );
-			doBind( wrappedSession, factory );
+	/**
+	 * Situação da conexão da sessão atual da thread.
+	 */
+	private static class ConnectionState {
+		private long lastUse;
+		private boolean failed;
+
+		private ConnectionState(long lastUse) {
+			this.lastUse = lastUse;
 		}
 	}
 }
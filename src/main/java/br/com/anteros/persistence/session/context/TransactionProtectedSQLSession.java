@@ -0,0 +1,789 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.session.context;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import br.com.anteros.cloud.integration.filesharing.CloudFileManager;
+import br.com.anteros.persistence.handler.EntityHandler;
+import br.com.anteros.persistence.metadata.EntityCacheManager;
+import br.com.anteros.persistence.metadata.annotation.EventType;
+import br.com.anteros.persistence.metadata.annotation.type.CallableType;
+import br.com.anteros.persistence.metadata.descriptor.DescriptionColumn;
+import br.com.anteros.persistence.metadata.identifier.Identifier;
+import br.com.anteros.persistence.metadata.identifier.IdentifierPostInsert;
+import br.com.anteros.persistence.parameter.NamedParameter;
+import br.com.anteros.persistence.session.FindParameters;
+import br.com.anteros.persistence.session.SQLSession;
+import br.com.anteros.persistence.session.SQLSessionFactory;
+import br.com.anteros.persistence.session.SQLSessionListener;
+import br.com.anteros.persistence.session.cache.Cache;
+import br.com.anteros.persistence.session.lock.LockOptions;
+import br.com.anteros.persistence.session.query.AbstractSQLRunner;
+import br.com.anteros.persistence.session.query.ExpressionFieldMapper;
+import br.com.anteros.persistence.session.query.SQLQuery;
+import br.com.anteros.persistence.session.query.SQLQueryAnalyserAlias;
+import br.com.anteros.persistence.session.query.ShowSQLType;
+import br.com.anteros.persistence.session.query.TypedSQLQuery;
+import br.com.anteros.persistence.sql.command.PersisterCommand;
+import br.com.anteros.persistence.sql.dialect.DatabaseDialect;
+import br.com.anteros.persistence.transaction.Transaction;
+import br.com.anteros.persistence.transaction.impl.TransactionException;
+
+/**
+ * Sessão atual da thread devolvida pelo {@link ThreadLocalSQLSessionContext}.
+ *
+ * Repassa as chamadas para a sessão real exigindo uma transação ativa, exceto
+ * nos métodos que iniciam ou consultam a transação. Substitui o proxy dinâmico
+ * do JDK, evitando a chamada por reflexão em cada método da sessão. Ao incluir
+ * um método em {@link SQLSession} ele também deve ser incluído aqui.
+ *
+ * @author Edson Martins - Anteros
+ *
+ */
+class TransactionProtectedSQLSession implements SQLSession, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final SQLSession realSession;
+	private final SQLSessionFactory factory;
+
+	TransactionProtectedSQLSession(SQLSession realSession, SQLSessionFactory factory) {
+		this.realSession = realSession;
+		this.factory = factory;
+	}
+
+	SQLSession getRealSession() {
+		return realSession;
+	}
+
+	private void checkTransaction(String methodName) {
+		try {
+			if (realSession.isClosed() || realSession.getTransaction().isActive())
+				return;
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new TransactionException(e.getMessage(), e);
+		}
+		throw new TransactionException(methodName + " is not valid without active transaction");
+	}
+
+	@Override
+	public <T> T find(FindParameters<T> params) throws Exception {
+		checkTransaction("find");
+		return realSession.find(params);
+	}
+
+	@Override
+	public void refresh(Object entity) throws Exception {
+		checkTransaction("refresh");
+		realSession.refresh(entity);
+	}
+
+	@Override
+	public void refresh(Object entity, Map<String, Object> properties) throws Exception {
+		checkTransaction("refresh");
+		realSession.refresh(entity, properties);
+	}
+
+	@Override
+	public void refresh(Object entity, LockOptions lockOptions) throws Exception {
+		checkTransaction("refresh");
+		realSession.refresh(entity, lockOptions);
+	}
+
+	@Override
+	public void refresh(Object entity, LockOptions lockOptions, Map<String, Object> properties) throws Exception {
+		checkTransaction("refresh");
+		realSession.refresh(entity, lockOptions, properties);
+	}
+
+	@Override
+	public void forceGenerationIdentifier(Object entity) throws Exception {
+		checkTransaction("forceGenerationIdentifier");
+		realSession.forceGenerationIdentifier(entity);
+	}
+
+	@Override
+	public void lock(Object entity, LockOptions lockOptions) throws Exception {
+		checkTransaction("lock");
+		realSession.lock(entity, lockOptions);
+	}
+
+	@Override
+	public void lockAll(Collection<?> entities, LockOptions lockOptions) throws Exception {
+		checkTransaction("lockAll");
+		realSession.lockAll(entities, lockOptions);
+	}
+
+	@Override
+	public void lockAll(Object[] entities, LockOptions lockOptions) throws Exception {
+		checkTransaction("lockAll");
+		realSession.lockAll(entities, lockOptions);
+	}
+
+	@Override
+	public void detach(Object entity) {
+		checkTransaction("detach");
+		realSession.detach(entity);
+	}
+
+	@Override
+	public void evict(Class class0) {
+		checkTransaction("evict");
+		realSession.evict(class0);
+	}
+
+	@Override
+	public void evictAll() {
+		checkTransaction("evictAll");
+		realSession.evictAll();
+	}
+
+	@Override
+	public SQLQuery createQuery(String sql) throws Exception {
+		checkTransaction("createQuery");
+		return realSession.createQuery(sql);
+	}
+
+	@Override
+	public SQLQuery createQuery(String sql, Object parameters) throws Exception {
+		checkTransaction("createQuery");
+		return realSession.createQuery(sql, parameters);
+	}
+
+	@Override
+	public <T> TypedSQLQuery<T> createQuery(String sql, Class<T> resultClass) throws Exception {
+		checkTransaction("createQuery");
+		return realSession.createQuery(sql, resultClass);
+	}
+
+	@Override
+	public <T> TypedSQLQuery<T> createQuery(String sql, Class<T> resultClass, Object parameters) throws Exception {
+		checkTransaction("createQuery");
+		return realSession.createQuery(sql, resultClass, parameters);
+	}
+
+	@Override
+	public SQLQuery createQuery(String sql, LockOptions lockOptions) throws Exception {
+		checkTransaction("createQuery");
+		return realSession.createQuery(sql, lockOptions);
+	}
+
+	@Override
+	public SQLQuery createQuery(String sql, Object parameters, LockOptions lockOptions) throws Exception {
+		checkTransaction("createQuery");
+		return realSession.createQuery(sql, parameters, lockOptions);
+	}
+
+	@Override
+	public <T> TypedSQLQuery<T> createQuery(String sql, Class<T> resultClass,
+			LockOptions lockOptions) throws Exception {
+		checkTransaction("createQuery");
+		return realSession.createQuery(sql, resultClass, lockOptions);
+	}
+
+	@Override
+	public <T> TypedSQLQuery<T> createQuery(String sql, Class<T> resultClass, Object parameters,
+			LockOptions lockOptions) throws Exception {
+		checkTransaction("createQuery");
+		return realSession.createQuery(sql, resultClass, parameters, lockOptions);
+	}
+
+	@Override
+	public SQLQuery createNamedQuery(String name) throws Exception {
+		checkTransaction("createNamedQuery");
+		return realSession.createNamedQuery(name);
+	}
+
+	@Override
+	public SQLQuery createNamedQuery(String name, Object parameters) throws Exception {
+		checkTransaction("createNamedQuery");
+		return realSession.createNamedQuery(name, parameters);
+	}
+
+	@Override
+	public <T> TypedSQLQuery<T> createNamedQuery(String name, Class<T> resultClass) throws Exception {
+		checkTransaction("createNamedQuery");
+		return realSession.createNamedQuery(name, resultClass);
+	}
+
+	@Override
+	public <T> TypedSQLQuery<T> createNamedQuery(String name, Class<T> resultClass,
+			Object parameters) throws Exception {
+		checkTransaction("createNamedQuery");
+		return realSession.createNamedQuery(name, resultClass, parameters);
+	}
+
+	@Override
+	public SQLQuery createStoredProcedureQuery(String procedureName, CallableType type) throws Exception {
+		checkTransaction("createStoredProcedureQuery");
+		return realSession.createStoredProcedureQuery(procedureName, type);
+	}
+
+	@Override
+	public SQLQuery createStoredProcedureQuery(String procedureName, CallableType type,
+			Object parameters) throws Exception {
+		checkTransaction("createStoredProcedureQuery");
+		return realSession.createStoredProcedureQuery(procedureName, type, parameters);
+	}
+
+	@Override
+	public <T> TypedSQLQuery<T> createStoredProcedureQuery(String procedureName, CallableType type,
+			Class<T> resultClass) throws Exception {
+		checkTransaction("createStoredProcedureQuery");
+		return realSession.createStoredProcedureQuery(procedureName, type, resultClass);
+	}
+
+	@Override
+	public <T> TypedSQLQuery<T> createStoredProcedureQuery(String procedureName, CallableType type,
+			Class<T> resultClass, Object[] parameters) throws Exception {
+		checkTransaction("createStoredProcedureQuery");
+		return realSession.createStoredProcedureQuery(procedureName, type, resultClass, parameters);
+	}
+
+	@Override
+	public SQLQuery createStoredProcedureNamedQuery(String name) throws Exception {
+		checkTransaction("createStoredProcedureNamedQuery");
+		return realSession.createStoredProcedureNamedQuery(name);
+	}
+
+	@Override
+	public SQLQuery createStoredProcedureNamedQuery(String name, Object parameters) throws Exception {
+		checkTransaction("createStoredProcedureNamedQuery");
+		return realSession.createStoredProcedureNamedQuery(name, parameters);
+	}
+
+	@Override
+	public <T> TypedSQLQuery<T> createStoredProcedureNamedQuery(String name, Class<T> resultClass) throws Exception {
+		checkTransaction("createStoredProcedureNamedQuery");
+		return realSession.createStoredProcedureNamedQuery(name, resultClass);
+	}
+
+	@Override
+	public <T> TypedSQLQuery<T> createStoredProcedureNamedQuery(String name, Class<T> resultClass,
+			Object[] parameters) throws Exception {
+		checkTransaction("createStoredProcedureNamedQuery");
+		return realSession.createStoredProcedureNamedQuery(name, resultClass, parameters);
+	}
+
+	@Override
+	public void validate(Object object) throws Exception {
+		checkTransaction("validate");
+		realSession.validate(object);
+	}
+
+	@Override
+	public void validate(Object object, Class<?>... groups) throws Exception {
+		checkTransaction("validate");
+		realSession.validate(object, groups);
+	}
+
+	@Override
+	public Object save(Object object) throws Exception {
+		checkTransaction("save");
+		return realSession.save(object);
+	}
+
+	@Override
+	public Object save(Object object, Class<?>... groups) throws Exception {
+		checkTransaction("save");
+		return realSession.save(object, groups);
+	}
+
+	@Override
+	public void save(Object[] object) throws Exception {
+		checkTransaction("save");
+		realSession.save(object);
+	}
+
+	@Override
+	public void save(Collection<?> object) throws Exception {
+		checkTransaction("save");
+		realSession.save(object);
+	}
+
+	@Override
+	public void save(Class<?> clazz, String[] columns, String[] values) throws Exception {
+		checkTransaction("save");
+		realSession.save(clazz, columns, values);
+	}
+
+	@Override
+	public void saveInBatchMode(Object object, int batchSize) throws Exception {
+		checkTransaction("saveInBatchMode");
+		realSession.saveInBatchMode(object, batchSize);
+	}
+
+	@Override
+	public void saveInBatchMode(Object[] object, int batchSize) throws Exception {
+		checkTransaction("saveInBatchMode");
+		realSession.saveInBatchMode(object, batchSize);
+	}
+
+	@Override
+	public void remove(Object object) throws Exception {
+		checkTransaction("remove");
+		realSession.remove(object);
+	}
+
+	@Override
+	public void remove(Object[] object) throws Exception {
+		checkTransaction("remove");
+		realSession.remove(object);
+	}
+
+	@Override
+	public void removeAll(Class<?> clazz) throws Exception {
+		checkTransaction("removeAll");
+		realSession.removeAll(clazz);
+	}
+
+	@Override
+	public long update(String sql) throws Exception {
+		checkTransaction("update");
+		return realSession.update(sql);
+	}
+
+	@Override
+	public long update(String sql, Object[] params) throws Exception {
+		checkTransaction("update");
+		return realSession.update(sql, params);
+	}
+
+	@Override
+	public long update(String sql, NamedParameter[] params) throws Exception {
+		checkTransaction("update");
+		return realSession.update(sql, params);
+	}
+
+	@Override
+	public int[] batch(String sql, Object[][] params) throws Exception {
+		checkTransaction("batch");
+		return realSession.batch(sql, params);
+	}
+
+	@Override
+	public void flush() throws Exception {
+		checkTransaction("flush");
+		realSession.flush();
+	}
+
+	@Override
+	public void forceFlush(Set<String> tableNames) throws Exception {
+		checkTransaction("forceFlush");
+		realSession.forceFlush(tableNames);
+	}
+
+	@Override
+	public void close() throws Exception {
+		ThreadLocalSQLSessionContext.unbind(factory);
+		realSession.close();
+	}
+
+	@Override
+	public void onBeforeExecuteCommit(Connection connection) throws Exception {
+		checkTransaction("onBeforeExecuteCommit");
+		realSession.onBeforeExecuteCommit(connection);
+	}
+
+	@Override
+	public void onBeforeExecuteRollback(Connection connection) throws Exception {
+		checkTransaction("onBeforeExecuteRollback");
+		realSession.onBeforeExecuteRollback(connection);
+	}
+
+	@Override
+	public void onAfterExecuteCommit(Connection connection) throws Exception {
+		checkTransaction("onAfterExecuteCommit");
+		realSession.onAfterExecuteCommit(connection);
+	}
+
+	@Override
+	public void onAfterExecuteRollback(Connection connection) throws Exception {
+		checkTransaction("onAfterExecuteRollback");
+		realSession.onAfterExecuteRollback(connection);
+	}
+
+	@Override
+	public EntityCacheManager getEntityCacheManager() {
+		checkTransaction("getEntityCacheManager");
+		return realSession.getEntityCacheManager();
+	}
+
+	@Override
+	public DatabaseDialect getDialect() {
+		checkTransaction("getDialect");
+		return realSession.getDialect();
+	}
+
+	@Override
+	public Connection getConnection() {
+		checkTransaction("getConnection");
+		return realSession.getConnection();
+	}
+
+	@Override
+	public AbstractSQLRunner getRunner() throws Exception {
+		checkTransaction("getRunner");
+		return realSession.getRunner();
+	}
+
+	@Override
+	public SQLPersistenceContext getPersistenceContext() {
+		checkTransaction("getPersistenceContext");
+		return realSession.getPersistenceContext();
+	}
+
+	@Override
+	public <T> Identifier<T> getIdentifier(T owner) throws Exception {
+		checkTransaction("getIdentifier");
+		return realSession.getIdentifier(owner);
+	}
+
+	@Override
+	public <T> Identifier<T> createIdentifier(Class<T> clazz) throws Exception {
+		checkTransaction("createIdentifier");
+		return realSession.createIdentifier(clazz);
+	}
+
+	@Override
+	public void addListener(SQLSessionListener listener) {
+		realSession.addListener(listener);
+	}
+
+	@Override
+	public void removeListener(SQLSessionListener listener) {
+		checkTransaction("removeListener");
+		realSession.removeListener(listener);
+	}
+
+	@Override
+	public List<SQLSessionListener> getListeners() {
+		return realSession.getListeners();
+	}
+
+	@Override
+	public ConcurrentLinkedQueue<PersisterCommand> getCommandQueue() {
+		checkTransaction("getCommandQueue");
+		return realSession.getCommandQueue();
+	}
+
+	@Override
+	public Map<Object, Map<DescriptionColumn, IdentifierPostInsert>> getCacheIdentifier() {
+		checkTransaction("getCacheIdentifier");
+		return realSession.getCacheIdentifier();
+	}
+
+	@Override
+	public void setFormatSql(boolean sql) {
+		checkTransaction("setFormatSql");
+		realSession.setFormatSql(sql);
+	}
+
+	@Override
+	public void setShowSql(ShowSQLType... sql) {
+		checkTransaction("setShowSql");
+		realSession.setShowSql(sql);
+	}
+
+	@Override
+	public boolean isShowSql() {
+		checkTransaction("isShowSql");
+		return realSession.isShowSql();
+	}
+
+	@Override
+	public ShowSQLType[] getShowSql() {
+		checkTransaction("getShowSql");
+		return realSession.getShowSql();
+	}
+
+	@Override
+	public String clientId() {
+		checkTransaction("clientId");
+		return realSession.clientId();
+	}
+
+	@Override
+	public void setClientId(String clientId) {
+		realSession.setClientId(clientId);
+	}
+
+	@Override
+	public boolean isFormatSql() {
+		checkTransaction("isFormatSql");
+		return realSession.isFormatSql();
+	}
+
+	@Override
+	public void removeTable(String tableName) throws Exception {
+		checkTransaction("removeTable");
+		realSession.removeTable(tableName);
+	}
+
+	@Override
+	public EntityHandler createNewEntityHandler(Class<?> resultClass, Set<ExpressionFieldMapper> expressionsFieldMapper,
+			Map<SQLQueryAnalyserAlias, Map<String, String[]>> columnAliases, Cache transactionCache,
+			boolean allowDuplicateObjects, Object objectToRefresh, int firstResult, int maxResults, boolean readOnly,
+			LockOptions lockOptions, String fieldsToForceLazy) throws Exception {
+		checkTransaction("createNewEntityHandler");
+		return realSession.createNewEntityHandler(resultClass, expressionsFieldMapper, columnAliases, transactionCache,
+				allowDuplicateObjects, objectToRefresh, firstResult, maxResults, readOnly, lockOptions,
+				fieldsToForceLazy);
+	}
+
+	@Override
+	public boolean isProxyObject(Object object) throws Exception {
+		checkTransaction("isProxyObject");
+		return realSession.isProxyObject(object);
+	}
+
+	@Override
+	public boolean proxyIsInitialized(Object object) throws Exception {
+		checkTransaction("proxyIsInitialized");
+		return realSession.proxyIsInitialized(object);
+	}
+
+	@Override
+	public void savePoint(String savepoint) throws Exception {
+		checkTransaction("savePoint");
+		realSession.savePoint(savepoint);
+	}
+
+	@Override
+	public void rollbackToSavePoint(String savepoint) throws Exception {
+		checkTransaction("rollbackToSavePoint");
+		realSession.rollbackToSavePoint(savepoint);
+	}
+
+	@Override
+	public <T> T cloneEntityManaged(Object object) throws Exception {
+		checkTransaction("cloneEntityManaged");
+		return realSession.cloneEntityManaged(object);
+	}
+
+	@Override
+	public boolean isClosed() throws Exception {
+		checkTransaction("isClosed");
+		return realSession.isClosed();
+	}
+
+	@Override
+	public void setClientInfo(String clientInfo) throws SQLException {
+		checkTransaction("setClientInfo");
+		realSession.setClientInfo(clientInfo);
+	}
+
+	@Override
+	public String getClientInfo() throws SQLException {
+		checkTransaction("getClientInfo");
+		return realSession.getClientInfo();
+	}
+
+	@Override
+	public Transaction getTransaction() throws Exception {
+		return realSession.getTransaction();
+	}
+
+	@Override
+	public SQLSessionFactory getSQLSessionFactory() {
+		return realSession.getSQLSessionFactory();
+	}
+
+	@Override
+	public void clear() throws Exception {
+		checkTransaction("clear");
+		realSession.clear();
+	}
+
+	@Override
+	public void executeDDL(String ddl) throws Exception {
+		checkTransaction("executeDDL");
+		realSession.executeDDL(ddl);
+	}
+
+	@Override
+	public String applyLock(String sql, Class<?> resultClass, LockOptions lockOptions) throws Exception {
+		checkTransaction("applyLock");
+		return realSession.applyLock(sql, resultClass, lockOptions);
+	}
+
+	@Override
+	public int getBatchSize() {
+		checkTransaction("getBatchSize");
+		return realSession.getBatchSize();
+	}
+
+	@Override
+	public void batchSize(int batchSize) {
+		checkTransaction("batchSize");
+		realSession.batchSize(batchSize);
+	}
+
+	@Override
+	public boolean validationIsActive() {
+		checkTransaction("validationIsActive");
+		return realSession.validationIsActive();
+	}
+
+	@Override
+	public void activateValidation() {
+		checkTransaction("activateValidation");
+		realSession.activateValidation();
+	}
+
+	@Override
+	public void deactivateValidation() {
+		checkTransaction("deactivateValidation");
+		realSession.deactivateValidation();
+	}
+
+	@Override
+	public boolean hasNextValFromCacheSequence(String sequenceName) {
+		checkTransaction("hasNextValFromCacheSequence");
+		return realSession.hasNextValFromCacheSequence(sequenceName);
+	}
+
+	@Override
+	public void storeNextValToCacheSession(String sequenceName, Long firstValue, Long lastValue) {
+		checkTransaction("storeNextValToCacheSession");
+		realSession.storeNextValToCacheSession(sequenceName, firstValue, lastValue);
+	}
+
+	@Override
+	public Long getNextValFromCacheSequence(String sequenceName) {
+		checkTransaction("getNextValFromCacheSequence");
+		return realSession.getNextValFromCacheSequence(sequenceName);
+	}
+
+	@Override
+	public void invalidateConnection() throws SQLException {
+		checkTransaction("invalidateConnection");
+		realSession.invalidateConnection();
+	}
+
+	@Override
+	public void setTenantId(Object value) {
+		checkTransaction("setTenantId");
+		realSession.setTenantId(value);
+	}
+
+	@Override
+	public Object getTenantId() {
+		checkTransaction("getTenantId");
+		return realSession.getTenantId();
+	}
+
+	@Override
+	public void setCompanyId(Object value) {
+		checkTransaction("setCompanyId");
+		realSession.setCompanyId(value);
+	}
+
+	@Override
+	public Object getCompanyId() {
+		checkTransaction("getCompanyId");
+		return realSession.getCompanyId();
+	}
+
+	@Override
+	public CloudFileManager getExternalFileManager() {
+		checkTransaction("getExternalFileManager");
+		return realSession.getExternalFileManager();
+	}
+
+	@Override
+	public void disableNotifyListeners() {
+		checkTransaction("disableNotifyListeners");
+		realSession.disableNotifyListeners();
+	}
+
+	@Override
+	public void enableNotifyListeners() {
+		checkTransaction("enableNotifyListeners");
+		realSession.enableNotifyListeners();
+	}
+
+	@Override
+	public void registerEventListener(Object listener, Class<?>... entities) throws Exception {
+		checkTransaction("registerEventListener");
+		realSession.registerEventListener(listener, entities);
+	}
+
+	@Override
+	public void removeEventListener(Object listener) {
+		checkTransaction("removeEventListener");
+		realSession.removeEventListener(listener);
+	}
+
+	@Override
+	public void notifyListeners(EventType postvalidate, Object oldObject, Object newObject) throws Exception {
+		checkTransaction("notifyListeners");
+		realSession.notifyListeners(postvalidate, oldObject, newObject);
+	}
+
+	@Override
+	public boolean isEnableImageCompression() {
+		checkTransaction("isEnableImageCompression");
+		return realSession.isEnableImageCompression();
+	}
+
+	@Override
+	public void setEnableImageCompression(boolean enableImageCompression) {
+		checkTransaction("setEnableImageCompression");
+		realSession.setEnableImageCompression(enableImageCompression);
+	}
+
+	@Override
+	public String toString() {
+		return realSession.toString();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return realSession.equals(obj);
+	}
+
+	@Override
+	public int hashCode() {
+		return realSession.hashCode();
+	}
+
+	private void writeObject(ObjectOutputStream oos) throws IOException {
+		oos.defaultWriteObject();
+		if (ThreadLocalSQLSessionContext.existingSession(factory) == this) {
+			ThreadLocalSQLSessionContext.unbind(factory);
+		}
+	}
+
+	private void readObject(ObjectInputStream ois) throws Exception {
+		ois.defaultReadObject();
+		realSession.getTransaction().registerSynchronization(new ThreadLocalSQLSessionContext.CleaningSession(factory));
+		ThreadLocalSQLSessionContext.doBind(this, factory);
+	}
+}
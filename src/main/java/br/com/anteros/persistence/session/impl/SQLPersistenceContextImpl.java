@@ -140,6 +140,10 @@ public class SQLPersistenceContextImpl implements SQLPersistenceContext {
 		cache.put(key, value, secondsToLive);
 	}
 
+	public void removeObjectFromCache(Object key) {
+		cache.remove(key);
+	}
+
 	public EntityManaged createEmptyEntityManaged(Object key) {
 		EntityManaged em = new EntityManaged(entityCacheManager.getEntityCache(key.getClass()));
 		entities.put(key, em);
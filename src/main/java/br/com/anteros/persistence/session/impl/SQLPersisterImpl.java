@@ -42,9 +42,11 @@ import br.com.anteros.core.log.LoggerProvider;
 import br.com.anteros.core.utils.MimeTypes;
 import br.com.anteros.core.utils.PNGUtils;
 import br.com.anteros.core.utils.ReflectionUtils;
+import br.com.anteros.core.utils.StringUtils;
 import br.com.anteros.persistence.metadata.EntityCache;
 import br.com.anteros.persistence.metadata.EntityManaged;
 import br.com.anteros.persistence.metadata.FieldEntityValue;
+import br.com.anteros.persistence.metadata.InsertPlan;
 import br.com.anteros.persistence.metadata.annotation.EventType;
 import br.com.anteros.persistence.metadata.annotation.type.CascadeType;
 import br.com.anteros.persistence.metadata.annotation.type.TemporalType;
@@ -63,6 +65,7 @@ import br.com.anteros.persistence.session.FindParameters;
 import br.com.anteros.persistence.session.SQLPersister;
 import br.com.anteros.persistence.session.SQLSession;
 import br.com.anteros.persistence.session.SQLSessionValidator;
+import br.com.anteros.persistence.session.cache.PersistenceMetadataCache;
 import br.com.anteros.persistence.session.exception.SQLSessionException;
 import br.com.anteros.persistence.session.lock.LockMode;
 import br.com.anteros.persistence.session.lock.LockOptions;
@@ -380,14 +383,29 @@ public class SQLPersisterImpl implements SQLPersister {
 			namedParameters.put(entityCache.getDiscriminatorColumn().getColumnName(), new NamedParameter(
 					entityCache.getDiscriminatorColumn().getColumnName(), entityCache.getDiscriminatorValue()));
 
-		InsertCommandSQL insertCommandSQL = new InsertCommandSQL(session,
-				generateSql(entityCache.getTableName(), SQLStatementType.INSERT,
-						NamedParameter.convertToList(namedParameters.values())),
-				NamedParameter.convertToList(namedParameters.values()), newObject, entityCache,
+		List<NamedParameter> parameters = NamedParameter.convertToList(namedParameters.values());
+		InsertCommandSQL insertCommandSQL = new InsertCommandSQL(session, getInsertSql(entityCache, parameters),
+				parameters, newObject, entityCache,
 				entityCache.getTableName(), session.getShowSql(), identifierPostInsert, identifyColumn,
 				entityCache.getDescriptionSqlByType(SQLStatementType.INSERT), executeInBatchMode());
 
-		if (insertCommandSQL.getIdentifierPostInsert() != null) {
+		if ((insertCommandSQL.getIdentifierPostInsert() != null) && isBatchGeneratedKeys(insertCommandSQL)) {
+			/*
+			 * A chave será obtida no lote pelo getGeneratedKeys. O comando vai para a
+			 * fila junto com os comandos anteriores para que os objetos que
+			 * referenciam este objeto encontrem o identificador pendente.
+			 */
+			if (stackCommands != null) {
+				stackCommands.addAll(result);
+				stackCommands.add(insertCommandSQL);
+				session.getCommandQueue().addAll(stackCommands);
+				stackCommands.clear();
+			} else {
+				session.getCommandQueue().addAll(result);
+				session.getCommandQueue().add(insertCommandSQL);
+			}
+			result.clear();
+		} else if (insertCommandSQL.getIdentifierPostInsert() != null) {
 			if (stackCommands != null) {
 				stackCommands.add(insertCommandSQL);
 				session.getCommandQueue().addAll(stackCommands);
@@ -413,6 +431,11 @@ public class SQLPersisterImpl implements SQLPersister {
 		return session.getBatchSize() > 0 || currentBatchSize > 0;
 	}
 
+	protected boolean isBatchGeneratedKeys(InsertCommandSQL insertCommandSQL) {
+		return insertCommandSQL.isInBatchMode() && (insertCommandSQL.getDescriptionSQL() == null)
+				&& session.getDialect().supportsBatchGeneratedKeys();
+	}
+
 	protected void insertRelationships(Object targetObject, EntityCache entityCache, List<PersisterCommand> result)
 			throws Exception {
 		Object fieldValue;
@@ -1304,23 +1327,53 @@ public class SQLPersisterImpl implements SQLPersister {
 		}
 	}
 
+	/**
+	 * Retorna o SQL de INSERT da entidade usando o plano guardado no EntityCache
+	 * para a mesma sequência de colunas, gerando-o somente na primeira vez.
+	 */
+	protected String getInsertSql(EntityCache entityCache, List<NamedParameter> parameters) {
+		InsertPlan plan = entityCache.getInsertPlan(parameters);
+		if (plan == null) {
+			String sql = generateSql(entityCache.getTableName(), SQLStatementType.INSERT, parameters);
+			if (StringUtils.isEmpty(sql))
+				return sql;
+			plan = new InsertPlan(sql, NamedParameter.getNames(parameters));
+			entityCache.addInsertPlan(plan);
+		}
+		return plan.getSql();
+	}
+
 	protected String generateSql(String tableName, SQLStatementType statement, List<NamedParameter> parameters) {
-		if (statement.equals(SQLStatementType.INSERT)) {
-			if (NamedParameter.getNames(parameters).length > 0)
-				return new Insert(session.getDialect()).setTableName(tableName)
-						.addColumns(NamedParameter.getNames(parameters)).toStatementString();
-		} else if (statement.equals(SQLStatementType.UPDATE)) {
-			if (NamedParameter.getNames(parameters).length > 0)
-				return new Update(session.getDialect()).setTableName(tableName)
-						.addColumns(NamedParameter.getNames(parameters))
-						.addPrimaryKeyColumns(NamedParameter.getNamesKey(parameters)).toStatementString();
-		} else if (statement.equals(SQLStatementType.DELETE)) {
-			if (NamedParameter.getNamesKey(parameters).length > 0)
-				return new Delete().setTableName(tableName).addPrimaryKeyColumns(NamedParameter.getNamesKey(parameters))
+		String[] columnNames = NamedParameter.getNames(parameters);
+		String[] keyColumnNames = NamedParameter.getNamesKey(parameters);
+		if (statement.equals(SQLStatementType.INSERT) || statement.equals(SQLStatementType.UPDATE)) {
+			if (columnNames.length == 0)
+				return "";
+		} else if (!statement.equals(SQLStatementType.DELETE) || (keyColumnNames.length == 0))
+			return "";
+
+		/*
+		 * O SQL gerado depende apenas da tabela e da sequência de colunas, então é
+		 * guardado no cache de metadados e reaproveitado pelos próximos objetos com
+		 * as mesmas colunas. Todos os comandos com a mesma forma passam a usar a
+		 * mesma instância da String.
+		 */
+		GeneratedSqlKey key = new GeneratedSqlKey(statement, tableName, columnNames, keyColumnNames);
+		PersistenceMetadataCache metadataCache = PersistenceMetadataCache.getInstance(session);
+		String result = (String) metadataCache.get(key);
+		if (result == null) {
+			if (statement.equals(SQLStatementType.INSERT))
+				result = new Insert(session.getDialect()).setTableName(tableName).addColumns(columnNames)
 						.toStatementString();
+			else if (statement.equals(SQLStatementType.UPDATE))
+				result = new Update(session.getDialect()).setTableName(tableName).addColumns(columnNames)
+						.addPrimaryKeyColumns(keyColumnNames).toStatementString();
+			else
+				result = new Delete().setTableName(tableName).addPrimaryKeyColumns(keyColumnNames)
+						.toStatementString();
+			metadataCache.put(key, result);
 		}
-
-		return "";
+		return result;
 	}
 
 	protected List<CommandSQL> getSQLMapTableCommands(Object key, Object value, SQLStatementType statement,
@@ -1602,4 +1655,45 @@ public class SQLPersisterImpl implements SQLPersister {
 		}
 	}
 
+	/**
+	 * Chave do SQL de INSERT/UPDATE/DELETE gerado para uma tabela. Os parâmetros
+	 * são ligados por posição, por isso a ordem das colunas faz parte da chave.
+	 */
+	private static final class GeneratedSqlKey {
+		private final SQLStatementType statement;
+		private final String tableName;
+		private final String[] columnNames;
+		private final String[] keyColumnNames;
+		private final int hashCode;
+
+		GeneratedSqlKey(SQLStatementType statement, String tableName, String[] columnNames,
+				String[] keyColumnNames) {
+			this.statement = statement;
+			this.tableName = tableName;
+			this.columnNames = columnNames;
+			this.keyColumnNames = keyColumnNames;
+			int result = statement.hashCode();
+			result = 31 * result + tableName.hashCode();
+			result = 31 * result + Arrays.hashCode(columnNames);
+			result = 31 * result + Arrays.hashCode(keyColumnNames);
+			this.hashCode = result;
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof GeneratedSqlKey))
+				return false;
+			GeneratedSqlKey other = (GeneratedSqlKey) obj;
+			return (hashCode == other.hashCode) && (statement == other.statement)
+					&& tableName.equals(other.tableName) && Arrays.equals(columnNames, other.columnNames)
+					&& Arrays.equals(keyColumnNames, other.keyColumnNames);
+		}
+	}
 }
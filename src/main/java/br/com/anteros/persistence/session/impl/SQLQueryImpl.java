@@ -25,20 +25,24 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.stream.Stream;
 
 import br.com.anteros.core.utils.ObjectUtils;
 import br.com.anteros.core.utils.ReflectionUtils;
 import br.com.anteros.core.utils.StringUtils;
+import br.com.anteros.persistence.dsl.osql.lang.CloseableIterator;
 import br.com.anteros.persistence.handler.ArrayListHandler;
 import br.com.anteros.persistence.handler.BeanHandler;
 import br.com.anteros.persistence.handler.ElementCollectionHandler;
 import br.com.anteros.persistence.handler.ElementMapHandler;
+import br.com.anteros.persistence.handler.EntityHandler;
 import br.com.anteros.persistence.handler.MultiSelectHandler;
 import br.com.anteros.persistence.handler.ResultClassColumnInfo;
 import br.com.anteros.persistence.handler.ResultClassDefinition;
@@ -64,6 +68,7 @@ import br.com.anteros.persistence.session.ProcedureResult;
 import br.com.anteros.persistence.session.SQLSession;
 import br.com.anteros.persistence.session.SQLSessionResult;
 import br.com.anteros.persistence.session.cache.Cache;
+import br.com.anteros.persistence.session.cache.EntityKey;
 import br.com.anteros.persistence.session.cache.PersistenceMetadataCache;
 import br.com.anteros.persistence.session.cache.SQLCache;
 import br.com.anteros.persistence.session.cache.WeakReferenceSQLCache;
@@ -79,6 +84,7 @@ import br.com.anteros.persistence.session.query.SQLQueryNoResultException;
 import br.com.anteros.persistence.session.query.SQLQueryNonUniqueResultException;
 import br.com.anteros.persistence.session.query.ScrollableResultSet;
 import br.com.anteros.persistence.session.query.ScrollableResultSetImpl;
+import br.com.anteros.persistence.session.query.StreamingResultIterator;
 import br.com.anteros.persistence.session.query.ShowSQLType;
 import br.com.anteros.persistence.session.query.TypedSQLQuery;
 import br.com.anteros.persistence.sql.command.Select;
@@ -119,8 +125,11 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 	protected SelectStatementNode firstStatement;
 	protected int nextAliasColumnName;
 	protected String fieldsToForceLazy;
+	protected int batchFetchSize = 0;
 	protected boolean ignoreCompanyId=false;
 	protected boolean ignoreTenantId=false;
+	protected Set<String> tableNames;
+	protected String tableNamesSql;
 
 	public SQLQueryImpl(SQLSession session) {
 		this.session = session;
@@ -162,10 +171,10 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 		}
 
 		NamedParameterParserResult parserResult = (NamedParameterParserResult) PersistenceMetadataCache
-				.getInstance(session.getEntityCacheManager()).get("NamedParameters:" + sql);
+				.getInstance(session).get(NamedParameterStatement.getParserResultKey(sql, null));
 		if (parserResult == null) {
 			parserResult = NamedParameterStatement.parse(sql, null);
-			PersistenceMetadataCache.getInstance(session.getEntityCacheManager()).put("NamedParameters:" + sql,
+			PersistenceMetadataCache.getInstance(session).put(NamedParameterStatement.getParserResultKey(sql, null),
 					parserResult);
 		}
 		paramCount = 0;
@@ -515,6 +524,66 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 		}
 	}
 
+	@Override
+	public CloseableIterator<T> iterate() throws Exception {
+		return iterate(0);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public CloseableIterator<T> iterate(int evictionSize) throws Exception {
+		if ((this.parameters.size() > 0) && (this.namedParameters.size() > 0))
+			throw new SQLQueryException(
+					"Use apenas um formato de parâmetros. Parâmetros nomeados ou lista de parâmetros.");
+		/*
+		 * Se for uma query nomeada
+		 */
+		if (this.getNamedQuery() != null) {
+			DescriptionNamedQuery namedQuery = findNamedQuery();
+			if (namedQuery == null)
+				throw new SQLQueryException("Query nomeada " + this.getNamedQuery() + " não encontrada.");
+			this.sql = namedQuery.getQuery();
+			this.lockOptions = namedQuery.getLockOptions();
+		}
+
+		ResultSetHandler resultSetHandler = getAppropriateResultSetHandler();
+		if (!(resultSetHandler instanceof ScrollableResultSetHandler)) {
+			throw new SQLQueryException("O resultSetHandler " + resultSetHandler.getClass().getName()
+					+ " sendo usado para processar o ResultSet não extends ScrollableResultSetHandler. Não será possível ler o resultado em streaming.");
+		}
+
+		try {
+			ResultSet resultSet = null;
+			if (parsedParameters.size() > 0)
+				resultSet = session.getRunner().executeStreamingQuery(session, parsedSql,
+						parsedParameters.values().toArray(), showSql, formatSql, timeOut, session.getListeners(),
+						session.clientId());
+			else if (parsedNamedParameters.size() > 0)
+				resultSet = session.getRunner().executeStreamingQuery(session, parsedSql,
+						parsedNamedParameters.values().toArray(new NamedParameter[] {}), showSql, formatSql, timeOut,
+						session.getListeners(), session.clientId());
+			else
+				resultSet = session.getRunner().executeStreamingQuery(session, parsedSql, (Object[]) null, showSql,
+						formatSql, timeOut, session.getListeners(), session.clientId());
+
+			return new StreamingResultIterator<T>(session, resultSet, (ScrollableResultSetHandler) resultSetHandler,
+					resultTransformer, allowDuplicateObjects, evictionSize);
+		} catch (SQLException ex) {
+			throw session.getDialect().convertSQLException(ex, "Não foi possível executar a consulta " + parsedSql,
+					parsedSql);
+		}
+	}
+
+	@Override
+	public Stream<T> stream() throws Exception {
+		return stream(0);
+	}
+
+	@Override
+	public Stream<T> stream(int evictionSize) throws Exception {
+		return ((StreamingResultIterator<T>) iterate(evictionSize)).stream();
+	}
+
 	@Override
 	public ScrollableResultSet getScrollableResultSet() throws Exception {
 		if ((this.parameters.size() > 0) && (this.namedParameters.size() > 0))
@@ -706,7 +775,7 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 			throw new SQLQueryException("Informe o ResultSetHandler para executar a consulta.");
 
 		SQLSessionResult result = null;
-		session.forceFlush(SQLParserUtil.getTableNames(sql, session.getDialect()));
+		session.forceFlush(getTableNames(sql));
 
 		String parsedSql = sql;
 		if (session.getDialect().supportsLock())
@@ -733,7 +802,7 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 					"Use apenas um formato de parâmetros. Parâmetros nomeados ou lista de parâmetros.");
 
 		ResultSet result = null;
-		session.forceFlush(SQLParserUtil.getTableNames(sql, session.getDialect()));
+		session.forceFlush(getTableNames(sql));
 		if (this.parameters.size() > 0)
 			result = session.getRunner().executeQuery(session, sql, parameters.values().toArray(), showSql, formatSql,
 					timeOut, session.getListeners(), session.clientId());
@@ -750,30 +819,21 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 	public Object loadData(EntityCache entityCacheTarget, Object owner, DescriptionField descriptionFieldOwner,
 			Map<String, Object> columnKeyTarget, Cache transactionCache) throws IllegalAccessException, Exception {
 		Object result = null;
-		session.forceFlush(SQLParserUtil.getTableNames(sql, session.getDialect()));
+		session.forceFlush(getTableNames(sql));
 
-		StringBuilder sb = new StringBuilder("");
 		boolean keyIsNull = false;
-		for (String key : columnKeyTarget.keySet()) {
-			if (columnKeyTarget.get(key) == null)
-				keyIsNull = true;
-			else
-				keyIsNull = false;
-			if (!"".equals(sb.toString())) {
-				sb.append("_");
-			}
-			sb.append(columnKeyTarget.get(key));
-		}
+		for (Object value : columnKeyTarget.values())
+			keyIsNull = (value == null);
 		if (keyIsNull)
 			return result;
-		String uniqueId = sb.toString();
+		Object keyValue = getPrimaryKeyValue(entityCacheTarget, columnKeyTarget);
 
 		/*
 		 * Localiza o objeto no Cache se encontrar seta o objeto no field
 		 */
 		if (descriptionFieldOwner.hasDescriptionColumn() && !descriptionFieldOwner.isElementCollection()
 				&& !descriptionFieldOwner.isJoinTable())
-			result = getObjectFromCache(entityCacheTarget, uniqueId, transactionCache);
+			result = getObjectFromCache(entityCacheTarget, keyValue, transactionCache);
 
 		/*
 		 * Senão encontrar o objeto no entityCache executa a estratégia configurada e
@@ -841,9 +901,8 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 					 * Caso o objeto possa ser gerenciado(objeto completo ou parcial que tenha sido
 					 * buscado id no sql) adiciona o objeto no cache
 					 */
-					if (entityManaged != null)
-						transactionCache.put(entityManaged.getEntityCache().getEntityClass().getName() + "_" + uniqueId,
-								result);
+					if ((entityManaged != null) && (keyValue != null))
+						transactionCache.put(EntityKey.of(entityManaged.getEntityCache(), keyValue), result);
 				}
 			}
 		} else {
@@ -878,7 +937,7 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 			appendOperator = true;
 		}
 
-		session.forceFlush(SQLParserUtil.getTableNames(select.toStatementString(), session.getDialect()));
+		session.forceFlush(getTableNames(select.toStatementString()));
 
 		ResultSet resultSet = session.createQuery(select.toStatementString())
 				.setParameters(params.toArray(new NamedParameter[] {})).executeQuery();
@@ -922,7 +981,7 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 		if (StringUtils.isEmpty(sql)) {
 			String sqlKey = "JOIN_TABLE_" + descriptionFieldOwner.getEntityCache().getEntityClass().getName() + "_"
 					+ descriptionFieldOwner.getField().getName();
-			sql = (String) PersistenceMetadataCache.getInstance(session.getEntityCacheManager()).get(sqlKey);
+			sql = (String) PersistenceMetadataCache.getInstance(session).get(sqlKey);
 
 			if (StringUtils.isEmpty(sql)) {
 				DescriptionField descriptionFieldMappedBy = null;
@@ -934,7 +993,7 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 				sql = makeSelectJoinTable(
 						(descriptionFieldMappedBy != null ? descriptionFieldMappedBy : descriptionFieldOwner),
 						columnKeyTarget, targetEntityCache, params);
-				PersistenceMetadataCache.getInstance(session.getEntityCacheManager()).put(sqlKey, sql);
+				PersistenceMetadataCache.getInstance(session).put(sqlKey, sql);
 			} else {
 				DescriptionField descriptionFieldMappedBy = null;
 				List<DescriptionColumn> columns = descriptionFieldOwner.getPrimaryKeys();
@@ -954,10 +1013,10 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 			}
 		} else {
 			NamedParameterParserResult parserResult = (NamedParameterParserResult) PersistenceMetadataCache
-					.getInstance(session.getEntityCacheManager()).get("NamedParameters:" + sql);
+					.getInstance(session).get(NamedParameterStatement.getParserResultKey(sql, null));
 			if (parserResult == null) {
 				parserResult = NamedParameterStatement.parse(sql, null);
-				PersistenceMetadataCache.getInstance(session.getEntityCacheManager()).put("NamedParameters:" + sql,
+				PersistenceMetadataCache.getInstance(session).put(NamedParameterStatement.getParserResultKey(sql, null),
 						parserResult);
 			}
 			for (NamedParameter parameter : parserResult.getNamedParameters()) {
@@ -1055,10 +1114,10 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 		if (descriptionFieldOwner.getFieldType() == FieldType.COLLECTION_TABLE) {
 			String sqlKey = "COLLECTION_TABLE_" + descriptionFieldOwner.getEntityCache().getEntityClass().getName()
 					+ "_" + descriptionFieldOwner.getField().getName();
-			sql = (String) PersistenceMetadataCache.getInstance(session.getEntityCacheManager()).get(sqlKey);
+			sql = (String) PersistenceMetadataCache.getInstance(session).get(sqlKey);
 			if (StringUtils.isEmpty(sql)) {
 				sql = makeSelectElementCollection(descriptionFieldOwner, columnKeyTarget, params, mappedByEntityCache);
-				PersistenceMetadataCache.getInstance(session.getEntityCacheManager()).put(sqlKey, sql);
+				PersistenceMetadataCache.getInstance(session).put(sqlKey, sql);
 			} else {
 				for (DescriptionColumn descriptionColumn : mappedByEntityCache.getPrimaryKeyColumns()) {
 					String columnName = (descriptionColumn.getReferencedColumnName() == null
@@ -1077,10 +1136,10 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 		} else if (descriptionFieldOwner.getFieldType() == FieldType.COLLECTION_MAP_TABLE) {
 			String sqlKey = "COLLECTION_MAP_TABLE" + descriptionFieldOwner.getEntityCache().getEntityClass().getName()
 					+ "_" + descriptionFieldOwner.getField().getName();
-			sql = (String) PersistenceMetadataCache.getInstance(session.getEntityCacheManager()).get(sqlKey);
+			sql = (String) PersistenceMetadataCache.getInstance(session).get(sqlKey);
 			if (StringUtils.isEmpty(sql)) {
 				sql = makeSelectMapTable(descriptionFieldOwner, columnKeyTarget, params);
-				PersistenceMetadataCache.getInstance(session.getEntityCacheManager()).put(sqlKey, sql);
+				PersistenceMetadataCache.getInstance(session).put(sqlKey, sql);
 			} else {
 				for (DescriptionColumn descriptionColumn : descriptionFieldOwner.getPrimaryKeys()) {
 					params.add(new NamedParameter("P" + descriptionColumn.getReferencedColumnName(),
@@ -1156,10 +1215,10 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 		 */
 		List<NamedParameter> lstParams = new ArrayList<NamedParameter>();
 		NamedParameterParserResult namedParameterParseResult = (NamedParameterParserResult) PersistenceMetadataCache
-				.getInstance(session.getEntityCacheManager()).get(select.toString());
+				.getInstance(session).get(select.toString());
 		if (namedParameterParseResult == null) {
 			namedParameterParseResult = NamedParameterStatement.parse(select.toString(), null);
-			PersistenceMetadataCache.getInstance(session.getEntityCacheManager()).put(select.toString(),
+			PersistenceMetadataCache.getInstance(session).put(select.toString(),
 					namedParameterParseResult);
 		}
 		for (String keySel : namedParameterParseResult.getParsedParams().keySet()) {
@@ -1202,7 +1261,7 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 		if (StringUtils.isEmpty(sql)) {
 			String sqlKey = "FOREIGN_KEY_" + targetEntityCache.getEntityClass().getName() + "_"
 					+ descriptionFieldOwner.getField().getName();
-			sql = (String) PersistenceMetadataCache.getInstance(session.getEntityCacheManager()).get(sqlKey);
+			sql = (String) PersistenceMetadataCache.getInstance(session).get(sqlKey);
 
 			if (StringUtils.isEmpty(sql)) {
 				Select select = new Select(session.getDialect());
@@ -1220,7 +1279,7 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 				if (descriptionFieldOwner.hasOrderByClause())
 					select.setOrderByClause(descriptionFieldOwner.getOrderByClause());
 				sql = select.toStatementString();
-				PersistenceMetadataCache.getInstance(session.getEntityCacheManager()).put(sqlKey, sql);
+				PersistenceMetadataCache.getInstance(session).put(sqlKey, sql);
 			} else {
 				for (DescriptionColumn column : targetEntityCache.getPrimaryKeyColumns()) {
 					params.add(new NamedParameter("P" + column.getColumnName(),
@@ -1229,10 +1288,10 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 			}
 		} else {
 			NamedParameterParserResult parserResult = (NamedParameterParserResult) PersistenceMetadataCache
-					.getInstance(session.getEntityCacheManager()).get("NamedParameters:" + sql);
+					.getInstance(session).get(NamedParameterStatement.getParserResultKey(sql, null));
 			if (parserResult == null) {
 				parserResult = NamedParameterStatement.parse(sql, null);
-				PersistenceMetadataCache.getInstance(session.getEntityCacheManager()).put("NamedParameters:" + sql,
+				PersistenceMetadataCache.getInstance(session).put(NamedParameterStatement.getParserResultKey(sql, null),
 						parserResult);
 			}
 			for (NamedParameter parameter : parserResult.getNamedParameters()) {
@@ -1251,7 +1310,7 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 		/*
 		 * Seleciona os dados
 		 */
-		session.forceFlush(SQLParserUtil.getTableNames(sql, session.getDialect()));
+		session.forceFlush(getTableNames(sql));
 		result = getResultOneToLazyLoad(sql, params.toArray(new NamedParameter[] {}),
 				descriptionFieldOwner.getTargetEntity().getEntityClass(), transactionCache);
 		return result;
@@ -1273,10 +1332,28 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 		return null;
 	}
 
-	protected Object getObjectFromCache(EntityCache targetEntityCache, String uniqueId, Cache transactionCache) {
+	/**
+	 * Retorna o valor da chave primária da entidade a partir dos valores das
+	 * colunas ou nulo se alguma coluna da chave não foi informada.
+	 */
+	private Object getPrimaryKeyValue(EntityCache targetEntityCache, Map<String, Object> columnKeyTarget) {
+		List<DescriptionColumn> primaryKeyColumns = targetEntityCache.getPrimaryKeyColumns();
+		Object[] values = new Object[primaryKeyColumns.size()];
+		int i = 0;
+		for (DescriptionColumn column : primaryKeyColumns) {
+			values[i] = columnKeyTarget.get(column.getColumnName());
+			if (values[i] == null)
+				return null;
+			i++;
+		}
+		return (values.length == 1 ? values[0] : values);
+	}
+
+	protected Object getObjectFromCache(EntityCache targetEntityCache, Object keyValue, Cache transactionCache) {
 
 		Object result = null;
-		if (transactionCache != null) {
+		EntityKey entityKey = EntityKey.of(targetEntityCache, keyValue);
+		if ((transactionCache != null) && (entityKey != null)) {
 
 			/*
 			 * Se a classe for abstrata pega todas as implementações não abstratas e
@@ -1286,11 +1363,11 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 				EntityCache[] entitiesCache = session.getEntityCacheManager()
 						.getEntitiesBySuperClassIncluding(targetEntityCache);
 				for (EntityCache entityCache : entitiesCache) {
-					result = transactionCache.get(entityCache.getEntityClass().getName() + "_" + uniqueId);
+					EntityKey key = entityKey.forEntity(entityCache);
+					result = transactionCache.get(key);
 					if (result != null)
 						break;
-					result = session.getPersistenceContext()
-							.getObjectFromCache(entityCache.getEntityClass().getName() + "_" + uniqueId);
+					result = session.getPersistenceContext().getObjectFromCache(key);
 					if (result != null)
 						break;
 				}
@@ -1298,11 +1375,10 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 				/*
 				 * Caso não seja abstrata localiza classe+ID no entityCache
 				 */
-				result = transactionCache.get(targetEntityCache.getEntityClass().getName() + "_" + uniqueId);
+				result = transactionCache.get(entityKey);
 
 				if (result == null)
-					result = session.getPersistenceContext()
-							.getObjectFromCache(targetEntityCache.getEntityClass().getName() + "_" + uniqueId);
+					result = session.getPersistenceContext().getObjectFromCache(entityKey);
 			}
 		}
 		return result;
@@ -1336,11 +1412,11 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 		if (StringUtils.isEmpty(sql)) {
 			String sqlKey = "MAPPED_BY_" + descriptionFieldOwner.getEntityCache().getEntityClass().getName() + "_"
 					+ descriptionFieldOwner.getField().getName();
-			sql = (String) PersistenceMetadataCache.getInstance(session.getEntityCacheManager()).get(sqlKey);
+			sql = (String) PersistenceMetadataCache.getInstance(session).get(sqlKey);
 			if (StringUtils.isEmpty(sql)) {
 				sql = makeSelectMappedBy(descriptionFieldOwner, columnKeyTarget, mappedByEntityCache,
 						mappedByDescriptionColumn, params);
-				PersistenceMetadataCache.getInstance(session.getEntityCacheManager()).put(sqlKey, sql);
+				PersistenceMetadataCache.getInstance(session).put(sqlKey, sql);
 			} else {
 				if (mappedByDescriptionColumn != null) {
 					for (DescriptionColumn descriptionColumn : mappedByDescriptionColumn) {
@@ -1351,10 +1427,10 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 			}
 		} else {
 			NamedParameterParserResult parserResult = (NamedParameterParserResult) PersistenceMetadataCache
-					.getInstance(session.getEntityCacheManager()).get("NamedParameters:" + sql);
+					.getInstance(session).get(NamedParameterStatement.getParserResultKey(sql, null));
 			if (parserResult == null) {
 				parserResult = NamedParameterStatement.parse(sql, null);
-				PersistenceMetadataCache.getInstance(session.getEntityCacheManager()).put("NamedParameters:" + sql,
+				PersistenceMetadataCache.getInstance(session).put(NamedParameterStatement.getParserResultKey(sql, null),
 						parserResult);
 			}
 			for (NamedParameter parameter : parserResult.getNamedParameters()) {
@@ -1372,7 +1448,7 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 		/*
 		 * Seleciona os dados
 		 */
-		session.forceFlush(SQLParserUtil.getTableNames(sql, session.getDialect()));
+		session.forceFlush(getTableNames(sql));
 		result = getResultListToLoadData(sql, params.toArray(new NamedParameter[] {}),
 				descriptionFieldOwner.getTargetEntity().getEntityClass(), transactionCache);
 
@@ -1404,10 +1480,87 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 		return sql;
 	}
 
+	@Override
+	public Map<EntityKey, List<Object>> loadDataBatch(final DescriptionField descriptionFieldOwner,
+			Collection<Object> keyValues, Cache transactionCache) throws Exception {
+		DescriptionColumn batchFetchColumn = descriptionFieldOwner.getBatchFetchColumn();
+		if (batchFetchColumn == null)
+			throw new SQLQueryException("O campo " + descriptionFieldOwner.getField().getName() + " da classe "
+					+ descriptionFieldOwner.getEntityCache().getEntityClass().getName()
+					+ " não pode ser carregado em lote.");
+
+		Map<EntityKey, List<Object>> result = new HashMap<EntityKey, List<Object>>();
+		List<Object> values = new ArrayList<Object>(keyValues);
+
+		/*
+		 * Quantidade de chaves por consulta limitada pelo dialeto
+		 */
+		int maxInListSize = session.getDialect().getMaxInListSize();
+		int chunkSize = (descriptionFieldOwner.hasBatchSize() ? descriptionFieldOwner.getBatchSize()
+				: batchFetchSize);
+		if ((chunkSize <= 0) || (chunkSize > maxInListSize))
+			chunkSize = maxInListSize;
+
+		for (int start = 0; start < values.size(); start += chunkSize) {
+			List<Object> chunk = values.subList(start, Math.min(start + chunkSize, values.size()));
+			/*
+			 * Completa a lista até a próxima potência de 2 repetindo a última chave
+			 * para reduzir a quantidade de SQL's distintos
+			 */
+			int inListSize = getBatchInListSize(chunk.size(), chunkSize);
+			String sql = makeSelectBatch(descriptionFieldOwner, batchFetchColumn, inListSize);
+			NamedParameter[] params = new NamedParameter[inListSize];
+			for (int i = 0; i < inListSize; i++)
+				params[i] = new NamedParameter("P" + i, chunk.get(Math.min(i, chunk.size() - 1)));
+
+			getResultListToLoadData(sql, params, descriptionFieldOwner.getTargetEntity().getEntityClass(),
+					transactionCache, batchFetchColumn.getColumnName(), result);
+		}
+		return result;
+	}
+
+	private int getBatchInListSize(int size, int chunkSize) {
+		int result = 1;
+		while (result < size)
+			result <<= 1;
+		return Math.min(result, chunkSize);
+	}
+
+	protected String makeSelectBatch(final DescriptionField descriptionFieldOwner, DescriptionColumn batchFetchColumn,
+			int inListSize) {
+		String sqlKey = "BATCH_" + descriptionFieldOwner.getEntityCache().getEntityClass().getName() + "_"
+				+ descriptionFieldOwner.getField().getName() + "_" + inListSize;
+		String sql = (String) PersistenceMetadataCache.getInstance(session).get(sqlKey);
+		if (StringUtils.isEmpty(sql)) {
+			StringBuilder inList = new StringBuilder("(");
+			for (int i = 0; i < inListSize; i++) {
+				if (i > 0)
+					inList.append(", ");
+				inList.append(":P").append(i);
+			}
+			inList.append(")");
+
+			Select select = new Select(session.getDialect());
+			select.addTableName(descriptionFieldOwner.getTargetEntity().getTableName(), "TAB");
+			select.addCondition("TAB." + batchFetchColumn.getColumnName(), "IN", inList.toString());
+			if (descriptionFieldOwner.hasOrderByClause())
+				select.setOrderByClause(descriptionFieldOwner.getOrderByClause());
+			sql = select.toStatementString();
+			PersistenceMetadataCache.getInstance(session).put(sqlKey, sql);
+		}
+		return sql;
+	}
+
 	private <T> List<T> getResultListToLoadData(String sql, NamedParameter[] namedParameter, Class<?> resultClass,
 			Cache transactionCache) throws Exception {
+		return getResultListToLoadData(sql, namedParameter, resultClass, transactionCache, null, null);
+	}
 
-		ResultSetHandler handler;
+	private <T> List<T> getResultListToLoadData(String sql, NamedParameter[] namedParameter, Class<?> resultClass,
+			Cache transactionCache, String groupByColumnName, Map<EntityKey, List<Object>> groupedResult)
+			throws Exception {
+
+		EntityHandler handler;
 		EntityCache entityCache = session.getEntityCacheManager().getEntityCache(resultClass);
 
 		if (readOnly)
@@ -1424,18 +1577,14 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 					+ " não foi localizada no SQL informado. Não será possível executar a consulta.");
 		}
 
-		SQLQueryAnalyzerResult analyzerResult = (SQLQueryAnalyzerResult) PersistenceMetadataCache
-				.getInstance(session.getEntityCacheManager()).get(resultClass.getName() + ":" + sql);
-		if (analyzerResult == null) {
-			analyzerResult = new SQLQueryAnalyzer(session.getEntityCacheManager(), session.getDialect(),
-					!SQLQueryAnalyzer.IGNORE_NOT_USED_ALIAS_TABLE).analyze(sql, resultClass);
-			PersistenceMetadataCache.getInstance(session.getEntityCacheManager()).put(resultClass.getName() + ":" + sql,
-					analyzerResult);
-		}
+		SQLQueryAnalyzerResult analyzerResult = getAnalyzerResult(sql, resultClass);
 
 		handler = session.createNewEntityHandler(resultClass, analyzerResult.getExpressionsFieldMapper(),
 				analyzerResult.getColumnAliases(), transactionCache, allowDuplicateObjects, null, firstResult,
 				maxResults, readOnly, lockOptions, fieldsToForceLazy);
+		handler.setBatchFetchSize(batchFetchSize);
+		if (groupByColumnName != null)
+			handler.groupResultBy(groupByColumnName, groupedResult);
 		/*
 		 * Cria um cópia do LockOptions e adiciona as colunas dos aliases caso o usuário
 		 * tenha informado pegando o nome da colunas do resultado da análise do SQL.
@@ -1446,7 +1595,7 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 				? session.applyLock(analyzerResult.getParsedSql(), resultClass, lockOpts)
 				: analyzerResult.getParsedSql());
 
-		session.forceFlush(SQLParserUtil.getTableNames(parsedSql, session.getDialect()));
+		session.forceFlush(getTableNames(parsedSql));
 
 		Collection<?> resultRunner = (Collection<?>) session.getRunner().query(session, parsedSql, handler,
 				namedParameter, showSql, formatSql, 0, session.getListeners(), session.clientId());
@@ -1474,14 +1623,7 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 					+ " não foi localizada no SQL informado. Não será possível executar a consulta.");
 		}
 
-		SQLQueryAnalyzerResult analyzerResult = (SQLQueryAnalyzerResult) PersistenceMetadataCache
-				.getInstance(session.getEntityCacheManager()).get(resultClass.getName() + ":" + sql);
-		if (analyzerResult == null) {
-			analyzerResult = new SQLQueryAnalyzer(session.getEntityCacheManager(), session.getDialect(),
-					!SQLQueryAnalyzer.IGNORE_NOT_USED_ALIAS_TABLE).analyze(sql, resultClass);
-			PersistenceMetadataCache.getInstance(session.getEntityCacheManager()).put(resultClass.getName() + ":" + sql,
-					analyzerResult);
-		}
+		SQLQueryAnalyzerResult analyzerResult = getAnalyzerResult(sql, resultClass);
 		handler = session.createNewEntityHandler(resultClass, analyzerResult.getExpressionsFieldMapper(),
 				analyzerResult.getColumnAliases(), transactionCache, allowDuplicateObjects, null, firstResult,
 				maxResults, readOnly, lockOptions, fieldsToForceLazy);
@@ -1497,7 +1639,7 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 				? session.applyLock(analyzerResult.getParsedSql(), resultClass, lockOpts)
 				: analyzerResult.getParsedSql());
 
-		session.forceFlush(SQLParserUtil.getTableNames(sql, session.getDialect()));
+		session.forceFlush(getTableNames(sql));
 
 		result = (List) session.getRunner().query(session, sql, handler, parameter, showSql, formatSql, 0,
 				session.getListeners(), session.clientId());
@@ -1743,7 +1885,7 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 
 		ResultSet rs = null;
 
-		session.forceFlush(SQLParserUtil.getTableNames(sql, session.getDialect()));
+		session.forceFlush(getTableNames(sql));
 		String sqlForCount = "SELECT COUNT(*) FROM (" + sql + ") P_";
 
 		if (this.parameters.size() > 0)
@@ -1849,8 +1991,8 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 					if (appendOperator) {
 						select.and();
 					}
-					select.addCondition(tenantId.getSimpleColumn().getColumnName(), "=",
-							"'" + session.getTenantId().toString() + "'");
+					select.addCondition(tenantId.getSimpleColumn().getColumnName(), "=", ":P_TENANT_ID");
+					params.add(new NamedParameter("P_TENANT_ID", session.getTenantId().toString()));
 				}
 
 				if (companyId != null && !this.ignoreCompanyId) {
@@ -1862,8 +2004,8 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 					if (appendOperator) {
 						select.and();
 					}
-					select.addCondition(companyId.getSimpleColumn().getColumnName(), "=",
-							"'" + session.getCompanyId().toString() + "'");
+					select.addCondition(companyId.getSimpleColumn().getColumnName(), "=", ":P_COMPANY_ID");
+					params.add(new NamedParameter("P_COMPANY_ID", session.getCompanyId().toString()));
 				}
 
 				this.sql(select.toStatementString());
@@ -1894,7 +2036,7 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 		parsedParameters = new TreeMap<Integer, Object>(this.parameters);
 		parsedSql = sql;
 
-		session.forceFlush(SQLParserUtil.getTableNames(sql, session.getDialect()));
+		session.forceFlush(getTableNames(sql));
 		ResultClassColumnInfo simpleColumn = resultClassDefinitionsList.get(0).getSimpleColumn();
 		String aliasColumnName = (StringUtils.isEmpty(simpleColumn.getAliasColumnName()) ? simpleColumn.getColumnName()
 				: simpleColumn.getAliasColumnName());
@@ -1904,7 +2046,7 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 	}
 
 	private ResultSetHandler makeMultiSelectHandler() throws Exception {
-		session.forceFlush(SQLParserUtil.getTableNames(sql, session.getDialect()));
+		session.forceFlush(getTableNames(sql));
 		ResultSetHandler resultSetHandler = new MultiSelectHandler(session, sql, resultClassDefinitionsList,
 				nextAliasColumnName, allowDuplicateObjects);
 		parsedSql = ((MultiSelectHandler) resultSetHandler).getParsedSql();
@@ -1918,21 +2060,51 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 		return resultSetHandler;
 	}
 
+	/**
+	 * Retorna a análise do SQL para a classe de resultado do cache de metadados,
+	 * analisando o SQL somente na primeira execução. Usa a mesma chave da análise
+	 * antecipada das consultas nomeadas feita pelo EntityCacheManager.
+	 */
+	private SQLQueryAnalyzerResult getAnalyzerResult(String sql, Class<?> resultClass) throws Exception {
+		String key = SQLQueryAnalyzer.getCacheKey(resultClass, sql, !SQLQueryAnalyzer.IGNORE_NOT_USED_ALIAS_TABLE);
+		PersistenceMetadataCache metadataCache = PersistenceMetadataCache.getInstance(session);
+		SQLQueryAnalyzerResult result = (SQLQueryAnalyzerResult) metadataCache.get(key);
+		if (result == null) {
+			result = new SQLQueryAnalyzer(session.getEntityCacheManager(), session.getDialect(),
+					!SQLQueryAnalyzer.IGNORE_NOT_USED_ALIAS_TABLE).analyze(sql, resultClass);
+			metadataCache.put(key, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Retorna os nomes das tabelas do SQL usados para forçar o flush. Usa as
+	 * tabelas informadas em {@link #setTableNames(Set)} quando o SQL é o mesmo
+	 * da consulta; senão o resultado fica no cache de metadados para que o
+	 * mesmo SQL não seja percorrido novamente a cada execução.
+	 */
+	@SuppressWarnings("unchecked")
+	private Set<String> getTableNames(String sql) throws Exception {
+		if ((tableNames != null) && (tableNamesSql != null) && tableNamesSql.equals(sql)) {
+			return tableNames;
+		}
+		PersistenceMetadataCache metadataCache = PersistenceMetadataCache.getInstance(session);
+		Set<String> result = (Set<String>) metadataCache.get("TableNames:" + sql);
+		if (result == null) {
+			result = Collections.unmodifiableSet(SQLParserUtil.getTableNames(sql, session.getDialect()));
+			metadataCache.put("TableNames:" + sql, result);
+		}
+		return result;
+	}
+
 	private ResultSetHandler makeEntityHandler(Class<?> resultClass, Object objectToRefresh) throws Exception {
 
-		session.forceFlush(SQLParserUtil.getTableNames(sql, session.getDialect()));
+		session.forceFlush(getTableNames(sql));
 
 		EntityCache entityCache = session.getEntityCacheManager().getEntityCache(resultClass);
 		ResultSetHandler handler = null;
 
-		SQLQueryAnalyzerResult analyzerResult = (SQLQueryAnalyzerResult) PersistenceMetadataCache
-				.getInstance(session.getEntityCacheManager()).get(resultClass.getName() + ":" + sql);
-		if (analyzerResult == null) {
-			analyzerResult = new SQLQueryAnalyzer(session.getEntityCacheManager(), session.getDialect(),
-					!SQLQueryAnalyzer.IGNORE_NOT_USED_ALIAS_TABLE).analyze(sql, resultClass);
-			PersistenceMetadataCache.getInstance(session.getEntityCacheManager()).put(resultClass.getName() + ":" + sql,
-					analyzerResult);
-		}
+		SQLQueryAnalyzerResult analyzerResult = getAnalyzerResult(sql, resultClass);
 
 		SQLCache transactionCache = new SQLCache();
 
@@ -1959,9 +2131,12 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 		parsedSql = (session.getDialect().supportsLock() ? session.applyLock(parsedSql, resultClass, lockOpts)
 				: parsedSql);
 
-		handler = session.createNewEntityHandler(resultClass, analyzerResult.getExpressionsFieldMapper(),
-				analyzerResult.getColumnAliases(), transactionCache, allowDuplicateObjects, objectToRefresh,
-				firstResult, maxResults, readOnly, lockOptions, fieldsToForceLazy);
+		EntityHandler entityHandler = session.createNewEntityHandler(resultClass,
+				analyzerResult.getExpressionsFieldMapper(), analyzerResult.getColumnAliases(), transactionCache,
+				allowDuplicateObjects, objectToRefresh, firstResult, maxResults, readOnly, lockOptions,
+				fieldsToForceLazy);
+		entityHandler.setBatchFetchSize(batchFetchSize);
+		handler = entityHandler;
 
 		return handler;
 
@@ -2003,6 +2178,16 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 		return fieldsToForceLazy;
 	}
 
+	@Override
+	public SQLQuery setBatchFetchSize(int batchFetchSize) {
+		this.batchFetchSize = batchFetchSize;
+		return this;
+	}
+
+	public int getBatchFetchSize() {
+		return batchFetchSize;
+	}
+
 	@Override
 	public SQLQuery ignoreCompanyId(boolean ignoreCompanyId) {
 		this.ignoreCompanyId = ignoreCompanyId;
@@ -2015,4 +2200,11 @@ public class SQLQueryImpl<T> implements TypedSQLQuery<T>, SQLQuery {
 		return this;
 	}
 
+	@Override
+	public SQLQuery setTableNames(Set<String> tableNames) {
+		this.tableNames = (tableNames == null ? null : Collections.unmodifiableSet(tableNames));
+		this.tableNamesSql = this.sql;
+		return this;
+	}
+
 }
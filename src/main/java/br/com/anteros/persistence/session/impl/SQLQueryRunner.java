@@ -30,7 +30,6 @@ import java.util.Map;
 import java.util.Set;
 
 import br.com.anteros.core.utils.SQLFormatter;
-import br.com.anteros.core.utils.StringUtils;
 import br.com.anteros.persistence.handler.ResultSetHandler;
 import br.com.anteros.persistence.metadata.annotation.type.CallableType;
 import br.com.anteros.persistence.metadata.identifier.IdentifierPostInsert;
@@ -68,7 +67,7 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 		boolean retry = true;
 		while (true) {
 			try {
-				statement = this.prepareStatement(session.getConnection(), sql);
+				statement = this.prepareStatement(session, sql, Statement.NO_GENERATED_KEYS);
 
 				for (int i = 0; i < parameters.length; i++) {
 					if (ShowSQLType.contains(showSql, ShowSQLType.ALL)
@@ -80,23 +79,18 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 									&& ShowSQLType.contains(showSql, ShowSQLType.DELETE))) {
 						showSQLAndParameters(sql, parameters[i], formatSql, listeners, clientId);
 					}
-					this.fillStatement(statement, parameters[i]);
+					this.fillStatement(session, statement, sql, parameters[i]);
 					statement.addBatch();
 				}
 				rows = statement.executeBatch();
 				break;
 
 			} catch (SQLException e) {
-				String message = (e.getCause() != null ? e.getCause().getMessage()+" "+e.getMessage() : e.getMessage());
-				if (retry && StringUtils.isNotEmpty(message) && ((message.toLowerCase().contains("connection")
-						&& ((message.toLowerCase().contains("closed") || message.toLowerCase().contains("lost"))))
-						|| (message.toLowerCase().contains("communications link failure")
-						||	message.toLowerCase().contains("Broken pipe") || message.toLowerCase().contains("Connection was killed") 
-						||  message.toLowerCase().contains("connection reset")))) {
+				if (isConnectionError(session, e) && retry) {
 					retry = false;
-					close(statement);
+					close(session, statement);
 					try {
-						session.invalidateConnection();
+						invalidateConnection(session);
 					} catch (SQLException ex1) {
 						this.rethrow(ex1, sql, new Object[] {}, clientId);
 					}
@@ -104,7 +98,63 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 				}
 				this.rethrow(e, sql, parameters, "");
 			} finally {
-				close(statement);
+				close(session, statement);
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Executa o lote de INSERT's e atribui as chaves geradas retornadas pelo
+	 * getGeneratedKeys aos identificadores na mesma ordem dos parâmetros.
+	 */
+	public int[] batch(SQLSession session, String sql, Object[][] parameters,
+			IdentifierPostInsert[] identifiersPostInsert, ShowSQLType[] showSql, boolean formatSql,
+			List<SQLSessionListener> listeners, String clientId) throws Exception {
+		PreparedStatement statement = null;
+		ResultSet rsGeneratedKeys = null;
+		int[] rows = null;
+		boolean retry = true;
+		while (true) {
+			try {
+				statement = this.prepareStatement(session, sql, Statement.RETURN_GENERATED_KEYS);
+
+				for (int i = 0; i < parameters.length; i++) {
+					if (ShowSQLType.contains(showSql, ShowSQLType.ALL, ShowSQLType.INSERT)) {
+						showSQLAndParameters(sql, parameters[i], formatSql, listeners, clientId);
+					}
+					this.fillStatement(session, statement, sql, parameters[i]);
+					statement.addBatch();
+				}
+				rows = statement.executeBatch();
+
+				rsGeneratedKeys = statement.getGeneratedKeys();
+				int index = 0;
+				while ((index < identifiersPostInsert.length) && rsGeneratedKeys.next()) {
+					identifiersPostInsert[index].setGeneratedValue(rsGeneratedKeys);
+					index++;
+				}
+				if (index < identifiersPostInsert.length)
+					throw new SQLException("O driver retornou " + index + " chave(s) gerada(s) para um lote de "
+							+ identifiersPostInsert.length + " INSERT's. SQL: " + sql);
+				break;
+
+			} catch (SQLException e) {
+				if (isConnectionError(session, e) && retry) {
+					retry = false;
+					close(session, statement);
+					try {
+						invalidateConnection(session);
+					} catch (SQLException ex1) {
+						this.rethrow(ex1, sql, new Object[] {}, clientId);
+					}
+					continue;
+				}
+				this.rethrow(e, sql, parameters, "");
+			} finally {
+				if (rsGeneratedKeys != null)
+					rsGeneratedKeys.close();
+				close(session, statement);
 			}
 		}
 		return rows;
@@ -119,11 +169,11 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 		boolean retry = true;
 		while (true) {
 			try {
-				statement = this.prepareStatement(session.getConnection(), sql);
+				statement = this.prepareStatement(session, sql, Statement.NO_GENERATED_KEYS);
 				if (timeOut > 0)
 					statement.setQueryTimeout(timeOut);
 
-				this.fillStatement(statement, parameters);
+				this.fillStatement(session, statement, sql, parameters);
 				if (ShowSQLType.contains(showSql, ShowSQLType.ALL, ShowSQLType.SELECT)) {
 					showSQLAndParameters(sql, parameters, formatSql, listeners, clientId);
 				}
@@ -133,16 +183,11 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 				break;
 
 			} catch (SQLException e) {
-				String message = (e.getCause() != null ? e.getCause().getMessage()+" "+e.getMessage() : e.getMessage());
-				if (retry && StringUtils.isNotEmpty(message) && ((message.toLowerCase().contains("connection")
-						&& ((message.toLowerCase().contains("closed") || message.toLowerCase().contains("lost"))))
-						|| (message.toLowerCase().contains("communications link failure")
-						||	message.toLowerCase().contains("Broken pipe") || message.toLowerCase().contains("Connection was killed") 		
-						|| message.toLowerCase().contains("connection reset")))) {
+				if (isConnectionError(session, e) && retry) {
 					retry = false;
-					close(statement);
+					close(session, statement);
 					try {
-						session.invalidateConnection();
+						invalidateConnection(session);
 					} catch (SQLException ex1) {
 						this.rethrow(ex1, sql, new Object[] {}, clientId);
 					}
@@ -153,8 +198,7 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 			} finally {
 				if (resultSet != null)
 					resultSet.close();
-				if (statement != null)
-					statement.close();
+				close(session, statement);
 			}
 		}
 		return result;
@@ -170,7 +214,8 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 		boolean retry = true;
 		while (true) {
 			try {
-				statement = new NamedParameterStatement(session.getConnection(), sql, parameters);
+				statement = new NamedParameterStatement(session.getConnection(), getParserResult(session, sql, parameters),
+						Statement.NO_GENERATED_KEYS, getStatementCache(session));
 				if (timeOut > 0)
 					statement.getStatement().setQueryTimeout(timeOut);
 
@@ -186,29 +231,23 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 				result = resultSetHandler.handle(resultSet);
 				break;
 			} catch (SQLException e) {
-				String message = (e.getCause() != null ? e.getCause().getMessage()+" "+e.getMessage() : e.getMessage());
-				if (retry && StringUtils.isNotEmpty(message) && ((message.toLowerCase().contains("connection")
-						&& ((message.toLowerCase().contains("closed") || message.toLowerCase().contains("lost"))))
-						|| (message.toLowerCase().contains("communications link failure") 
-						||	message.toLowerCase().contains("Broken pipe") || message.toLowerCase().contains("Connection was killed") 		
-						|| message.toLowerCase().contains("connection reset")))) {
+				if (isConnectionError(session, e) && retry) {
 					retry = false;
-					close(statement);
+					close(session, statement);
 					try {
-						session.invalidateConnection();
+						invalidateConnection(session);
 					} catch (SQLException ex1) {
 						this.rethrow(ex1, sql, new Object[] {}, clientId);
 					}
 					continue;
 				}
-				statement = null;
 				this.rethrow(e, sql, parameters, clientId);
 
 			} finally {
 				try {
 					close(resultSet);
 				} finally {
-					close(statement);
+					close(session, statement);
 					statement = null;
 				}
 			}
@@ -225,7 +264,7 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 		boolean retry = true;
 		while (true) {
 			try {
-				statement = new NamedParameterStatement(session.getConnection(), sql, parameters);
+				statement = new NamedParameterStatement(session.getConnection(), getParserResult(session, sql, parameters));
 				if (timeOut > 0)
 					statement.getStatement().setQueryTimeout(timeOut);
 
@@ -243,16 +282,11 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 				result.setResultList(((List) resultHandler));
 				break;
 			} catch (SQLException e) {
-				String message = (e.getCause() != null ? e.getCause().getMessage()+" "+e.getMessage() : e.getMessage());
-				if (retry && StringUtils.isNotEmpty(message) && ((message.toLowerCase().contains("connection")
-						&& ((message.toLowerCase().contains("closed") || message.toLowerCase().contains("lost"))))
-						|| (message.toLowerCase().contains("communications link failure") 
-						||	message.toLowerCase().contains("Broken pipe") || message.toLowerCase().contains("Connection was killed") 		
-						|| message.toLowerCase().contains("connection reset")))) {
+				if (isConnectionError(session, e) && retry) {
 					retry = false;
-					close(statement);
+					close(session, statement);
 					try {
-						session.invalidateConnection();
+						invalidateConnection(session);
 					} catch (SQLException ex1) {
 						this.rethrow(ex1, sql, new Object[] {}, clientId);
 					}
@@ -279,7 +313,7 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 				if (timeOut > 0)
 					statement.setQueryTimeout(timeOut);
 
-				this.fillStatement(statement, parameters);
+				this.fillStatement(session, statement, sql, parameters);
 				if (ShowSQLType.contains(showSql, ShowSQLType.ALL, ShowSQLType.SELECT)) {
 					showSQLAndParameters(sql, parameters, formatSql, listeners, clientId);
 				}
@@ -303,22 +337,17 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 				result.setResultList((List<?>) resultHandler);
 				break;
 			} catch (SQLException e) {
-				String message = (e.getCause() != null ? e.getCause().getMessage()+" "+e.getMessage() : e.getMessage());
-				if (retry && StringUtils.isNotEmpty(message) && ((message.toLowerCase().contains("connection")
-						&& ((message.toLowerCase().contains("closed") || message.toLowerCase().contains("lost"))))
-						|| (message.toLowerCase().contains("communications link failure") 
-						||	message.toLowerCase().contains("Broken pipe") || message.toLowerCase().contains("Connection was killed") 		
-						|| message.toLowerCase().contains("connection reset")))) {
+				if (isConnectionError(session, e) && retry) {
 					retry = false;
-					close(statement);
+					close(session, statement);
 					try {
-						session.invalidateConnection();
+						invalidateConnection(session);
 					} catch (SQLException ex1) {
 						this.rethrow(ex1, sql, new Object[] {}, clientId);
 					}
 					continue;
 				}
-				close(statement);
+				close(session, statement);
 				this.rethrow(e, sql, parameters, clientId);
 			}
 		}
@@ -335,7 +364,8 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 		boolean retry = true;
 		while (true) {
 			try {
-				statement = new NamedParameterStatement(session.getConnection(), sql, null);
+				statement = new NamedParameterStatement(session.getConnection(), getParserResult(session, sql, null),
+						Statement.NO_GENERATED_KEYS, getStatementCache(session));
 				if (timeOut > 0)
 					statement.getStatement().setQueryTimeout(timeOut);
 
@@ -353,30 +383,23 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 				result = resultSetHandler.handle(resultSet);
 				break;
 			} catch (SQLException e) {
-				String message = (e.getCause() != null ? e.getCause().getMessage()+" "+e.getMessage() : e.getMessage());
-				if (retry && StringUtils.isNotEmpty(message) && ((message.toLowerCase().contains("connection")
-						&& ((message.toLowerCase().contains("closed") || message.toLowerCase().contains("lost"))))
-						|| (message.toLowerCase().contains("communications link failure") 
-						||	message.toLowerCase().contains("Broken pipe") || message.toLowerCase().contains("Connection was killed") 		
-						||  message.toLowerCase().contains("connection reset")))) {
+				if (isConnectionError(session, e) && retry) {
 					retry = false;
-					close(statement);
+					close(session, statement);
 					try {
-						session.invalidateConnection();
+						invalidateConnection(session);
 					} catch (SQLException ex1) {
 						this.rethrow(ex1, sql, new Object[] {}, clientId);
 					}
 					continue;
 				}
-				close(statement);
-				statement = null;
 				this.rethrow(e, sql, parameters, clientId);
 
 			} finally {
 				try {
 					close(resultSet);
 				} finally {
-					close(statement);
+					close(session, statement);
 				}
 			}
 		}
@@ -414,16 +437,11 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 				break;
 
 			} catch (SQLException e) {
-				String message = (e.getCause() != null ? e.getCause().getMessage()+" "+e.getMessage() : e.getMessage());
-				if (retry && StringUtils.isNotEmpty(message) && ((message.toLowerCase().contains("connection")
-						&& ((message.toLowerCase().contains("closed") || message.toLowerCase().contains("lost"))))
-						|| (message.toLowerCase().contains("communications link failure") 
-						||	message.toLowerCase().contains("Broken pipe") || message.toLowerCase().contains("Connection was killed") 		
-						|| message.toLowerCase().contains("connection reset")))) {
+				if (isConnectionError(session, e) && retry) {
 					retry = false;
-					close(statement);
+					close(session, statement);
 					try {
-						session.invalidateConnection();
+						invalidateConnection(session);
 					} catch (SQLException ex1) {
 						this.rethrow(ex1, "", new Object[] {}, clientId);
 					}
@@ -540,16 +558,11 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 				break;
 
 			} catch (SQLException e) {
-				String message = (e.getCause() != null ? e.getCause().getMessage()+" "+e.getMessage() : e.getMessage());
-				if (retry && StringUtils.isNotEmpty(message) && ((message.toLowerCase().contains("connection")
-						&& ((message.toLowerCase().contains("closed") || message.toLowerCase().contains("lost"))))
-						|| (message.toLowerCase().contains("communications link failure") 
-						||	message.toLowerCase().contains("Broken pipe") || message.toLowerCase().contains("Connection was killed") 
-						|| message.toLowerCase().contains("connection reset")))) {
+				if (isConnectionError(session, e) && retry) {
 					retry = false;
-					close(statement);
+					close(session, statement);
 					try {
-						session.invalidateConnection();
+						invalidateConnection(session);
 					} catch (SQLException ex1) {
 						this.rethrow(ex1, "", new Object[] {}, clientId);
 					}
@@ -595,7 +608,7 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 		boolean retry = true;
 		while (true) {
 			try {
-				statement = new NamedParameterStatement(session.getConnection(), sql, parameters);
+				statement = new NamedParameterStatement(session.getConnection(), getParserResult(session, sql, parameters));
 				for (NamedParameter namedParameter : parameters)
 					statement.setObject(namedParameter.getName(), namedParameter.getValue());
 				if (ShowSQLType.contains(showSql, ShowSQLType.ALL, ShowSQLType.SELECT)) {
@@ -604,16 +617,11 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 				result = this.wrap(statement.executeQuery());
 				break;
 			} catch (SQLException e) {
-				String message = (e.getCause() != null ? e.getCause().getMessage()+" "+e.getMessage() : e.getMessage());
-				if (retry && StringUtils.isNotEmpty(message) && ((message.toLowerCase().contains("connection")
-						&& ((message.toLowerCase().contains("closed") || message.toLowerCase().contains("lost"))))
-						|| (message.toLowerCase().contains("communications link failure") 
-						||	message.toLowerCase().contains("Broken pipe") || message.toLowerCase().contains("Connection was killed") 
-						|| message.toLowerCase().contains("connection reset")))) {
+				if (isConnectionError(session, e) && retry) {
 					retry = false;
-					close(statement);
+					close(session, statement);
 					try {
-						session.invalidateConnection();
+						invalidateConnection(session);
 					} catch (SQLException ex1) {
 						this.rethrow(ex1, sql, new Object[] {}, clientId);
 					}
@@ -638,23 +646,18 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 				statement = this.prepareStatement(session.getConnection(), sql);
 				if (timeOut > 0)
 					statement.setQueryTimeout(timeOut);
-				this.fillStatement(statement, parameters);
+				this.fillStatement(session, statement, sql, parameters);
 				if (ShowSQLType.contains(showSql, ShowSQLType.ALL, ShowSQLType.SELECT)) {
 					showSQLAndParameters(sql, parameters, formatSql, listeners, clientId);
 				}
 				result = this.wrap(statement.executeQuery());
 				break;
 			} catch (SQLException e) {
-				String message = (e.getCause() != null ? e.getCause().getMessage()+" "+e.getMessage() : e.getMessage());
-				if (retry && StringUtils.isNotEmpty(message) && ((message.toLowerCase().contains("connection")
-						&& ((message.toLowerCase().contains("closed") || message.toLowerCase().contains("lost"))))
-						|| (message.toLowerCase().contains("communications link failure") 
-						||	message.toLowerCase().contains("Broken pipe") || message.toLowerCase().contains("Connection was killed") 		
-						|| message.toLowerCase().contains("connection reset")))) {
+				if (isConnectionError(session, e) && retry) {
 					retry = false;
-					close(statement);
+					close(session, statement);
 					try {
-						session.invalidateConnection();
+						invalidateConnection(session);
 					} catch (SQLException ex1) {
 						this.rethrow(ex1, sql, new Object[] {}, clientId);
 					}
@@ -666,6 +669,57 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 		return result;
 	}
 
+	/**
+	 * Executa a consulta com ResultSet somente para frente e somente leitura
+	 * usando o fetch size de streaming do dialeto.
+	 */
+	@Override
+	public ResultSet executeStreamingQuery(SQLSession session, String sql, Object[] parameters, ShowSQLType[] showSql,
+			boolean formatSql, int timeOut, List<SQLSessionListener> listeners, String clientId) throws Exception {
+		PreparedStatement statement = null;
+		try {
+			statement = session.getConnection().prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+					ResultSet.CONCUR_READ_ONLY);
+			statement.setFetchSize(session.getDialect().getStreamingFetchSize());
+			if (timeOut > 0)
+				statement.setQueryTimeout(timeOut);
+			this.fillStatement(session, statement, sql, parameters);
+			if (ShowSQLType.contains(showSql, ShowSQLType.ALL, ShowSQLType.SELECT)) {
+				showSQLAndParameters(sql, parameters, formatSql, listeners, clientId);
+			}
+			return this.wrap(statement.executeQuery());
+		} catch (SQLException e) {
+			close(session, statement);
+			this.rethrow(e, sql, parameters, clientId);
+		}
+		return null;
+	}
+
+	@Override
+	public ResultSet executeStreamingQuery(SQLSession session, String sql, NamedParameter[] parameters,
+			ShowSQLType[] showSql, boolean formatSql, int timeOut, List<SQLSessionListener> listeners, String clientId)
+			throws Exception {
+		NamedParameterStatement statement = null;
+		try {
+			statement = new NamedParameterStatement(session.getConnection(), getParserResult(session, sql, parameters));
+			statement.getStatement().setFetchSize(session.getDialect().getStreamingFetchSize());
+			if (timeOut > 0)
+				statement.getStatement().setQueryTimeout(timeOut);
+			for (NamedParameter param : parameters) {
+				if (!(param instanceof SubstitutedParameter))
+					statement.setObject(param.getName(), param.getValue());
+			}
+			if (ShowSQLType.contains(showSql, ShowSQLType.ALL, ShowSQLType.SELECT)) {
+				showSQLAndParameters(sql, parameters, formatSql, listeners, clientId);
+			}
+			return this.wrap(statement.executeQuery());
+		} catch (SQLException e) {
+			close(session, statement);
+			this.rethrow(e, sql, parameters, clientId);
+		}
+		return null;
+	}
+
 	public ResultSet executeQuery(SQLSession session, String sql, Map<String, Object> parameters, ShowSQLType[] showSql,
 			boolean formatSql, int timeOut, List<SQLSessionListener> listeners, String clientId) throws Exception {
 		ResultSet resultSet = null;
@@ -673,7 +727,7 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 		boolean retry = true;
 		while (true) {
 			try {
-				statement = new NamedParameterStatement(session.getConnection(), sql, null);
+				statement = new NamedParameterStatement(session.getConnection(), getParserResult(session, sql, null));
 				if (timeOut > 0)
 					statement.getStatement().setQueryTimeout(timeOut);
 
@@ -690,16 +744,11 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 				resultSet = this.wrap(statement.executeQuery());
 				break;
 			} catch (SQLException e) {
-				String message = (e.getCause() != null ? e.getCause().getMessage()+" "+e.getMessage() : e.getMessage());
-				if (retry && StringUtils.isNotEmpty(message) && ((message.toLowerCase().contains("connection")
-						&& ((message.toLowerCase().contains("closed") || message.toLowerCase().contains("lost"))))
-						|| (message.toLowerCase().contains("communications link failure") 
-						||	message.toLowerCase().contains("Broken pipe") || message.toLowerCase().contains("Connection was killed") 
-						||  message.toLowerCase().contains("connection reset")))) {
+				if (isConnectionError(session, e) && retry) {
 					retry = false;
-					close(statement);
+					close(session, statement);
 					try {
-						session.invalidateConnection();
+						invalidateConnection(session);
 					} catch (SQLException ex1) {
 						this.rethrow(ex1, sql, new Object[] {}, clientId);
 					}
@@ -708,7 +757,7 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 				this.rethrow(e, sql, parameters, clientId);
 
 			} finally {
-				close(statement);
+				close(session, statement);
 				statement = null;
 			}
 		}
@@ -740,8 +789,8 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 		boolean retry = true;
 		while (true) {
 			try {
-				statement = this.prepareStatement(session.getConnection(), sql);
-				this.fillStatement(statement, parameters);
+				statement = this.prepareStatement(session, sql, Statement.NO_GENERATED_KEYS);
+				this.fillStatement(session, statement, sql, parameters);
 
 				if (sql.toLowerCase().contains("insert") && ShowSQLType.contains(showSql, ShowSQLType.INSERT)) {
 					showSQLAndParameters(sql, parameters, true, listeners, clientId);
@@ -757,16 +806,11 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 				break;
 
 			} catch (SQLException e) {
-				String message = (e.getCause() != null ? e.getCause().getMessage()+" "+e.getMessage() : e.getMessage());
-				if (retry && StringUtils.isNotEmpty(message) && ((message.toLowerCase().contains("connection")
-						&& ((message.toLowerCase().contains("closed") || message.toLowerCase().contains("lost"))))
-						|| (message.toLowerCase().contains("communications link failure") 
-						||	message.toLowerCase().contains("Broken pipe") || message.toLowerCase().contains("Connection was killed") 
-						||  message.toLowerCase().contains("connection reset")))) {
+				if (isConnectionError(session, e) && retry) {
 					retry = false;
-					close(statement);
+					close(session, statement);
 					try {
-						session.invalidateConnection();
+						invalidateConnection(session);
 					} catch (SQLException ex1) {
 						this.rethrow(ex1, sql, new Object[] {}, clientId);
 					}
@@ -777,7 +821,7 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 			} finally
 
 			{
-				close(statement);
+				close(session, statement);
 			}
 		}
 
@@ -795,8 +839,8 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 		boolean retry = true;
 		while (true) {
 			try {
-				statement = session.getConnection().prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-				this.fillStatement(statement, parameters);
+				statement = this.prepareStatement(session, sql, Statement.RETURN_GENERATED_KEYS);
+				this.fillStatement(session, statement, sql, parameters);
 				if (sql.toLowerCase().contains("insert") && ShowSQLType.contains(showSql, ShowSQLType.INSERT)) {
 					showSQLAndParameters(sql, parameters, true, listeners, clientId);
 				} else if (sql.toLowerCase().contains("update") && ShowSQLType.contains(showSql, ShowSQLType.UPDATE)) {
@@ -816,7 +860,8 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 				} else {
 					rsGeneratedKeys.close();
 					if ((identitySelectString != null) && ("".equals(identitySelectString))) {
-						statementGeneratedKeys = session.getConnection().prepareStatement(identitySelectString);
+						statementGeneratedKeys = this.prepareStatement(session, identitySelectString,
+								Statement.NO_GENERATED_KEYS);
 						rsGeneratedKeys = statementGeneratedKeys.executeQuery();
 						if (rsGeneratedKeys.next())
 							identifierPostInsert.setGeneratedValue(rsGeneratedKeys);
@@ -826,16 +871,11 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 				break;
 
 			} catch (SQLException e) {
-				String message = (e.getCause() != null ? e.getCause().getMessage()+" "+e.getMessage() : e.getMessage());
-				if (retry && StringUtils.isNotEmpty(message) && ((message.toLowerCase().contains("connection")
-						&& ((message.toLowerCase().contains("closed") || message.toLowerCase().contains("lost"))))
-						|| (message.toLowerCase().contains("communications link failure") 
-						||	message.toLowerCase().contains("Broken pipe") || message.toLowerCase().contains("Connection was killed") 		
-						|| message.toLowerCase().contains("connection reset")))) {
+				if (isConnectionError(session, e) && retry) {
 					retry = false;
-					close(statement);
+					close(session, statement);
 					try {
-						session.invalidateConnection();
+						invalidateConnection(session);
 					} catch (SQLException ex1) {
 						this.rethrow(ex1, sql, new Object[] {}, clientId);
 					}
@@ -846,8 +886,8 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 			} finally {
 				if (rsGeneratedKeys != null)
 					rsGeneratedKeys.close();
-				close(statement);
-				close(statementGeneratedKeys);
+				close(session, statement);
+				close(session, statementGeneratedKeys);
 			}
 		}
 
@@ -861,7 +901,8 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 		boolean retry = true;
 		while (true) {
 			try {
-				statement = new NamedParameterStatement(session.getConnection(), sql, parameters);
+				statement = new NamedParameterStatement(session.getConnection(), getParserResult(session, sql, parameters),
+						Statement.NO_GENERATED_KEYS, getStatementCache(session));
 				for (NamedParameter namedParameter : parameters) {
 					statement.setObject(namedParameter.getName(), namedParameter.getValue());
 				}
@@ -878,16 +919,11 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 				rows = statement.executeUpdate();
 				break;
 			} catch (SQLException e) {
-				String message = (e.getCause() != null ? e.getCause().getMessage()+" "+e.getMessage() : e.getMessage());
-				if (retry && StringUtils.isNotEmpty(message) && ((message.toLowerCase().contains("connection")
-						&& ((message.toLowerCase().contains("closed") || message.toLowerCase().contains("lost"))))
-						|| (message.toLowerCase().contains("communications link failure") 
-						||	message.toLowerCase().contains("Broken pipe") || message.toLowerCase().contains("Connection was killed") 
-						|| message.toLowerCase().contains("connection reset")))) {
+				if (isConnectionError(session, e) && retry) {
 					retry = false;
-					close(statement);
+					close(session, statement);
 					try {
-						session.invalidateConnection();
+						invalidateConnection(session);
 					} catch (SQLException ex1) {
 						this.rethrow(ex1, sql, new Object[] {}, clientId);
 					}
@@ -896,7 +932,7 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 				this.rethrow(e, sql, parameters, clientId);
 
 			} finally {
-				close(statement);
+				close(session, statement);
 				statement = null;
 			}
 		}
@@ -915,8 +951,8 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 		while (true) {
 			try {
 				ResultSet rsGeneratedKeys;
-				statement = new NamedParameterStatement(session.getConnection(), sql, parameters,
-						Statement.RETURN_GENERATED_KEYS);
+				statement = new NamedParameterStatement(session.getConnection(), getParserResult(session, sql, parameters),
+						Statement.RETURN_GENERATED_KEYS, getStatementCache(session));
 				for (NamedParameter namedParameter : parameters) {
 					statement.setObject(namedParameter.getName(), namedParameter.getValue());
 				}
@@ -937,7 +973,8 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 					identifierPostInsert.setGeneratedValue(rsGeneratedKeys);
 				} else {
 					if ((identitySelectString != null) && ("".equals(identitySelectString))) {
-						stmtGeneratedKeys = session.getConnection().prepareStatement(identitySelectString);
+						stmtGeneratedKeys = this.prepareStatement(session, identitySelectString,
+								Statement.NO_GENERATED_KEYS);
 						ResultSet rsKeys = stmtGeneratedKeys.executeQuery();
 						if (rsKeys.next()) {
 							identifierPostInsert.setGeneratedValue(rsKeys);
@@ -949,16 +986,11 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 				break;
 
 			} catch (SQLException e) {
-				String message = (e.getCause() != null ? e.getCause().getMessage()+" "+e.getMessage() : e.getMessage());
-				if (retry && StringUtils.isNotEmpty(message) && ((message.toLowerCase().contains("connection")
-						&& ((message.toLowerCase().contains("closed") || message.toLowerCase().contains("lost"))))
-						|| (message.toLowerCase().contains("communications link failure") 
-						||	message.toLowerCase().contains("Broken pipe") || message.toLowerCase().contains("Connection was killed") 		
-						|| message.toLowerCase().contains("connection reset")))) {
+				if (isConnectionError(session, e) && retry) {
 					retry = false;
-					close(statement);
+					close(session, statement);
 					try {
-						session.invalidateConnection();
+						invalidateConnection(session);
 					} catch (SQLException ex1) {
 						this.rethrow(ex1, sql, new Object[] {}, clientId);
 					}
@@ -967,11 +999,8 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 				this.rethrow(e, sql, parameters, clientId);
 
 			} finally {
-				if (statement != null)
-					statement.getStatement().close();
-				if (stmtGeneratedKeys!=null) {
-					stmtGeneratedKeys.close();
-				}
+				close(session, statement);
+				close(session, stmtGeneratedKeys);
 				statement = null;
 				stmtGeneratedKeys = null;
 			}
@@ -989,15 +1018,10 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 			try {
 				return session.getConnection().prepareStatement(sql).executeQuery();
 			} catch (SQLException e) {
-				String message = (e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
-				if (retry && StringUtils.isNotEmpty(message) && ((message.toLowerCase().contains("connection")
-						&& ((message.toLowerCase().contains("closed") || message.toLowerCase().contains("lost"))))
-						|| (message.toLowerCase().contains("communications link failure") 
-						||	message.toLowerCase().contains("Broken pipe") || message.toLowerCase().contains("Connection was killed") 		
-						|| message.toLowerCase().contains("connection reset")))) {
+				if (isConnectionError(session, e) && retry) {
 					retry = false;
 					try {
-						session.invalidateConnection();
+						invalidateConnection(session);
 					} catch (SQLException ex1) {
 						this.rethrow(ex1, sql, new Object[] {}, clientId);
 					}
@@ -1025,15 +1049,10 @@ public class SQLQueryRunner extends AbstractSQLRunner {
 				session.getConnection().prepareStatement(ddl).executeUpdate();
 				break;
 			} catch (SQLException e) {
-				String message = (e.getCause() != null ? e.getCause().getMessage()+" "+e.getMessage() : e.getMessage());
-				if (retry && StringUtils.isNotEmpty(message) && ((message.toLowerCase().contains("connection")
-						&& ((message.toLowerCase().contains("closed") || message.toLowerCase().contains("lost"))))
-						|| (message.toLowerCase().contains("communications link failure") 
-						||	message.toLowerCase().contains("Broken pipe") || message.toLowerCase().contains("Connection was killed") 		
-						|| message.toLowerCase().contains("connection reset")))) {
+				if (isConnectionError(session, e) && retry) {
 					retry = false;
 					try {
-						session.invalidateConnection();
+						invalidateConnection(session);
 					} catch (SQLException ex1) {
 						this.rethrow(ex1, ddl, new Object[] {}, clientId);
 					}
@@ -22,12 +22,12 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.sql.Types;
-import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TimeZone;
 
 import javax.sql.DataSource;
 
@@ -41,22 +41,31 @@ import br.com.anteros.persistence.handler.ResultSetHandler;
 import br.com.anteros.persistence.metadata.annotation.type.CallableType;
 import br.com.anteros.persistence.metadata.identifier.IdentifierPostInsert;
 import br.com.anteros.persistence.parameter.NamedParameter;
+import br.com.anteros.persistence.parameter.NamedParameterParserResult;
+import br.com.anteros.persistence.session.AbstractSQLSessionFactoryBase;
 import br.com.anteros.persistence.session.ProcedureResult;
 import br.com.anteros.persistence.session.SQLSession;
+import br.com.anteros.persistence.session.SQLSessionFactory;
 import br.com.anteros.persistence.session.SQLSessionListener;
 import br.com.anteros.persistence.session.SQLSessionResult;
+import br.com.anteros.persistence.session.cache.PersistenceMetadataCache;
+import br.com.anteros.persistence.session.context.ThreadLocalSQLSessionContext;
 import br.com.anteros.persistence.session.impl.SQLQueryRunner;
 import br.com.anteros.persistence.sql.binder.ParameterBinding;
 import br.com.anteros.persistence.sql.dialect.DatabaseDialect;
 import br.com.anteros.persistence.sql.statement.NamedParameterStatement;
+import br.com.anteros.persistence.sql.statement.StatementCache;
 
 public abstract class AbstractSQLRunner {
 
 	protected static Logger log = LoggerProvider.getInstance().getLogger(SQLQueryRunner.class.getName());
+	public static final String NULL_PARAMETER_TYPES_KEY_PREFIX = "NullParameterTypes:";
+	private static final long MILLIS_PER_SECOND = 1000;
+	private static final long MILLIS_PER_DAY = 24 * 60 * 60 * MILLIS_PER_SECOND;
 	protected volatile boolean pmdKnownBroken = false;
 	protected DataSource dataSource;
 	protected Map<String, int[]> cacheOutputTypes = new HashMap<String, int[]>();
-	protected SimpleDateFormat sdf = new SimpleDateFormat("HH:mm:ss");
+	protected TimeZone timeZone = TimeZone.getDefault();
 
 	public AbstractSQLRunner() {
 		super();
@@ -81,49 +90,100 @@ public abstract class AbstractSQLRunner {
 	}
 
 	public void fillStatement(PreparedStatement statement, Object[] parameters) throws Exception {
+		fillStatement(null, statement, null, parameters);
+	}
+
+	/**
+	 * Atribui os parâmetros do statement. Os metadados dos parâmetros só são
+	 * consultados no banco de dados quando um parâmetro é nulo e o tipo não é
+	 * conhecido; com a sessão e o SQL informados os tipos obtidos ficam no cache
+	 * de metadados e a consulta é feita uma única vez para o mesmo SQL.
+	 */
+	public void fillStatement(SQLSession session, PreparedStatement statement, String sql, Object[] parameters)
+			throws Exception {
 		if (parameters == null) {
 			return;
 		}
-		ParameterMetaData parameterMetadata = statement.getParameterMetaData();
-		if (parameterMetadata.getParameterCount() < parameters.length) {
-			log.error("Muitos parâmetros: esperado " + parameterMetadata.getParameterCount() + ", encontrado " + parameters.length);
-			throw new SQLException("Muitos parâmetros: esperado " + parameterMetadata.getParameterCount() + ", encontrado " + parameters.length);
-		}
+		int[] nullParameterTypes = null;
 		for (int i = 0; i < parameters.length; i++) {
 			if (parameters[i] != null) {
 				setParameterValueStatement(statement, parameters[i], i + 1);
 			} else {
-				int sqlType = Types.VARCHAR;
-				if (!pmdKnownBroken) {
-					try {
-						sqlType = parameterMetadata.getParameterType(i + 1);
-					} catch (SQLException e) {
-						pmdKnownBroken = true;
-					}
-				}
-				statement.setNull(i + 1, sqlType);
+				if (nullParameterTypes == null)
+					nullParameterTypes = getNullParameterTypes(session, statement, sql, parameters.length);
+				statement.setNull(i + 1, (i < nullParameterTypes.length ? nullParameterTypes[i] : Types.VARCHAR));
+			}
+		}
+	}
+
+	protected int[] getNullParameterTypes(SQLSession session, PreparedStatement statement, String sql,
+			int parameterCount) throws SQLException {
+		PersistenceMetadataCache cache = null;
+		String key = null;
+		if ((session != null) && (sql != null)) {
+			cache = PersistenceMetadataCache.getInstance(session);
+			key = NULL_PARAMETER_TYPES_KEY_PREFIX + sql;
+			int[] result = (int[]) cache.get(key);
+			if ((result != null) && (result.length >= parameterCount))
+				return result;
+		}
+		int[] result = new int[parameterCount];
+		Arrays.fill(result, Types.VARCHAR);
+		ParameterMetaData parameterMetadata = null;
+		if (!pmdKnownBroken) {
+			try {
+				parameterMetadata = statement.getParameterMetaData();
+			} catch (SQLException e) {
+				pmdKnownBroken = true;
+			}
+		}
+		if (parameterMetadata != null) {
+			if (parameterMetadata.getParameterCount() < parameterCount) {
+				log.error("Muitos parâmetros: esperado " + parameterMetadata.getParameterCount() + ", encontrado "
+						+ parameterCount);
+				throw new SQLException("Muitos parâmetros: esperado " + parameterMetadata.getParameterCount()
+						+ ", encontrado " + parameterCount);
+			}
+			try {
+				for (int i = 0; i < parameterCount; i++)
+					result[i] = parameterMetadata.getParameterType(i + 1);
+			} catch (SQLException e) {
+				pmdKnownBroken = true;
+				Arrays.fill(result, Types.VARCHAR);
 			}
 		}
+		if (cache != null)
+			cache.put(key, result);
+		return result;
 	}
 
 	public void setParameterValueStatement(PreparedStatement statement, Object parameter, int parameterIndex) throws Exception {
 		if (parameter instanceof ParameterBinding) {
 			((ParameterBinding) parameter).bindValue(statement, parameterIndex);
-		} else {
-			if (parameter instanceof Date) {
-				java.sql.Date newParameter = new java.sql.Date(((Date) parameter).getTime());
-				if (sdf.format((Date) parameter).equals("00:00:00")) {
-					statement.setDate(parameterIndex, newParameter);
-				} else {
-					Timestamp ts = new Timestamp(((Date) parameter).getTime());
-					statement.setTimestamp(parameterIndex, ts);
-				}
+		} else if (parameter instanceof Timestamp) {
+			statement.setTimestamp(parameterIndex, (Timestamp) parameter);
+		} else if (parameter instanceof java.sql.Date) {
+			statement.setDate(parameterIndex, (java.sql.Date) parameter);
+		} else if (parameter instanceof Date) {
+			long time = ((Date) parameter).getTime();
+			if (isDateOnly(time)) {
+				statement.setDate(parameterIndex, new java.sql.Date(time));
 			} else {
-				statement.setObject(parameterIndex, parameter);
+				statement.setTimestamp(parameterIndex, new Timestamp(time));
 			}
+		} else {
+			statement.setObject(parameterIndex, parameter);
 		}
 	}
 
+	/**
+	 * Verifica se a hora da data no fuso horário padrão é 00:00:00.
+	 */
+	protected boolean isDateOnly(long time) {
+		long localTime = time + timeZone.getOffset(time);
+		return Math.floorMod(localTime, MILLIS_PER_DAY) < MILLIS_PER_SECOND;
+	}
+
 	public void fillStatementWithBean(PreparedStatement statement, Object bean, PropertyDescriptor[] properties) throws Exception {
 		Object[] params = new Object[properties.length];
 		for (int i = 0; i < properties.length; i++) {
@@ -189,6 +249,70 @@ public abstract class AbstractSQLRunner {
 		return connection.prepareStatement(sql);
 	}
 
+	/**
+	 * Prepara o statement usando o cache de statements da conexão da sessão
+	 * quando habilitado na fábrica de sessões.
+	 */
+	protected PreparedStatement prepareStatement(SQLSession session, String sql, int autoGeneratedKeys) throws Exception {
+		StatementCache statementCache = getStatementCache(session);
+		if (statementCache != null)
+			return statementCache.prepareStatement(session.getConnection(), sql, autoGeneratedKeys);
+		if (autoGeneratedKeys == Statement.NO_GENERATED_KEYS)
+			return prepareStatement(session.getConnection(), sql);
+		return session.getConnection().prepareStatement(sql, autoGeneratedKeys);
+	}
+
+	protected StatementCache getStatementCache(SQLSession session) throws SQLException {
+		SQLSessionFactory sessionFactory = session.getSQLSessionFactory();
+		if (sessionFactory instanceof AbstractSQLSessionFactoryBase)
+			return StatementCache.getInstance(session,
+					((AbstractSQLSessionFactoryBase) sessionFactory).getStatementCacheSize());
+		return null;
+	}
+
+	/**
+	 * Retorna o resultado da troca dos parâmetros nomeados do SQL por "?" do
+	 * cache de metadados da fábrica, analisando o SQL apenas na primeira
+	 * execução. Os parâmetros substituídos fazem parte da chave do cache.
+	 */
+	protected NamedParameterParserResult getParserResult(SQLSession session, String sql, NamedParameter[] parameters) {
+		String key = NamedParameterStatement.getParserResultKey(sql, parameters);
+		PersistenceMetadataCache cache = PersistenceMetadataCache.getInstance(session);
+		NamedParameterParserResult result = (NamedParameterParserResult) cache.get(key);
+		if (result == null) {
+			result = NamedParameterStatement.parse(sql, parameters);
+			cache.put(key, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Verifica se o erro indica que a conexão foi fechada ou perdida. Neste caso
+	 * a conexão da sessão atual da thread é validada no próximo uso.
+	 */
+	protected boolean isConnectionError(SQLSession session, SQLException e) {
+		String message = (e.getCause() != null ? e.getCause().getMessage() + " " + e.getMessage() : e.getMessage());
+		if (StringUtils.isEmpty(message))
+			return false;
+		message = message.toLowerCase();
+		if ((message.contains("connection") && (message.contains("closed") || message.contains("lost")))
+				|| message.contains("communications link failure") || message.contains("broken pipe")
+				|| message.contains("connection was killed") || message.contains("connection reset")) {
+			ThreadLocalSQLSessionContext.connectionFailed(session.getSQLSessionFactory());
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Descarta os statements em cache da conexão atual e invalida a conexão da
+	 * sessão.
+	 */
+	protected void invalidateConnection(SQLSession session) throws SQLException {
+		StatementCache.invalidate(session);
+		session.invalidateConnection();
+	}
+
 	protected Connection prepareConnection() throws Exception {
 		if (this.getDataSource() == null) {
 			log.error("SQLQueryRunner requer um DataSource ou uma conexão para ser executado.");
@@ -297,6 +421,16 @@ public abstract class AbstractSQLRunner {
 			statement.close();
 	}
 
+	/**
+	 * Fecha o statement ou devolve-o ao cache de statements da sessão.
+	 */
+	protected void close(SQLSession session, Statement statement) throws Exception {
+		if (statement instanceof PreparedStatement)
+			StatementCache.close(session, (PreparedStatement) statement);
+		else
+			close(statement);
+	}
+
 	protected void close(ResultSet resultSet) throws Exception {
 		if (resultSet != null)
 			resultSet.close();
@@ -307,6 +441,26 @@ public abstract class AbstractSQLRunner {
 			stmt.close();
 	}
 
+	protected void close(SQLSession session, NamedParameterStatement stmt) throws Exception {
+		close(stmt);
+	}
+
+	/**
+	 * Executa a consulta para leitura em streaming. O chamador deve fechar o
+	 * ResultSet e o seu statement. A implementação padrão não ajusta o fetch
+	 * size.
+	 */
+	public ResultSet executeStreamingQuery(SQLSession session, String sql, Object[] parameters, ShowSQLType[] showSql,
+			boolean formatSql, int timeOut, List<SQLSessionListener> listeners, String clientId) throws Exception {
+		return executeQuery(session, sql, parameters, showSql, formatSql, timeOut, listeners, clientId);
+	}
+
+	public ResultSet executeStreamingQuery(SQLSession session, String sql, NamedParameter[] parameters,
+			ShowSQLType[] showSql, boolean formatSql, int timeOut, List<SQLSessionListener> listeners, String clientId)
+			throws Exception {
+		return executeQuery(session, sql, parameters, showSql, formatSql, timeOut, listeners, clientId);
+	}
+
 	/**
 	 * ABSTRACT METHODS
 	 */
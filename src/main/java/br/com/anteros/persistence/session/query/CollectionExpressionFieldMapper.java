@@ -66,7 +66,7 @@ public class CollectionExpressionFieldMapper extends ExpressionFieldMapper {
 
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	@Override
-	public void execute(SQLSession session, ResultSet resultSet, EntityManaged entityManaged, Object targetObject, Cache transactionCache) throws Exception {
+	public void execute(SQLSession session, ResultSet resultSet, RowMappingPlan rowMappingPlan, EntityManaged entityManaged, Object targetObject, Cache transactionCache) throws Exception {
 
 		if (!session.getEntityCacheManager().getEntityCache(targetObject.getClass()).containsDescriptionField(descriptionField))
 			return;
@@ -114,16 +114,16 @@ public class CollectionExpressionFieldMapper extends ExpressionFieldMapper {
 				/*
 				 * Busca os valores da chave do objeto no resultSet.
 				 */
-				String uniqueId = getUniqueId(resultSet);
+				Object keyValue = getPrimaryKeyValue(resultSet);
 				/*
 				 * Caso não encontre não cria o objeto e retorna
 				 */
-				if (uniqueId == null)
+				if (keyValue == null)
 					return;
 				/*
 				 * Busca o objeto no cache da transação SQL.
 				 */
-				newObject = getObjectFromCache(session, concreteEntityCache, uniqueId, transactionCache);
+				newObject = getObjectFromCache(session, concreteEntityCache, keyValue, transactionCache);
 				if (newObject == null) {
 					/*
 					 * Se não encontrou instancia um novo objeto
@@ -142,7 +142,7 @@ public class CollectionExpressionFieldMapper extends ExpressionFieldMapper {
 					 * necessidade em outro ponto da árvore do objeto principal evitando assim criar objetos repetidos
 					 * para a mesma chave.
 					 */
-					addObjectToCache(session, concreteEntityCache, newObject, uniqueId, transactionCache);
+					addObjectToCache(session, concreteEntityCache, newObject, keyValue, transactionCache);
 					/*
 					 * Adiciona o objeto instanciado na coleção
 					 */
@@ -160,16 +160,16 @@ public class CollectionExpressionFieldMapper extends ExpressionFieldMapper {
 				/*
 				 * Busca os valores da chave do objeto no resultSet.
 				 */
-				String uniqueId = getUniqueId(resultSet);
+				Object keyValue = getPrimaryKeyValue(resultSet);
 				/*
 				 * Caso não encontre não cria o objeto e retorna
 				 */
-				if (uniqueId == null)
+				if (keyValue == null)
 					return;
 				/*
 				 * Busca o objeto no cache da transação SQL.
 				 */
-				newObject = getObjectFromCache(session, targetEntityCache, uniqueId, transactionCache);
+				newObject = getObjectFromCache(session, targetEntityCache, keyValue, transactionCache);
 				boolean createdNewObject = false;
 				if (newObject == null) {
 					/*
@@ -190,7 +190,7 @@ public class CollectionExpressionFieldMapper extends ExpressionFieldMapper {
 					 * necessidade em outro ponto da árvore do objeto principal evitando assim criar objetos repetidos
 					 * para a mesma chave.
 					 */
-					addObjectToCache(session, targetEntityCache, newObject, uniqueId, transactionCache);
+					addObjectToCache(session, targetEntityCache, newObject, keyValue, transactionCache);
 					/*
 					 * Adiciona o objeto instanciado na coleção
 					 */
@@ -214,24 +214,25 @@ public class CollectionExpressionFieldMapper extends ExpressionFieldMapper {
 		 * terminar a árvore de expressões.
 		 */
 		for (ExpressionFieldMapper expField : children) {
-			expField.execute(session, resultSet, entityManaged, newObject, transactionCache);
+			expField.execute(session, resultSet, rowMappingPlan, entityManaged, newObject, transactionCache);
 		}
 
 	}
 
 	/**
-	 * Retorna a chave única do objeto buscando os valores no resultSet.
+	 * Retorna o valor da chave do objeto buscando os valores no resultSet. Para chaves compostas retorna um array com
+	 * os valores na ordem das colunas da chave.
 	 * 
 	 * @param resultSet
 	 *            Resultado do SQL
-	 * @return Chave única
+	 * @return Valor da chave ou nulo se algum valor for nulo
 	 * @throws SQLException
 	 */
-	protected String getUniqueId(ResultSet resultSet) throws SQLException {
+	protected Object getPrimaryKeyValue(ResultSet resultSet) throws SQLException {
+		Object[] values = new Object[aliasPrimaryKeyColumns.length];
 		int index;
-		StringBuilder uniqueIdTemp = new StringBuilder("");
-		boolean appendSeparator = false;
-		for (String aliasColumnName : aliasPrimaryKeyColumns) {
+		for (int i = 0; i < aliasPrimaryKeyColumns.length; i++) {
+			String aliasColumnName = aliasPrimaryKeyColumns[i];
 			/*
 			 * Busca índice da coluna dentro do resultSet
 			 */
@@ -243,21 +244,11 @@ public class CollectionExpressionFieldMapper extends ExpressionFieldMapper {
 				 */
 				throw new SQLException("NÃO ACHOU COLUNA " + aliasColumnName);
 			}
-			/*
-			 * Concatena o valor da coluna na chave do objeto
-			 */
-			if (appendSeparator)
-				uniqueIdTemp.append("_");
-			Object value = resultSet.getObject(index);
-			if (value == null)
+			values[i] = resultSet.getObject(index);
+			if (values[i] == null)
 				return null;
-			uniqueIdTemp.append(value);
-			appendSeparator = true;
 		}
-		/*
-		 * Retorna o chave única. Se for uma string "null" retorna como nula
-		 */
-		return (uniqueIdTemp.toString().equals("null") ? null : uniqueIdTemp.toString());
+		return (values.length == 1 ? values[0] : values);
 	}
 
 	@Override
@@ -49,8 +49,8 @@ public class EntityExpressionFieldMapper extends ExpressionFieldMapper {
 	}
 
 	@Override
-	public void execute(SQLSession session, ResultSet resultSet, EntityManaged entityManaged, Object targetObject,
-			Cache transactionCache) throws Exception {
+	public void execute(SQLSession session, ResultSet resultSet, RowMappingPlan rowMappingPlan,
+			EntityManaged entityManaged, Object targetObject, Cache transactionCache) throws Exception {
 		if (descriptionField == null)
 			return;
 
@@ -99,17 +99,17 @@ public class EntityExpressionFieldMapper extends ExpressionFieldMapper {
 					/*
 					 * Busca os valores da chave do objeto no resultSet.
 					 */
-					String uniqueId = getUniqueId(resultSet);
+					Object keyValue = getPrimaryKeyValue(resultSet);
 					/*
 					 * Caso não encontre não cria o objeto e retorna
 					 */
-					if (uniqueId == null)
+					if (keyValue == null)
 						return;
 
 					/*
 					 * Busca o objeto no cache da transação SQL.
 					 */
-					newObject = getObjectFromCache(session, concreteEntityCache, uniqueId, transactionCache);
+					newObject = getObjectFromCache(session, concreteEntityCache, keyValue, transactionCache);
 					/*
 					 * Se não encontrou instancia um novo objeto
 					 */
@@ -121,7 +121,7 @@ public class EntityExpressionFieldMapper extends ExpressionFieldMapper {
 						 * quando houver necessidade em outro ponto da árvore do objeto principal
 						 * evitando assim criar objetos repetidos para a mesma chave.
 						 */
-						addObjectToCache(session, concreteEntityCache, newObject, uniqueId, transactionCache);
+						addObjectToCache(session, concreteEntityCache, newObject, keyValue, transactionCache);
 					}
 				} catch (Exception e) {
 					throw new EntityHandlerException("Para que seja criado o objeto da "
@@ -134,16 +134,16 @@ public class EntityExpressionFieldMapper extends ExpressionFieldMapper {
 				/*
 				 * Busca os valores da chave do objeto no resultSet.
 				 */
-				String uniqueId = getUniqueId(resultSet);
+				Object keyValue = getPrimaryKeyValue(resultSet);
 				/*
 				 * Caso não encontre não cria o objeto e retorna
 				 */
-				if (uniqueId == null)
+				if (keyValue == null)
 					return;
 				/*
 				 * Busca o objeto no cache da transação SQL.
 				 */
-				newObject = getObjectFromCache(session, targetEntityCache, uniqueId, transactionCache);
+				newObject = getObjectFromCache(session, targetEntityCache, keyValue, transactionCache);
 				if (newObject == null) {
 					newObject = targetEntityCache.getEntityClass().newInstance();
 					createdNewObject = true;
@@ -152,7 +152,7 @@ public class EntityExpressionFieldMapper extends ExpressionFieldMapper {
 					 * quando houver necessidade em outro ponto da árvore do objeto principal
 					 * evitando assim criar objetos repetidos para a mesma chave.
 					 */
-					addObjectToCache(session, targetEntityCache, newObject, uniqueId, transactionCache);
+					addObjectToCache(session, targetEntityCache, newObject, keyValue, transactionCache);
 				}
 			}
 			/*
@@ -176,7 +176,7 @@ public class EntityExpressionFieldMapper extends ExpressionFieldMapper {
 		 * assim sucessivamente até terminar a árvore de expressões.
 		 */
 		for (ExpressionFieldMapper expField : children) {
-			expField.execute(session, resultSet, newEntityManaged, newObject, transactionCache);
+			expField.execute(session, resultSet, rowMappingPlan, newEntityManaged, newObject, transactionCache);
 		}
 
 		/*
@@ -201,17 +201,19 @@ public class EntityExpressionFieldMapper extends ExpressionFieldMapper {
 	}
 
 	/**
-	 * Retorna a chave única do objeto buscando os valores no resultSet.
+	 * Retorna o valor da chave do objeto buscando os valores no resultSet. Para
+	 * chaves compostas retorna um array com os valores na ordem das colunas da
+	 * chave.
 	 * 
 	 * @param resultSet Resultado do SQL
-	 * @return Chave única
+	 * @return Valor da chave ou nulo se algum valor for nulo
 	 * @throws SQLException
 	 */
-	protected String getUniqueId(ResultSet resultSet) throws Exception {
+	protected Object getPrimaryKeyValue(ResultSet resultSet) throws Exception {
+		Object[] values = new Object[aliasPrimaryKeyColumns.length];
 		int index;
-		StringBuilder uniqueIdTemp = new StringBuilder("");
-		boolean appendSeparator = false;
-		for (String aliasColumnName : aliasPrimaryKeyColumns) {
+		for (int i = 0; i < aliasPrimaryKeyColumns.length; i++) {
+			String aliasColumnName = aliasPrimaryKeyColumns[i];
 			/*
 			 * Busca indice da coluna dentro do resultSet
 			 */
@@ -230,18 +232,11 @@ public class EntityExpressionFieldMapper extends ExpressionFieldMapper {
 						+ targetEntityCache.getEntityClass(), e);
 			}
 
-			/*
-			 * Concatena o valor da coluna na chave do objeto
-			 */
-			if (appendSeparator)
-				uniqueIdTemp.append("_");
-			uniqueIdTemp.append(resultSet.getObject(index));
-			appendSeparator = true;
+			values[i] = resultSet.getObject(index);
+			if (values[i] == null)
+				return null;
 		}
-		/*
-		 * Retorna o chave única. Se for uma string "null" retorna como nula
-		 */
-		return (uniqueIdTemp.toString().equals("null") ? null : uniqueIdTemp.toString());
+		return (values.length == 1 ? values[0] : values);
 	}
 
 	@Override
@@ -34,6 +34,7 @@ import br.com.anteros.persistence.metadata.annotation.type.ScopeType;
 import br.com.anteros.persistence.metadata.descriptor.DescriptionField;
 import br.com.anteros.persistence.session.SQLSession;
 import br.com.anteros.persistence.session.cache.Cache;
+import br.com.anteros.persistence.session.cache.EntityKey;
 
 /**
  * Classe que representa uma expressão a ser processada para criação de um campo
@@ -74,8 +75,21 @@ public abstract class ExpressionFieldMapper {
 	 * @throws Exception
 	 *             Exceção gerada
 	 */
-	public abstract void execute(SQLSession session, ResultSet resultSet, EntityManaged entityManaged,
-			Object targetObject, Cache transactionCache) throws Exception;
+	public void execute(SQLSession session, ResultSet resultSet, EntityManaged entityManaged, Object targetObject,
+			Cache transactionCache) throws Exception {
+		execute(session, resultSet, null, entityManaged, targetObject, transactionCache);
+	}
+
+	/**
+	 * Executa a expressão lendo as colunas simples pelo plano de leitura
+	 * compilado para o ResultSet.
+	 * 
+	 * @param rowMappingPlan
+	 *            Plano de leitura do ResultSet ou nulo para ler as colunas pelo
+	 *            nome.
+	 */
+	public abstract void execute(SQLSession session, ResultSet resultSet, RowMappingPlan rowMappingPlan,
+			EntityManaged entityManaged, Object targetObject, Cache transactionCache) throws Exception;
 
 	public EntityCache getTargetEntityCache() {
 		return targetEntityCache;
@@ -169,15 +183,18 @@ public abstract class ExpressionFieldMapper {
 	 *            Sessão
 	 * @param targetEntityCache
 	 *            Entidade
-	 * @param uniqueId
-	 *            Chave primária do objeto
+	 * @param keyValue
+	 *            Valor da chave primária do objeto
 	 * @param transactionCache
 	 *            Cache da transação
 	 * @return Objeto correspondente a entidade e chave informada ou nulo caso
 	 *         não exista no cache.
 	 */
-	protected Object getObjectFromCache(SQLSession session, EntityCache targetEntityCache, String uniqueId,
+	protected Object getObjectFromCache(SQLSession session, EntityCache targetEntityCache, Object keyValue,
 			Cache transactionCache) {
+		EntityKey entityKey = EntityKey.of(targetEntityCache, keyValue);
+		if (entityKey == null)
+			return null;
 		Object result = null;
 		/*
 		 * Se a classe for abstrata pega todas as implementações não abstratas e
@@ -186,12 +203,11 @@ public abstract class ExpressionFieldMapper {
 		if (targetEntityCache.isAbstractClass()) {
 			EntityCache[] entitiesCache = session.getEntityCacheManager().getEntitiesBySuperClass(targetEntityCache);
 			for (EntityCache entityCache : entitiesCache) {
-				StringBuilder sb = new StringBuilder();
-				sb.append(entityCache.getEntityClass().getName()).append("_").append(uniqueId);
-				result = transactionCache.get(sb.toString());
+				EntityKey key = entityKey.forEntity(entityCache);
+				result = transactionCache.get(key);
 				if (result != null)
 					break;
-				result = session.getPersistenceContext().getObjectFromCache(sb.toString());
+				result = session.getPersistenceContext().getObjectFromCache(key);
 				if (result != null)
 					break;
 			}
@@ -199,12 +215,10 @@ public abstract class ExpressionFieldMapper {
 			/*
 			 * Caso não seja abstrata localiza classe+ID no entityCache
 			 */
-			StringBuilder sb = new StringBuilder();
-			sb.append(targetEntityCache.getEntityClass().getName()).append("_").append(uniqueId);
-			result = transactionCache.get(sb.toString());
+			result = transactionCache.get(entityKey);
 
 			if (result == null)
-				result = session.getPersistenceContext().getObjectFromCache(sb.toString());
+				result = session.getPersistenceContext().getObjectFromCache(entityKey);
 		}
 		return result;
 	}
@@ -218,24 +232,25 @@ public abstract class ExpressionFieldMapper {
 	 *            Entidade
 	 * @param targetObject
 	 *            Objeto a ser adicionado no cache
-	 * @param uniqueId
-	 *            Chave do objeto
+	 * @param keyValue
+	 *            Valor da chave do objeto
 	 * @param transactionCache
 	 *            Cache de transação
 	 */
-	protected void addObjectToCache(SQLSession session, EntityCache entityCache, Object targetObject, String uniqueId,
+	protected void addObjectToCache(SQLSession session, EntityCache entityCache, Object targetObject, Object keyValue,
 			Cache transactionCache) {
+		EntityKey entityKey = EntityKey.of(entityCache, keyValue);
+		if (entityKey == null)
+			return;
 		/*
 		 * Adiciona o objeto no Cache da sessão ou da transação para evitar
 		 * buscar o objeto novamente no mesmo processamento
 		 */
-		StringBuilder sb = new StringBuilder();
-		sb.append(entityCache.getEntityClass().getName()).append("_").append(uniqueId);
 		if ((entityCache.getCacheScope().equals(ScopeType.TRANSACTION)) && (transactionCache != null)) {
-			transactionCache.put(sb.toString(), targetObject,
+			transactionCache.put(entityKey, targetObject,
 					entityCache.getMaxTimeCache());
 		} else {
-			session.getPersistenceContext().addObjectToCache(sb.toString(),
+			session.getPersistenceContext().addObjectToCache(entityKey,
 					targetObject, entityCache.getMaxTimeCache());
 		}
 	}
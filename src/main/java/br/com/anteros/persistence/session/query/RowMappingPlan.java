@@ -0,0 +1,242 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.session.query;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plano de leitura das colunas simples de um ResultSet.
+ *
+ * Cada {@link SimpleExpressionFieldMapper} recebe um número (slot) quando o
+ * resultado da análise do SQL é criado. O plano resolve uma única vez por
+ * ResultSet o índice da coluna de cada slot e escolhe o método de leitura pelo
+ * tipo do campo e da coluna (getLong, getInt, getBigDecimal, getTimestamp,
+ * getString), evitando a busca da coluna pelo nome em cada linha.
+ *
+ * @author Edson Martins - Anteros
+ *
+ */
+public class RowMappingPlan {
+
+	private final ResultSet resultSet;
+	private final int[] columnIndexes;
+	private final ColumnReader[] readers;
+
+	private RowMappingPlan(ResultSet resultSet, int[] columnIndexes, ColumnReader[] readers) {
+		this.resultSet = resultSet;
+		this.columnIndexes = columnIndexes;
+		this.readers = readers;
+	}
+
+	/**
+	 * Numera os mapeadores de campos simples da árvore de expressões. Deve ser
+	 * chamado antes das expressões serem compartilhadas entre threads.
+	 */
+	public static void assignColumnSlots(Collection<ExpressionFieldMapper> expressionsFieldMapper) {
+		List<SimpleExpressionFieldMapper> mappers = new ArrayList<SimpleExpressionFieldMapper>();
+		collectSimpleMappers(expressionsFieldMapper, mappers);
+		for (int i = 0; i < mappers.size(); i++)
+			mappers.get(i).setColumnSlot(i);
+	}
+
+	/**
+	 * Compila o plano para o ResultSet informado.
+	 *
+	 * @param typedReads
+	 *            Se falso todas as colunas são lidas com getObject.
+	 */
+	public static RowMappingPlan compile(ResultSet resultSet, Collection<ExpressionFieldMapper> expressionsFieldMapper,
+			boolean typedReads) throws SQLException {
+		List<SimpleExpressionFieldMapper> mappers = new ArrayList<SimpleExpressionFieldMapper>();
+		collectSimpleMappers(expressionsFieldMapper, mappers);
+		int slots = 0;
+		for (SimpleExpressionFieldMapper mapper : mappers)
+			slots = Math.max(slots, mapper.getColumnSlot() + 1);
+
+		ResultSetMetaData metaData = resultSet.getMetaData();
+		Map<String, Integer> indexes = new HashMap<String, Integer>();
+		for (int i = metaData.getColumnCount(); i > 0; i--)
+			indexes.put(metaData.getColumnLabel(i).toUpperCase(), i);
+
+		int[] columnIndexes = new int[slots];
+		ColumnReader[] readers = new ColumnReader[slots];
+		for (SimpleExpressionFieldMapper mapper : mappers) {
+			int slot = mapper.getColumnSlot();
+			if (slot < 0)
+				continue;
+			Integer index = (mapper.getAliasColumnName() == null ? null
+					: indexes.get(mapper.getAliasColumnName().toUpperCase()));
+			if (index == null)
+				continue;
+			columnIndexes[slot] = index;
+			readers[slot] = (typedReads
+					? ColumnReader.of(mapper.getValueType(), metaData.getColumnType(index), metaData.getPrecision(index),
+							metaData.getScale(index))
+					: ColumnReader.OBJECT);
+		}
+		return new RowMappingPlan(resultSet, columnIndexes, readers);
+	}
+
+	private static void collectSimpleMappers(Collection<ExpressionFieldMapper> expressionsFieldMapper,
+			List<SimpleExpressionFieldMapper> result) {
+		for (ExpressionFieldMapper mapper : expressionsFieldMapper) {
+			if (mapper instanceof SimpleExpressionFieldMapper)
+				result.add((SimpleExpressionFieldMapper) mapper);
+			collectSimpleMappers(mapper.children, result);
+		}
+	}
+
+	public boolean isCompiledFor(ResultSet resultSet) {
+		return this.resultSet == resultSet;
+	}
+
+	/**
+	 * Retorna o índice da coluna do mapeador ou zero caso a coluna não tenha sido
+	 * resolvida pelo plano.
+	 */
+	public int getColumnIndex(SimpleExpressionFieldMapper mapper) {
+		int slot = mapper.getColumnSlot();
+		if ((slot < 0) || (slot >= columnIndexes.length))
+			return 0;
+		return columnIndexes[slot];
+	}
+
+	public ColumnReader getColumnReader(SimpleExpressionFieldMapper mapper) {
+		int slot = mapper.getColumnSlot();
+		if ((slot < 0) || (slot >= readers.length))
+			return null;
+		return readers[slot];
+	}
+
+	/**
+	 * Leitura do valor de uma coluna pelo índice.
+	 */
+	public static abstract class ColumnReader {
+
+		private static final int MAX_LONG_PRECISION = 18;
+		private static final int MAX_INTEGER_PRECISION = 9;
+
+		public static final ColumnReader OBJECT = new ColumnReader() {
+			@Override
+			public Object read(ResultSet resultSet, int index) throws SQLException {
+				Object value = resultSet.getObject(index);
+				/*
+				 * Tratamento diferenciado para os tipos de data.
+				 */
+				if (value instanceof Date)
+					value = resultSet.getTimestamp(index);
+				return value;
+			}
+		};
+
+		public static final ColumnReader LONG = new ColumnReader() {
+			@Override
+			public Object read(ResultSet resultSet, int index) throws SQLException {
+				long value = resultSet.getLong(index);
+				return (resultSet.wasNull() ? null : Long.valueOf(value));
+			}
+		};
+
+		public static final ColumnReader INTEGER = new ColumnReader() {
+			@Override
+			public Object read(ResultSet resultSet, int index) throws SQLException {
+				int value = resultSet.getInt(index);
+				return (resultSet.wasNull() ? null : Integer.valueOf(value));
+			}
+		};
+
+		public static final ColumnReader BIG_DECIMAL = new ColumnReader() {
+			@Override
+			public Object read(ResultSet resultSet, int index) throws SQLException {
+				return resultSet.getBigDecimal(index);
+			}
+		};
+
+		public static final ColumnReader TIMESTAMP = new ColumnReader() {
+			@Override
+			public Object read(ResultSet resultSet, int index) throws SQLException {
+				return resultSet.getTimestamp(index);
+			}
+		};
+
+		public static final ColumnReader STRING = new ColumnReader() {
+			@Override
+			public Object read(ResultSet resultSet, int index) throws SQLException {
+				return resultSet.getString(index);
+			}
+		};
+
+		public abstract Object read(ResultSet resultSet, int index) throws SQLException;
+
+		/**
+		 * Escolhe a leitura pelo tipo do campo e da coluna. Usa getObject quando a
+		 * combinação não é conhecida. Colunas NUMERIC/DECIMAL sem casas decimais só
+		 * são lidas como long ou int quando a precisão cabe no tipo (18 e 9
+		 * dígitos), senão são lidas com getBigDecimal para não perder dígitos.
+		 */
+		public static ColumnReader of(Class<?> valueType, int columnType, int precision, int scale) {
+			if (valueType == null)
+				return OBJECT;
+			if ((valueType == Long.class) || (valueType == long.class)) {
+				if (isInteger(columnType))
+					return LONG;
+				if (isDecimal(columnType))
+					return (isWholeNumber(precision, scale, MAX_LONG_PRECISION) ? LONG : BIG_DECIMAL);
+			} else if ((valueType == Integer.class) || (valueType == int.class)) {
+				if ((columnType == Types.INTEGER) || (columnType == Types.SMALLINT) || (columnType == Types.TINYINT))
+					return INTEGER;
+				if (isDecimal(columnType))
+					return (isWholeNumber(precision, scale, MAX_INTEGER_PRECISION) ? INTEGER : BIG_DECIMAL);
+			} else if (valueType == BigDecimal.class) {
+				if (isDecimal(columnType))
+					return BIG_DECIMAL;
+			} else if ((valueType == Date.class) || (valueType == Timestamp.class)) {
+				if ((columnType == Types.TIMESTAMP) || (columnType == Types.DATE) || (columnType == Types.TIME))
+					return TIMESTAMP;
+			} else if (valueType == String.class) {
+				if ((columnType == Types.VARCHAR) || (columnType == Types.CHAR) || (columnType == Types.LONGVARCHAR)
+						|| (columnType == Types.NVARCHAR) || (columnType == Types.NCHAR)
+						|| (columnType == Types.LONGNVARCHAR))
+					return STRING;
+			}
+			return OBJECT;
+		}
+
+		private static boolean isInteger(int columnType) {
+			return (columnType == Types.BIGINT) || (columnType == Types.INTEGER) || (columnType == Types.SMALLINT)
+					|| (columnType == Types.TINYINT);
+		}
+
+		private static boolean isWholeNumber(int precision, int scale, int maxPrecision) {
+			return (scale == 0) && (precision > 0) && (precision <= maxPrecision);
+		}
+
+		private static boolean isDecimal(int columnType) {
+			return (columnType == Types.NUMERIC) || (columnType == Types.DECIMAL);
+		}
+	}
+}
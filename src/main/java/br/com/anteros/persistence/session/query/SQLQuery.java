@@ -16,10 +16,14 @@ import java.io.InputStream;
 import java.math.BigDecimal;
 import java.sql.ResultSet;
 import java.sql.Time;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
+import br.com.anteros.persistence.dsl.osql.lang.CloseableIterator;
 import br.com.anteros.persistence.handler.ResultClassDefinition;
 import br.com.anteros.persistence.handler.ResultSetHandler;
 import br.com.anteros.persistence.metadata.EntityCache;
@@ -30,6 +34,7 @@ import br.com.anteros.persistence.session.ProcedureResult;
 import br.com.anteros.persistence.session.SQLSession;
 import br.com.anteros.persistence.session.SQLSessionResult;
 import br.com.anteros.persistence.session.cache.Cache;
+import br.com.anteros.persistence.session.cache.EntityKey;
 import br.com.anteros.persistence.session.lock.LockMode;
 import br.com.anteros.persistence.session.lock.LockOptions;
 
@@ -153,6 +158,28 @@ public interface SQLQuery {
 
 	public ScrollableResultSet getScrollableResultSet() throws Exception;
 
+	/**
+	 * Executa a consulta lendo o resultado em streaming: o ResultSet é percorrido
+	 * somente para frente e cada objeto é montado na chamada de next(). O
+	 * iterador deve ser fechado caso não seja percorrido até o fim.
+	 */
+	public CloseableIterator iterate() throws Exception;
+
+	/**
+	 * Igual a {@link #iterate()}; a cada evictionSize objetos retornados os
+	 * objetos anteriores são retirados do contexto de persistência para que a
+	 * memória não cresça com o resultado. Zero não retira os objetos.
+	 */
+	public CloseableIterator iterate(int evictionSize) throws Exception;
+
+	/**
+	 * Retorna o resultado em streaming como um Stream. O Stream deve ser fechado
+	 * caso não seja percorrido até o fim.
+	 */
+	public Stream stream() throws Exception;
+
+	public Stream stream(int evictionSize) throws Exception;
+
 	public void refresh(Object entity) throws Exception;
 
 	public ResultSet executeQuery() throws Exception;
@@ -160,6 +187,15 @@ public interface SQLQuery {
 	public Object loadData(EntityCache entityCacheTarget, Object owner, final DescriptionField descriptionFieldOwner, Map<String, Object> columnKeyTarget,
 			Cache transactionCache) throws Exception;
 
+	/**
+	 * Carrega o campo para vários objetos de uma vez usando IN (...) na coluna
+	 * retornada por {@link DescriptionField#getBatchFetchColumn()}. Retorna um
+	 * mapa com a lista de objetos encontrados pela chave normalizada
+	 * ({@link EntityKey}) do valor na entidade destino.
+	 */
+	public Map<EntityKey, List<Object>> loadDataBatch(final DescriptionField descriptionFieldOwner, Collection<Object> keyValues,
+			Cache transactionCache) throws Exception;
+
 	public SQLQuery setLockOptions(LockOptions lockOptions);
 
 	public LockOptions getLockOptions();
@@ -196,8 +232,19 @@ public interface SQLQuery {
 	
 	public String getFieldsToForceLazy();
 
+	public SQLQuery setBatchFetchSize(int batchFetchSize);
+
+	public int getBatchFetchSize();
+
 	public SQLQuery ignoreCompanyId(boolean ignoreCompanyId);
 
 	public SQLQuery ignoreTenantId(boolean ignoreTenantId);
 
+	/**
+	 * Informa as tabelas (em maiúsculo) já conhecidas do SQL da consulta,
+	 * evitando a análise do SQL para forçar o flush. Null volta a analisar o
+	 * SQL.
+	 */
+	public SQLQuery setTableNames(Set<String> tableNames);
+
 }
@@ -89,6 +89,18 @@ public class SQLQueryAnalyzer implements Comparator<String[]> {
 		this.ignoreNotUsedAliasTable = ignoreNotUsedAliasTable;
 	}
 
+	/**
+	 * Retorna a chave da análise do SQL no cache de metadados. A análise depende
+	 * do SQL, da classe de resultado e de ignoreNotUsedAliasTable, por isso as
+	 * análises feitas com e sem ignoreNotUsedAliasTable não compartilham a
+	 * entrada.
+	 */
+	public static String getCacheKey(Class<?> resultClass, String sql, boolean ignoreNotUsedAliasTable) {
+		if (ignoreNotUsedAliasTable)
+			return "IgnoreNotUsedAlias:" + resultClass.getName() + ":" + sql;
+		return resultClass.getName() + ":" + sql;
+	}
+
 	/**
 	 * Analisa um SQL validando se sua estrutura permite montar objetos para
 	 * classe de resultado. Monta uma lista de expressões que serão utilizadas
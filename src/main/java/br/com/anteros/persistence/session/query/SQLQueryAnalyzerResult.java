@@ -43,6 +43,8 @@ public class SQLQueryAnalyzerResult {
 		this.parsedSql = parsedSql;
 		this.expressionsFieldMapper = expressionsFieldMapper;
 		this.allowApplyLockStrategy = allowApplyLockStrategy;
+		if (expressionsFieldMapper != null)
+			RowMappingPlan.assignColumnSlots(expressionsFieldMapper);
 	}
 
 	public Set<SQLQueryAnalyserAlias> getAliases() {
@@ -13,7 +13,9 @@
 package br.com.anteros.persistence.session.query;
 
 import java.sql.ResultSet;
+import java.sql.SQLException;
 
+import br.com.anteros.persistence.handler.EntityHandlerException;
 import br.com.anteros.persistence.metadata.EntityCache;
 import br.com.anteros.persistence.metadata.EntityManaged;
 import br.com.anteros.persistence.metadata.FieldEntityValue;
@@ -21,6 +23,7 @@ import br.com.anteros.persistence.metadata.descriptor.DescriptionField;
 import br.com.anteros.persistence.metadata.type.EntityStatus;
 import br.com.anteros.persistence.session.SQLSession;
 import br.com.anteros.persistence.session.cache.Cache;
+import br.com.anteros.persistence.session.query.RowMappingPlan.ColumnReader;
 
 /**
  * Classe responsável por atribuir os valores dos campos simples ao objeto alvo.
@@ -30,21 +33,34 @@ import br.com.anteros.persistence.session.cache.Cache;
  */
 public class SimpleExpressionFieldMapper extends ExpressionFieldMapper {
 
+	private final Class<?> valueType;
+	private int columnSlot = -1;
+	private volatile Class<?> lastTargetClass;
+
 	public SimpleExpressionFieldMapper(EntityCache targetEntityCache, DescriptionField descriptionField, String aliasColumnName) {
 		super(targetEntityCache, descriptionField, aliasColumnName);
+		/*
+		 * Campos com conversão própria continuam sendo lidos com getObject
+		 */
+		if ((descriptionField != null) && descriptionField.isSimple() && !descriptionField.isEnumerated()
+				&& !descriptionField.isBoolean() && !descriptionField.isLob()
+				&& (descriptionField.getSimpleColumn() != null) && !descriptionField.getSimpleColumn().hasConvert())
+			this.valueType = descriptionField.getField().getType();
+		else
+			this.valueType = null;
 	}
 
 	@Override
-	public void execute(SQLSession session, ResultSet resultSet, EntityManaged entityManaged, Object targetObject, Cache transactionCache)
-			throws Exception {
+	public void execute(SQLSession session, ResultSet resultSet, RowMappingPlan rowMappingPlan, EntityManaged entityManaged,
+			Object targetObject, Cache transactionCache) throws Exception {
 
-		if (!session.getEntityCacheManager().getEntityCache(targetObject.getClass()).containsDescriptionField(descriptionField))
+		if (!containsDescriptionField(session, targetObject.getClass()))
 			return;
 
 		/*
 		 * Obtém o valor da coluna no resultSet.
 		 */
-		Object value = getValueByColumnName(resultSet);
+		Object value = getValue(resultSet, rowMappingPlan);
 		
 		value = descriptionField.getSimpleColumn().convertToEntityAttribute(value);
 		
@@ -68,4 +84,49 @@ public class SimpleExpressionFieldMapper extends ExpressionFieldMapper {
 		}
 	}
 
+	/**
+	 * Verifica se a classe do objeto alvo possui o campo. Guarda a última classe
+	 * válida para não percorrer os campos da entidade a cada linha.
+	 */
+	private boolean containsDescriptionField(SQLSession session, Class<?> targetClass) {
+		if (lastTargetClass == targetClass)
+			return true;
+		if (!session.getEntityCacheManager().getEntityCache(targetClass).containsDescriptionField(descriptionField))
+			return false;
+		lastTargetClass = targetClass;
+		return true;
+	}
+
+	private Object getValue(ResultSet resultSet, RowMappingPlan rowMappingPlan) throws EntityHandlerException {
+		if (rowMappingPlan == null)
+			return getValueByColumnName(resultSet);
+		int index = rowMappingPlan.getColumnIndex(this);
+		if (index == 0)
+			return getValueByColumnName(resultSet);
+		ColumnReader reader = rowMappingPlan.getColumnReader(this);
+		try {
+			return reader.read(resultSet, index);
+		} catch (SQLException ex) {
+			throw new EntityHandlerException("Erro processando campo " + descriptionField.getField().getName()
+					+ " na classe " + targetEntityCache.getEntityClass().getName() + " coluna " + aliasColumnName + ". "
+					+ ex.getMessage());
+		}
+	}
+
+	/**
+	 * Retorna o tipo usado para escolher a leitura da coluna ou nulo se o valor
+	 * deve ser lido com getObject.
+	 */
+	public Class<?> getValueType() {
+		return valueType;
+	}
+
+	public int getColumnSlot() {
+		return columnSlot;
+	}
+
+	public void setColumnSlot(int columnSlot) {
+		this.columnSlot = columnSlot;
+	}
+
 }
@@ -0,0 +1,274 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.session.query;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import br.com.anteros.core.log.Logger;
+import br.com.anteros.core.log.LoggerProvider;
+import br.com.anteros.persistence.dsl.osql.lang.CloseableIterator;
+import br.com.anteros.persistence.handler.EntityHandler;
+import br.com.anteros.persistence.handler.ScrollableResultSetHandler;
+import br.com.anteros.persistence.metadata.EntityCache;
+import br.com.anteros.persistence.metadata.descriptor.DescriptionField;
+import br.com.anteros.persistence.proxy.AnterosProxyObject;
+import br.com.anteros.persistence.proxy.collection.AnterosPersistentCollection;
+import br.com.anteros.persistence.session.SQLSession;
+
+/**
+ * Leitura do resultado de uma consulta linha a linha.
+ *
+ * Cada chamada de {@link #next()} lê as próximas linhas do ResultSet e monta o
+ * objeto correspondente; o resultado nunca é carregado inteiro na memória.
+ * Linhas consecutivas que montam o mesmo objeto (joins com coleções) retornam
+ * o objeto uma única vez. O objeto só é retornado quando a linha seguinte
+ * pertence a outro objeto ou o ResultSet termina, assim as coleções do join já
+ * estão completas.
+ *
+ * Se o tamanho de despejo for maior que zero, a cada quantidade de objetos
+ * retornados os objetos anteriores e os objetos carregados pelos seus
+ * relacionamentos e coleções são retirados do contexto de persistência e dos
+ * caches da consulta, ficando desanexados da sessão. Objetos carregados antes
+ * da consulta que não fazem parte desses objetos continuam na sessão.
+ *
+ * O iterador deve ser fechado; ele é fechado automaticamente ao chegar no fim
+ * do resultado.
+ *
+ * @author Edson Martins - Anteros
+ *
+ */
+public class StreamingResultIterator<T> implements CloseableIterator<T> {
+
+	private static Logger log = LoggerProvider.getInstance().getLogger(StreamingResultIterator.class.getName());
+
+	private final SQLSession session;
+	private final ResultSet resultSet;
+	private final ScrollableResultSetHandler handler;
+	private final ResultSetTransformer<T> resultTransformer;
+	private final boolean allowDuplicateObjects;
+	private final int evictionSize;
+	private final List<Object> returnedObjects = new ArrayList<Object>();
+	private Object pendingObject;
+	private Object[] pendingRow;
+	private T nextElement;
+	private boolean nextFetched;
+	private boolean closed;
+
+	public StreamingResultIterator(SQLSession session, ResultSet resultSet, ScrollableResultSetHandler handler,
+			ResultSetTransformer<T> resultTransformer, boolean allowDuplicateObjects, int evictionSize) {
+		this.session = session;
+		this.resultSet = resultSet;
+		this.handler = handler;
+		this.resultTransformer = resultTransformer;
+		this.allowDuplicateObjects = allowDuplicateObjects;
+		this.evictionSize = evictionSize;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (!nextFetched)
+			nextFetched = fetch();
+		return nextFetched;
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+		nextFetched = false;
+		T result = nextElement;
+		nextElement = null;
+		return result;
+	}
+
+	private boolean fetch() {
+		if (closed)
+			return false;
+		try {
+			while (resultSet.next()) {
+				Object[] row = handler.readCurrentRow(resultSet);
+				if (row.length == 0)
+					continue;
+				Object value = (row.length == 1 ? row[0] : row);
+				if (!(handler instanceof EntityHandler)) {
+					nextElement = createElement(value, row);
+					return true;
+				}
+				if (pendingRow == null) {
+					pendingObject = value;
+					pendingRow = row;
+					continue;
+				}
+				/*
+				 * Linhas do mesmo objeto completam as coleções do join
+				 */
+				if (!allowDuplicateObjects && (value == pendingObject))
+					continue;
+				/*
+				 * A linha é de outro objeto, o objeto anterior está completo
+				 */
+				releasePending(value);
+				pendingObject = value;
+				pendingRow = row;
+				return true;
+			}
+			if (pendingRow != null) {
+				releasePending(null);
+				close();
+				return true;
+			}
+		} catch (Exception e) {
+			close();
+			throw new SQLQueryException("Não foi possível ler o próximo registro do ResultSet.", e);
+		}
+		close();
+		return false;
+	}
+
+	/**
+	 * Retorna o objeto montado. O próximo objeto, cuja primeira linha já foi
+	 * lida, é mantido no contexto caso haja despejo.
+	 */
+	private void releasePending(Object nextObject) throws Exception {
+		evictIfNecessary(nextObject);
+		returnedObjects.add(pendingObject);
+		nextElement = createElement(pendingObject, pendingRow);
+		pendingObject = null;
+		pendingRow = null;
+	}
+
+	@SuppressWarnings("unchecked")
+	private T createElement(Object value, Object[] row) throws Exception {
+		return (T) (resultTransformer != null ? resultTransformer.newInstance(row) : value);
+	}
+
+	/**
+	 * Retira do contexto de persistência os objetos retornados e os objetos
+	 * carregados pelos seus relacionamentos e coleções. Os objetos do objeto
+	 * sendo retornado e do próximo objeto, que já está sendo montado, são
+	 * mantidos.
+	 */
+	private void evictIfNecessary(Object nextObject) throws Exception {
+		if ((evictionSize <= 0) || (returnedObjects.size() < evictionSize))
+			return;
+		Set<Object> objectsInUse = collectObjectGraph(Arrays.asList(pendingObject, nextObject));
+		List<Object> evictedObjects = new ArrayList<Object>();
+		for (Object object : collectObjectGraph(returnedObjects)) {
+			if (!objectsInUse.contains(object)) {
+				session.getPersistenceContext().removeEntityManaged(object);
+				evictedObjects.add(object);
+			}
+		}
+		returnedObjects.clear();
+		((EntityHandler) handler).evictCreatedObjects(evictedObjects);
+	}
+
+	/**
+	 * Retorna os objetos alcançáveis a partir dos objetos informados pelos
+	 * relacionamentos e coleções já carregados. Proxies e coleções ainda não
+	 * inicializados não são percorridos para não disparar a sua carga.
+	 */
+	private Set<Object> collectObjectGraph(Collection<Object> objects) throws Exception {
+		Set<Object> result = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+		Deque<Object> objectsToVisit = new ArrayDeque<Object>();
+		for (Object object : objects) {
+			if (object != null)
+				objectsToVisit.push(object);
+		}
+		while (!objectsToVisit.isEmpty()) {
+			Object object = objectsToVisit.pop();
+			if (result.contains(object))
+				continue;
+			if ((object instanceof AnterosProxyObject) && !((AnterosProxyObject) object).isInitialized())
+				continue;
+			EntityCache entityCache = session.getEntityCacheManager().getEntityCache(object.getClass());
+			if (entityCache == null)
+				continue;
+			result.add(object);
+			for (DescriptionField descriptionField : entityCache.getDescriptionFields()) {
+				if (descriptionField.isRelationShip()) {
+					Object value = descriptionField.getObjectValue(object);
+					if (value != null)
+						objectsToVisit.push(value);
+				} else if (descriptionField.isCollectionEntity()) {
+					Object value = descriptionField.getObjectValue(object);
+					if ((value instanceof AnterosPersistentCollection)
+							&& !((AnterosPersistentCollection) value).isInitialized())
+						continue;
+					if (value instanceof Collection) {
+						for (Object item : (Collection<?>) value) {
+							if (item != null)
+								objectsToVisit.push(item);
+						}
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void close() {
+		if (closed)
+			return;
+		closed = true;
+		returnedObjects.clear();
+		pendingObject = null;
+		pendingRow = null;
+		try {
+			Statement statement = resultSet.getStatement();
+			resultSet.close();
+			if (statement != null)
+				statement.close();
+		} catch (SQLException e) {
+			log.error("Não foi possível fechar o ResultSet. " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Retorna um Stream sequencial com os objetos do iterador. O Stream deve ser
+	 * fechado para liberar o ResultSet caso não seja percorrido até o fim.
+	 */
+	public Stream<T> stream() {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false)
+				.onClose(new Runnable() {
+					public void run() {
+						close();
+					}
+				});
+	}
+}
@@ -18,7 +18,9 @@ import java.sql.ResultSet;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
+import br.com.anteros.persistence.dsl.osql.lang.CloseableIterator;
 import br.com.anteros.persistence.handler.ResultSetHandler;
 import br.com.anteros.persistence.metadata.identifier.Identifier;
 import br.com.anteros.persistence.parameter.NamedParameter;
@@ -120,6 +122,28 @@ public interface TypedSQLQuery<X> extends SQLQuery {
 
 	public X getSingleResult() throws Exception;
 
+	/**
+	 * Executa a consulta lendo o resultado em streaming: o ResultSet é percorrido
+	 * somente para frente e cada objeto é montado na chamada de next(). O
+	 * iterador deve ser fechado caso não seja percorrido até o fim.
+	 */
+	public CloseableIterator<X> iterate() throws Exception;
+
+	/**
+	 * Igual a {@link #iterate()}; a cada evictionSize objetos retornados os
+	 * objetos anteriores são retirados do contexto de persistência para que a
+	 * memória não cresça com o resultado. Zero não retira os objetos.
+	 */
+	public CloseableIterator<X> iterate(int evictionSize) throws Exception;
+
+	/**
+	 * Retorna o resultado em streaming como um Stream. O Stream deve ser fechado
+	 * caso não seja percorrido até o fim.
+	 */
+	public Stream<X> stream() throws Exception;
+
+	public Stream<X> stream(int evictionSize) throws Exception;
+
 	public ResultSet executeQuery() throws Exception;
 
 	public TypedSQLQuery<X> setLockOptions(LockOptions lockOptions);
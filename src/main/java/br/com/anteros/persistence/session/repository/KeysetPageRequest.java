@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.session.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Requisição de página por chave (keyset/seek).
+ *
+ * Em vez de descartar as linhas anteriores com offset, a próxima página é
+ * buscada a partir dos valores dos campos de ordenação do último objeto da
+ * página anterior. Os campos são informados como em "nome:asc,id:desc"; se a
+ * ordenação não contiver a chave primária ela é adicionada no final para que a
+ * chave seja única. Os campos de ordenação não devem aceitar nulos.
+ *
+ * A próxima requisição por chave é obtida de
+ * {@link br.com.anteros.persistence.session.repository.impl.KeysetSlice#nextPageable()}.
+ * As requisições obtidas por {@link #next()} e {@link #previous()} não
+ * conhecem o último objeto da página; essas páginas são buscadas pela mesma
+ * ordenação usando offset.
+ *
+ * @author Edson Martins - Anteros
+ *
+ */
+public class KeysetPageRequest extends AbstractPageRequest {
+
+	private static final long serialVersionUID = 3140386216395519352L;
+
+	public enum CountStrategy {
+		/**
+		 * Não conta os registros.
+		 */
+		NONE,
+		/**
+		 * Conta os registros com count(*) na primeira página.
+		 */
+		EXACT,
+		/**
+		 * Usa a estimativa de linhas das estatísticas do banco de dados quando a
+		 * consulta não tem filtros; caso contrário conta os registros.
+		 */
+		ESTIMATE
+	}
+
+	private final String[] fields;
+	private final boolean[] descending;
+	private final Object[] lastKey;
+	private final CountStrategy countStrategy;
+	private final Long total;
+
+	public KeysetPageRequest(int size, String sort) {
+		this(size, sort, CountStrategy.NONE);
+	}
+
+	public KeysetPageRequest(int size, String sort, CountStrategy countStrategy) {
+		this(0, size, sort, null, countStrategy, null);
+	}
+
+	protected KeysetPageRequest(int page, int size, String sort, Object[] lastKey, CountStrategy countStrategy,
+			Long total) {
+		super(page, size);
+		if ((sort == null) || (sort.trim().length() == 0)) {
+			throw new IllegalArgumentException("Informe os campos de ordenação da paginação por chave.");
+		}
+		List<String> fieldList = new ArrayList<String>();
+		List<Boolean> descendingList = new ArrayList<Boolean>();
+		for (String field : sort.split(",")) {
+			field = field.trim();
+			if (field.length() == 0)
+				continue;
+			String order = "asc";
+			int index = field.indexOf(':');
+			if (index > 0) {
+				order = field.substring(index + 1).trim().toLowerCase();
+				field = field.substring(0, index).trim();
+			}
+			if (!"asc".equals(order) && !"desc".equals(order)) {
+				throw new IllegalArgumentException("Ordenação inválida " + order + " para o campo " + field);
+			}
+			fieldList.add(field);
+			descendingList.add("desc".equals(order));
+		}
+		this.fields = fieldList.toArray(new String[] {});
+		this.descending = new boolean[fields.length];
+		for (int i = 0; i < fields.length; i++)
+			this.descending[i] = descendingList.get(i);
+		if ((lastKey != null) && (lastKey.length != fields.length)) {
+			throw new IllegalArgumentException("A chave informada possui " + lastKey.length
+					+ " valores e a ordenação possui " + fields.length + " campos.");
+		}
+		this.lastKey = lastKey;
+		this.countStrategy = (countStrategy == null ? CountStrategy.NONE : countStrategy);
+		this.total = total;
+	}
+
+	private KeysetPageRequest(int page, KeysetPageRequest source, Object[] lastKey, Long total) {
+		super(page, source.getPageSize());
+		this.fields = source.fields;
+		this.descending = source.descending;
+		this.lastKey = lastKey;
+		this.countStrategy = source.countStrategy;
+		this.total = total;
+	}
+
+	/**
+	 * Retorna a requisição da página seguinte à chave informada.
+	 */
+	public KeysetPageRequest after(Object[] lastKey, Long total) {
+		if ((lastKey == null) || (lastKey.length != fields.length)) {
+			throw new IllegalArgumentException("Informe um valor para cada campo de ordenação da paginação por chave.");
+		}
+		return new KeysetPageRequest(getPageNumber() + 1, this, lastKey, total);
+	}
+
+	/**
+	 * Retorna a mesma requisição ordenada também pelos campos informados. Usado
+	 * para completar a ordenação com a chave primária.
+	 */
+	public KeysetPageRequest withTieBreaker(String[] tieBreakerFields) {
+		List<String> newFields = new ArrayList<String>(Arrays.asList(fields));
+		StringBuilder sort = new StringBuilder();
+		for (int i = 0; i < fields.length; i++) {
+			if (i > 0)
+				sort.append(",");
+			sort.append(fields[i]).append(descending[i] ? ":desc" : ":asc");
+		}
+		boolean changed = false;
+		for (String field : tieBreakerFields) {
+			if (newFields.contains(field))
+				continue;
+			newFields.add(field);
+			sort.append(",").append(field).append(":asc");
+			changed = true;
+		}
+		if (!changed)
+			return this;
+		if (lastKey != null) {
+			throw new IllegalArgumentException(
+					"A ordenação da paginação por chave deve conter a chave primária após a primeira página.");
+		}
+		return new KeysetPageRequest(getPageNumber(), getPageSize(), sort.toString(), null, countStrategy, total);
+	}
+
+	public String[] getFields() {
+		return fields;
+	}
+
+	public boolean isDescending(int index) {
+		return descending[index];
+	}
+
+	public Object[] getLastKey() {
+		return lastKey;
+	}
+
+	public boolean isFirstPage() {
+		return (lastKey == null) && (getPageNumber() == 0);
+	}
+
+	/**
+	 * Verifica se a página é buscada a partir da chave do último objeto da
+	 * página anterior. Caso contrário é buscada pelo offset.
+	 */
+	public boolean hasLastKey() {
+		return lastKey != null;
+	}
+
+	public CountStrategy getCountStrategy() {
+		return countStrategy;
+	}
+
+	/**
+	 * Total calculado na primeira página, repassado para as páginas seguintes.
+	 */
+	public Long getTotal() {
+		return total;
+	}
+
+	/**
+	 * Retorna a requisição da página seguinte sem a chave do último objeto,
+	 * buscada pelo offset. Prefira
+	 * {@link br.com.anteros.persistence.session.repository.impl.KeysetSlice#nextPageable()}.
+	 */
+	public KeysetPageRequest next() {
+		return new KeysetPageRequest(getPageNumber() + 1, this, null, total);
+	}
+
+	/**
+	 * Retorna a requisição da página anterior, buscada pelo offset.
+	 */
+	public KeysetPageRequest previous() {
+		return (getPageNumber() == 0 ? first() : new KeysetPageRequest(getPageNumber() - 1, this, null, total));
+	}
+
+	public KeysetPageRequest first() {
+		return new KeysetPageRequest(0, this, null, null);
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = super.hashCode();
+		result = prime * result + Arrays.hashCode(fields);
+		result = prime * result + Arrays.hashCode(descending);
+		result = prime * result + Arrays.hashCode(lastKey);
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!super.equals(obj)) {
+			return false;
+		}
+		KeysetPageRequest other = (KeysetPageRequest) obj;
+		return Arrays.equals(fields, other.fields) && Arrays.equals(descending, other.descending)
+				&& Arrays.equals(lastKey, other.lastKey);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Keyset page request [number: %d, size %d, fields %s, last key %s]", getPageNumber(),
+				getPageSize(), Arrays.toString(fields), Arrays.toString(lastKey));
+	}
+}
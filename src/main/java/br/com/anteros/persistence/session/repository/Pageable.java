@@ -23,6 +23,11 @@ public interface Pageable {
 
 	int getOffset();
 
+	/**
+	 * Retorna a requisição da página seguinte. Na paginação por chave
+	 * ({@link KeysetPageRequest}) a página retornada não conhece o último objeto
+	 * e é buscada pelo offset.
+	 */
 	Pageable next();
 
 	Pageable previousOrFirst();
@@ -24,6 +24,7 @@ import br.com.anteros.persistence.metadata.identifier.Identifier;
 import br.com.anteros.persistence.session.SQLSession;
 import br.com.anteros.persistence.session.SQLSessionFactory;
 import br.com.anteros.persistence.session.lock.LockOptions;
+import br.com.anteros.persistence.session.repository.impl.KeysetSlice;
 import br.com.anteros.persistence.transaction.Transaction;
 
 public interface SQLRepository<T, ID extends Serializable> {
@@ -86,6 +87,10 @@ public interface SQLRepository<T, ID extends Serializable> {
 
 	Page<T> findAll(Pageable pageable, boolean readOnly, String fieldsToForceLazy);
 
+	KeysetSlice<T> findAll(KeysetPageRequest pageable, String fieldsToForceLazy);
+
+	KeysetSlice<T> findAll(KeysetPageRequest pageable, boolean readOnly, String fieldsToForceLazy);
+
 	List<T> find(String sql,String fieldsToForceLazy);
 
 	Page<T> find(String sql, Pageable pageable,String fieldsToForceLazy);
@@ -162,6 +167,10 @@ public interface SQLRepository<T, ID extends Serializable> {
 	
 	Page<T> findAll(Predicate predicate, Pageable pageable, boolean readOnly, String fieldsToForceLazy);
 
+	KeysetSlice<T> findAll(Predicate predicate, KeysetPageRequest pageable, String fieldsToForceLazy);
+
+	KeysetSlice<T> findAll(Predicate predicate, KeysetPageRequest pageable, boolean readOnly, String fieldsToForceLazy);
+
 	Page<T> findAll(Predicate predicate, Pageable pageable, String fieldsToForceLazy, OrderSpecifier<?>... orders);
 	
 	Page<T> findAll(Predicate predicate, boolean readOnly, Pageable pageable, String fieldsToForceLazy, OrderSpecifier<?>... orders);
@@ -13,12 +13,16 @@
 package br.com.anteros.persistence.session.repository.impl;
 
 import java.io.Serializable;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import br.com.anteros.core.log.Logger;
+import br.com.anteros.core.log.LoggerProvider;
 import br.com.anteros.core.utils.Assert;
 import br.com.anteros.core.utils.TypeResolver;
 import br.com.anteros.persistence.dsl.osql.BooleanBuilder;
@@ -29,11 +33,13 @@ import br.com.anteros.persistence.dsl.osql.SimpleEntityPathResolver;
 import br.com.anteros.persistence.dsl.osql.support.Expressions;
 import br.com.anteros.persistence.dsl.osql.types.EntityPath;
 import br.com.anteros.persistence.dsl.osql.types.Ops;
+import br.com.anteros.persistence.dsl.osql.types.Order;
 import br.com.anteros.persistence.dsl.osql.types.OrderSpecifier;
 import br.com.anteros.persistence.dsl.osql.types.Predicate;
 import br.com.anteros.persistence.dsl.osql.types.expr.BooleanExpression;
 import br.com.anteros.persistence.dsl.osql.types.expr.BooleanOperation;
 import br.com.anteros.persistence.dsl.osql.types.expr.params.StringParam;
+import br.com.anteros.persistence.dsl.osql.types.path.ComparablePath;
 import br.com.anteros.persistence.dsl.osql.types.path.PathBuilder;
 import br.com.anteros.persistence.dsl.osql.types.path.StringPath;
 import br.com.anteros.persistence.metadata.EntityCache;
@@ -50,18 +56,26 @@ import br.com.anteros.persistence.session.exception.SQLSessionException;
 import br.com.anteros.persistence.session.lock.LockOptions;
 import br.com.anteros.persistence.session.query.SQLQueryException;
 import br.com.anteros.persistence.session.query.TypedSQLQuery;
+import br.com.anteros.persistence.session.repository.KeysetPageRequest;
+import br.com.anteros.persistence.session.repository.KeysetPageRequest.CountStrategy;
 import br.com.anteros.persistence.session.repository.Page;
 import br.com.anteros.persistence.session.repository.Pageable;
 import br.com.anteros.persistence.session.repository.SQLRepository;
 import br.com.anteros.persistence.session.repository.SQLRepositoryException;
+import br.com.anteros.persistence.sql.binder.DateParameterBinding;
+import br.com.anteros.persistence.sql.binder.DateTimeParameterBinding;
 import br.com.anteros.persistence.transaction.Transaction;
 
 @SuppressWarnings("unchecked")
 public class GenericSQLRepository<T, ID extends Serializable> implements SQLRepository<T, ID> {
 
+	private static Logger LOG = LoggerProvider.getInstance().getLogger(GenericSQLRepository.class.getName());
 	private static final EntityPathResolver DEFAULT_ENTITY_PATH_RESOLVER = SimpleEntityPathResolver.INSTANCE;
 	public static final String COUNT_QUERY_STRING = "select count(*) as qt from %s x";
 	public static final String DELETE_ALL_QUERY_STRING = "delete from %s x";
+	public static final String TENANT_ID_PARAMETER = "P_TENANT_ID";
+	public static final String COMPANY_ID_PARAMETER = "P_COMPANY_ID";
+	public static final String KEYSET_PARAMETER = "P_KEYSET_";
 
 	protected SQLSession session;
 	protected SQLSessionFactory sessionFactory;
@@ -193,36 +207,12 @@ public class GenericSQLRepository<T, ID extends Serializable> implements SQLRepo
 				"A classe de persistência não foi informada. Verifique se usou a classe GenericSQLRepository diretamente, se usou será necessário passar a classe de persistência como parâmetro. Se preferir pode extender a classe GenericSQLRepository e definir os parâmetros do genérics da classe.");
 
 		try {
-			DescriptionField tenantId = getTenantId();
-			DescriptionField companyId = getCompanyId();
-
+			List<NamedParameter> parameters = new ArrayList<NamedParameter>();
 			String sql = "select * from " + getEntityCache().getTableName() + " P ";
-			boolean hasWhere = false;
-			if (tenantId != null) {
-				if (getSession().getTenantId() == null) {
-					throw new SQLQueryException("Informe o Tenant ID para realizar consulta na entidade "
-							+ getEntityCache().getEntityClass().getName());
-				}
-				hasWhere = true;
-				sql = sql + " where P." + tenantId.getSimpleColumn().getColumnName() + " = " + "'"
-						+ getSession().getTenantId().toString() + "'";
-			}
-
-			if (companyId != null) {
-				if (getSession().getCompanyId() == null) {
-					throw new SQLQueryException("Informe o Company ID para realizar consulta na entidade "
-							+ getEntityCache().getEntityClass().getName());
-				}
-				if (!hasWhere) {
-					sql = sql + " where ";
-				} else {
-					sql = sql + " and ";
-				}
-				sql = sql + "P." + companyId.getSimpleColumn().getColumnName() + " = " + "'"
-						+ getSession().getCompanyId().toString() + "'";
-			}
+			sql = appendTenantAndCompanyId(sql, "P", parameters);
 
 			TypedSQLQuery<?> query = getSession().createQuery(sql, persistentClass);
+			query.setParameters(parameters);
 			query.setLockOptions(lockOptions);
 			query.setReadOnly(readOnly);
 			query.setFieldsToForceLazy(fieldsToForceLazy);
@@ -261,6 +251,43 @@ public class GenericSQLRepository<T, ID extends Serializable> implements SQLRepo
 		return null;
 	}
 
+	/**
+	 * Adiciona ao SQL o filtro pelo tenant e pela empresa da sessão. Os valores
+	 * são adicionados como parâmetros nomeados para que o SQL seja o mesmo para
+	 * todos os tenants.
+	 */
+	protected String appendTenantAndCompanyId(String sql, String alias, List<NamedParameter> parameters) {
+		DescriptionField tenantId = getTenantId();
+		DescriptionField companyId = getCompanyId();
+
+		boolean hasWhere = false;
+		if (tenantId != null) {
+			if (getSession().getTenantId() == null) {
+				throw new SQLQueryException("Informe o Tenant ID para realizar consulta na entidade "
+						+ getEntityCache().getEntityClass().getName());
+			}
+			hasWhere = true;
+			sql = sql + " where " + alias + "." + tenantId.getSimpleColumn().getColumnName() + " = :"
+					+ TENANT_ID_PARAMETER;
+			parameters.add(new NamedParameter(TENANT_ID_PARAMETER, getSession().getTenantId().toString()));
+		}
+
+		if (companyId != null) {
+			if (getSession().getCompanyId() == null) {
+				throw new SQLQueryException("Informe o Company ID para realizar consulta na entidade "
+						+ getEntityCache().getEntityClass().getName());
+			}
+			if (!hasWhere) {
+				sql = sql + " where ";
+			} else {
+				sql = sql + " and ";
+			}
+			sql = sql + alias + "." + companyId.getSimpleColumn().getColumnName() + " = :" + COMPANY_ID_PARAMETER;
+			parameters.add(new NamedParameter(COMPANY_ID_PARAMETER, getSession().getCompanyId().toString()));
+		}
+		return sql;
+	}
+
 	@Override
 	public Page<T> findAll(Pageable pageable, LockOptions lockOptions, boolean readOnly, String fieldsToForceLazy) {
 
@@ -271,34 +298,11 @@ public class GenericSQLRepository<T, ID extends Serializable> implements SQLRepo
 
 		TypedSQLQuery<?> query;
 		try {
-			DescriptionField tenantId = getTenantId();
-			DescriptionField companyId = getCompanyId();
-
+			List<NamedParameter> parameters = new ArrayList<NamedParameter>();
 			String sql = "select * from " + getEntityCache().getTableName() + " P ";
-			boolean hasWhere = false;
-			if (tenantId != null) {
-				if (getSession().getTenantId() == null) {
-					throw new SQLQueryException("Informe o Tenant ID para realizar consulta na entidade "
-							+ getEntityCache().getEntityClass().getName());
-				}
-				hasWhere = true;
-				sql = sql + " where P." + tenantId.getSimpleColumn().getColumnName() + " = " + "'"
-						+ getSession().getTenantId().toString() + "'";
-			}
-			if (companyId != null) {
-				if (getSession().getCompanyId() == null) {
-					throw new SQLQueryException("Informe o Company ID para realizar consulta na entidade "
-							+ getEntityCache().getEntityClass().getName());
-				}
-				if (!hasWhere) {
-					sql = sql + " where ";
-				} else {
-					sql = sql + " and ";
-				}
-				sql = sql + "P." + companyId.getSimpleColumn().getColumnName() + " = " + "'"
-						+ getSession().getCompanyId().toString() + "'";
-			}
+			sql = appendTenantAndCompanyId(sql, "P", parameters);
 			query = getSession().createQuery(sql, persistentClass);
+			query.setParameters(parameters);
 
 			query.setFirstResult(pageable.getOffset());
 			query.setMaxResults(pageable.getPageSize());
@@ -316,6 +320,49 @@ public class GenericSQLRepository<T, ID extends Serializable> implements SQLRepo
 		}
 	}
 
+	@Override
+	public KeysetSlice<T> findAll(KeysetPageRequest pageable, String fieldsToForceLazy) {
+		return findAll(pageable, false, fieldsToForceLazy);
+	}
+
+	@Override
+	public KeysetSlice<T> findAll(KeysetPageRequest pageable, boolean readOnly, String fieldsToForceLazy) {
+		Assert.notNull(pageable, "Informe a requisição da página.");
+		pageable = pageable.withTieBreaker(getPrimaryKeyFieldNames());
+		DescriptionField[] keyFields = getKeysetFields(pageable);
+		try {
+			List<NamedParameter> parameters = new ArrayList<NamedParameter>();
+			String sql = "select * from " + getEntityCache().getTableName() + " P";
+			sql = appendTenantAndCompanyId(sql, "P", parameters);
+			boolean filtered = !parameters.isEmpty();
+			if (pageable.hasLastKey()) {
+				sql = sql + (filtered ? " and " : " where ") + getKeysetCondition(pageable, keyFields, "P", parameters);
+			}
+			StringBuilder orderBy = new StringBuilder();
+			for (int i = 0; i < keyFields.length; i++) {
+				orderBy.append(i == 0 ? " order by " : ", ").append("P.")
+						.append(keyFields[i].getSimpleColumn().getColumnName())
+						.append(pageable.isDescending(i) ? " desc" : " asc");
+			}
+
+			TypedSQLQuery<?> query = getSession().createQuery(sql + orderBy, persistentClass);
+			query.setParameters(parameters);
+			if (!pageable.hasLastKey())
+				query.setFirstResult(pageable.getOffset());
+			query.setMaxResults(pageable.getPageSize() + 1);
+			query.setReadOnly(readOnly);
+			query.setFieldsToForceLazy(fieldsToForceLazy);
+
+			Long total = pageable.getTotal();
+			if ((total == null) && !pageable.hasLastKey()) {
+				total = countKeyset(pageable.getCountStrategy(), filtered, null);
+			}
+			return createKeysetSlice((List<T>) query.getResultList(), pageable, keyFields, total);
+		} catch (Exception e) {
+			throw new SQLRepositoryException(e);
+		}
+	}
+
 	@Override
 	public List<T> find(String sql, LockOptions lockOptions, boolean readOnly, String fieldsToForceLazy) {
 		try {
@@ -524,6 +571,260 @@ public class GenericSQLRepository<T, ID extends Serializable> implements SQLRepo
 	}
 
 	
+	@Override
+	public KeysetSlice<T> findAll(Predicate predicate, KeysetPageRequest pageable, String fieldsToForceLazy) {
+		return findAll(predicate, pageable, false, fieldsToForceLazy);
+	}
+
+	@Override
+	public KeysetSlice<T> findAll(Predicate predicate, KeysetPageRequest pageable, boolean readOnly,
+			String fieldsToForceLazy) {
+		Assert.notNull(pageable, "Informe a requisição da página.");
+		pageable = pageable.withTieBreaker(getPrimaryKeyFieldNames());
+		DescriptionField[] keyFields = getKeysetFields(pageable);
+
+		boolean filtered = (predicate != null) || (getTenantId() != null) || (getCompanyId() != null);
+		predicate = addTenantAndCompanyId(predicate);
+
+		OSQLQuery query = createQuery(predicate);
+		if (pageable.hasLastKey()) {
+			query.where(getKeysetPredicate(pageable, keyFields));
+		}
+		DynamicEntityPath entityPath = (DynamicEntityPath) getEntityPath();
+		for (int i = 0; i < keyFields.length; i++) {
+			query.orderBy(new OrderSpecifier(pageable.isDescending(i) ? Order.DESC : Order.ASC,
+					getKeysetPath(entityPath, keyFields[i])));
+		}
+		if (!pageable.hasLastKey())
+			query.offset(pageable.getOffset());
+		query.limit(pageable.getPageSize() + 1);
+		query.setFieldsToForceLazy(fieldsToForceLazy);
+		query.readOnly(readOnly);
+
+		Long total = pageable.getTotal();
+		if ((total == null) && !pageable.hasLastKey()) {
+			total = countKeyset(pageable.getCountStrategy(), filtered, predicate);
+		}
+		try {
+			return createKeysetSlice(query.list(path), pageable, keyFields, total);
+		} catch (Exception e) {
+			throw new SQLRepositoryException(e);
+		}
+	}
+
+	/**
+	 * Nomes dos campos da chave primária usados para desempatar a ordenação da
+	 * paginação por chave. Todos os campos da chave devem ser simples, caso
+	 * contrário a ordenação não seria única e a paginação poderia repetir ou
+	 * omitir registros.
+	 */
+	protected String[] getPrimaryKeyFieldNames() {
+		DescriptionField[] primaryKeyFields = getEntityCache().getPrimaryKeyFields();
+		if (primaryKeyFields.length == 0)
+			throw new SQLRepositoryException("A paginação por chave requer uma chave primária na entidade "
+					+ getEntityCache().getEntityClass().getName() + ".");
+		String[] result = new String[primaryKeyFields.length];
+		for (int i = 0; i < primaryKeyFields.length; i++) {
+			if (!primaryKeyFields[i].isSimple())
+				throw new SQLRepositoryException("A paginação por chave não suporta o campo "
+						+ primaryKeyFields[i].getName() + " da chave primária da entidade "
+						+ getEntityCache().getEntityClass().getName()
+						+ " pois não é um campo simples. Informe a ordenação completa com campos simples.");
+			result[i] = primaryKeyFields[i].getName();
+		}
+		return result;
+	}
+
+	protected DescriptionField[] getKeysetFields(KeysetPageRequest pageable) {
+		EntityCache[] entityCaches = getSession().getEntityCacheManager()
+				.getEntitiesBySuperClassIncluding(getEntityCache().getEntityClass());
+		String[] fields = pageable.getFields();
+		DescriptionField[] result = new DescriptionField[fields.length];
+		for (int i = 0; i < fields.length; i++) {
+			for (EntityCache entityCache : entityCaches) {
+				result[i] = entityCache.getDescriptionField(fields[i]);
+				if (result[i] != null)
+					break;
+			}
+			if (result[i] == null) {
+				throw new SQLRepositoryException("Campo " + fields[i] + " não encontrado na classe "
+						+ getEntityCache().getEntityClass().getName() + " ou em suas heranças.");
+			}
+			if (!result[i].isSimple()) {
+				throw new SQLRepositoryException(
+						"O campo " + fields[i] + " da paginação por chave deve ser um campo simples.");
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Condição que busca os registros após a chave da página anterior:
+	 * (a > :K0) or (a = :K0 and b > :K1) ... O primeiro campo também é
+	 * comparado isoladamente para que o banco de dados possa usar o índice.
+	 */
+	protected String getKeysetCondition(KeysetPageRequest pageable, DescriptionField[] keyFields, String alias,
+			List<NamedParameter> parameters) throws Exception {
+		Object[] lastKey = pageable.getLastKey();
+		String[] columns = new String[keyFields.length];
+		for (int i = 0; i < keyFields.length; i++) {
+			columns[i] = alias + "." + keyFields[i].getSimpleColumn().getColumnName();
+			parameters.add(new NamedParameter(KEYSET_PARAMETER + i, getKeysetParameterValue(keyFields[i], lastKey[i])));
+		}
+		String result = null;
+		for (int i = keyFields.length - 1; i >= 0; i--) {
+			String seek = columns[i] + (pageable.isDescending(i) ? " < :" : " > :") + KEYSET_PARAMETER + i;
+			result = (result == null ? seek
+					: "(" + seek + " or (" + columns[i] + " = :" + KEYSET_PARAMETER + i + " and " + result + "))");
+		}
+		if (keyFields.length > 1) {
+			result = columns[0] + (pageable.isDescending(0) ? " <= :" : " >= :") + KEYSET_PARAMETER + "0 and "
+					+ result;
+		}
+		return "(" + result + ")";
+	}
+
+	protected Object getKeysetParameterValue(DescriptionField field, Object value) throws Exception {
+		Object columnValue = field.getSimpleColumn().convertToDatabaseColumn(value);
+		if (columnValue == null) {
+			throw new SQLRepositoryException(
+					"O valor do campo " + field.getName() + " da chave da paginação não pode ser nulo.");
+		} else if (field.isEnumerated())
+			return field.getValueEnum(columnValue.toString());
+		else if (field.isBoolean())
+			return field.getBooleanValue((Boolean) columnValue);
+		else if (field.isTemporalDate())
+			return new DateParameterBinding(columnValue);
+		else if (field.isTemporalDateTime())
+			return new DateTimeParameterBinding(columnValue);
+		return columnValue;
+	}
+
+	protected Predicate getKeysetPredicate(KeysetPageRequest pageable, DescriptionField[] keyFields) {
+		DynamicEntityPath entityPath = (DynamicEntityPath) getEntityPath();
+		Object[] lastKey = pageable.getLastKey();
+		BooleanExpression result = null;
+		for (int i = keyFields.length - 1; i >= 0; i--) {
+			if (lastKey[i] == null) {
+				throw new SQLRepositoryException(
+						"O valor do campo " + keyFields[i].getName() + " da chave da paginação não pode ser nulo.");
+			}
+			ComparablePath<?> keyPath = getKeysetPath(entityPath, keyFields[i]);
+			BooleanExpression seek = Expressions.predicate(pageable.isDescending(i) ? Ops.LT : Ops.GT, keyPath,
+					Expressions.constant(lastKey[i]));
+			if (result != null) {
+				seek = seek.or(Expressions.predicate(Ops.EQ, keyPath, Expressions.constant(lastKey[i])).and(result));
+			}
+			result = seek;
+		}
+		if (keyFields.length > 1) {
+			result = Expressions.predicate(pageable.isDescending(0) ? Ops.LOE : Ops.GOE,
+					getKeysetPath(entityPath, keyFields[0]), Expressions.constant(lastKey[0])).and(result);
+		}
+		return result;
+	}
+
+	protected ComparablePath<?> getKeysetPath(DynamicEntityPath entityPath, DescriptionField field) {
+		return entityPath.createComparable(field.getName(), (Class) field.getField().getType());
+	}
+
+	protected KeysetSlice<T> createKeysetSlice(List<T> content, KeysetPageRequest pageable,
+			DescriptionField[] keyFields, Long total) throws Exception {
+		boolean hasNext = content.size() > pageable.getPageSize();
+		if (hasNext) {
+			content = new ArrayList<T>(content.subList(0, pageable.getPageSize()));
+		}
+		Object[] lastKey = null;
+		if (!content.isEmpty()) {
+			T last = content.get(content.size() - 1);
+			lastKey = new Object[keyFields.length];
+			for (int i = 0; i < keyFields.length; i++)
+				lastKey[i] = keyFields[i].getObjectValue(last);
+		}
+		return new KeysetSlice<T>(content, pageable, hasNext, lastKey, total);
+	}
+
+	/**
+	 * Conta os registros da paginação por chave conforme a estratégia. A
+	 * estimativa do banco de dados é da tabela inteira e só é usada quando a
+	 * consulta não possui filtros.
+	 */
+	protected Long countKeyset(CountStrategy countStrategy, boolean filtered, Predicate predicate) {
+		if (countStrategy == CountStrategy.NONE)
+			return null;
+		if ((countStrategy == CountStrategy.ESTIMATE) && !filtered) {
+			Long estimate = estimateCount();
+			if (estimate != null)
+				return estimate;
+		}
+		return (predicate == null ? count() : createQuery(predicate).count());
+	}
+
+	/**
+	 * Estimativa de linhas da tabela pelas estatísticas do banco de dados ou nulo
+	 * se o dialeto não possuir a estimativa, a tabela não foi analisada ou a
+	 * consulta da estimativa falhar. Nesses casos é usada a contagem exata.
+	 *
+	 * Dentro de uma transação a consulta é executada sob um savepoint, pois em
+	 * alguns bancos (ex: PostgreSQL) um erro aborta a transação e impediria a
+	 * contagem exata. Sem suporte a savepoints a estimativa não é usada dentro
+	 * de transações.
+	 */
+	protected Long estimateCount() {
+		String sql = getSession().getDialect().getTableRowEstimateSql(getEntityCache().getTableName());
+		if (sql == null)
+			return null;
+		Savepoint savepoint = null;
+		try {
+			Connection connection = getSession().getConnection();
+			if (!connection.getAutoCommit()) {
+				if (!connection.getMetaData().supportsSavepoints())
+					return null;
+				savepoint = connection.setSavepoint();
+			}
+			Long result = null;
+			ResultSet rs = getSession().createQuery(sql).executeQuery();
+			try {
+				if (rs.next()) {
+					long value = rs.getLong(1);
+					if (!rs.wasNull() && (value >= 0))
+						result = value;
+				}
+			} finally {
+				rs.close();
+				rs.getStatement().close();
+			}
+			if (savepoint != null)
+				releaseSavepoint(connection, savepoint);
+			return result;
+		} catch (Exception e) {
+			LOG.debug("Não foi possível obter a estimativa de registros da tabela "
+					+ getEntityCache().getTableName() + ", será usada a contagem exata. " + e.getMessage());
+			if (savepoint != null)
+				rollbackToSavepoint(savepoint);
+			return null;
+		}
+	}
+
+	private void releaseSavepoint(Connection connection, Savepoint savepoint) {
+		try {
+			connection.releaseSavepoint(savepoint);
+		} catch (SQLException e) {
+			/*
+			 * Alguns drivers (ex: Oracle) não liberam savepoints, o savepoint é
+			 * descartado no fim da transação.
+			 */
+		}
+	}
+
+	private void rollbackToSavepoint(Savepoint savepoint) {
+		try {
+			getSession().getConnection().rollback(savepoint);
+		} catch (Exception e) {
+			LOG.debug("Não foi possível desfazer a consulta da estimativa de registros. " + e.getMessage());
+		}
+	}
+
 	protected Predicate addTenantAndCompanyId(Predicate predicate) {
 		if (predicate == null) {
 			predicate = new BooleanBuilder();
@@ -555,7 +856,7 @@ public class GenericSQLRepository<T, ID extends Serializable> implements SQLRepo
 					Expressions.constant(getSession().getTenantId().toString()));
 
 			if (predicate instanceof BooleanOperation) {
-				((BooleanOperation) predicate).and(expression);
+				predicate = ((BooleanOperation) predicate).and(expression);
 			} else {
 				((BooleanBuilder) predicate).and(expression);
 			}
@@ -570,7 +871,7 @@ public class GenericSQLRepository<T, ID extends Serializable> implements SQLRepo
 			BooleanExpression expression = Expressions.predicate(Ops.EQ, predicateField,
 					Expressions.constant(this.getSession().getCompanyId().toString()));
 			if (predicate instanceof BooleanOperation) {
-				((BooleanOperation) predicate).and(expression);
+				predicate = ((BooleanOperation) predicate).and(expression);
 			} else {
 				((BooleanBuilder) predicate).and(expression);
 			}
@@ -617,35 +918,11 @@ public class GenericSQLRepository<T, ID extends Serializable> implements SQLRepo
 
 	@Override
 	public long count() {
-		DescriptionField tenantId = getTenantId();
-		DescriptionField companyId = getCompanyId();
+		List<NamedParameter> parameters = new ArrayList<NamedParameter>();
 		String sql = getCountQueryString(getEntityCache().getTableName());
-		boolean hasWhere = false;
-		if (tenantId != null) {
-			if (getSession().getTenantId() == null) {
-				throw new SQLQueryException("Informe o Tenant ID para realizar consulta na entidade "
-						+ getEntityCache().getEntityClass().getName());
-			}
-			hasWhere = true;
-			sql = sql + " where x." + tenantId.getSimpleColumn().getColumnName() + " = " + "'"
-					+ getSession().getTenantId().toString() + "'";
-		}
-
-		if (companyId != null) {
-			if (getSession().getCompanyId() == null) {
-				throw new SQLQueryException("Informe o Company ID para realizar consulta na entidade "
-						+ getEntityCache().getEntityClass().getName());
-			}
-			if (!hasWhere) {
-				sql = sql + " where ";
-			} else {
-				sql = sql + " and ";
-			}
-			sql = sql + "x." + companyId.getSimpleColumn().getColumnName() + " = " + "'"
-					+ getSession().getCompanyId().toString() + "'";
-		}
+		sql = appendTenantAndCompanyId(sql, "x", parameters);
 
-		return doCount(sql);
+		return doCount(sql, parameters);
 	}
 
 	protected long doCount(String countSql) {
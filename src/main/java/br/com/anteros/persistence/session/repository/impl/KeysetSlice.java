@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.session.repository.impl;
+
+import java.util.List;
+
+import br.com.anteros.persistence.session.repository.KeysetPageRequest;
+import br.com.anteros.persistence.session.repository.Pageable;
+
+/**
+ * Página obtida pela paginação por chave. Guarda os valores dos campos de
+ * ordenação do último objeto para buscar a próxima página.
+ *
+ * @author Edson Martins - Anteros
+ *
+ */
+public class KeysetSlice<T> extends SliceImpl<T> {
+
+	private static final long serialVersionUID = -2815037613453394011L;
+
+	private final KeysetPageRequest pageable;
+	private final Object[] lastKey;
+	private final Long total;
+
+	public KeysetSlice(List<T> content, KeysetPageRequest pageable, boolean hasNext, Object[] lastKey, Long total) {
+		super(content, pageable, hasNext);
+		this.pageable = pageable;
+		this.lastKey = lastKey;
+		this.total = total;
+	}
+
+	/**
+	 * Valores dos campos de ordenação do último objeto da página.
+	 */
+	public Object[] getLastKey() {
+		return lastKey;
+	}
+
+	/**
+	 * Total de registros conforme a estratégia de contagem da requisição ou nulo
+	 * se a contagem não foi solicitada.
+	 */
+	public Long getTotal() {
+		return total;
+	}
+
+	@Override
+	public KeysetPageRequest nextPageable() {
+		return hasNext() ? pageable.after(lastKey, total) : null;
+	}
+
+	@Override
+	public Pageable previousPageable() {
+		return hasPrevious() ? pageable.previous() : null;
+	}
+}
@@ -17,6 +17,7 @@ package br.com.anteros.persistence.sql.binder;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Types;
 import java.util.Date;
 
 public class DateParameterBinding implements ParameterBinding {
@@ -34,6 +35,10 @@ public class DateParameterBinding implements ParameterBinding {
 	
 	public void bindValue(PreparedStatement statement, int parameterIndex) throws SQLException {
 		Date date = (Date) this.getValue();
+		if (date == null) {
+			statement.setNull(parameterIndex, Types.DATE);
+			return;
+		}
 		statement.setDate(parameterIndex, new java.sql.Date(date.getTime()));
 	}
 	
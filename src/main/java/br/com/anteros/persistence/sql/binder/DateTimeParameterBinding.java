@@ -18,6 +18,7 @@ package br.com.anteros.persistence.sql.binder;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.sql.Types;
 import java.util.Date;
 
 public class DateTimeParameterBinding implements ParameterBinding {
@@ -35,6 +36,10 @@ public class DateTimeParameterBinding implements ParameterBinding {
 	
 	public void bindValue(PreparedStatement statement, int parameterIndex) throws SQLException {
 		Date date = (Date) this.getValue();
+		if (date == null) {
+			statement.setNull(parameterIndex, Types.TIMESTAMP);
+			return;
+		}
 		statement.setTimestamp(parameterIndex, new Timestamp(date.getTime()));
 //		statement.setDate(parameterIndex, new java.sql.Date(date.getTime()));
 		
@@ -2,12 +2,18 @@ package br.com.anteros.persistence.sql.command;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 import br.com.anteros.persistence.metadata.EntityCache;
 import br.com.anteros.persistence.metadata.descriptor.DescriptionSQL;
+import br.com.anteros.persistence.metadata.identifier.IdentifierPostInsert;
 import br.com.anteros.persistence.parameter.NamedParameter;
+import br.com.anteros.persistence.session.AbstractSQLSessionFactoryBase;
 import br.com.anteros.persistence.session.SQLSession;
+import br.com.anteros.persistence.session.SQLSessionFactory;
 import br.com.anteros.persistence.session.query.ShowSQLType;
 
 public class BatchCommandSQL extends CommandSQL {
@@ -30,46 +36,103 @@ public class BatchCommandSQL extends CommandSQL {
 	public CommandReturn execute() throws Exception {
 
 		List<CommandReturn> returns = new ArrayList<CommandReturn>();
+		List<CommandSQL> batchCommands = new ArrayList<CommandSQL>();
+		Set<IdentifierPostInsert> pendingIdentifiers = Collections
+				.newSetFromMap(new IdentityHashMap<IdentifierPostInsert, Boolean>());
 
 		for (CommandSQL command : commands) {
+			/*
+			 * Se o comando usa a chave IDENTITY de um INSERT que ainda está no lote
+			 * executa o lote antes para que a chave já tenha sido gerada
+			 */
+			if (!pendingIdentifiers.isEmpty() && usesIdentifier(command, pendingIdentifiers)) {
+				executeBatch(batchCommands, returns);
+				batchCommands.clear();
+				returns.clear();
+				pendingIdentifiers.clear();
+			}
 			CommandReturn sqlReturn = command.execute();
 			if (sqlReturn != null) {
 				returns.add(sqlReturn);
+				batchCommands.add(command);
+				if (sqlReturn.getPostInsertCommand() != null)
+					pendingIdentifiers.add(sqlReturn.getPostInsertCommand().getIdentifierPostInsert());
 			}
 		}
+		executeBatch(batchCommands, returns);
 
-		List<Object[]> batchParameters = new ArrayList<Object[]>();
+		for (CommandSQL command : commands) {
+			command.setEntityManaged();
+		}
+
+		return null;
+	}
+
+	private void executeBatch(List<CommandSQL> batchCommands, List<CommandReturn> returns) throws Exception {
+		/*
+		 * Agrupa os comandos com o mesmo SQL respeitando as dependências entre as
+		 * tabelas para aumentar o tamanho dos lotes
+		 */
+		if (isOrderBatchStatements() && (returns.size() > 1))
+			returns = new BatchStatementPlanner().plan(batchCommands, returns);
+
+		List<CommandReturn> batch = new ArrayList<CommandReturn>();
 		String sql = null;
-		int batchCount = 0;
 		for (CommandReturn ret : returns) {
-			if ((ret.getSql().equals(sql) || (sql == null)) && (batchCount < batchSize)) {
-				batchParameters.add(ret.getParameters());
-				sql = ret.getSql();
-				batchCount++;
-			} else {
+			if ((sql != null) && (!ret.getSql().equals(sql) || (batch.size() >= batchSize))) {
 				/*
 				 * Executa e zera fila, reinicia contagem
 				 */
-				queryRunner.batch(session, sql, batchParameters.toArray(new Object[][] {}), showSql, session.isFormatSql(), null, null);
-				batchParameters.clear();
-				batchCount = 0;
-				/*
-				 * Adiciona e incrementa 1(um)
-				 */
-				batchParameters.add(ret.getParameters());
-				sql = ret.getSql();
-				batchCount++;
+				executeBatch(sql, batch);
+				batch.clear();
 			}
+			batch.add(ret);
+			sql = ret.getSql();
 		}
-		if (batchCount > 0) {
-			queryRunner.batch(session, sql, batchParameters.toArray(new Object[][] {}), showSql, session.isFormatSql(), null, null);
+		if (batch.size() > 0) {
+			executeBatch(sql, batch);
 		}
-		
-		for (CommandSQL command : commands) {
-			command.setEntityManaged();
+	}
+
+	private void executeBatch(String sql, List<CommandReturn> batch) throws Exception {
+		Object[][] batchParameters = new Object[batch.size()][];
+		for (int i = 0; i < batch.size(); i++)
+			batchParameters[i] = batch.get(i).getParameters();
+
+		if (batch.get(0).getPostInsertCommand() == null) {
+			queryRunner.batch(session, sql, batchParameters, showSql, session.isFormatSql(), null, null);
+			return;
 		}
 
-		return null;
+		/*
+		 * INSERT's com chave IDENTITY: as chaves geradas são lidas do
+		 * getGeneratedKeys na ordem do lote e atribuídas aos objetos
+		 */
+		IdentifierPostInsert[] identifiers = new IdentifierPostInsert[batch.size()];
+		for (int i = 0; i < batch.size(); i++)
+			identifiers[i] = batch.get(i).getPostInsertCommand().getIdentifierPostInsert();
+		queryRunner.batch(session, sql, batchParameters, identifiers, showSql, session.isFormatSql(), null, null);
+		for (CommandReturn ret : batch) {
+			ret.getPostInsertCommand().setVersionValue();
+			ret.getPostInsertCommand().setGeneratedIdentifier();
+		}
+	}
+
+	private boolean usesIdentifier(CommandSQL command, Set<IdentifierPostInsert> identifiers) {
+		if (command.getNamedParameters() != null) {
+			for (NamedParameter parameter : command.getNamedParameters()) {
+				if ((parameter.getValue() instanceof IdentifierPostInsert) && identifiers.contains(parameter.getValue()))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isOrderBatchStatements() {
+		SQLSessionFactory sessionFactory = session.getSQLSessionFactory();
+		if (sessionFactory instanceof AbstractSQLSessionFactoryBase)
+			return ((AbstractSQLSessionFactoryBase) sessionFactory).isOrderBatchStatements();
+		return false;
 	}
 
 	@Override
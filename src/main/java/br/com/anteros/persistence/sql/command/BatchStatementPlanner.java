@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.sql.command;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import br.com.anteros.persistence.metadata.EntityCache;
+import br.com.anteros.persistence.metadata.descriptor.DescriptionColumn;
+
+/**
+ * Reordena os comandos de um lote agrupando os comandos com o mesmo SQL para
+ * que sejam enviados no mesmo executeBatch.
+ *
+ * Um comando só é antecipado para o grupo anterior com o mesmo SQL quando não
+ * depende de nenhum comando que ficaria depois dele. A dependência é obtida das
+ * chaves estrangeiras da entidade: um INSERT pode passar na frente de INSERT's
+ * de outras tabelas que ele não referencia; UPDATE's e DELETE's só passam na
+ * frente de comandos de tabelas sem relacionamento com a sua. Comandos sem
+ * entidade (tabelas de junção, coleções) não são reordenados.
+ *
+ * @author Edson Martins - Anteros
+ *
+ */
+public class BatchStatementPlanner {
+
+	private static final int UNKNOWN = 0;
+	private static final int INSERT = 1;
+	private static final int UPDATE = 2;
+	private static final int DELETE = 3;
+
+	private final Map<EntityCache, Set<String>> referencedTables = new HashMap<EntityCache, Set<String>>();
+
+	/**
+	 * Retorna os retornos dos comandos reordenados. As listas informadas são
+	 * paralelas: o retorno na posição i foi gerado pelo comando na posição i.
+	 */
+	public List<CommandReturn> plan(List<CommandSQL> commands, List<CommandReturn> returns) {
+		List<StatementGroup> groups = new ArrayList<StatementGroup>();
+		for (int i = 0; i < returns.size(); i++) {
+			CommandReturn ret = returns.get(i);
+			StatementGroup statement = createGroup(commands.get(i), ret);
+			StatementGroup target = findGroup(groups, statement);
+			if (target == null) {
+				groups.add(statement);
+			} else {
+				target.returns.add(ret);
+			}
+		}
+
+		List<CommandReturn> result = new ArrayList<CommandReturn>(returns.size());
+		for (StatementGroup group : groups)
+			result.addAll(group.returns);
+		return result;
+	}
+
+	/**
+	 * Procura o último grupo com o mesmo SQL verificando se o comando pode ser
+	 * executado antes de todos os grupos posteriores a ele.
+	 */
+	private StatementGroup findGroup(List<StatementGroup> groups, StatementGroup statement) {
+		for (int i = groups.size() - 1; i >= 0; i--) {
+			StatementGroup group = groups.get(i);
+			if (group.sql.equals(statement.sql))
+				return group;
+			if (!canExecuteBefore(statement, group))
+				return null;
+		}
+		return null;
+	}
+
+	private boolean canExecuteBefore(StatementGroup statement, StatementGroup group) {
+		if ((statement.kind == UNKNOWN) || (group.kind == UNKNOWN))
+			return false;
+		if ((statement.kind == INSERT) && (group.kind == INSERT))
+			return !statement.references(group.tableName);
+		return !statement.tableName.equals(group.tableName) && !statement.references(group.tableName)
+				&& !group.references(statement.tableName);
+	}
+
+	private StatementGroup createGroup(CommandSQL command, CommandReturn ret) {
+		int kind = UNKNOWN;
+		String tableName = null;
+		Set<String> references = null;
+		EntityCache entityCache = command.getEntityCache();
+		if ((entityCache != null) && (command.getTargetTableName() != null)
+				&& command.getTargetTableName().equalsIgnoreCase(entityCache.getTableName())) {
+			if (command instanceof InsertCommandSQL)
+				kind = INSERT;
+			else if (command instanceof UpdateCommandSQL)
+				kind = UPDATE;
+			else if (command instanceof DeleteCommandSQL)
+				kind = DELETE;
+			tableName = entityCache.getTableName().toUpperCase();
+			references = getReferencedTables(entityCache);
+		}
+		return new StatementGroup(ret, kind, tableName, references);
+	}
+
+	private Set<String> getReferencedTables(EntityCache entityCache) {
+		Set<String> result = referencedTables.get(entityCache);
+		if (result == null) {
+			result = new HashSet<String>();
+			for (DescriptionColumn column : entityCache.getDescriptionColumns()) {
+				if (column.isForeignKey() && (column.getReferencedTableName() != null))
+					result.add(column.getReferencedTableName().toUpperCase());
+			}
+			referencedTables.put(entityCache, result);
+		}
+		return result;
+	}
+
+	private static class StatementGroup {
+		final String sql;
+		final int kind;
+		final String tableName;
+		final Set<String> references;
+		final List<CommandReturn> returns = new ArrayList<CommandReturn>();
+
+		StatementGroup(CommandReturn ret, int kind, String tableName, Set<String> references) {
+			this.sql = ret.getSql();
+			this.kind = kind;
+			this.tableName = tableName;
+			this.references = references;
+			this.returns.add(ret);
+		}
+
+		boolean references(String otherTableName) {
+			return references.contains(otherTableName);
+		}
+	}
+}
@@ -4,12 +4,22 @@ public class CommandReturn {
 	
 	private String sql;
 	private Object[] parameters;
+	private InsertCommandSQL postInsertCommand;
 	
 	public CommandReturn(String sql, Object[] parameters){
 		this.sql = sql;
 		this.parameters = parameters;
 	}
 
+	/**
+	 * Retorno de um INSERT cuja chave IDENTITY será obtida pelo getGeneratedKeys
+	 * após a execução do lote.
+	 */
+	public CommandReturn(String sql, Object[] parameters, InsertCommandSQL postInsertCommand){
+		this(sql, parameters);
+		this.postInsertCommand = postInsertCommand;
+	}
+
 	public String getSql() {
 		return sql;
 	}
@@ -26,4 +36,8 @@ public class CommandReturn {
 		this.parameters = parameters;
 	}
 
+	public InsertCommandSQL getPostInsertCommand() {
+		return postInsertCommand;
+	}
+
 }
@@ -126,23 +126,19 @@ public class InsertCommandSQL extends CommandSQL {
 										identifierPostInsert, session.getDialect().getIdentitySelectString(), showSql,
 										session.getListeners(), session.clientId());
 							} else {
+								/*
+								 * Se o driver retorna as chaves geradas de um lote o INSERT é
+								 * executado junto com os demais e a chave atribuída depois
+								 */
+								if (inBatchMode && session.getDialect().supportsBatchGeneratedKeys()) {
+									return new CommandReturn(sql, NamedParameter.getAllValues(namedParameters), this);
+								}
 								queryRunner.update(session, sql, NamedParameter.getAllValues(namedParameters),
 										identifierPostInsert, session.getDialect().getIdentitySelectString(), showSql,
 										session.getListeners(), session.clientId());
-
-								for (NamedParameter np : namedParameters) {
-									if (np instanceof VersionNamedParameter) {
-										DescriptionColumn versionColumn = entityCache.getVersionColumn();
-										if (versionColumn != null) {
-											ReflectionUtils.setObjectValueByFieldName(targetObject,
-													versionColumn.getField().getName(), np.getValue());
-										}
-									}
-								}
+								setVersionValue();
 							}
-							generatedId = identifierPostInsert.generate();
-							ReflectionUtils.setObjectValueByFieldName(targetObject, identifyColumn.getField().getName(),
-									generatedId);
+							setGeneratedIdentifier();
 						} else {
 							if (descriptionSQL != null) {
 								queryRunner.update(
@@ -179,6 +175,29 @@ public class InsertCommandSQL extends CommandSQL {
 
 	}
 
+	/**
+	 * Atribui ao objeto a chave gerada pelo banco de dados.
+	 */
+	public void setGeneratedIdentifier() throws Exception {
+		generatedId = identifierPostInsert.generate();
+		ReflectionUtils.setObjectValueByFieldName(targetObject, identifyColumn.getField().getName(), generatedId);
+	}
+
+	/**
+	 * Atribui ao objeto o valor da versão usada no INSERT.
+	 */
+	public void setVersionValue() throws Exception {
+		for (NamedParameter np : namedParameters) {
+			if (np instanceof VersionNamedParameter) {
+				DescriptionColumn versionColumn = entityCache.getVersionColumn();
+				if (versionColumn != null) {
+					ReflectionUtils.setObjectValueByFieldName(targetObject, versionColumn.getField().getName(),
+							np.getValue());
+				}
+			}
+		}
+	}
+
 	public IdentifierPostInsert getIdentifierPostInsert() {
 		return identifierPostInsert;
 	}
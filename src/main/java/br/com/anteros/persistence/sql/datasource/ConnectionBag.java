@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.sql.datasource;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Conjunto das conexões do pool com entrega sem lock.
+ *
+ * A conexão é obtida primeiro da última conexão usada pela thread, depois da
+ * lista compartilhada trocando a situação da conexão com compare-and-set. Se
+ * nenhuma conexão estiver livre a thread aguarda a entrega direta de uma conexão
+ * devolvida ou criada por outra thread.
+ *
+ * @author Edson Martins - Anteros
+ *
+ */
+class ConnectionBag {
+
+	private final CopyOnWriteArrayList<PoolEntry> sharedList = new CopyOnWriteArrayList<PoolEntry>();
+	private final ThreadLocal<WeakReference<PoolEntry>> lastUsed = new ThreadLocal<WeakReference<PoolEntry>>();
+	private final SynchronousQueue<PoolEntry> handoffQueue = new SynchronousQueue<PoolEntry>(true);
+	private final AtomicInteger waiters = new AtomicInteger();
+	private final BagListener listener;
+	private volatile boolean closed;
+
+	ConnectionBag(BagListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Obtém uma conexão livre aguardando até o tempo informado. Retorna nulo se o
+	 * tempo esgotar.
+	 */
+	PoolEntry borrow(long timeout, TimeUnit unit) throws InterruptedException {
+		WeakReference<PoolEntry> reference = lastUsed.get();
+		if (reference != null) {
+			PoolEntry entry = reference.get();
+			if ((entry != null) && entry.compareAndSetState(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_IN_USE))
+				return entry;
+		}
+
+		int waiting = waiters.incrementAndGet();
+		try {
+			for (PoolEntry entry : sharedList) {
+				if (entry.compareAndSetState(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_IN_USE)) {
+					/*
+					 * Pode ter pego a conexão criada para outra thread que está aguardando
+					 */
+					if (waiting > 1)
+						listener.addBagItem(waiting - 1);
+					return entry;
+				}
+			}
+
+			listener.addBagItem(waiting);
+
+			long remaining = unit.toNanos(timeout);
+			long deadline = System.nanoTime() + remaining;
+			while (remaining > 0) {
+				PoolEntry entry = handoffQueue.poll(remaining, TimeUnit.NANOSECONDS);
+				if ((entry == null) || entry.compareAndSetState(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_IN_USE))
+					return entry;
+				remaining = deadline - System.nanoTime();
+			}
+			return null;
+		} finally {
+			waiters.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Devolve a conexão. Se houver threads aguardando a conexão é entregue
+	 * diretamente para uma delas.
+	 */
+	void requite(PoolEntry entry) {
+		entry.setState(PoolEntry.STATE_NOT_IN_USE);
+		for (int i = 0; waiters.get() > 0; i++) {
+			if ((entry.getState() != PoolEntry.STATE_NOT_IN_USE) || handoffQueue.offer(entry))
+				return;
+			if ((i & 0xff) == 0xff)
+				LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+			else
+				Thread.yield();
+		}
+		lastUsed.set(new WeakReference<PoolEntry>(entry));
+	}
+
+	void add(PoolEntry entry) {
+		if (closed)
+			throw new IllegalStateException("O pool de conexões foi fechado.");
+		sharedList.add(entry);
+		while ((waiters.get() > 0) && (entry.getState() == PoolEntry.STATE_NOT_IN_USE) && !handoffQueue.offer(entry))
+			Thread.yield();
+	}
+
+	/**
+	 * Remove a conexão que está em uso ou reservada.
+	 */
+	boolean remove(PoolEntry entry) {
+		if (!entry.compareAndSetState(PoolEntry.STATE_IN_USE, PoolEntry.STATE_REMOVED)
+				&& !entry.compareAndSetState(PoolEntry.STATE_RESERVED, PoolEntry.STATE_REMOVED) && !closed)
+			return false;
+		return sharedList.remove(entry);
+	}
+
+	/**
+	 * Reserva uma conexão livre para que não seja entregue enquanto é avaliada
+	 * pela manutenção do pool.
+	 */
+	boolean reserve(PoolEntry entry) {
+		return entry.compareAndSetState(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_RESERVED);
+	}
+
+	void unreserve(PoolEntry entry) {
+		if (entry.compareAndSetState(PoolEntry.STATE_RESERVED, PoolEntry.STATE_NOT_IN_USE)) {
+			while ((waiters.get() > 0) && !handoffQueue.offer(entry))
+				Thread.yield();
+		}
+	}
+
+	List<PoolEntry> values(int state) {
+		List<PoolEntry> result = new ArrayList<PoolEntry>();
+		for (PoolEntry entry : sharedList) {
+			if (entry.getState() == state)
+				result.add(entry);
+		}
+		return result;
+	}
+
+	List<PoolEntry> values() {
+		return new ArrayList<PoolEntry>(sharedList);
+	}
+
+	int getCount(int state) {
+		int result = 0;
+		for (PoolEntry entry : sharedList) {
+			if (entry.getState() == state)
+				result++;
+		}
+		return result;
+	}
+
+	int size() {
+		return sharedList.size();
+	}
+
+	int getWaitingThreadCount() {
+		return waiters.get();
+	}
+
+	void close() {
+		closed = true;
+	}
+
+	interface BagListener {
+
+		/**
+		 * Solicita a criação de conexões para as threads que estão aguardando.
+		 */
+		void addBagItem(int waiting);
+	}
+}
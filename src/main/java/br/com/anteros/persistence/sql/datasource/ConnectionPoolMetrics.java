@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.sql.datasource;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Métricas do pool de conexões. O tempo de espera por uma conexão é acumulado
+ * em faixas de milissegundos definidas em {@link #WAIT_TIME_BUCKETS}; a última
+ * faixa conta as esperas acima do maior limite.
+ *
+ * @author Edson Martins - Anteros
+ *
+ */
+public class ConnectionPoolMetrics {
+
+	public static final long[] WAIT_TIME_BUCKETS = { 1, 5, 10, 50, 100, 500, 1000, 5000 };
+
+	private final PooledJDBCDataSource dataSource;
+	private final AtomicLongArray waitTimeHistogram = new AtomicLongArray(WAIT_TIME_BUCKETS.length + 1);
+	private final AtomicLong totalWaitTime = new AtomicLong();
+	private final AtomicLong connectionsCreated = new AtomicLong();
+	private final AtomicLong connectionsClosed = new AtomicLong();
+	private final AtomicLong connectionTimeouts = new AtomicLong();
+	private final AtomicLong leaksDetected = new AtomicLong();
+
+	ConnectionPoolMetrics(PooledJDBCDataSource dataSource) {
+		this.dataSource = dataSource;
+	}
+
+	void recordWaitTime(long nanos) {
+		long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+		int bucket = 0;
+		while ((bucket < WAIT_TIME_BUCKETS.length) && (millis >= WAIT_TIME_BUCKETS[bucket]))
+			bucket++;
+		waitTimeHistogram.incrementAndGet(bucket);
+		totalWaitTime.addAndGet(nanos);
+	}
+
+	void recordConnectionCreated() {
+		connectionsCreated.incrementAndGet();
+	}
+
+	void recordConnectionClosed() {
+		connectionsClosed.incrementAndGet();
+	}
+
+	void recordConnectionTimeout() {
+		connectionTimeouts.incrementAndGet();
+	}
+
+	void recordLeak() {
+		leaksDetected.incrementAndGet();
+	}
+
+	public int getActiveConnections() {
+		return dataSource.getActiveConnections();
+	}
+
+	public int getIdleConnections() {
+		return dataSource.getIdleConnections();
+	}
+
+	public int getTotalConnections() {
+		return dataSource.getTotalConnections();
+	}
+
+	public int getThreadsAwaitingConnection() {
+		return dataSource.getThreadsAwaitingConnection();
+	}
+
+	/**
+	 * Quantidade de conexões obtidas em cada faixa de tempo de espera.
+	 */
+	public long[] getWaitTimeHistogram() {
+		long[] result = new long[waitTimeHistogram.length()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = waitTimeHistogram.get(i);
+		return result;
+	}
+
+	/**
+	 * Tempo médio de espera por uma conexão em milissegundos.
+	 */
+	public double getAverageWaitTime() {
+		long count = 0;
+		for (long value : getWaitTimeHistogram())
+			count += value;
+		return (count == 0 ? 0 : (totalWaitTime.get() / (double) count) / 1000000D);
+	}
+
+	public long getConnectionsCreated() {
+		return connectionsCreated.get();
+	}
+
+	public long getConnectionsClosed() {
+		return connectionsClosed.get();
+	}
+
+	public long getConnectionTimeouts() {
+		return connectionTimeouts.get();
+	}
+
+	public long getLeaksDetected() {
+		return leaksDetected.get();
+	}
+
+	@Override
+	public String toString() {
+		return "ConnectionPoolMetrics [active=" + getActiveConnections() + ", idle=" + getIdleConnections()
+				+ ", total=" + getTotalConnections() + ", waiting=" + getThreadsAwaitingConnection()
+				+ ", waitTimeHistogram=" + Arrays.toString(getWaitTimeHistogram()) + ", timeouts="
+				+ getConnectionTimeouts() + ", leaks=" + getLeaksDetected() + "]";
+	}
+}
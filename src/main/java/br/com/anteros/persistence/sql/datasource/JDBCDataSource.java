@@ -33,6 +33,7 @@ public class JDBCDataSource implements DataSource {
 	private String username;
 	private String password;
 	private String url;
+	private volatile Driver driver;
 
 	public JDBCDataSource() {
 
@@ -75,32 +76,39 @@ public class JDBCDataSource implements DataSource {
 	}
 
 	public Connection getConnection() throws SQLException {
-		try {
-			Thread.currentThread().getContextClassLoader().loadClass(driverClassName);
-		} catch (ClassNotFoundException e) {
-			throw new SQLException(e);
-		}
 		return getConnection(username, password);
 	}
 
 	public Connection getConnection(String username, String password)
 			throws SQLException {
-		
-		 Class driver_class=null;
-		try {
-			driver_class = Thread.currentThread().getContextClassLoader().loadClass(driverClassName);
-			Driver driver = (Driver) driver_class.newInstance();
-	         DriverManager.registerDriver(driver);
-		} catch (ClassNotFoundException e) {
-			throw new SQLException(e);
-		} catch (InstantiationException e) {
-			throw new SQLException(e);
-		} catch (IllegalAccessException e) {
-			throw new SQLException(e);
-		}         
-		
-		Connection result = DriverManager
-				.getConnection(url, username, password);
+		getDriver();
+		return DriverManager.getConnection(url, username, password);
+	}
+
+	/**
+	 * Carrega e registra o driver apenas na primeira conexão.
+	 */
+	protected Driver getDriver() throws SQLException {
+		Driver result = driver;
+		if (result == null) {
+			synchronized (this) {
+				result = driver;
+				if (result == null) {
+					try {
+						Class<?> driverClass = Thread.currentThread().getContextClassLoader().loadClass(driverClassName);
+						result = (Driver) driverClass.newInstance();
+						DriverManager.registerDriver(result);
+					} catch (ClassNotFoundException e) {
+						throw new SQLException(e);
+					} catch (InstantiationException e) {
+						throw new SQLException(e);
+					} catch (IllegalAccessException e) {
+						throw new SQLException(e);
+					}
+					driver = result;
+				}
+			}
+		}
 		return result;
 	}
 
@@ -112,6 +120,7 @@ public class JDBCDataSource implements DataSource {
 			throws ClassNotFoundException {
 		Thread.currentThread().getContextClassLoader().loadClass(driverClassName);
 		this.driverClassName = driverClassName;
+		this.driver = null;
 	}
 
 	public String getUsername() {
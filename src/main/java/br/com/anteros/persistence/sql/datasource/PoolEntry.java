@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.sql.datasource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Conexão física mantida pelo pool com a situação de uso e os valores
+ * originais das propriedades que são restauradas na devolução.
+ *
+ * @author Edson Martins - Anteros
+ *
+ */
+class PoolEntry {
+
+	static final int STATE_NOT_IN_USE = 0;
+	static final int STATE_IN_USE = 1;
+	static final int STATE_REMOVED = -1;
+	static final int STATE_RESERVED = -2;
+
+	private final AtomicInteger state = new AtomicInteger(STATE_NOT_IN_USE);
+	private final Connection connection;
+	private final long createdAt;
+	private final long expiresAt;
+	private volatile long lastAccessed;
+	private volatile boolean evict;
+
+	final boolean defaultAutoCommit;
+	final boolean defaultReadOnly;
+	final int defaultTransactionIsolation;
+	final String defaultCatalog;
+	final String defaultSchema;
+	final int defaultNetworkTimeout;
+
+	PoolEntry(Connection connection, long maxLifetimeNanos) throws SQLException {
+		this.connection = connection;
+		this.createdAt = System.nanoTime();
+		this.lastAccessed = createdAt;
+		this.expiresAt = (maxLifetimeNanos > 0 ? createdAt + maxLifetimeNanos : Long.MAX_VALUE);
+		this.defaultAutoCommit = connection.getAutoCommit();
+		this.defaultReadOnly = connection.isReadOnly();
+		this.defaultTransactionIsolation = connection.getTransactionIsolation();
+		this.defaultCatalog = connection.getCatalog();
+		this.defaultSchema = getDefaultSchema(connection);
+		this.defaultNetworkTimeout = getDefaultNetworkTimeout(connection);
+	}
+
+	/*
+	 * Drivers anteriores ao JDBC 4.1 não implementam o schema nem o tempo
+	 * limite de rede.
+	 */
+	private static String getDefaultSchema(Connection connection) {
+		try {
+			return connection.getSchema();
+		} catch (SQLException | AbstractMethodError e) {
+			return null;
+		}
+	}
+
+	private static int getDefaultNetworkTimeout(Connection connection) {
+		try {
+			return connection.getNetworkTimeout();
+		} catch (SQLException | AbstractMethodError e) {
+			return 0;
+		}
+	}
+
+	Connection getConnection() {
+		return connection;
+	}
+
+	int getState() {
+		return state.get();
+	}
+
+	void setState(int newState) {
+		state.set(newState);
+	}
+
+	boolean compareAndSetState(int expected, int newState) {
+		return state.compareAndSet(expected, newState);
+	}
+
+	long getCreatedAt() {
+		return createdAt;
+	}
+
+	long getLastAccessed() {
+		return lastAccessed;
+	}
+
+	void setLastAccessed(long lastAccessed) {
+		this.lastAccessed = lastAccessed;
+	}
+
+	boolean isExpired(long now) {
+		return now - expiresAt >= 0;
+	}
+
+	boolean isMarkedForEviction() {
+		return evict;
+	}
+
+	void markForEviction() {
+		this.evict = true;
+	}
+
+	@Override
+	public String toString() {
+		return "PoolEntry [connection=" + connection + ", state=" + state.get() + "]";
+	}
+}
@@ -0,0 +1,522 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.sql.datasource;
+
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Conexão entregue pelo {@link PooledJDBCDataSource}. Repassa as chamadas para a
+ * conexão física e, ao ser fechada, fecha os statements que continuam abertos e
+ * devolve a conexão ao pool restaurando as propriedades alteradas.
+ *
+ * @author Edson Martins - Anteros
+ *
+ */
+class PooledConnectionHandle implements Connection {
+
+	/*
+	 * A restauração do tempo limite de rede é feita na devolução ao pool, na
+	 * própria thread que fecha a conexão.
+	 */
+	private static final Executor RESET_EXECUTOR = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+	};
+
+	private final PooledJDBCDataSource dataSource;
+	private final PoolEntry entry;
+	private ScheduledFuture<?> leakTask;
+	private boolean closed;
+	private boolean autoCommitChanged;
+	private boolean readOnlyChanged;
+	private boolean transactionIsolationChanged;
+	private boolean catalogChanged;
+	private boolean schemaChanged;
+	private boolean networkTimeoutChanged;
+	private final Set<Statement> openStatements = Collections
+			.newSetFromMap(new ConcurrentHashMap<Statement, Boolean>());
+
+	PooledConnectionHandle(PooledJDBCDataSource dataSource, PoolEntry entry) {
+		this.dataSource = dataSource;
+		this.entry = entry;
+	}
+
+	PoolEntry getEntry() {
+		return entry;
+	}
+
+	void setLeakTask(ScheduledFuture<?> leakTask) {
+		this.leakTask = leakTask;
+	}
+
+	void cancelLeakTask() {
+		if (leakTask != null) {
+			leakTask.cancel(false);
+			leakTask = null;
+		}
+	}
+
+	private Connection connection() {
+		return entry.getConnection();
+	}
+
+	private void checkClosed() throws SQLException {
+		if (closed)
+			throw new SQLException("A conexão já foi devolvida ao pool.");
+	}
+
+	/**
+	 * Desfaz a transação pendente e restaura as propriedades alteradas. Retorna
+	 * falso se a conexão não puder ser reutilizada.
+	 */
+	boolean reset() {
+		try {
+			Connection connection = connection();
+			if (!connection.getAutoCommit())
+				connection.rollback();
+			if (autoCommitChanged)
+				connection.setAutoCommit(entry.defaultAutoCommit);
+			if (readOnlyChanged)
+				connection.setReadOnly(entry.defaultReadOnly);
+			if (transactionIsolationChanged)
+				connection.setTransactionIsolation(entry.defaultTransactionIsolation);
+			if (catalogChanged && (entry.defaultCatalog != null))
+				connection.setCatalog(entry.defaultCatalog);
+			if (schemaChanged && (entry.defaultSchema != null))
+				connection.setSchema(entry.defaultSchema);
+			if (networkTimeoutChanged)
+				connection.setNetworkTimeout(RESET_EXECUTOR, entry.defaultNetworkTimeout);
+			connection.clearWarnings();
+			return true;
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	private Statement track(Statement statement) {
+		Statement result = new PooledStatement(this, statement);
+		openStatements.add(result);
+		return result;
+	}
+
+	private PreparedStatement track(PreparedStatement statement) {
+		PreparedStatement result = new PooledPreparedStatement(this, statement);
+		openStatements.add(result);
+		return result;
+	}
+
+	private CallableStatement track(CallableStatement statement) {
+		CallableStatement result = new PooledCallableStatement(this, statement);
+		openStatements.add(result);
+		return result;
+	}
+
+	void statementClosed(Statement statement) {
+		openStatements.remove(statement);
+	}
+
+	/**
+	 * Fecha os statements criados pela conexão que não foram fechados pela
+	 * aplicação. Retorna falso se algum não puder ser fechado.
+	 */
+	private boolean closeStatements() {
+		boolean result = true;
+		for (Statement statement : openStatements) {
+			try {
+				statement.close();
+			} catch (SQLException e) {
+				result = false;
+			}
+		}
+		openStatements.clear();
+		return result;
+	}
+
+	@Override
+	public void close() throws SQLException {
+		if (closed)
+			return;
+		closed = true;
+		if (!closeStatements())
+			entry.markForEviction();
+		dataSource.releaseConnection(this);
+	}
+
+	@Override
+	public boolean isClosed() throws SQLException {
+		return closed;
+	}
+
+	@Override
+	public boolean isValid(int timeout) throws SQLException {
+		return !closed && connection().isValid(timeout);
+	}
+
+	@Override
+	public void abort(Executor executor) throws SQLException {
+		if (closed)
+			return;
+		entry.markForEviction();
+		connection().abort(executor);
+		close();
+	}
+
+	@Override
+	public Statement createStatement() throws SQLException {
+		checkClosed();
+		return track(connection().createStatement());
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql) throws SQLException {
+		checkClosed();
+		return track(connection().prepareStatement(sql));
+	}
+
+	@Override
+	public CallableStatement prepareCall(String sql) throws SQLException {
+		checkClosed();
+		return track(connection().prepareCall(sql));
+	}
+
+	@Override
+	public String nativeSQL(String sql) throws SQLException {
+		checkClosed();
+		return connection().nativeSQL(sql);
+	}
+
+	@Override
+	public void setAutoCommit(boolean autoCommit) throws SQLException {
+		checkClosed();
+		autoCommitChanged = true;
+		connection().setAutoCommit(autoCommit);
+	}
+
+	@Override
+	public boolean getAutoCommit() throws SQLException {
+		checkClosed();
+		return connection().getAutoCommit();
+	}
+
+	@Override
+	public void commit() throws SQLException {
+		checkClosed();
+		connection().commit();
+	}
+
+	@Override
+	public void rollback() throws SQLException {
+		checkClosed();
+		connection().rollback();
+	}
+
+	@Override
+	public DatabaseMetaData getMetaData() throws SQLException {
+		checkClosed();
+		return connection().getMetaData();
+	}
+
+	@Override
+	public void setReadOnly(boolean readOnly) throws SQLException {
+		checkClosed();
+		readOnlyChanged = true;
+		connection().setReadOnly(readOnly);
+	}
+
+	@Override
+	public boolean isReadOnly() throws SQLException {
+		checkClosed();
+		return connection().isReadOnly();
+	}
+
+	@Override
+	public void setCatalog(String catalog) throws SQLException {
+		checkClosed();
+		catalogChanged = true;
+		connection().setCatalog(catalog);
+	}
+
+	@Override
+	public String getCatalog() throws SQLException {
+		checkClosed();
+		return connection().getCatalog();
+	}
+
+	@Override
+	public void setTransactionIsolation(int level) throws SQLException {
+		checkClosed();
+		transactionIsolationChanged = true;
+		connection().setTransactionIsolation(level);
+	}
+
+	@Override
+	public int getTransactionIsolation() throws SQLException {
+		checkClosed();
+		return connection().getTransactionIsolation();
+	}
+
+	@Override
+	public SQLWarning getWarnings() throws SQLException {
+		checkClosed();
+		return connection().getWarnings();
+	}
+
+	@Override
+	public void clearWarnings() throws SQLException {
+		checkClosed();
+		connection().clearWarnings();
+	}
+
+	@Override
+	public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+		checkClosed();
+		return track(connection().createStatement(resultSetType, resultSetConcurrency));
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency)
+			throws SQLException {
+		checkClosed();
+		return track(connection().prepareStatement(sql, resultSetType, resultSetConcurrency));
+	}
+
+	@Override
+	public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+		checkClosed();
+		return track(connection().prepareCall(sql, resultSetType, resultSetConcurrency));
+	}
+
+	@Override
+	public Map<String, Class<?>> getTypeMap() throws SQLException {
+		checkClosed();
+		return connection().getTypeMap();
+	}
+
+	@Override
+	public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+		checkClosed();
+		connection().setTypeMap(map);
+	}
+
+	@Override
+	public void setHoldability(int holdability) throws SQLException {
+		checkClosed();
+		connection().setHoldability(holdability);
+	}
+
+	@Override
+	public int getHoldability() throws SQLException {
+		checkClosed();
+		return connection().getHoldability();
+	}
+
+	@Override
+	public Savepoint setSavepoint() throws SQLException {
+		checkClosed();
+		return connection().setSavepoint();
+	}
+
+	@Override
+	public Savepoint setSavepoint(String name) throws SQLException {
+		checkClosed();
+		return connection().setSavepoint(name);
+	}
+
+	@Override
+	public void rollback(Savepoint savepoint) throws SQLException {
+		checkClosed();
+		connection().rollback(savepoint);
+	}
+
+	@Override
+	public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+		checkClosed();
+		connection().releaseSavepoint(savepoint);
+	}
+
+	@Override
+	public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability)
+			throws SQLException {
+		checkClosed();
+		return track(connection().createStatement(resultSetType, resultSetConcurrency, resultSetHoldability));
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency,
+			int resultSetHoldability) throws SQLException {
+		checkClosed();
+		return track(connection().prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability));
+	}
+
+	@Override
+	public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency,
+			int resultSetHoldability) throws SQLException {
+		checkClosed();
+		return track(connection().prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability));
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+		checkClosed();
+		return track(connection().prepareStatement(sql, autoGeneratedKeys));
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+		checkClosed();
+		return track(connection().prepareStatement(sql, columnIndexes));
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+		checkClosed();
+		return track(connection().prepareStatement(sql, columnNames));
+	}
+
+	@Override
+	public Clob createClob() throws SQLException {
+		checkClosed();
+		return connection().createClob();
+	}
+
+	@Override
+	public Blob createBlob() throws SQLException {
+		checkClosed();
+		return connection().createBlob();
+	}
+
+	@Override
+	public NClob createNClob() throws SQLException {
+		checkClosed();
+		return connection().createNClob();
+	}
+
+	@Override
+	public SQLXML createSQLXML() throws SQLException {
+		checkClosed();
+		return connection().createSQLXML();
+	}
+
+	@Override
+	public void setClientInfo(String name, String value) throws SQLClientInfoException {
+		if (closed)
+			throw new SQLClientInfoException();
+		connection().setClientInfo(name, value);
+	}
+
+	@Override
+	public void setClientInfo(Properties properties) throws SQLClientInfoException {
+		if (closed)
+			throw new SQLClientInfoException();
+		connection().setClientInfo(properties);
+	}
+
+	@Override
+	public String getClientInfo(String name) throws SQLException {
+		checkClosed();
+		return connection().getClientInfo(name);
+	}
+
+	@Override
+	public Properties getClientInfo() throws SQLException {
+		checkClosed();
+		return connection().getClientInfo();
+	}
+
+	@Override
+	public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+		checkClosed();
+		return connection().createArrayOf(typeName, elements);
+	}
+
+	@Override
+	public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+		checkClosed();
+		return connection().createStruct(typeName, attributes);
+	}
+
+	@Override
+	public void setSchema(String schema) throws SQLException {
+		checkClosed();
+		schemaChanged = true;
+		connection().setSchema(schema);
+	}
+
+	@Override
+	public String getSchema() throws SQLException {
+		checkClosed();
+		return connection().getSchema();
+	}
+
+	@Override
+	public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+		checkClosed();
+		networkTimeoutChanged = true;
+		connection().setNetworkTimeout(executor, milliseconds);
+	}
+
+	@Override
+	public int getNetworkTimeout() throws SQLException {
+		checkClosed();
+		return connection().getNetworkTimeout();
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (iface.isInstance(this))
+			return iface.cast(this);
+		checkClosed();
+		if (iface.isInstance(connection()))
+			return iface.cast(connection());
+		return connection().unwrap(iface);
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		if (iface.isInstance(this))
+			return true;
+		checkClosed();
+		return iface.isInstance(connection()) || connection().isWrapperFor(iface);
+	}
+
+	@Override
+	public String toString() {
+		return "PooledConnectionHandle [" + connection() + (closed ? ", closed" : "") + "]";
+	}
+}
@@ -0,0 +1,428 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.sql.datasource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import br.com.anteros.core.log.Logger;
+import br.com.anteros.core.log.LoggerProvider;
+
+/**
+ * DataSource com pool de conexões.
+ *
+ * As conexões são entregues sem lock pelo {@link ConnectionBag}. O pool mantém
+ * no mínimo minimumIdle conexões livres e no máximo maximumPoolSize conexões.
+ * Uma tarefa de manutenção fecha as conexões livres além do mínimo que ficaram
+ * sem uso por idleTimeout e substitui as conexões com mais de maxLifetime. A
+ * espera por uma conexão falha após connectionTimeout e, com
+ * leakDetectionThreshold maior que zero, é registrado um aviso com a pilha de
+ * chamadas de quem obteve uma conexão e não a devolveu no tempo informado.
+ *
+ * Os tempos são em milissegundos. Pode ser configurado no anteros-config.xml
+ * como um dataSource com as propriedades driverClassName, url, username,
+ * password, minimumIdle, maximumPoolSize, connectionTimeout, idleTimeout,
+ * maxLifetime, validationTimeout e leakDetectionThreshold.
+ *
+ * @author Edson Martins - Anteros
+ *
+ */
+public class PooledJDBCDataSource extends JDBCDataSource implements ConnectionBag.BagListener {
+
+	private static Logger log = LoggerProvider.getInstance().getLogger(PooledJDBCDataSource.class.getName());
+
+	public static final int DEFAULT_MAXIMUM_POOL_SIZE = 10;
+	public static final long DEFAULT_CONNECTION_TIMEOUT = 30000;
+	public static final long DEFAULT_IDLE_TIMEOUT = 600000;
+	public static final long DEFAULT_MAX_LIFETIME = 1800000;
+	public static final long DEFAULT_VALIDATION_TIMEOUT = 5000;
+
+	/**
+	 * Conexões usadas há menos tempo que isso não são validadas ao serem
+	 * entregues.
+	 */
+	private static final long ALIVE_BYPASS_WINDOW = TimeUnit.MILLISECONDS.toNanos(500);
+	private static final long HOUSEKEEPING_PERIOD = TimeUnit.SECONDS.toMillis(30);
+
+	private int minimumIdle = -1;
+	private int maximumPoolSize = DEFAULT_MAXIMUM_POOL_SIZE;
+	private long connectionTimeout = DEFAULT_CONNECTION_TIMEOUT;
+	private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+	private long maxLifetime = DEFAULT_MAX_LIFETIME;
+	private long validationTimeout = DEFAULT_VALIDATION_TIMEOUT;
+	private long leakDetectionThreshold = 0;
+
+	private final ConnectionBag bag = new ConnectionBag(this);
+	private final ConnectionPoolMetrics metrics = new ConnectionPoolMetrics(this);
+	private final AtomicInteger totalConnections = new AtomicInteger();
+	private final AtomicInteger pendingConnections = new AtomicInteger();
+	private volatile ScheduledThreadPoolExecutor executor;
+	private volatile boolean closed;
+
+	public PooledJDBCDataSource() {
+	}
+
+	public PooledJDBCDataSource(String driverClassName, String username, String password, String url)
+			throws Exception {
+		super(driverClassName, username, password, url);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		if (closed)
+			throw new SQLException("O pool de conexões foi fechado.");
+		start();
+		long start = System.nanoTime();
+		long timeout = TimeUnit.MILLISECONDS.toNanos(connectionTimeout);
+		try {
+			while (timeout > 0) {
+				PoolEntry entry = bag.borrow(timeout, TimeUnit.NANOSECONDS);
+				if (entry == null)
+					break;
+				long now = System.nanoTime();
+				if (entry.isMarkedForEviction() || entry.isExpired(now)
+						|| ((now - entry.getLastAccessed() > ALIVE_BYPASS_WINDOW) && !isAlive(entry))) {
+					closeEntry(entry);
+					timeout = TimeUnit.MILLISECONDS.toNanos(connectionTimeout) - (now - start);
+					continue;
+				}
+				metrics.recordWaitTime(now - start);
+				PooledConnectionHandle result = new PooledConnectionHandle(this, entry);
+				if (leakDetectionThreshold > 0)
+					result.setLeakTask(scheduleLeakTask());
+				return result;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("A espera por uma conexão do pool foi interrompida.", e);
+		}
+		metrics.recordConnectionTimeout();
+		throw new SQLTransientConnectionException("Não foi possível obter uma conexão do pool em " + connectionTimeout
+				+ "ms. Ativas: " + getActiveConnections() + ", livres: " + getIdleConnections() + ", aguardando: "
+				+ getThreadsAwaitingConnection());
+	}
+
+	/**
+	 * Conexões com outro usuário não fazem parte do pool.
+	 */
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		if (equals(username, getUsername()) && equals(password, getPassword()))
+			return getConnection();
+		return super.getConnection(username, password);
+	}
+
+	private static boolean equals(String value, String other) {
+		return (value == null ? other == null : value.equals(other));
+	}
+
+	/**
+	 * Inicia o pool na primeira conexão. A primeira conexão física é criada nesta
+	 * thread para que um erro de configuração falhe imediatamente.
+	 */
+	private void start() throws SQLException {
+		if (executor != null)
+			return;
+		synchronized (this) {
+			if (executor != null)
+				return;
+			if (maximumPoolSize < 1)
+				throw new SQLException("O tamanho máximo do pool de conexões deve ser maior que zero.");
+			if ((getMinimumIdle() > 0) && totalConnections.compareAndSet(0, 1)) {
+				try {
+					bag.add(createEntry());
+				} catch (SQLException e) {
+					totalConnections.decrementAndGet();
+					throw e;
+				}
+			}
+			ScheduledThreadPoolExecutor result = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "anteros-connection-pool");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			result.setRemoveOnCancelPolicy(true);
+			result.scheduleWithFixedDelay(new Runnable() {
+				public void run() {
+					housekeep();
+				}
+			}, HOUSEKEEPING_PERIOD, HOUSEKEEPING_PERIOD, TimeUnit.MILLISECONDS);
+			executor = result;
+			fillPool();
+		}
+	}
+
+	private PoolEntry createEntry() throws SQLException {
+		Connection connection = super.getConnection(getUsername(), getPassword());
+		try {
+			long lifetime = TimeUnit.MILLISECONDS.toNanos(maxLifetime);
+			/*
+			 * Variação de até 2,5% para que as conexões criadas juntas não expirem juntas
+			 */
+			if (lifetime > 0)
+				lifetime -= ThreadLocalRandom.current().nextLong(lifetime / 40 + 1);
+			PoolEntry result = new PoolEntry(connection, lifetime);
+			metrics.recordConnectionCreated();
+			return result;
+		} catch (SQLException e) {
+			closeQuietly(connection);
+			throw e;
+		}
+	}
+
+	/**
+	 * Cria em segundo plano as conexões para as threads que estão aguardando.
+	 */
+	public void addBagItem(int waiting) {
+		if ((pendingConnections.get() < waiting) && (totalConnections.get() < maximumPoolSize))
+			addConnectionAsync();
+	}
+
+	private void addConnectionAsync() {
+		ScheduledThreadPoolExecutor current = executor;
+		if ((current == null) || closed)
+			return;
+		pendingConnections.incrementAndGet();
+		current.execute(new Runnable() {
+			public void run() {
+				try {
+					addConnection();
+				} finally {
+					pendingConnections.decrementAndGet();
+				}
+			}
+		});
+	}
+
+	private void addConnection() {
+		while (true) {
+			int total = totalConnections.get();
+			if ((total >= maximumPoolSize) || closed)
+				return;
+			if (totalConnections.compareAndSet(total, total + 1))
+				break;
+		}
+		PoolEntry entry = null;
+		try {
+			entry = createEntry();
+			bag.add(entry);
+		} catch (Exception e) {
+			totalConnections.decrementAndGet();
+			if (entry != null) {
+				closeQuietly(entry.getConnection());
+				return;
+			}
+			log.error("Não foi possível criar uma conexão para o pool. " + e.getMessage(), e);
+		}
+	}
+
+	private void fillPool() {
+		int needed = Math.min(maximumPoolSize - totalConnections.get(),
+				getMinimumIdle() - bag.getCount(PoolEntry.STATE_NOT_IN_USE)) - pendingConnections.get();
+		for (int i = 0; i < needed; i++)
+			addConnectionAsync();
+	}
+
+	private boolean isAlive(PoolEntry entry) {
+		try {
+			return entry.getConnection().isValid((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(validationTimeout)));
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	void releaseConnection(PooledConnectionHandle handle) {
+		handle.cancelLeakTask();
+		PoolEntry entry = handle.getEntry();
+		entry.setLastAccessed(System.nanoTime());
+		if (closed || entry.isMarkedForEviction() || entry.isExpired(entry.getLastAccessed()) || !handle.reset()) {
+			closeEntry(entry);
+			fillPool();
+			return;
+		}
+		bag.requite(entry);
+	}
+
+	private void closeEntry(PoolEntry entry) {
+		if (bag.remove(entry)) {
+			totalConnections.decrementAndGet();
+			metrics.recordConnectionClosed();
+			closeQuietly(entry.getConnection());
+		}
+	}
+
+	private void closeQuietly(Connection connection) {
+		try {
+			connection.close();
+		} catch (SQLException e) {
+			log.debug("Não foi possível fechar a conexão do pool. " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Fecha as conexões livres sem uso além do mínimo, substitui as conexões que
+	 * atingiram o tempo máximo de vida e completa o mínimo de conexões livres.
+	 */
+	private void housekeep() {
+		try {
+			long now = System.nanoTime();
+			long idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+			int idle = bag.getCount(PoolEntry.STATE_NOT_IN_USE);
+			for (PoolEntry entry : bag.values()) {
+				if (entry.getState() == PoolEntry.STATE_IN_USE) {
+					if (entry.isExpired(now))
+						entry.markForEviction();
+					continue;
+				}
+				boolean idleExpired = (idleTimeout > 0) && (idle > getMinimumIdle())
+						&& (now - entry.getLastAccessed() > idleTimeoutNanos);
+				if ((idleExpired || entry.isExpired(now)) && bag.reserve(entry)) {
+					closeEntry(entry);
+					idle--;
+				}
+			}
+			fillPool();
+		} catch (Exception e) {
+			log.error("Erro na manutenção do pool de conexões. " + e.getMessage(), e);
+		}
+	}
+
+	private ScheduledFuture<?> scheduleLeakTask() {
+		final Exception stackTrace = new Exception("Conexão obtida pela thread " + Thread.currentThread().getName());
+		return executor.schedule(new Runnable() {
+			public void run() {
+				metrics.recordLeak();
+				log.warn("Possível vazamento de conexão: a conexão não foi devolvida ao pool após "
+						+ leakDetectionThreshold + "ms.", stackTrace);
+			}
+		}, leakDetectionThreshold, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Fecha todas as conexões e encerra a manutenção do pool. As conexões em uso
+	 * são fechadas ao serem devolvidas.
+	 */
+	public synchronized void close() {
+		if (closed)
+			return;
+		closed = true;
+		bag.close();
+		if (executor != null)
+			executor.shutdownNow();
+		for (PoolEntry entry : bag.values()) {
+			if (bag.reserve(entry))
+				closeEntry(entry);
+		}
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	public ConnectionPoolMetrics getMetrics() {
+		return metrics;
+	}
+
+	public int getActiveConnections() {
+		return bag.getCount(PoolEntry.STATE_IN_USE);
+	}
+
+	public int getIdleConnections() {
+		return bag.getCount(PoolEntry.STATE_NOT_IN_USE);
+	}
+
+	public int getTotalConnections() {
+		return bag.size();
+	}
+
+	public int getThreadsAwaitingConnection() {
+		return bag.getWaitingThreadCount();
+	}
+
+	/**
+	 * Quantidade mínima de conexões livres. Se não for informada é igual ao
+	 * tamanho máximo do pool.
+	 */
+	public int getMinimumIdle() {
+		return (minimumIdle < 0 || minimumIdle > maximumPoolSize ? maximumPoolSize : minimumIdle);
+	}
+
+	public void setMinimumIdle(int minimumIdle) {
+		this.minimumIdle = minimumIdle;
+	}
+
+	public int getMaximumPoolSize() {
+		return maximumPoolSize;
+	}
+
+	public void setMaximumPoolSize(int maximumPoolSize) {
+		this.maximumPoolSize = maximumPoolSize;
+	}
+
+	public long getConnectionTimeout() {
+		return connectionTimeout;
+	}
+
+	public void setConnectionTimeout(long connectionTimeout) {
+		this.connectionTimeout = connectionTimeout;
+	}
+
+	public long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	public void setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	public long getMaxLifetime() {
+		return maxLifetime;
+	}
+
+	public void setMaxLifetime(long maxLifetime) {
+		this.maxLifetime = maxLifetime;
+	}
+
+	public long getValidationTimeout() {
+		return validationTimeout;
+	}
+
+	public void setValidationTimeout(long validationTimeout) {
+		this.validationTimeout = validationTimeout;
+	}
+
+	public long getLeakDetectionThreshold() {
+		return leakDetectionThreshold;
+	}
+
+	public void setLeakDetectionThreshold(long leakDetectionThreshold) {
+		this.leakDetectionThreshold = leakDetectionThreshold;
+	}
+
+	@Override
+	public String toString() {
+		return "PooledJDBCDataSource [url=" + getUrl() + ", " + metrics + "]";
+	}
+}
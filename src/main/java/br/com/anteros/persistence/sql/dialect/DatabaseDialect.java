@@ -88,6 +88,7 @@ public abstract class DatabaseDialect {
 	public static final int DEFAULT_VARCHAR_SIZE = 255;
 	public static final int MAX_CLOB = 2147483647;
 	public static final int MAX_BLOB = MAX_CLOB;
+	public static final int DEFAULT_STREAMING_FETCH_SIZE = 500;
 	public static String PROCEDURE_CAT = "PROCEDURE_CAT";
 	public static String PROCEDURE_SCHEM = "PROCEDURE_SCHEM";
 	public static String PROCEDURE_NAME = "PROCEDURE_NAME";
@@ -1253,6 +1254,49 @@ public abstract class DatabaseDialect {
 		return getMaxColumnNameSize();
 	}
 
+	/**
+	 * Quantidade máxima de valores em uma expressão IN (...) usada na busca em
+	 * lote de relacionamentos e coleções.
+	 */
+	public int getMaxInListSize() {
+		return 1000;
+	}
+
+	/**
+	 * Indica se o driver retorna pelo getGeneratedKeys as chaves geradas de
+	 * todas as linhas de um executeBatch, permitindo inserir em lote entidades
+	 * com chave IDENTITY.
+	 */
+	public boolean supportsBatchGeneratedKeys() {
+		return false;
+	}
+
+	/**
+	 * Indica se o tipo informado pelo ResultSetMetaData é confiável para ler as
+	 * colunas com getLong, getInt, getBigDecimal, getTimestamp e getString em vez
+	 * de getObject.
+	 */
+	public boolean supportsTypedColumnReads() {
+		return true;
+	}
+
+	/**
+	 * Fetch size das consultas lidas em streaming. Deve fazer o driver buscar as
+	 * linhas em partes em vez de carregar o ResultSet inteiro na memória.
+	 */
+	public int getStreamingFetchSize() {
+		return DEFAULT_STREAMING_FETCH_SIZE;
+	}
+
+	/**
+	 * SQL que retorna a estimativa de linhas da tabela pelas estatísticas do
+	 * banco de dados, sem percorrer a tabela. Retorna nulo quando o banco de
+	 * dados não possui a estimativa; neste caso é feita a contagem exata.
+	 */
+	public String getTableRowEstimateSql(String tableName) {
+		return null;
+	}
+
 	public boolean supportsDeleteOnCascade() {
 		return supportsForeignKeyConstraints();
 	}
@@ -93,6 +93,11 @@ public class H2Dialect extends DatabaseDialect {
 		return true;
 	}
 
+	@Override
+	public boolean supportsBatchGeneratedKeys() {
+		return true;
+	}
+
 	@Override
 	public String name() {
 		return "H2 Database";
@@ -303,6 +308,12 @@ public class H2Dialect extends DatabaseDialect {
 		return "SET LOCK_TIMEOUT " + secondsTimeOut * 1000;
 	}
 
+	@Override
+	public String getTableRowEstimateSql(String tableName) {
+		return "select row_count_estimate from information_schema.tables where table_name = '"
+				+ tableName.toUpperCase().replace("'", "''") + "'";
+	}
+
 	@Override
 	public LimitClauseResult getLimitClause(String sql, int offset, int limit, boolean namedParameter) {
 		LimitClauseResult result;
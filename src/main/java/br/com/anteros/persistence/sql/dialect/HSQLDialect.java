@@ -76,6 +76,11 @@ public class HSQLDialect extends DatabaseDialect {
 		return false;
 	}
 
+	@Override
+	public boolean supportsBatchGeneratedKeys() {
+		return true;
+	}
+
 	@Override
 	public String getSequenceNextValString(String sequenceName) throws Exception {
 		return null;
@@ -175,6 +180,12 @@ public class HSQLDialect extends DatabaseDialect {
 		return null;
 	}
 
+	@Override
+	public String getTableRowEstimateSql(String tableName) {
+		return "select cardinality from information_schema.system_tablestats where table_name = '"
+				+ tableName.toUpperCase().replace("'", "''") + "'";
+	}
+
 	@Override
 	public LimitClauseResult getLimitClause(String sql, int offset, int limit, boolean namedParameter) {
 		LimitClauseResult result;
@@ -93,6 +93,11 @@ public class MariaDBDialect extends DatabaseDialect {
 		return false;
 	}
 
+	@Override
+	public boolean supportsBatchGeneratedKeys() {
+		return true;
+	}
+
 	@Override
 	public String getSequenceNextValString(String sequenceName) throws Exception {
 		throw new DatabaseDialectException(MESSAGES.getMessage(MariaDBDialect.class.getSimpleName() + ".sequenceException", getClass().getName()));
@@ -398,6 +403,12 @@ public class MariaDBDialect extends DatabaseDialect {
 		return null;
 	}
 
+	@Override
+	public String getTableRowEstimateSql(String tableName) {
+		return "select table_rows from information_schema.tables where table_schema = database() and table_name = '"
+				+ tableName.replace("'", "''") + "'";
+	}
+
 	@Override
 	public LimitClauseResult getLimitClause(String sql, int offset, int limit, boolean namedParameter) {
 		LimitClauseResult result;
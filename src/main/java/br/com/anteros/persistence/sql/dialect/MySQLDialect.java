@@ -55,6 +55,15 @@ public class MySQLDialect extends DatabaseDialect {
 		initializeTypes();
 	}
 
+	@Override
+	public int getStreamingFetchSize() {
+		/*
+		 * O driver do MySQL só lê linha a linha com Integer.MIN_VALUE, caso
+		 * contrário carrega todo o ResultSet.
+		 */
+		return Integer.MIN_VALUE;
+	}
+
 	@Override
 	protected void initializeTypes() {
 		super.initializeTypes();
@@ -93,6 +102,11 @@ public class MySQLDialect extends DatabaseDialect {
 		return false;
 	}
 
+	@Override
+	public boolean supportsBatchGeneratedKeys() {
+		return true;
+	}
+
 	@Override
 	public String getSequenceNextValString(String sequenceName) throws Exception {
 		throw new DatabaseDialectException(MESSAGES.getMessage(MySQLDialect.class.getSimpleName() + ".sequenceException", getClass().getName()));
@@ -398,6 +412,12 @@ public class MySQLDialect extends DatabaseDialect {
 		return "set innodb_lock_wait_timeout  = " + secondsTimeOut;
 	}
 
+	@Override
+	public String getTableRowEstimateSql(String tableName) {
+		return "select table_rows from information_schema.tables where table_schema = database() and table_name = '"
+				+ tableName.replace("'", "''") + "'";
+	}
+
 	@Override
 	public LimitClauseResult getLimitClause(String sql, int offset, int limit, boolean namedParameter) {
 		LimitClauseResult result;
@@ -610,6 +610,12 @@ public class OracleDialect extends DatabaseDialect {
 		return null;
 	}
 
+	@Override
+	public String getTableRowEstimateSql(String tableName) {
+		return "select num_rows from user_tables where table_name = '" + tableName.toUpperCase().replace("'", "''")
+				+ "'";
+	}
+
 	@Override
 	public LimitClauseResult getLimitClause(String sql, int offset, int limit, boolean namedParameter) {
 		LimitClauseResult result;
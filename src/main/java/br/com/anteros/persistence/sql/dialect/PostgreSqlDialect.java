@@ -78,6 +78,11 @@ public class PostgreSqlDialect extends DatabaseDialect {
 		return true;
 	}
 
+	@Override
+	public boolean supportsBatchGeneratedKeys() {
+		return true;
+	}
+
 	@Override
 	public String getSequenceNextValString(String sequenceName) throws Exception {
 		return "SELECT NEXTVAL(\'" + sequenceName + "\')";
@@ -298,6 +303,16 @@ public class PostgreSqlDialect extends DatabaseDialect {
 		return null;
 	}
 
+	@Override
+	public String getTableRowEstimateSql(String tableName) {
+		/*
+		 * reltuples é atualizado pelo ANALYZE e vale -1 em tabelas nunca
+		 * analisadas.
+		 */
+		return "select cast(reltuples as bigint) from pg_class where oid = to_regclass('" + tableName.replace("'", "''")
+				+ "')";
+	}
+
 	@Override
 	public LimitClauseResult getLimitClause(String sql, int offset, int limit, boolean namedParameter) {
 		LimitClauseResult result;
@@ -72,6 +72,15 @@ public class SQLiteDialect extends DatabaseDialect {
 		return "";
 	}
 
+	@Override
+	public boolean supportsTypedColumnReads() {
+		/*
+		 * As colunas do SQLite não possuem tipo fixo; datas podem estar gravadas como
+		 * texto.
+		 */
+		return false;
+	}
+
 	@Override
 	public boolean supportsSequences() {
 		return false;
@@ -211,6 +220,11 @@ public class SQLiteDialect extends DatabaseDialect {
 		return false;
 	}
 
+	@Override
+	public int getMaxInListSize() {
+		return 999;
+	}
+
 	@Override
 	public LimitClauseResult getLimitClause(String sql, int offset, int limit, boolean namedParameter) {
 		LimitClauseResult result;
@@ -36,31 +36,79 @@ import br.com.anteros.persistence.sql.binder.ParameterBinding;
  *
  */
 public class NamedParameterStatement {
+
+	public static final String PARSER_RESULT_KEY_PREFIX = "NamedParameters:";
+
 	private final PreparedStatement statement;
 
 	private final Map<?, ?> indexMap;
 
 	private String substitutedSql;
 
+	private StatementCache statementCache;
+
 	public String getSubstitutedSql() {
 		return substitutedSql;
 	}
 
 	public NamedParameterStatement(Connection connection, String query, NamedParameter[] params) throws SQLException {
-
-		NamedParameterParserResult result = parse(query, params);
-		indexMap = result.getParsedParams();
-		substitutedSql = result.getParsedSql();
-		statement = connection.prepareStatement(result.getParsedSql());
+		this(connection, parse(query, params));
 	}
 
 	public NamedParameterStatement(Connection connection, String query, NamedParameter[] params, int autoGeneratedKeys)
 			throws SQLException {
+		this(connection, parse(query, params), autoGeneratedKeys, null);
+	}
+
+	/**
+	 * Cria o statement usando o cache de statements da conexão. Se o cache for
+	 * nulo o statement é preparado diretamente na conexão.
+	 */
+	public NamedParameterStatement(Connection connection, String query, NamedParameter[] params, int autoGeneratedKeys,
+			StatementCache statementCache) throws SQLException {
+		this(connection, parse(query, params), autoGeneratedKeys, statementCache);
+	}
 
-		NamedParameterParserResult result = parse(query, params);
-		indexMap = result.getParsedParams();
-		substitutedSql = result.getParsedSql();
-		statement = connection.prepareStatement(result.getParsedSql(), autoGeneratedKeys);
+	/**
+	 * Cria o statement a partir do resultado de {@link #parse} já calculado, sem
+	 * percorrer novamente o SQL. O resultado não é alterado e pode ser
+	 * compartilhado entre statements.
+	 */
+	public NamedParameterStatement(Connection connection, NamedParameterParserResult parserResult)
+			throws SQLException {
+		indexMap = parserResult.getParsedParams();
+		substitutedSql = parserResult.getParsedSql();
+		statement = connection.prepareStatement(substitutedSql);
+	}
+
+	public NamedParameterStatement(Connection connection, NamedParameterParserResult parserResult,
+			int autoGeneratedKeys, StatementCache statementCache) throws SQLException {
+		indexMap = parserResult.getParsedParams();
+		substitutedSql = parserResult.getParsedSql();
+		this.statementCache = statementCache;
+		if (statementCache != null)
+			statement = statementCache.prepareStatement(connection, substitutedSql, autoGeneratedKeys);
+		else
+			statement = connection.prepareStatement(substitutedSql, autoGeneratedKeys);
+	}
+
+	/**
+	 * Chave do resultado de {@link #parse} no cache de metadados. Sem parâmetros
+	 * substituídos é a mesma chave usada pela análise do SQL da consulta; com
+	 * parâmetros substituídos inclui o texto de cada substituição.
+	 */
+	public static String getParserResultKey(String query, NamedParameter[] substitutedParams) {
+		StringBuilder result = null;
+		if (substitutedParams != null) {
+			for (NamedParameter param : substitutedParams) {
+				if (param instanceof SubstitutedParameter) {
+					if (result == null)
+						result = new StringBuilder(PARSER_RESULT_KEY_PREFIX).append(query);
+					result.append('\0').append(param.getName()).append('=').append(param.toString());
+				}
+			}
+		}
+		return (result == null ? PARSER_RESULT_KEY_PREFIX + query : result.toString());
 	}
 
 	public static final NamedParameterParserResult parse(String query, NamedParameter[] substitutedParams) {
@@ -213,7 +261,8 @@ public class NamedParameterStatement {
 	}
 
 	public void close() throws SQLException {
-		statement.close();
+		if ((statementCache == null) || !statementCache.release(statement))
+			statement.close();
 	}
 
 	public void addBatch() throws SQLException {
@@ -0,0 +1,323 @@
+/*******************************************************************************
+ * Copyright 2012 Anteros Tecnologia
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package br.com.anteros.persistence.sql.statement;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+
+import br.com.anteros.core.log.Logger;
+import br.com.anteros.core.log.LoggerProvider;
+import br.com.anteros.persistence.parameter.NamedParameter;
+import br.com.anteros.persistence.session.SQLSession;
+import br.com.anteros.persistence.session.SQLSessionListener;
+
+/**
+ * Cache LRU de PreparedStatement's da conexão de uma sessão.
+ *
+ * A chave é o SQL final (já com os parâmetros substituídos por ?) mais o modo
+ * de retorno de chaves geradas. O statement é retirado do cache enquanto está
+ * em uso e devolvido em {@link #release(PreparedStatement)}, assim consultas
+ * aninhadas com o mesmo SQL não compartilham o mesmo statement.
+ *
+ * O cache é registrado como listener da sessão e seus statements são fechados
+ * quando a sessão é fechada ou quando a conexão da sessão é trocada.
+ *
+ * @author Edson Martins - Anteros
+ *
+ */
+public class StatementCache implements SQLSessionListener {
+
+	private static Logger log = LoggerProvider.getInstance().getLogger(StatementCache.class.getName());
+
+	private static final AtomicLong totalHits = new AtomicLong();
+	private static final AtomicLong totalMisses = new AtomicLong();
+
+	private final int maxSize;
+	private final LinkedHashMap<StatementKey, CachedStatement> idleStatements;
+	private final Map<PreparedStatement, CachedStatement> statementsInUse = new IdentityHashMap<PreparedStatement, CachedStatement>();
+	private Connection connection;
+	private long hits;
+	private long misses;
+
+	/**
+	 * Retorna o cache da sessão criando-o se necessário. Retorna nulo se o
+	 * tamanho informado não habilita o cache.
+	 */
+	public static StatementCache getInstance(SQLSession session, int maxSize) throws SQLException {
+		if (maxSize <= 0 || session == null)
+			return null;
+		StatementCache result;
+		synchronized (session) {
+			result = getCache(session);
+			if (result == null) {
+				result = new StatementCache(maxSize);
+				session.addListener(result);
+			}
+		}
+		result.bind(session.getConnection());
+		return result;
+	}
+
+	/**
+	 * Retorna o cache da sessão caso exista.
+	 */
+	public static StatementCache getCache(SQLSession session) {
+		if ((session == null) || (session.getListeners() == null))
+			return null;
+		for (SQLSessionListener listener : session.getListeners()) {
+			if (listener instanceof StatementCache)
+				return (StatementCache) listener;
+		}
+		return null;
+	}
+
+	/**
+	 * Descarta e fecha os statements em cache da sessão. Deve ser chamado
+	 * sempre que a conexão for invalidada.
+	 */
+	public static void invalidate(SQLSession session) {
+		StatementCache cache = getCache(session);
+		if (cache != null)
+			cache.clear();
+	}
+
+	/**
+	 * Fecha o statement ou devolve-o ao cache da sessão caso ele tenha sido
+	 * obtido do cache.
+	 */
+	public static void close(SQLSession session, PreparedStatement statement) throws SQLException {
+		if (statement == null)
+			return;
+		StatementCache cache = getCache(session);
+		if ((cache == null) || !cache.release(statement))
+			statement.close();
+	}
+
+	public static long getTotalHits() {
+		return totalHits.get();
+	}
+
+	public static long getTotalMisses() {
+		return totalMisses.get();
+	}
+
+	public StatementCache(final int maxSize) {
+		this.maxSize = maxSize;
+		this.idleStatements = new LinkedHashMap<StatementKey, CachedStatement>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Entry<StatementKey, CachedStatement> eldest) {
+				if (size() > maxSize) {
+					closeQuietly(eldest.getValue().statement);
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Associa o cache à conexão. Se a conexão mudou os statements da conexão
+	 * anterior são fechados.
+	 */
+	public synchronized void bind(Connection connection) {
+		if (this.connection != connection) {
+			clear();
+			this.connection = connection;
+		}
+	}
+
+	public synchronized PreparedStatement prepareStatement(Connection connection, String sql, int autoGeneratedKeys)
+			throws SQLException {
+		bind(connection);
+		StatementKey key = new StatementKey(sql, autoGeneratedKeys);
+		CachedStatement cached = idleStatements.remove(key);
+		if ((cached != null) && cached.statement.isClosed())
+			cached = null;
+		if (cached != null) {
+			hits++;
+			totalHits.incrementAndGet();
+		} else {
+			misses++;
+			totalMisses.incrementAndGet();
+			PreparedStatement statement;
+			if (autoGeneratedKeys == Statement.NO_GENERATED_KEYS)
+				statement = connection.prepareStatement(sql);
+			else
+				statement = connection.prepareStatement(sql, autoGeneratedKeys);
+			cached = new CachedStatement(key, statement);
+		}
+		statementsInUse.put(cached.statement, cached);
+		return cached.statement;
+	}
+
+	/**
+	 * Devolve o statement ao cache restaurando o timeout, o máximo de linhas e o
+	 * fetchSize originais. Retorna falso se o statement não pertence a este
+	 * cache.
+	 */
+	public synchronized boolean release(PreparedStatement statement) throws SQLException {
+		CachedStatement cached = statementsInUse.remove(statement);
+		if (cached == null)
+			return false;
+		if (statement.isClosed())
+			return true;
+		try {
+			statement.clearParameters();
+			statement.clearBatch();
+			statement.clearWarnings();
+			cached.reset();
+		} catch (SQLException e) {
+			closeQuietly(statement);
+			return true;
+		}
+		CachedStatement previous = idleStatements.put(cached.key, cached);
+		if ((previous != null) && (previous != cached))
+			closeQuietly(previous.statement);
+		return true;
+	}
+
+	/**
+	 * Fecha os statements livres e os que estão em uso.
+	 */
+	public synchronized void clear() {
+		List<PreparedStatement> statements = new ArrayList<PreparedStatement>();
+		for (CachedStatement cached : idleStatements.values())
+			statements.add(cached.statement);
+		statements.addAll(statementsInUse.keySet());
+		idleStatements.clear();
+		statementsInUse.clear();
+		for (PreparedStatement statement : statements)
+			closeQuietly(statement);
+	}
+
+	public synchronized int size() {
+		return idleStatements.size();
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public void onExecuteSQL(String sql, NamedParameter[] parameters) {
+	}
+
+	public void onExecuteSQL(String sql, Map<String, Object> parameters) {
+	}
+
+	public void onExecuteSQL(String sql, Object[] parameters) {
+	}
+
+	public void onExecuteUpdateSQL(String sql, NamedParameter[] parameters) {
+	}
+
+	public void onExecuteUpdateSQL(String sql, Map<String, Object> parameters) {
+	}
+
+	public void onExecuteUpdateSQL(String sql, Object[] parameters) {
+	}
+
+	public synchronized void onClose(SQLSession session) {
+		clear();
+		connection = null;
+	}
+
+	private static void closeQuietly(PreparedStatement statement) {
+		try {
+			statement.close();
+		} catch (SQLException e) {
+			log.debug("Não foi possível fechar o statement do cache: " + e.getMessage());
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "size=" + size() + ", maxSize=" + maxSize + ", hits=" + getHits() + ", misses=" + getMisses();
+	}
+
+	/**
+	 * Statement em cache com as configurações que tinha ao ser criado.
+	 */
+	private static final class CachedStatement {
+		private final StatementKey key;
+		private final PreparedStatement statement;
+		private final int queryTimeout;
+		private final int maxRows;
+		private final int fetchSize;
+
+		CachedStatement(StatementKey key, PreparedStatement statement) throws SQLException {
+			this.key = key;
+			this.statement = statement;
+			this.queryTimeout = statement.getQueryTimeout();
+			this.maxRows = statement.getMaxRows();
+			this.fetchSize = statement.getFetchSize();
+		}
+
+		void reset() throws SQLException {
+			if (statement.getQueryTimeout() != queryTimeout)
+				statement.setQueryTimeout(queryTimeout);
+			if (statement.getMaxRows() != maxRows)
+				statement.setMaxRows(maxRows);
+			if (statement.getFetchSize() != fetchSize)
+				statement.setFetchSize(fetchSize);
+		}
+	}
+
+	private static final class StatementKey {
+		private final String sql;
+		private final int autoGeneratedKeys;
+		private final int hashCode;
+
+		StatementKey(String sql, int autoGeneratedKeys) {
+			this.sql = sql;
+			this.autoGeneratedKeys = autoGeneratedKeys;
+			this.hashCode = 31 * sql.hashCode() + autoGeneratedKeys;
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof StatementKey))
+				return false;
+			StatementKey other = (StatementKey) obj;
+			return (autoGeneratedKeys == other.autoGeneratedKeys) && sql.equals(other.sql);
+		}
+	}
+}